@@ -0,0 +1,115 @@
+package benchmarks;
+
+import main.formatters.CsvFormatter;
+import main.formatters.DataInterchangeFormatter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class which locates the benchmark datasets and builds the payloads the serializers are measured with.
+ * <p>
+ * The small and medium datasets are the metric files shipped in the datafiles directory; the apache dataset is the
+ * Apache monitoring log. Every dataset can be turned into a String payload (the raw CSV text), an ArrayList payload
+ * and a HashMap payload, the same three shapes the message sender publishes.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class Datasets {
+	/**
+	 * Names of the codecs, indexed by the identifiers used in {@link DataInterchangeFormatter}.
+	 */
+	public static final String[] CODEC_NAMES = {"cbor", "bson", "hessian", "java", "kryo", "msgpack"};
+
+	/**
+	 * Names of the payload shapes.
+	 */
+	public static final String[] PAYLOAD_TYPES = {"String", "ArrayList", "HashMap"};
+
+	/**
+	 * Names of the tabular datasets.
+	 */
+	public static final String[] CSV_DATASETS = {"small", "medium", "apache"};
+
+	/**
+	 * Directory holding the data files, relative to the working directory.
+	 */
+	private static final String DATA_DIR = System.getProperty("user.dir") + "/datafiles/";
+
+	/**
+	 * Gets the CSV file of a tabular dataset.
+	 *
+	 * @param dataset The dataset name: small, medium or apache.
+	 * @return The CSV file.
+	 */
+	public static File csvFile (String dataset) {
+		if (dataset.equals("apache")) {
+			return new File(DATA_DIR + "apache_monitor_data.csv");
+		}
+
+		return new File(DATA_DIR + dataset + "_metric_csv_data.csv");
+	}
+
+	/**
+	 * Gets the JSON file of a dataset.
+	 *
+	 * @param dataset The dataset name: small or medium.
+	 * @return The JSON file.
+	 */
+	public static File jsonFile (String dataset) {
+		return new File(DATA_DIR + dataset + "_json_data.json");
+	}
+
+	/**
+	 * Gets the XML file of a dataset.
+	 *
+	 * @param dataset The dataset name: small or medium.
+	 * @return The XML file.
+	 */
+	public static File xmlFile (String dataset) {
+		return new File(DATA_DIR + dataset + "_xml_data.xml");
+	}
+
+	/**
+	 * Builds a payload from a tabular dataset.
+	 *
+	 * @param dataset The dataset name: small, medium or apache.
+	 * @param payloadType The payload shape: String, ArrayList or HashMap.
+	 * @return The payload.
+	 * @throws IOException If the dataset could not be read.
+	 */
+	public static Object payload (String dataset, String payloadType) throws IOException {
+		File file = csvFile(dataset);
+
+		switch (payloadType) {
+			case "String":
+				return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+			case "ArrayList":
+				return new CsvFormatter(file).convertToArrayList();
+			case "HashMap":
+				return new CsvFormatter(file).convertToHashMap();
+			default:
+				throw new IllegalArgumentException("Unknown payload type: " + payloadType);
+		}
+	}
+
+	/**
+	 * Gets the identifier of a codec from its name.
+	 *
+	 * @param codecName The codec name, one of {@link #CODEC_NAMES}.
+	 * @return The codec identifier.
+	 */
+	public static int codecId (String codecName) {
+		for (int codec = 0; codec < CODEC_NAMES.length; codec++) {
+			if (CODEC_NAMES[codec].equals(codecName)) {
+				return codec;
+			}
+		}
+
+		throw new IllegalArgumentException("Unknown codec: " + codecName);
+	}
+}
@@ -0,0 +1,130 @@
+package benchmarks;
+
+import main.formatters.XmlFormatter;
+import main.formatters.JsonFormatter;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of every conversion of the JSON and XML formatters on the small and medium datasets.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentFormatterBenchmark {
+	/**
+	 * The dataset under test.
+	 */
+	@Param({"small", "medium"})
+	public String dataset;
+
+	/**
+	 * Formatter for the JSON file of the dataset.
+	 */
+	private JsonFormatter json;
+
+	/**
+	 * Formatter for the XML file of the dataset.
+	 */
+	private XmlFormatter xml;
+
+	/**
+	 * Creates the formatters for the dataset.
+	 */
+	@Setup(Level.Trial)
+	public void setUp () {
+		json = new JsonFormatter(Datasets.jsonFile(dataset));
+		xml = new XmlFormatter(Datasets.xmlFile(dataset));
+	}
+
+	/**
+	 * Measures converting JSON to an ArrayList.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public ArrayList<String> jsonToArrayList () {
+		return json.convertToArrayList();
+	}
+
+	/**
+	 * Measures converting JSON to a HashMap.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public HashMap<String, Object> jsonToHashMap () {
+		return json.convertToHashMap();
+	}
+
+	/**
+	 * Measures converting JSON to XML.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public String jsonToXml () {
+		return json.convertToXml();
+	}
+
+	/**
+	 * Measures converting JSON to CSV.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public String jsonToCsv () {
+		return json.convertToCsv();
+	}
+
+	/**
+	 * Measures converting XML to an ArrayList.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public ArrayList<String> xmlToArrayList () {
+		return xml.convertToArrayList();
+	}
+
+	/**
+	 * Measures converting XML to a HashMap.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public HashMap<String, Object> xmlToHashMap () {
+		return xml.convertToHashMap();
+	}
+
+	/**
+	 * Measures converting XML to JSON.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public String xmlToJson () {
+		return xml.convertToJson();
+	}
+
+	/**
+	 * Measures converting XML to CSV.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public String xmlToCsv () {
+		return xml.convertToCsv();
+	}
+}
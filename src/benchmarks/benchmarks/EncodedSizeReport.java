@@ -0,0 +1,73 @@
+package benchmarks;
+
+import main.formatters.DataInterchangeFormatter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.function.Function;
+
+/**
+ * Writes the encoded size of every codec, payload shape and tabular dataset combination to a CSV file.
+ * <p>
+ * The sizes complement the timings of {@link SerializerBenchmark}, which do not depend on JMH to be reproduced. A
+ * combination which fails to serialize is reported with a size of -1.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class EncodedSizeReport {
+	/**
+	 * Writes the report.
+	 *
+	 * @param args The path of the CSV file to write, build/benchmarks/encoded-sizes.csv if not given.
+	 */
+	public static void main (String[] args) {
+		File reportFile = new File(args.length > 0 ? args[0] : "build/benchmarks/encoded-sizes.csv");
+
+		if (reportFile.getParentFile() != null) {
+			reportFile.getParentFile().mkdirs();
+		}
+
+		try (PrintWriter report = new PrintWriter(reportFile, "UTF-8")) {
+			report.println("codec,payloadType,dataset,bytes");
+
+			for (String dataset : Datasets.CSV_DATASETS) {
+				for (String payloadType : Datasets.PAYLOAD_TYPES) {
+					Object payload = Datasets.payload(dataset, payloadType);
+
+					for (int codec = 0; codec < Datasets.CODEC_NAMES.length; codec++) {
+						report.println(Datasets.CODEC_NAMES[codec] + "," + payloadType + "," + dataset + ","
+								+ encodedSize(codec, payload));
+					}
+				}
+			}
+		}
+		catch (IOException e) {
+			System.err.println("Failure while writing the encoded size report: " + e.getMessage());
+			return;
+		}
+
+		System.out.println("Encoded sizes written to " + reportFile.getPath());
+	}
+
+	/**
+	 * Serializes a payload and returns its size.
+	 *
+	 * @param codec The codec identifier.
+	 * @param payload The payload to serialize.
+	 * @return The encoded size in bytes, or -1 if the payload could not be serialized.
+	 */
+	private static long encodedSize (int codec, Object payload) {
+		try {
+			Function<Object, byte[]> serializer = DataInterchangeFormatter.newSerializer(codec);
+			byte[] bytes = serializer.apply(payload);
+
+			return bytes == null || bytes.length == 0 ? -1 : bytes.length;
+		}
+		catch (RuntimeException | LinkageError e) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package benchmarks;
+
+import main.formatters.DataInterchangeFormatter;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of every serializer and deserializer pair for every payload shape and tabular dataset.
+ * <p>
+ * Each combination is measured for throughput and average time. The encoded size of every combination is constant
+ * for a given dataset, so it is written by {@link EncodedSizeReport} rather than measured here. Run with
+ * {@code -prof gc} to add the allocation rate.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+	/**
+	 * The codec under test.
+	 */
+	@Param({"cbor", "bson", "hessian", "java", "kryo", "msgpack"})
+	public String codec;
+
+	/**
+	 * The payload shape under test.
+	 */
+	@Param({"String", "ArrayList", "HashMap"})
+	public String payloadType;
+
+	/**
+	 * The dataset the payload is built from.
+	 */
+	@Param({"small", "medium", "apache"})
+	public String dataset;
+
+	/**
+	 * The payload to serialize.
+	 */
+	private Object payload;
+
+	/**
+	 * The payload in serialized form.
+	 */
+	private byte[] encoded;
+
+	/**
+	 * The serializer of the codec under test.
+	 */
+	private Function<Object, byte[]> serializer;
+
+	/**
+	 * The deserializer of the codec under test.
+	 */
+	private Function<byte[], Object> deserializer;
+
+	/**
+	 * Builds the payload and the codec, and serializes the payload once for the deserialization benchmark.
+	 *
+	 * @throws IOException If the dataset could not be read.
+	 */
+	@Setup(Level.Trial)
+	public void setUp () throws IOException {
+		int codecId = Datasets.codecId(codec);
+
+		payload = Datasets.payload(dataset, payloadType);
+		serializer = DataInterchangeFormatter.newSerializer(codecId);
+		deserializer = DataInterchangeFormatter.newDeserializer(codecId, payload);
+		encoded = serializer.apply(payload);
+	}
+
+	/**
+	 * Measures serialization.
+	 *
+	 * @return The serialized payload.
+	 */
+	@Benchmark
+	public byte[] serialize () {
+		return serializer.apply(payload);
+	}
+
+	/**
+	 * Measures deserialization.
+	 *
+	 * @return The deserialized payload.
+	 */
+	@Benchmark
+	public Object deserialize () {
+		return deserializer.apply(encoded);
+	}
+
+	/**
+	 * Measures serialization followed by deserialization, as done between the message sender and receiver.
+	 *
+	 * @param blackhole Consumes the result so it is not optimized away.
+	 */
+	@Benchmark
+	public void roundTrip (Blackhole blackhole) {
+		blackhole.consume(deserializer.apply(serializer.apply(payload)));
+	}
+}
@@ -0,0 +1,177 @@
+package benchmarks;
+
+import main.formatters.CsvFormatter;
+import main.formatters.HashMapFormatter;
+import main.formatters.ArrayListFormatter;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of every conversion of the CSV, ArrayList and HashMap formatters on the tabular datasets.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TabularFormatterBenchmark {
+	/**
+	 * The dataset under test.
+	 */
+	@Param({"small", "medium", "apache"})
+	public String dataset;
+
+	/**
+	 * Formatter for the CSV file of the dataset.
+	 */
+	private CsvFormatter csv;
+
+	/**
+	 * Formatter for the dataset as an ArrayList.
+	 */
+	private ArrayListFormatter list;
+
+	/**
+	 * Formatter for the dataset as a HashMap.
+	 */
+	private HashMapFormatter hashMap;
+
+	/**
+	 * Creates the formatters for the dataset.
+	 */
+	@Setup(Level.Trial)
+	public void setUp () {
+		csv = new CsvFormatter(Datasets.csvFile(dataset));
+		list = new ArrayListFormatter(csv.convertToArrayList());
+		hashMap = new HashMapFormatter(csv.convertToHashMap());
+	}
+
+	/**
+	 * Measures converting CSV to an ArrayList.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public ArrayList<String> csvToArrayList () {
+		return csv.convertToArrayList();
+	}
+
+	/**
+	 * Measures converting CSV to a HashMap.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public HashMap<String, Object> csvToHashMap () {
+		return csv.convertToHashMap();
+	}
+
+	/**
+	 * Measures converting CSV to JSON.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public String csvToJson () {
+		return csv.convertToJson('\t');
+	}
+
+	/**
+	 * Measures converting CSV to XML.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public String csvToXml () {
+		return csv.convertToXml();
+	}
+
+	/**
+	 * Measures converting an ArrayList to CSV.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public String arrayListToCsv () {
+		return list.convertToCsv('\t');
+	}
+
+	/**
+	 * Measures converting an ArrayList to XML.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public String arrayListToXml () {
+		return list.convertToXml();
+	}
+
+	/**
+	 * Measures converting an ArrayList to JSON.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public String arrayListToJson () {
+		return list.convertToJson();
+	}
+
+	/**
+	 * Measures converting an ArrayList to a HashMap.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public HashMap<String, Object> arrayListToHashMap () {
+		return list.convertToHashMap();
+	}
+
+	/**
+	 * Measures converting a HashMap to CSV.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public String hashMapToCsv () {
+		return hashMap.convertToCsv();
+	}
+
+	/**
+	 * Measures converting a HashMap to XML.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public String hashMapToXml () {
+		return hashMap.convertToXml();
+	}
+
+	/**
+	 * Measures converting a HashMap to JSON.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public String hashMapToJson () {
+		return hashMap.convertToJson();
+	}
+
+	/**
+	 * Measures converting a HashMap to an ArrayList.
+	 *
+	 * @return The converted data.
+	 */
+	@Benchmark
+	public ArrayList<String> hashMapToArrayList () {
+		return hashMap.convertToArrayList();
+	}
+}
@@ -0,0 +1,60 @@
+package main.codecs;
+
+import main.serializers.ISerializer;
+import main.serializers.BsonSerializer;
+import main.deserializers.IDeserializer;
+import main.deserializers.BsonDeserializer;
+
+/**
+ * Codec which encodes messages with BSON, the binary JSON format of MongoDB.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class BsonCodec implements ICodec {
+	/**
+	 * Id of the BSON codec in message headers.
+	 */
+	public static final int ID = 1;
+
+	/**
+	 * Gets the id written into the headers of messages encoded with BSON.
+	 *
+	 * @return The codec id.
+	 */
+	@Override
+	public int getId () {
+		return ID;
+	}
+
+	/**
+	 * Gets the human readable name of the codec.
+	 *
+	 * @return The codec name.
+	 */
+	@Override
+	public String getName () {
+		return "BSON";
+	}
+
+	/**
+	 * Creates a new BSON serializer.
+	 *
+	 * @return A new serializer.
+	 */
+	@Override
+	public ISerializer newSerializer () {
+		return new BsonSerializer();
+	}
+
+	/**
+	 * Creates a new BSON deserializer.
+	 *
+	 * @return A new deserializer.
+	 */
+	@Override
+	public IDeserializer newDeserializer () {
+		return new BsonDeserializer();
+	}
+}
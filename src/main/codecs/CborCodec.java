@@ -0,0 +1,60 @@
+package main.codecs;
+
+import main.serializers.ISerializer;
+import main.serializers.CborSerializer;
+import main.deserializers.IDeserializer;
+import main.deserializers.CborDeserializer;
+
+/**
+ * Codec which encodes messages with CBOR, the Concise Binary Object Representation.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class CborCodec implements ICodec {
+	/**
+	 * Id of the CBOR codec in message headers.
+	 */
+	public static final int ID = 0;
+
+	/**
+	 * Gets the id written into the headers of messages encoded with CBOR.
+	 *
+	 * @return The codec id.
+	 */
+	@Override
+	public int getId () {
+		return ID;
+	}
+
+	/**
+	 * Gets the human readable name of the codec.
+	 *
+	 * @return The codec name.
+	 */
+	@Override
+	public String getName () {
+		return "CBOR";
+	}
+
+	/**
+	 * Creates a new CBOR serializer.
+	 *
+	 * @return A new serializer.
+	 */
+	@Override
+	public ISerializer newSerializer () {
+		return new CborSerializer();
+	}
+
+	/**
+	 * Creates a new CBOR deserializer.
+	 *
+	 * @return A new deserializer.
+	 */
+	@Override
+	public IDeserializer newDeserializer () {
+		return new CborDeserializer();
+	}
+}
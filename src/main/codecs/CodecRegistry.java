@@ -0,0 +1,164 @@
+package main.codecs;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.ServiceLoader;
+import java.util.ServiceConfigurationError;
+
+/**
+ * Class which holds the codecs known to the message sender and receiver, keyed by id and by name.
+ * <p>
+ * The default registry holds the six built-in codecs plus every codec found by the {@link ServiceLoader}, so a new
+ * codec is added by putting its jar on the class path (see {@link ICodec}) without changing the sender or receiver.
+ * A discovered codec whose id or name is already taken is reported and ignored. The registry is safe to use from
+ * several threads.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class CodecRegistry {
+	/**
+	 * The registry shared by the sender and receiver, loaded on first use.
+	 */
+	private static CodecRegistry defaultRegistry = null;
+
+	/**
+	 * The registered codecs, keyed by id in ascending order.
+	 */
+	private final TreeMap<Integer, ICodec> byId = new TreeMap<>();
+
+	/**
+	 * The registered codecs, keyed by lower case name.
+	 */
+	private final Map<String, ICodec> byName = new HashMap<>();
+
+	/**
+	 * Gets the registry shared by the sender and receiver, loading it on first use.
+	 *
+	 * @return The default registry.
+	 */
+	public static synchronized CodecRegistry getDefault () {
+		if (defaultRegistry == null) {
+			defaultRegistry = load(CodecRegistry.class.getClassLoader());
+		}
+
+		return defaultRegistry;
+	}
+
+	/**
+	 * Creates a registry holding the built-in codecs and every codec the {@link ServiceLoader} finds with the given
+	 * class loader.
+	 *
+	 * @param loader The class loader used to find codecs.
+	 * @return The new registry.
+	 */
+	public static CodecRegistry load (ClassLoader loader) {
+		CodecRegistry registry = new CodecRegistry();
+
+		registry.register(new CborCodec());
+		registry.register(new BsonCodec());
+		registry.register(new HessianCodec());
+		registry.register(new JavaCodec());
+		registry.register(new KryoCodec());
+		registry.register(new MessagePackCodec());
+
+		Iterator<ICodec> discovered = ServiceLoader.load(ICodec.class, loader).iterator();
+
+		while (true) {
+			try {
+				if (! discovered.hasNext()) {
+					break;
+				}
+
+				ICodec codec = discovered.next();
+				ICodec existing = registry.get(codec.getId());
+
+				if (existing == null || existing.getClass() != codec.getClass()) {
+					registry.register(codec);
+				}
+			}
+			catch (ServiceConfigurationError | IllegalArgumentException exception) {
+				System.err.println("Ignoring codec: " + exception.getMessage());
+			}
+		}
+
+		return registry;
+	}
+
+	/**
+	 * Adds a codec to the registry.
+	 *
+	 * @param codec The codec to add.
+	 * @throws IllegalArgumentException If the id is negative or the id or name is already registered.
+	 */
+	public synchronized void register (ICodec codec) {
+		String name = codec.getName().toLowerCase(Locale.ROOT);
+
+		if (codec.getId() < 0) {
+			throw new IllegalArgumentException("Codec id must not be negative: " + codec.getId());
+		}
+
+		if (byId.containsKey(codec.getId())) {
+			throw new IllegalArgumentException("Codec id " + codec.getId() + " of " + codec.getName() + " is already used by " + byId.get(codec.getId()).getName());
+		}
+
+		if (byName.containsKey(name)) {
+			throw new IllegalArgumentException("Codec name is already registered: " + codec.getName());
+		}
+
+		byId.put(codec.getId(), codec);
+		byName.put(name, codec);
+	}
+
+	/**
+	 * Gets the codec with the given id.
+	 *
+	 * @param id The codec id.
+	 * @return The codec, or null if no codec has the id.
+	 */
+	public synchronized ICodec get (int id) {
+		return byId.get(id);
+	}
+
+	/**
+	 * Gets the codec with the given name, ignoring case.
+	 *
+	 * @param name The codec name.
+	 * @return The codec, or null if no codec has the name.
+	 */
+	public synchronized ICodec get (String name) {
+		return byName.get(name.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Gets the codec with the given id, failing if there is none.
+	 *
+	 * @param id The codec id.
+	 * @return The codec.
+	 * @throws IllegalArgumentException If no codec has the id.
+	 */
+	public ICodec require (int id) {
+		ICodec codec = get(id);
+
+		if (codec == null) {
+			throw new IllegalArgumentException("Unknown codec id: " + id);
+		}
+
+		return codec;
+	}
+
+	/**
+	 * Gets every registered codec in ascending order of id.
+	 *
+	 * @return A copy of the list of codecs.
+	 */
+	public synchronized List<ICodec> getCodecs () {
+		return new ArrayList<>(byId.values());
+	}
+}
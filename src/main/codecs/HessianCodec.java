@@ -0,0 +1,60 @@
+package main.codecs;
+
+import main.serializers.ISerializer;
+import main.serializers.HessianSerializer;
+import main.deserializers.IDeserializer;
+import main.deserializers.HessianDeserializer;
+
+/**
+ * Codec which encodes messages with the Hessian binary web service protocol.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class HessianCodec implements ICodec {
+	/**
+	 * Id of the Hessian codec in message headers.
+	 */
+	public static final int ID = 2;
+
+	/**
+	 * Gets the id written into the headers of messages encoded with Hessian.
+	 *
+	 * @return The codec id.
+	 */
+	@Override
+	public int getId () {
+		return ID;
+	}
+
+	/**
+	 * Gets the human readable name of the codec.
+	 *
+	 * @return The codec name.
+	 */
+	@Override
+	public String getName () {
+		return "Hessian";
+	}
+
+	/**
+	 * Creates a new Hessian serializer.
+	 *
+	 * @return A new serializer.
+	 */
+	@Override
+	public ISerializer newSerializer () {
+		return new HessianSerializer();
+	}
+
+	/**
+	 * Creates a new Hessian deserializer.
+	 *
+	 * @return A new deserializer.
+	 */
+	@Override
+	public IDeserializer newDeserializer () {
+		return new HessianDeserializer();
+	}
+}
@@ -0,0 +1,50 @@
+package main.codecs;
+
+import main.serializers.ISerializer;
+import main.deserializers.IDeserializer;
+
+/**
+ * This interface defines a binary format which messages can be encoded with.
+ * <p>
+ * A codec pairs a serializer with the deserializer which reads its output, under an id that is written into the
+ * headers of every message so the receiver knows how to decode it. Ids are part of the wire format: they must be
+ * unique and must never be reused for a different format. The built-in codecs use ids 0 to 5.
+ * <p>
+ * Codecs are collected by a {@link CodecRegistry}. Codecs outside this project are discovered with the Java
+ * {@link java.util.ServiceLoader}: list the implementing class in a META-INF/services/main.codecs.ICodec file on the
+ * class path and give it a public constructor without arguments.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public interface ICodec {
+	/**
+	 * Gets the id written into the headers of messages encoded with this codec.
+	 *
+	 * @return The codec id, zero or greater.
+	 */
+	public int getId ();
+
+	/**
+	 * Gets the human readable name of the codec.
+	 *
+	 * @return The codec name.
+	 */
+	public String getName ();
+
+	/**
+	 * Creates a new serializer for this codec. The serializer can be shared by several threads, see
+	 * {@link ISerializer}.
+	 *
+	 * @return A new serializer.
+	 */
+	public ISerializer newSerializer ();
+
+	/**
+	 * Creates a new deserializer for this codec. The deserializer is not safe to share between threads.
+	 *
+	 * @return A new deserializer.
+	 */
+	public IDeserializer newDeserializer ();
+}
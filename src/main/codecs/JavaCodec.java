@@ -0,0 +1,60 @@
+package main.codecs;
+
+import main.serializers.ISerializer;
+import main.serializers.JavaSerializer;
+import main.deserializers.IDeserializer;
+import main.deserializers.JavaDeserializer;
+
+/**
+ * Codec which encodes messages with the built-in Java object serialization.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class JavaCodec implements ICodec {
+	/**
+	 * Id of the Java codec in message headers.
+	 */
+	public static final int ID = 3;
+
+	/**
+	 * Gets the id written into the headers of messages encoded with Java.
+	 *
+	 * @return The codec id.
+	 */
+	@Override
+	public int getId () {
+		return ID;
+	}
+
+	/**
+	 * Gets the human readable name of the codec.
+	 *
+	 * @return The codec name.
+	 */
+	@Override
+	public String getName () {
+		return "Java";
+	}
+
+	/**
+	 * Creates a new Java serializer.
+	 *
+	 * @return A new serializer.
+	 */
+	@Override
+	public ISerializer newSerializer () {
+		return new JavaSerializer();
+	}
+
+	/**
+	 * Creates a new Java deserializer.
+	 *
+	 * @return A new deserializer.
+	 */
+	@Override
+	public IDeserializer newDeserializer () {
+		return new JavaDeserializer();
+	}
+}
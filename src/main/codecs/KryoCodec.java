@@ -0,0 +1,60 @@
+package main.codecs;
+
+import main.serializers.ISerializer;
+import main.serializers.KryoSerializer;
+import main.deserializers.IDeserializer;
+import main.deserializers.KryoDeserializer;
+
+/**
+ * Codec which encodes messages with Kryo.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class KryoCodec implements ICodec {
+	/**
+	 * Id of the Kryo codec in message headers.
+	 */
+	public static final int ID = 4;
+
+	/**
+	 * Gets the id written into the headers of messages encoded with Kryo.
+	 *
+	 * @return The codec id.
+	 */
+	@Override
+	public int getId () {
+		return ID;
+	}
+
+	/**
+	 * Gets the human readable name of the codec.
+	 *
+	 * @return The codec name.
+	 */
+	@Override
+	public String getName () {
+		return "Kryo";
+	}
+
+	/**
+	 * Creates a new Kryo serializer.
+	 *
+	 * @return A new serializer.
+	 */
+	@Override
+	public ISerializer newSerializer () {
+		return new KryoSerializer();
+	}
+
+	/**
+	 * Creates a new Kryo deserializer.
+	 *
+	 * @return A new deserializer.
+	 */
+	@Override
+	public IDeserializer newDeserializer () {
+		return new KryoDeserializer();
+	}
+}
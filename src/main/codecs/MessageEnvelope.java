@@ -0,0 +1,555 @@
+package main.codecs;
+
+import com.rabbitmq.client.AMQP;
+
+import java.util.Map;
+import java.util.HashMap;
+
+/**
+ * Class which describes a message body: how it was encoded, who sent it and when.
+ * <p>
+ * The envelope is written into the AMQP headers of every message, so each message can be decoded on its own
+ * whatever order messages arrive in and however many senders and consumers share the queue. It holds:
+ * <ul>
+ *     <li>the kind of payload and the id of the {@link ICodec} which encoded it, which choose the deserializer,</li>
+ *     <li>the schema version of the envelope and payload layout, so a receiver can reject messages it does not
+ *     understand,</li>
+ *     <li>the id of the sender and a sequence number counting up from 0 per sender, so lost or reordered messages
+ *     can be detected,</li>
+ *     <li>the time the message was sent, in milliseconds since the epoch,</li>
+ *     <li>for a body which was compressed after it was encoded, the id of the compression algorithm and of its
+ *     dictionary and the length of the body before compression. These headers are only written for compressed
+ *     bodies,</li>
+ *     <li>for a body which is one part of a dataset sent in several messages, the id of the transfer, the index of
+ *     the part and the number of parts. These headers are only written for parts.</li>
+ * </ul>
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class MessageEnvelope {
+	/**
+	 * Schema version written by this code. Receivers reject messages with a newer version. Version 2 added the
+	 * compression and transfer headers.
+	 */
+	public static final int SCHEMA_VERSION = 2;
+
+	/**
+	 * Compression id of a body which is not compressed.
+	 */
+	public static final int NO_COMPRESSION = 0;
+
+	/**
+	 * Dictionary id of a body compressed without a dictionary.
+	 */
+	public static final long NO_DICTIONARY = -1;
+
+	/**
+	 * Largest number of parts of a transfer. A receiver keeps state for every part of a transfer it has heard of,
+	 * so envelopes of larger transfers are rejected rather than trusted.
+	 */
+	public static final int MAX_PARTS = 65536;
+
+	/**
+	 * Name of the header holding the codec id.
+	 */
+	public static final String CODEC = "codec";
+
+	/**
+	 * Name of the header holding the payload kind.
+	 */
+	public static final String KIND = "kind";
+
+	/**
+	 * Name of the header holding the schema version.
+	 */
+	public static final String SCHEMA = "schema";
+
+	/**
+	 * Name of the header holding the sender id.
+	 */
+	public static final String SENDER = "sender";
+
+	/**
+	 * Name of the header holding the sequence number.
+	 */
+	public static final String SEQUENCE = "seq";
+
+	/**
+	 * Name of the header holding the send time.
+	 */
+	public static final String SENT_AT = "sent-at";
+
+	/**
+	 * Name of the header holding the compression algorithm id.
+	 */
+	public static final String COMPRESSION = "compression";
+
+	/**
+	 * Name of the header holding the compression dictionary id.
+	 */
+	public static final String DICTIONARY = "dictionary";
+
+	/**
+	 * Name of the header holding the length of the body before compression.
+	 */
+	public static final String RAW_LENGTH = "raw-length";
+
+	/**
+	 * Name of the header holding the transfer id of a part.
+	 */
+	public static final String TRANSFER = "transfer";
+
+	/**
+	 * Name of the header holding the index of a part in its transfer.
+	 */
+	public static final String PART = "part";
+
+	/**
+	 * Name of the header holding the number of parts of a transfer.
+	 */
+	public static final String PARTS = "parts";
+
+	/**
+	 * The kind of payload.
+	 */
+	private final PayloadKind kind;
+
+	/**
+	 * The id of the codec which encoded the body.
+	 */
+	private final int codec;
+
+	/**
+	 * The schema version of the message.
+	 */
+	private final int schemaVersion;
+
+	/**
+	 * The id of the sender, or an empty string if unknown.
+	 */
+	private final String sender;
+
+	/**
+	 * The sequence number of the message for its sender, or -1 if unknown.
+	 */
+	private final long sequence;
+
+	/**
+	 * The time the message was sent in milliseconds since the epoch, or 0 if unknown.
+	 */
+	private final long sentAt;
+
+	/**
+	 * The id of the algorithm the body was compressed with, or {@link #NO_COMPRESSION}.
+	 */
+	private final int compression;
+
+	/**
+	 * The id of the dictionary the body was compressed with, or {@link #NO_DICTIONARY}.
+	 */
+	private final long dictionary;
+
+	/**
+	 * The length of the body before compression, or -1 if it is not compressed.
+	 */
+	private final int rawLength;
+
+	/**
+	 * The id of the transfer the message is a part of, or null if it is not a part.
+	 */
+	private final String transfer;
+
+	/**
+	 * The index of the part in its transfer, or -1 if it is not a part.
+	 */
+	private final int part;
+
+	/**
+	 * The number of parts of the transfer, or -1 if it is not a part.
+	 */
+	private final int parts;
+
+	/**
+	 * Constructor for a message sent now with the current schema version.
+	 *
+	 * @param kind The kind of payload.
+	 * @param codec The id of the codec which encoded the body.
+	 * @param sender The id of the sender.
+	 * @param sequence The sequence number of the message for its sender.
+	 */
+	public MessageEnvelope (PayloadKind kind, int codec, String sender, long sequence) {
+		this(kind, codec, SCHEMA_VERSION, sender, sequence, System.currentTimeMillis());
+	}
+
+	/**
+	 * Constructor for a message whose body is not compressed.
+	 *
+	 * @param kind The kind of payload.
+	 * @param codec The id of the codec which encoded the body.
+	 * @param schemaVersion The schema version of the message.
+	 * @param sender The id of the sender, or an empty string if unknown.
+	 * @param sequence The sequence number of the message for its sender, or -1 if unknown.
+	 * @param sentAt The time the message was sent in milliseconds since the epoch, or 0 if unknown.
+	 * @throws IllegalArgumentException If the kind is null or the codec id is negative.
+	 */
+	public MessageEnvelope (PayloadKind kind, int codec, int schemaVersion, String sender, long sequence, long sentAt) {
+		this(kind, codec, schemaVersion, sender, sequence, sentAt, NO_COMPRESSION, NO_DICTIONARY, -1);
+	}
+
+	/**
+	 * Constructor for a message which is not part of a transfer.
+	 *
+	 * @param kind The kind of payload.
+	 * @param codec The id of the codec which encoded the body.
+	 * @param schemaVersion The schema version of the message.
+	 * @param sender The id of the sender, or an empty string if unknown.
+	 * @param sequence The sequence number of the message for its sender, or -1 if unknown.
+	 * @param sentAt The time the message was sent in milliseconds since the epoch, or 0 if unknown.
+	 * @param compression The id of the compression algorithm, or {@link #NO_COMPRESSION}.
+	 * @param dictionary The id of the compression dictionary, or {@link #NO_DICTIONARY}.
+	 * @param rawLength The length of the body before compression, ignored if it is not compressed.
+	 * @throws IllegalArgumentException If the kind is null, the codec or compression id is negative, or a compressed
+	 * body has a negative raw length.
+	 */
+	public MessageEnvelope (PayloadKind kind, int codec, int schemaVersion, String sender, long sequence, long sentAt,
+							int compression, long dictionary, int rawLength) {
+		this(kind, codec, schemaVersion, sender, sequence, sentAt, compression, dictionary, rawLength, null, -1, -1);
+	}
+
+	/**
+	 * Constructor which takes every field of the envelope.
+	 *
+	 * @param kind The kind of payload.
+	 * @param codec The id of the codec which encoded the body.
+	 * @param schemaVersion The schema version of the message.
+	 * @param sender The id of the sender, or an empty string if unknown.
+	 * @param sequence The sequence number of the message for its sender, or -1 if unknown.
+	 * @param sentAt The time the message was sent in milliseconds since the epoch, or 0 if unknown.
+	 * @param compression The id of the compression algorithm, or {@link #NO_COMPRESSION}.
+	 * @param dictionary The id of the compression dictionary, or {@link #NO_DICTIONARY}.
+	 * @param rawLength The length of the body before compression, ignored if it is not compressed.
+	 * @param transfer The id of the transfer the message is a part of, or null if it is not a part.
+	 * @param part The index of the part in its transfer, ignored if it is not a part.
+	 * @param parts The number of parts of the transfer, ignored if it is not a part.
+	 * @throws IllegalArgumentException If the kind is null, the codec or compression id is negative, a compressed
+	 * body has a negative raw length, the part is not one of the parts of its transfer, or the transfer has more
+	 * than {@link #MAX_PARTS} parts.
+	 */
+	private MessageEnvelope (PayloadKind kind, int codec, int schemaVersion, String sender, long sequence, long sentAt,
+							 int compression, long dictionary, int rawLength, String transfer, int part, int parts) {
+		if (kind == null) {
+			throw new IllegalArgumentException("Payload kind must not be null");
+		}
+
+		if (codec < 0) {
+			throw new IllegalArgumentException("Codec id must not be negative: " + codec);
+		}
+
+		if (compression < 0) {
+			throw new IllegalArgumentException("Compression id must not be negative: " + compression);
+		}
+
+		if (compression != NO_COMPRESSION && rawLength < 0) {
+			throw new IllegalArgumentException("Raw length of a compressed body must not be negative: " + rawLength);
+		}
+
+		if (transfer != null && (transfer.isEmpty() || parts < 1 || parts > MAX_PARTS || part < 0 || part >= parts)) {
+			throw new IllegalArgumentException("Part " + part + " of " + parts + " of transfer '" + transfer + "' is not valid");
+		}
+
+		this.kind = kind;
+		this.codec = codec;
+		this.schemaVersion = schemaVersion;
+		this.sender = sender == null ? "" : sender;
+		this.sequence = sequence;
+		this.sentAt = sentAt;
+		this.compression = compression;
+		this.dictionary = compression == NO_COMPRESSION ? NO_DICTIONARY : dictionary;
+		this.rawLength = compression == NO_COMPRESSION ? -1 : rawLength;
+		this.transfer = transfer;
+		this.part = transfer == null ? -1 : part;
+		this.parts = transfer == null ? -1 : parts;
+	}
+
+	/**
+	 * Creates a copy of the envelope for the body after it has been compressed.
+	 *
+	 * @param compression The id of the compression algorithm.
+	 * @param dictionary The id of the compression dictionary, or {@link #NO_DICTIONARY}.
+	 * @param rawLength The length of the body before compression.
+	 * @return The envelope of the compressed message.
+	 * @throws IllegalArgumentException If the compression id or raw length is negative.
+	 */
+	public MessageEnvelope compressed (int compression, long dictionary, int rawLength) {
+		return new MessageEnvelope(kind, codec, schemaVersion, sender, sequence, sentAt, compression, dictionary, rawLength,
+				transfer, part, parts);
+	}
+
+	/**
+	 * Creates a copy of the envelope for a message which is one part of a transfer.
+	 *
+	 * @param transfer The id of the transfer.
+	 * @param part The index of the part, from 0.
+	 * @param parts The number of parts of the transfer.
+	 * @return The envelope of the part.
+	 * @throws IllegalArgumentException If the transfer id is empty, the part is not one of the parts, or there are
+	 * more than {@link #MAX_PARTS} parts.
+	 */
+	public MessageEnvelope part (String transfer, int part, int parts) {
+		if (transfer == null) {
+			throw new IllegalArgumentException("Transfer id must not be null");
+		}
+
+		return new MessageEnvelope(kind, codec, schemaVersion, sender, sequence, sentAt, compression, dictionary, rawLength,
+				transfer, part, parts);
+	}
+
+	/**
+	 * Creates the message properties holding the envelope in their headers.
+	 *
+	 * @return The message properties.
+	 */
+	public AMQP.BasicProperties toProperties () {
+		Map<String, Object> headers = new HashMap<>();
+		headers.put(CODEC, codec);
+		headers.put(KIND, kind.getHeaderName());
+		headers.put(SCHEMA, schemaVersion);
+		headers.put(SENDER, sender);
+		headers.put(SEQUENCE, sequence);
+		headers.put(SENT_AT, sentAt);
+
+		if (isCompressed()) {
+			headers.put(COMPRESSION, compression);
+			headers.put(DICTIONARY, dictionary);
+			headers.put(RAW_LENGTH, rawLength);
+		}
+
+		if (isPart()) {
+			headers.put(TRANSFER, transfer);
+			headers.put(PART, part);
+			headers.put(PARTS, parts);
+		}
+
+		return new AMQP.BasicProperties.Builder().headers(headers).build();
+	}
+
+	/**
+	 * Reads the envelope from the headers of a message. Only the codec and kind are required; a missing schema
+	 * version is read as 1, a missing compression header as not compressed, a missing transfer header as not a part,
+	 * the other missing fields as unknown.
+	 *
+	 * @param properties The message properties, may be null.
+	 * @return The envelope, or null if the codec or kind header is missing or invalid, the compression or transfer
+	 * headers are invalid, or the transfer has more than {@link #MAX_PARTS} parts.
+	 */
+	public static MessageEnvelope fromProperties (AMQP.BasicProperties properties) {
+		if (properties == null || properties.getHeaders() == null) {
+			return null;
+		}
+
+		Map<String, Object> headers = properties.getHeaders();
+		PayloadKind kind = PayloadKind.fromHeaderName(getText(headers, KIND));
+		long codec = getNumber(headers, CODEC, -1);
+
+		long compression = getNumber(headers, COMPRESSION, NO_COMPRESSION);
+		long dictionary = getNumber(headers, DICTIONARY, NO_DICTIONARY);
+		long rawLength = getNumber(headers, RAW_LENGTH, -1);
+		String transfer = getText(headers, TRANSFER);
+		long part = getNumber(headers, PART, -1);
+		long parts = getNumber(headers, PARTS, -1);
+
+		if (kind == null || codec < 0 || codec > Integer.MAX_VALUE) {
+			return null;
+		}
+
+		if (compression != NO_COMPRESSION && (compression < 0 || compression > Integer.MAX_VALUE || rawLength < 0
+				|| rawLength > Integer.MAX_VALUE || dictionary < NO_DICTIONARY || dictionary > 0xFFFFFFFFL)) {
+			return null;
+		}
+
+		if (transfer != null && (transfer.isEmpty() || parts < 1 || parts > MAX_PARTS || part < 0 || part >= parts)) {
+			return null;
+		}
+
+		return new MessageEnvelope(kind, (int) codec, (int) getNumber(headers, SCHEMA, 1), getText(headers, SENDER),
+				getNumber(headers, SEQUENCE, -1), getNumber(headers, SENT_AT, 0), (int) compression, dictionary,
+				(int) rawLength, transfer, (int) part, (int) parts);
+	}
+
+	/**
+	 * Checks if this code understands the schema version of the message.
+	 *
+	 * @return True if the schema version is not newer than {@link #SCHEMA_VERSION}.
+	 */
+	public boolean isSupported () {
+		return schemaVersion <= SCHEMA_VERSION;
+	}
+
+	/**
+	 * Gets the kind of payload.
+	 *
+	 * @return The payload kind.
+	 */
+	public PayloadKind getKind () {
+		return kind;
+	}
+
+	/**
+	 * Gets the id of the codec which encoded the body.
+	 *
+	 * @return The codec id.
+	 */
+	public int getCodec () {
+		return codec;
+	}
+
+	/**
+	 * Gets the schema version of the message.
+	 *
+	 * @return The schema version.
+	 */
+	public int getSchemaVersion () {
+		return schemaVersion;
+	}
+
+	/**
+	 * Gets the id of the sender.
+	 *
+	 * @return The sender id, or an empty string if unknown.
+	 */
+	public String getSender () {
+		return sender;
+	}
+
+	/**
+	 * Gets the sequence number of the message for its sender.
+	 *
+	 * @return The sequence number, or -1 if unknown.
+	 */
+	public long getSequence () {
+		return sequence;
+	}
+
+	/**
+	 * Gets the time the message was sent.
+	 *
+	 * @return The send time in milliseconds since the epoch, or 0 if unknown.
+	 */
+	public long getSentAt () {
+		return sentAt;
+	}
+
+	/**
+	 * Checks if the body was compressed after it was encoded.
+	 *
+	 * @return True if the body is compressed.
+	 */
+	public boolean isCompressed () {
+		return compression != NO_COMPRESSION;
+	}
+
+	/**
+	 * Gets the id of the algorithm the body was compressed with.
+	 *
+	 * @return The compression id, or {@link #NO_COMPRESSION}.
+	 */
+	public int getCompression () {
+		return compression;
+	}
+
+	/**
+	 * Gets the id of the dictionary the body was compressed with.
+	 *
+	 * @return The dictionary id, or {@link #NO_DICTIONARY}.
+	 */
+	public long getDictionary () {
+		return dictionary;
+	}
+
+	/**
+	 * Gets the length of the body before compression.
+	 *
+	 * @return The raw length, or -1 if the body is not compressed.
+	 */
+	public int getRawLength () {
+		return rawLength;
+	}
+
+	/**
+	 * Checks if the message is one part of a transfer.
+	 *
+	 * @return True if the message is a part.
+	 */
+	public boolean isPart () {
+		return transfer != null;
+	}
+
+	/**
+	 * Gets the id of the transfer the message is a part of.
+	 *
+	 * @return The transfer id, or null if the message is not a part.
+	 */
+	public String getTransfer () {
+		return transfer;
+	}
+
+	/**
+	 * Gets the index of the part in its transfer.
+	 *
+	 * @return The index of the part from 0, or -1 if the message is not a part.
+	 */
+	public int getPart () {
+		return part;
+	}
+
+	/**
+	 * Gets the number of parts of the transfer the message is a part of.
+	 *
+	 * @return The number of parts, or -1 if the message is not a part.
+	 */
+	public int getParts () {
+		return parts;
+	}
+
+	/**
+	 * Gets a short description of the envelope for logging.
+	 *
+	 * @return The description.
+	 */
+	@Override
+	public String toString () {
+		String compressed = isCompressed() ? ", compression " + compression + ", " + rawLength + " bytes raw" : "";
+		String partOf = isPart() ? ", part " + (part + 1) + " of " + parts + " of " + transfer : "";
+
+		return kind.getHeaderName() + " message #" + sequence + " from " + sender + " (codec " + codec + compressed + partOf + ", schema " + schemaVersion + ")";
+	}
+
+	/**
+	 * Reads a text header. The client library reads string headers back as its own LongString type.
+	 *
+	 * @param headers The message headers.
+	 * @param name The name of the header.
+	 * @return The header as text, or null if it is missing.
+	 */
+	private static String getText (Map<String, Object> headers, String name) {
+		Object value = headers.get(name);
+
+		return value == null ? null : value.toString();
+	}
+
+	/**
+	 * Reads a numeric header.
+	 *
+	 * @param headers The message headers.
+	 * @param name The name of the header.
+	 * @param missing The value returned if the header is missing or not a number.
+	 * @return The header value.
+	 */
+	private static long getNumber (Map<String, Object> headers, String name, long missing) {
+		Object value = headers.get(name);
+
+		return value instanceof Number ? ((Number) value).longValue() : missing;
+	}
+}
@@ -0,0 +1,60 @@
+package main.codecs;
+
+import main.serializers.ISerializer;
+import main.serializers.MessagePackSerializer;
+import main.deserializers.IDeserializer;
+import main.deserializers.MessagePackDeserializer;
+
+/**
+ * Codec which encodes messages with MessagePack.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class MessagePackCodec implements ICodec {
+	/**
+	 * Id of the MessagePack codec in message headers.
+	 */
+	public static final int ID = 5;
+
+	/**
+	 * Gets the id written into the headers of messages encoded with MessagePack.
+	 *
+	 * @return The codec id.
+	 */
+	@Override
+	public int getId () {
+		return ID;
+	}
+
+	/**
+	 * Gets the human readable name of the codec.
+	 *
+	 * @return The codec name.
+	 */
+	@Override
+	public String getName () {
+		return "MessagePack";
+	}
+
+	/**
+	 * Creates a new MessagePack serializer.
+	 *
+	 * @return A new serializer.
+	 */
+	@Override
+	public ISerializer newSerializer () {
+		return new MessagePackSerializer();
+	}
+
+	/**
+	 * Creates a new MessagePack deserializer.
+	 *
+	 * @return A new deserializer.
+	 */
+	@Override
+	public IDeserializer newDeserializer () {
+		return new MessagePackDeserializer();
+	}
+}
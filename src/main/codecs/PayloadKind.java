@@ -0,0 +1,67 @@
+package main.codecs;
+
+/**
+ * An enumerator listing the kinds of payload the message sender publishes.
+ * <p>
+ * The kind tells the receiver which deserializer method reads the message body: the contents of JSON, CSV and XML
+ * files are sent as Strings, the other kinds as the collection they are named after.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public enum PayloadKind {
+	// File Contents Sent As Strings
+	JSON("JSON"), CSV("CSV"), XML("XML"),
+
+	// Collections
+	ARRAY_LIST("ArrayList"), HASH_MAP("HashMap");
+
+	/**
+	 * The name of the kind as written into the message headers.
+	 */
+	private final String headerName;
+
+	/**
+	 * Constructor which takes the name of the kind as written into the message headers.
+	 *
+	 * @param headerName The name written into the message headers.
+	 */
+	PayloadKind (String headerName) {
+		this.headerName = headerName;
+	}
+
+	/**
+	 * Gets the name of the kind as written into the message headers, which is also its human readable name.
+	 *
+	 * @return The header name.
+	 */
+	public String getHeaderName () {
+		return headerName;
+	}
+
+	/**
+	 * Checks if payloads of this kind are sent as a String.
+	 *
+	 * @return True for the contents of JSON, CSV and XML files.
+	 */
+	public boolean isString () {
+		return this == JSON || this == CSV || this == XML;
+	}
+
+	/**
+	 * Get the PayloadKind value based on the name written into the message headers.
+	 *
+	 * @param headerName The header name, may be null.
+	 * @return The corresponding PayloadKind value, or null if not found.
+	 */
+	public static PayloadKind fromHeaderName (String headerName) {
+		for (PayloadKind kind : values()) {
+			if (kind.headerName.equals(headerName)) {
+				return kind;
+			}
+		}
+
+		return null;
+	}
+}
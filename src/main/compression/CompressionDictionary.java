@@ -0,0 +1,113 @@
+package main.compression;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.zip.CRC32;
+
+/**
+ * Class which holds a dictionary that compressors are primed with before they compress a message body.
+ * <p>
+ * Small messages give a compressor too little data to find repeats in. A dictionary holds the strings which are
+ * common across many messages, such as CSV headers and XML tags, so that even a message of a few hundred bytes can
+ * refer back to them instead of spelling them out. The sender and receiver must use the same dictionary; its id is
+ * the CRC-32 of its bytes, so a receiver can tell if it has the dictionary a message was compressed with. A
+ * dictionary is immutable.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class CompressionDictionary {
+	/**
+	 * Largest dictionary in bytes, the window of Deflate.
+	 */
+	public static final int MAX_SIZE = 32 * 1024;
+
+	/**
+	 * The contents of the dictionary.
+	 */
+	private final byte[] bytes;
+
+	/**
+	 * The id of the dictionary, the CRC-32 of its bytes.
+	 */
+	private final long id;
+
+	/**
+	 * Constructor which takes the contents of the dictionary.
+	 *
+	 * @param bytes The contents of the dictionary, which are copied.
+	 * @throws IllegalArgumentException If the dictionary is empty or larger than {@link #MAX_SIZE}.
+	 */
+	public CompressionDictionary (byte[] bytes) {
+		if (bytes.length == 0 || bytes.length > MAX_SIZE) {
+			throw new IllegalArgumentException("Dictionary must hold 1 to " + MAX_SIZE + " bytes: " + bytes.length);
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+
+		this.bytes = bytes.clone();
+		this.id = crc.getValue();
+	}
+
+	/**
+	 * Reads a dictionary from a file.
+	 *
+	 * @param path The path of the file.
+	 * @return The dictionary.
+	 * @throws IOException If the file could not be read.
+	 * @throws IllegalArgumentException If the file is empty or larger than {@link #MAX_SIZE}.
+	 */
+	public static CompressionDictionary load (Path path) throws IOException {
+		return new CompressionDictionary(Files.readAllBytes(path));
+	}
+
+	/**
+	 * Writes the dictionary to a file.
+	 *
+	 * @param path The path of the file, which is replaced if it exists.
+	 * @throws IOException If the file could not be written.
+	 */
+	public void save (Path path) throws IOException {
+		Files.write(path, bytes);
+	}
+
+	/**
+	 * Gets the id of the dictionary written into the headers of compressed messages.
+	 *
+	 * @return The CRC-32 of the dictionary.
+	 */
+	public long getId () {
+		return id;
+	}
+
+	/**
+	 * Gets the size of the dictionary.
+	 *
+	 * @return The size in bytes.
+	 */
+	public int size () {
+		return bytes.length;
+	}
+
+	/**
+	 * Gets a copy of the contents of the dictionary.
+	 *
+	 * @return The contents.
+	 */
+	public byte[] getBytes () {
+		return bytes.clone();
+	}
+
+	/**
+	 * Gets the contents of the dictionary without copying them, for the compressors, which must not change them.
+	 *
+	 * @return The contents.
+	 */
+	byte[] bytes () {
+		return bytes;
+	}
+}
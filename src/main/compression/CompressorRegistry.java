@@ -0,0 +1,131 @@
+package main.compression;
+
+import main.codecs.MessageEnvelope;
+
+import java.util.Map;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class which holds the compressors a receiver can decompress message bodies with, keyed by algorithm id and
+ * dictionary id.
+ * <p>
+ * A new registry holds Deflate and LZ4 without a dictionary. Every dictionary added registers both algorithms
+ * primed with it, so a receiver can decompress bodies from senders using any of the dictionaries it has been given.
+ * The registry is safe to use from several threads.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class CompressorRegistry {
+	/**
+	 * The registered compressors, keyed by algorithm id and dictionary id, see {@link #key(int, long)}.
+	 */
+	private final Map<Long, ICompressor> compressors = new ConcurrentHashMap<>();
+
+	/**
+	 * Default constructor which registers the built-in algorithms without a dictionary.
+	 */
+	public CompressorRegistry () {
+		register(new DeflateCompressor(null));
+		register(new Lz4Compressor(null));
+	}
+
+	/**
+	 * Creates a compressor by algorithm name, for the sender configuration.
+	 *
+	 * @param name The name of the algorithm, "deflate" or "lz4", or "none".
+	 * @param dictionary The dictionary, or null for none.
+	 * @return The compressor, or null for "none".
+	 * @throws IllegalArgumentException If the name is not known.
+	 */
+	public static ICompressor create (String name, CompressionDictionary dictionary) {
+		switch (name.trim().toLowerCase(Locale.ROOT)) {
+			case "none":
+			case "":
+				return null;
+			case "deflate":
+				return new DeflateCompressor(dictionary);
+			case "lz4":
+				return new Lz4Compressor(dictionary);
+			default:
+				throw new IllegalArgumentException("Unknown compression algorithm: " + name);
+		}
+	}
+
+	/**
+	 * Adds a compressor to the registry, replacing any with the same algorithm and dictionary.
+	 *
+	 * @param compressor The compressor to add.
+	 * @throws IllegalArgumentException If the algorithm id is not greater than zero.
+	 */
+	public void register (ICompressor compressor) {
+		if (compressor.getId() <= MessageEnvelope.NO_COMPRESSION) {
+			throw new IllegalArgumentException("Compression id must be greater than zero: " + compressor.getId());
+		}
+
+		compressors.put(key(compressor.getId(), dictionaryId(compressor.getDictionary())), compressor);
+	}
+
+	/**
+	 * Registers the built-in algorithms primed with a dictionary.
+	 *
+	 * @param dictionary The dictionary.
+	 */
+	public void addDictionary (CompressionDictionary dictionary) {
+		register(new DeflateCompressor(dictionary));
+		register(new Lz4Compressor(dictionary));
+	}
+
+	/**
+	 * Gets the compressor of an algorithm and dictionary.
+	 *
+	 * @param id The algorithm id.
+	 * @param dictionary The dictionary id, or {@link MessageEnvelope#NO_DICTIONARY}.
+	 * @return The compressor, or null if none is registered.
+	 */
+	public ICompressor get (int id, long dictionary) {
+		return compressors.get(key(id, dictionary));
+	}
+
+	/**
+	 * Gets the compressor of an algorithm and dictionary, failing if there is none.
+	 *
+	 * @param id The algorithm id.
+	 * @param dictionary The dictionary id, or {@link MessageEnvelope#NO_DICTIONARY}.
+	 * @return The compressor.
+	 * @throws IllegalArgumentException If no compressor is registered for the algorithm and dictionary.
+	 */
+	public ICompressor require (int id, long dictionary) {
+		ICompressor compressor = get(id, dictionary);
+
+		if (compressor == null) {
+			throw new IllegalArgumentException("Unknown compression " + id + (dictionary == MessageEnvelope.NO_DICTIONARY ? "" : " with dictionary " + dictionary));
+		}
+
+		return compressor;
+	}
+
+	/**
+	 * Gets the id of a dictionary as written into message headers.
+	 *
+	 * @param dictionary The dictionary, or null for none.
+	 * @return The dictionary id, or {@link MessageEnvelope#NO_DICTIONARY}.
+	 */
+	public static long dictionaryId (CompressionDictionary dictionary) {
+		return dictionary == null ? MessageEnvelope.NO_DICTIONARY : dictionary.getId();
+	}
+
+	/**
+	 * Packs an algorithm id and a dictionary id into one key. Dictionary ids are 32 bit checksums or -1, so they fit
+	 * in the low 33 bits once shifted up by one.
+	 *
+	 * @param id The algorithm id.
+	 * @param dictionary The dictionary id.
+	 * @return The key.
+	 */
+	private static long key (int id, long dictionary) {
+		return (long) id << 33 | (dictionary + 1);
+	}
+}
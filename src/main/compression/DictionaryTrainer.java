@@ -0,0 +1,370 @@
+package main.compression;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.PriorityQueue;
+
+/**
+ * Class which trains a {@link CompressionDictionary} from sample message bodies.
+ * <p>
+ * The trainer looks for the segments of the samples which hold the most common content, after the cover algorithm
+ * of Zstandard: every 8 byte string of the samples is weighed by how many samples hold it and how often it appears,
+ * and segments are scored by the total weight of the strings they hold. Segments are then chosen greedily by score; once a segment is chosen its strings count for
+ * nothing, so the next segments add content the dictionary does not have yet rather than repeating it. Scores only
+ * ever drop, so a segment is only scored again when it comes to the top of the queue. The chosen segments are laid
+ * out with the best last, where they are the fewest bytes back from the body and cheapest to refer to.
+ * <p>
+ * Training only depends on the samples and their order, so a sender and a receiver which train on the same files
+ * get the same dictionary, with the same id, without exchanging it.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class DictionaryTrainer {
+	/**
+	 * Default size of a trained dictionary in bytes.
+	 */
+	public static final int DEFAULT_SIZE = 16 * 1024;
+
+	/**
+	 * Suffixes of the data files the message sender sends, which are the samples when training from the
+	 * configuration.
+	 */
+	private static final String[] PAYLOAD_FILE_SUFFIXES = {"_json_data.json", "_metric_csv_data.csv", "_xml_data.xml"};
+
+	/**
+	 * Length of the strings which are counted.
+	 */
+	private static final int STRING_LENGTH = 8;
+
+	/**
+	 * Length of a segment.
+	 */
+	private static final int SEGMENT_LENGTH = 64;
+
+	/**
+	 * Distance between the starts of neighbouring segments.
+	 */
+	private static final int SEGMENT_STEP = 16;
+
+	/**
+	 * The samples, in the order they were added.
+	 */
+	private final List<byte[]> samples = new ArrayList<>();
+
+	/**
+	 * Adds a sample.
+	 *
+	 * @param sample The bytes of a typical message body.
+	 */
+	public void addSample (byte[] sample) {
+		samples.add(sample);
+	}
+
+	/**
+	 * Adds the contents of a file as a sample.
+	 *
+	 * @param file The file.
+	 * @throws IOException If the file could not be read.
+	 */
+	public void addFile (File file) throws IOException {
+		addSample(Files.readAllBytes(file.toPath()));
+	}
+
+	/**
+	 * Gets the number of samples added.
+	 *
+	 * @return The number of samples.
+	 */
+	public int getSampleCount () {
+		return samples.size();
+	}
+
+	/**
+	 * Trains a dictionary from the samples.
+	 *
+	 * @param size The largest size of the dictionary in bytes, at most {@link CompressionDictionary#MAX_SIZE}.
+	 * @return The dictionary, which is smaller than size if the samples hold less distinct content.
+	 * @throws IllegalArgumentException If the size is not valid or the samples hold nothing to train on.
+	 */
+	public CompressionDictionary train (int size) {
+		if (size <= 0 || size > CompressionDictionary.MAX_SIZE) {
+			throw new IllegalArgumentException("Dictionary size must be 1 to " + CompressionDictionary.MAX_SIZE + ": " + size);
+		}
+
+		Map<Long, int[]> counts = countStrings();
+		PriorityQueue<Segment> queue = new PriorityQueue<>();
+
+		for (int sample = 0; sample < samples.size(); sample++) {
+			int length = samples.get(sample).length;
+
+			for (int start = 0; start < length; start += SEGMENT_STEP) {
+				int end = Math.min(start + SEGMENT_LENGTH, length);
+
+				if (end - start >= STRING_LENGTH) {
+					Segment segment = new Segment(sample, start, end);
+					segment.score = score(segment, counts);
+
+					if (segment.score > 0) {
+						queue.add(segment);
+					}
+				}
+
+				if (end == length) {
+					break;
+				}
+			}
+		}
+
+		List<Segment> chosen = new ArrayList<>();
+		int total = 0;
+
+		while (total < size && ! queue.isEmpty()) {
+			Segment segment = queue.poll();
+			long score = score(segment, counts);
+
+			if (score == 0) {
+				continue;
+			}
+
+			if (score < segment.score) {
+				segment.score = score;
+				queue.add(segment);
+				continue;
+			}
+
+			chosen.add(segment);
+			total += segment.end - segment.start;
+
+			// The strings of a chosen segment are covered, so they add nothing to any other segment
+			byte[] bytes = samples.get(segment.sample);
+			for (int i = segment.start; i + STRING_LENGTH <= segment.end; i++) {
+				counts.get(key(bytes, i))[0] = 0;
+			}
+		}
+
+		if (chosen.isEmpty()) {
+			throw new IllegalArgumentException("The samples hold nothing to train a dictionary on");
+		}
+
+		// Lay the segments out with the best at the end, dropping the start of the worst if they overflow
+		byte[] dictionary = new byte[total];
+		int position = total;
+
+		for (Segment segment : chosen) {
+			int length = segment.end - segment.start;
+			position -= length;
+			System.arraycopy(samples.get(segment.sample), segment.start, dictionary, position, length);
+		}
+
+		return new CompressionDictionary(total > size ? Arrays.copyOfRange(dictionary, total - size, total) : dictionary);
+	}
+
+	/**
+	 * Gets the dictionary set in a configuration: compressionDictionary=&lt;path&gt; names the dictionary file. If the
+	 * file does not exist, a dictionary of compressionDictionarySize bytes is trained from the data files the message
+	 * sender sends, in the datafiles directory, and saved to it.
+	 *
+	 * @param prop The configuration.
+	 * @return The dictionary, or null if none is configured or it could not be loaded or trained.
+	 */
+	public static CompressionDictionary fromConfig (Properties prop) {
+		String file = prop.getProperty("compressionDictionary", "").trim();
+
+		if (file.isEmpty()) {
+			return null;
+		}
+
+		Path path = Paths.get(file);
+
+		try {
+			if (Files.exists(path)) {
+				return CompressionDictionary.load(path);
+			}
+
+			DictionaryTrainer trainer = new DictionaryTrainer();
+			File[] dataFiles = new File(System.getProperty("user.dir"), "datafiles").listFiles();
+
+			if (dataFiles != null) {
+				Arrays.sort(dataFiles);
+
+				for (File dataFile : dataFiles) {
+					if (isPayloadFile(dataFile.getName())) {
+						trainer.addFile(dataFile);
+					}
+				}
+			}
+
+			int size = Integer.parseInt(prop.getProperty("compressionDictionarySize", String.valueOf(DEFAULT_SIZE)));
+			CompressionDictionary dictionary = trainer.train(size);
+			dictionary.save(path);
+
+			return dictionary;
+		}
+		catch (IOException | IllegalArgumentException ex) {
+			System.err.println("Failure while loading or training the compression dictionary " + path + ", compressing without one");
+			ex.printStackTrace();
+
+			return null;
+		}
+	}
+
+	/**
+	 * Checks if a file is one of the data files the message sender sends.
+	 *
+	 * @param name The name of the file.
+	 * @return True if it is a payload file.
+	 */
+	private static boolean isPayloadFile (String name) {
+		for (String suffix : PAYLOAD_FILE_SUFFIXES) {
+			if (name.endsWith(suffix)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Weighs every string of the samples by the number of samples it appears in, times one more than the base 2
+	 * logarithm of the number of times it appears. Strings shared by many samples are what a small message has in
+	 * common with the others, so they are worth more than a string repeated often in one large sample.
+	 *
+	 * @return The weight of every string, keyed by its packed bytes, in the first element of an array so it can be
+	 * cleared in place.
+	 */
+	private Map<Long, int[]> countStrings () {
+		// Every entry holds the weight, the last sample the string was seen in, the sample count and the occurrences
+		Map<Long, int[]> counts = new HashMap<>();
+
+		for (int sample = 0; sample < samples.size(); sample++) {
+			byte[] bytes = samples.get(sample);
+
+			for (int i = 0; i + STRING_LENGTH <= bytes.length; i++) {
+				int[] count = counts.computeIfAbsent(key(bytes, i), k -> new int[] {0, -1, 0, 0});
+
+				if (count[1] != sample) {
+					count[1] = sample;
+					count[2]++;
+				}
+
+				count[3]++;
+			}
+		}
+
+		for (int[] count : counts.values()) {
+			count[0] = count[2] * (32 - Integer.numberOfLeadingZeros(count[3]));
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Scores a segment by the total weight of the distinct strings it holds.
+	 *
+	 * @param segment The segment.
+	 * @param counts The weight of every string.
+	 * @return The score.
+	 */
+	private long score (Segment segment, Map<Long, int[]> counts) {
+		byte[] bytes = samples.get(segment.sample);
+		int[][] taken = new int[SEGMENT_LENGTH][];
+		int[] takenCounts = new int[SEGMENT_LENGTH];
+		int size = 0;
+		long score = 0;
+
+		// Clear each count as it is added, so a string held twice is only scored once, then put the counts back
+		for (int i = segment.start; i + STRING_LENGTH <= segment.end; i++) {
+			int[] count = counts.get(key(bytes, i));
+
+			if (count[0] > 0) {
+				score += count[0];
+				taken[size] = count;
+				takenCounts[size++] = count[0];
+				count[0] = 0;
+			}
+		}
+
+		for (int i = 0; i < size; i++) {
+			taken[i][0] = takenCounts[i];
+		}
+
+		return score;
+	}
+
+	/**
+	 * Packs the string at a position into a long.
+	 *
+	 * @param bytes The sample.
+	 * @param position The position of the string.
+	 * @return The packed string.
+	 */
+	private static long key (byte[] bytes, int position) {
+		long key = 0;
+
+		for (int i = 0; i < STRING_LENGTH; i++) {
+			key = key << 8 | (bytes[position + i] & 0xFF);
+		}
+
+		return key;
+	}
+
+	/**
+	 * Class which holds a candidate segment and its last known score. Segments order by score, highest first, then
+	 * by position, so training does not depend on the order of the queue.
+	 */
+	private static class Segment implements Comparable<Segment> {
+		/**
+		 * The index of the sample.
+		 */
+		final int sample;
+
+		/**
+		 * The position of the first byte in the sample.
+		 */
+		final int start;
+
+		/**
+		 * The position after the last byte in the sample.
+		 */
+		final int end;
+
+		/**
+		 * The last known score.
+		 */
+		long score;
+
+		/**
+		 * Constructor which takes the position of the segment.
+		 *
+		 * @param sample The index of the sample.
+		 * @param start The position of the first byte.
+		 * @param end The position after the last byte.
+		 */
+		Segment (int sample, int start, int end) {
+			this.sample = sample;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int compareTo (Segment other) {
+			if (score != other.score) {
+				return Long.compare(other.score, score);
+			}
+
+			return sample != other.sample ? Integer.compare(sample, other.sample) : Integer.compare(start, other.start);
+		}
+	}
+}
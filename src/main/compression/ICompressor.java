@@ -0,0 +1,56 @@
+package main.compression;
+
+/**
+ * This interface defines a compression algorithm which message bodies can be compressed with after they have been
+ * encoded by a codec.
+ * <p>
+ * A compressor is identified by the id of its algorithm together with the id of its dictionary, which are both
+ * written into the headers of every compressed message so the receiver can pick the matching compressor to
+ * decompress it. Algorithm ids are part of the wire format: they must be greater than zero, as 0 marks a body which
+ * is not compressed, and must never be reused for a different algorithm. Compressors are safe to share between
+ * threads.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public interface ICompressor {
+	/**
+	 * Gets the id of the algorithm written into the headers of compressed messages.
+	 *
+	 * @return The algorithm id, greater than zero.
+	 */
+	public int getId ();
+
+	/**
+	 * Gets the human readable name of the algorithm.
+	 *
+	 * @return The algorithm name.
+	 */
+	public String getName ();
+
+	/**
+	 * Gets the dictionary the compressor was primed with.
+	 *
+	 * @return The dictionary, or null if there is none.
+	 */
+	public CompressionDictionary getDictionary ();
+
+	/**
+	 * Compresses a message body.
+	 *
+	 * @param data The body to compress.
+	 * @return The compressed body, which may be larger than the original if it does not compress.
+	 */
+	public byte[] compress (byte[] data);
+
+	/**
+	 * Decompresses a message body compressed by a compressor with the same algorithm and dictionary.
+	 *
+	 * @param data The compressed body.
+	 * @param rawLength The length of the body before it was compressed.
+	 * @return The original body.
+	 * @throws IllegalArgumentException If the data is corrupt or does not decompress to rawLength bytes.
+	 */
+	public byte[] decompress (byte[] data, int rawLength);
+}
@@ -0,0 +1,408 @@
+package main.compression;
+
+import java.nio.ByteOrder;
+import java.lang.invoke.VarHandle;
+import java.lang.invoke.MethodHandles;
+
+import java.util.Arrays;
+
+/**
+ * Compressor which compresses message bodies in the LZ4 block format, written in plain Java as the project has no
+ * LZ4 library.
+ * <p>
+ * LZ4 only replaces repeated strings with a back reference and does no entropy coding, so it compresses less than
+ * {@link DeflateCompressor} but is several times faster in both directions. A body is a series of sequences: a token
+ * holding the lengths of a run of literal bytes and of the match which follows it, the literals, and the two byte
+ * offset of the match. The compressor finds matches through a hash table of the positions of the last four byte
+ * strings seen, and skips ahead faster the longer it goes without finding one, so incompressible data passes
+ * through quickly. The dictionary is hashed once, when the compressor is created, and every call starts from a copy
+ * of that table.
+ * <p>
+ * A dictionary is used the way LZ4 uses a prefix: the body is compressed as if it followed the dictionary, so
+ * matches can point back into the dictionary. The block format carries no checksum and no dictionary id; the
+ * receiver picks the dictionary from the message headers and checks that the body decodes to exactly the expected
+ * number of bytes.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class Lz4Compressor implements ICompressor {
+	/**
+	 * Id of the LZ4 algorithm in message headers.
+	 */
+	public static final int ID = 2;
+
+	/**
+	 * Shortest match which is encoded.
+	 */
+	private static final int MIN_MATCH = 4;
+
+	/**
+	 * Number of bytes at the end of a body which are always written as literals.
+	 */
+	private static final int LAST_LITERALS = 5;
+
+	/**
+	 * Distance from the end of a body after which no match may start.
+	 */
+	private static final int MATCH_FIND_LIMIT = 12;
+
+	/**
+	 * Largest distance a match can point back.
+	 */
+	private static final int MAX_OFFSET = 65535;
+
+	/**
+	 * Base 2 logarithm of the number of entries in the hash table.
+	 */
+	private static final int HASH_LOG = 12;
+
+	/**
+	 * Number of misses after which the compressor starts skipping ahead faster, as a power of 2.
+	 */
+	private static final int SKIP_TRIGGER = 6;
+
+	/**
+	 * Reads 4 bytes of an array as a little endian int.
+	 */
+	private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * Reads 8 bytes of an array as a little endian long.
+	 */
+	private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * The dictionary, or null if there is none.
+	 */
+	private final CompressionDictionary dictionary;
+
+	/**
+	 * The bytes every body is compressed as if it followed, the dictionary or nothing.
+	 */
+	private final byte[] prefix;
+
+	/**
+	 * The hash table after hashing the dictionary, which every call starts from a copy of.
+	 */
+	private final int[] seedTable = new int[1 << HASH_LOG];
+
+	/**
+	 * Constructor which takes the dictionary.
+	 *
+	 * @param dictionary The dictionary, or null for none.
+	 */
+	public Lz4Compressor (CompressionDictionary dictionary) {
+		this.dictionary = dictionary;
+		this.prefix = dictionary == null ? new byte[0] : dictionary.bytes();
+
+		Arrays.fill(seedTable, -1);
+
+		for (int i = 0; i + MIN_MATCH <= prefix.length; i++) {
+			seedTable[hash(prefix, i)] = i;
+		}
+	}
+
+	/**
+	 * Gets the id of the LZ4 algorithm written into the headers of compressed messages.
+	 *
+	 * @return The algorithm id.
+	 */
+	@Override
+	public int getId () {
+		return ID;
+	}
+
+	/**
+	 * Gets the human readable name of the algorithm.
+	 *
+	 * @return The algorithm name.
+	 */
+	@Override
+	public String getName () {
+		return "LZ4";
+	}
+
+	/**
+	 * Gets the dictionary the compressor was primed with.
+	 *
+	 * @return The dictionary, or null if there is none.
+	 */
+	@Override
+	public CompressionDictionary getDictionary () {
+		return dictionary;
+	}
+
+	/**
+	 * Compresses a message body into one LZ4 block.
+	 *
+	 * @param data The body to compress.
+	 * @return The compressed body.
+	 */
+	@Override
+	public byte[] compress (byte[] data) {
+		int base = prefix.length;
+		byte[] in = data;
+
+		if (base > 0) {
+			in = new byte[base + data.length];
+			System.arraycopy(prefix, 0, in, 0, base);
+			System.arraycopy(data, 0, in, base, data.length);
+		}
+
+		int end = in.length;
+		byte[] out = new byte[data.length + data.length / 255 + 16];
+		int op = 0;
+		int anchor = base;
+
+		if (data.length > MATCH_FIND_LIMIT) {
+			int[] table = seedTable.clone();
+
+			int limit = end - MATCH_FIND_LIMIT;
+			int matchLimit = end - LAST_LITERALS;
+			int misses = 0;
+			int i = base;
+
+			while (i <= limit) {
+				int h = hash(in, i);
+				int ref = table[h];
+				table[h] = i;
+
+				if (ref < 0 || i - ref > MAX_OFFSET || (int) INT.get(in, ref) != (int) INT.get(in, i)) {
+					i += 1 + (misses++ >> SKIP_TRIGGER);
+					continue;
+				}
+
+				misses = 0;
+
+				// Take in any literals just before the match which match too
+				while (i > anchor && ref > 0 && in[i - 1] == in[ref - 1]) {
+					i--;
+					ref--;
+				}
+
+				int length = MIN_MATCH + matchLength(in, ref + MIN_MATCH, i + MIN_MATCH, matchLimit);
+
+				op = writeSequence(out, op, in, anchor, i - anchor, i - ref, length);
+				i += length;
+				anchor = i;
+
+				if (i <= limit) {
+					table[hash(in, i - 2)] = i - 2;
+				}
+			}
+		}
+
+		op = writeLiterals(out, op, in, anchor, end - anchor);
+
+		return Arrays.copyOf(out, op);
+	}
+
+	/**
+	 * Decompresses an LZ4 block, checking every length and offset against the bounds of the input and output.
+	 *
+	 * @param data The compressed body.
+	 * @param rawLength The length of the body before it was compressed.
+	 * @return The original body.
+	 * @throws IllegalArgumentException If the block is corrupt or does not decode to rawLength bytes.
+	 */
+	@Override
+	public byte[] decompress (byte[] data, int rawLength) {
+		int base = prefix.length;
+		int end = base + rawLength;
+		byte[] out = new byte[end];
+		System.arraycopy(prefix, 0, out, 0, base);
+
+		int ip = 0;
+		int op = base;
+
+		try {
+			while (true) {
+				int token = data[ip++] & 0xFF;
+				int literals = token >>> 4;
+
+				if (literals == 15) {
+					int next;
+
+					do {
+						next = data[ip++] & 0xFF;
+						literals += next;
+					}
+					while (next == 255);
+				}
+
+				if (literals > end - op || literals > data.length - ip) {
+					throw new IllegalArgumentException("Corrupt LZ4 block: literals run past the end");
+				}
+
+				System.arraycopy(data, ip, out, op, literals);
+				ip += literals;
+				op += literals;
+
+				// The last sequence has no match
+				if (ip == data.length) {
+					break;
+				}
+
+				int offset = (data[ip++] & 0xFF) | (data[ip++] & 0xFF) << 8;
+				int length = token & 15;
+
+				if (length == 15) {
+					int next;
+
+					do {
+						next = data[ip++] & 0xFF;
+						length += next;
+					}
+					while (next == 255);
+				}
+
+				length += MIN_MATCH;
+
+				if (offset == 0 || offset > op || length > end - op) {
+					throw new IllegalArgumentException("Corrupt LZ4 block: match out of bounds");
+				}
+
+				int from = op - offset;
+
+				if (offset >= length) {
+					System.arraycopy(out, from, out, op, length);
+				}
+				else {
+					// The match overlaps the bytes it produces, which repeats its first offset bytes
+					for (int k = 0; k < length; k++) {
+						out[op + k] = out[from + k];
+					}
+				}
+
+				op += length;
+			}
+		}
+		catch (IndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Corrupt LZ4 block: truncated", ex);
+		}
+
+		if (op != end) {
+			throw new IllegalArgumentException("LZ4 block decoded to " + (op - base) + " bytes instead of " + rawLength);
+		}
+
+		return base == 0 ? out : Arrays.copyOfRange(out, base, end);
+	}
+
+	/**
+	 * Hashes the 4 bytes at a position into an index of the hash table.
+	 *
+	 * @param in The input.
+	 * @param position The position of the bytes.
+	 * @return The index in the hash table.
+	 */
+	private static int hash (byte[] in, int position) {
+		return ((int) INT.get(in, position) * -1640531535) >>> (32 - HASH_LOG);
+	}
+
+	/**
+	 * Counts the bytes which match from two positions, 8 bytes at a time while there is room.
+	 *
+	 * @param in The input.
+	 * @param ref The position of the earlier string.
+	 * @param position The position of the later string.
+	 * @param limit The position the later string must stop before.
+	 * @return The number of matching bytes.
+	 */
+	private static int matchLength (byte[] in, int ref, int position, int limit) {
+		int start = position;
+
+		while (position + 8 <= limit) {
+			long difference = (long) LONG.get(in, ref) ^ (long) LONG.get(in, position);
+
+			if (difference != 0) {
+				return position - start + (Long.numberOfTrailingZeros(difference) >>> 3);
+			}
+
+			ref += 8;
+			position += 8;
+		}
+
+		while (position < limit && in[ref] == in[position]) {
+			ref++;
+			position++;
+		}
+
+		return position - start;
+	}
+
+	/**
+	 * Writes a sequence of literals followed by a match.
+	 *
+	 * @param out The output.
+	 * @param op The position in the output.
+	 * @param in The input.
+	 * @param literalStart The position of the literals in the input.
+	 * @param literals The number of literals.
+	 * @param offset The distance the match points back.
+	 * @param length The length of the match.
+	 * @return The position in the output after the sequence.
+	 */
+	private static int writeSequence (byte[] out, int op, byte[] in, int literalStart, int literals, int offset, int length) {
+		int matchCode = length - MIN_MATCH;
+		out[op++] = (byte) (Math.min(literals, 15) << 4 | Math.min(matchCode, 15));
+
+		if (literals >= 15) {
+			op = writeLength(out, op, literals - 15);
+		}
+
+		System.arraycopy(in, literalStart, out, op, literals);
+		op += literals;
+
+		out[op++] = (byte) offset;
+		out[op++] = (byte) (offset >>> 8);
+
+		if (matchCode >= 15) {
+			op = writeLength(out, op, matchCode - 15);
+		}
+
+		return op;
+	}
+
+	/**
+	 * Writes the last sequence, which only holds literals.
+	 *
+	 * @param out The output.
+	 * @param op The position in the output.
+	 * @param in The input.
+	 * @param literalStart The position of the literals in the input.
+	 * @param literals The number of literals.
+	 * @return The position in the output after the sequence.
+	 */
+	private static int writeLiterals (byte[] out, int op, byte[] in, int literalStart, int literals) {
+		out[op++] = (byte) (Math.min(literals, 15) << 4);
+
+		if (literals >= 15) {
+			op = writeLength(out, op, literals - 15);
+		}
+
+		System.arraycopy(in, literalStart, out, op, literals);
+
+		return op + literals;
+	}
+
+	/**
+	 * Writes the part of a length which does not fit in its token, as a run of 255s and a final byte below 255.
+	 *
+	 * @param out The output.
+	 * @param op The position in the output.
+	 * @param length The rest of the length.
+	 * @return The position in the output after the length.
+	 */
+	private static int writeLength (byte[] out, int op, int length) {
+		while (length >= 255) {
+			out[op++] = (byte) 255;
+			length -= 255;
+		}
+
+		out[op++] = (byte) length;
+
+		return op;
+	}
+}
@@ -1,14 +1,16 @@
 package main.deserializers;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import de.undercouch.bson4jackson.BsonFactory;
 import org.json.java.JSONObject;
 
+import main.helpers.JacksonMappers;
+import main.helpers.ByteBufferInputStream;
+
 import java.io.File;
 import java.util.HashMap;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Class for deserializing binary data of various Java data types using BSON.
@@ -16,66 +18,90 @@ import java.io.ByteArrayInputStream;
  * The primary purpose of this class is to provide methods for deserializing binary data into Java objects such as
  * ArrayList, HashMap, String, and File, among others. This class utilizes the BSON4Jackson library to achieve
  * deserialization.
+ * <p>
+ * Documents are read with the shared BSON readers of {@link JacksonMappers}, so no mapper is created per call and
+ * Jackson's deserializer caches are kept between calls.
  *
  * @author Martin Bullman
  * @version 1.0
  * @since 2016-08-04
  */
-public class BsonDeserializer {
+public class BsonDeserializer implements IDeserializer {
 	/**
-	 * Object mapper used for deserialization.
+	 * Deserializes a byte array into an ArrayList of Strings.
+	 *
+	 * @param arrayListBytesArray The serialized ArrayList.
+	 * @return - Deserialized ArrayList.
 	 */
-	private ObjectMapper mapper = null;
-
+	@Override
+	public ArrayList<String> deserializeArrayList (final byte[] arrayListBytesArray) {
+		return deserializeArrayList(ByteBuffer.wrap(arrayListBytesArray), 0, arrayListBytesArray.length);
+	} 
+	
 	/**
-	 * Stores the serialised data.
+	 * Deserializes a byte array into a HashMap with String keys and Object values.
+	 * 
+	 * @param hashMapBytesArray - The serialized HashMap.
+	 * @return - Deserialized HashMap.
 	 */
-	private ByteArrayInputStream bais = null;
+	@Override
+	public HashMap<String, Object> deserializeHashMap (final byte[] hashMapBytesArray) {
+		return deserializeHashMap(ByteBuffer.wrap(hashMapBytesArray), 0, hashMapBytesArray.length);
+	}
 	
 	/**
-	 * Initializes ObjectMapper with BsonFactory and byte input stream for deserialization.
-	 *
-	 * @param bytesArray Byte array containing serialized data.
+	 * Deserializes a byte array into a JSONObject representing a String.
+	 * 
+	 * @param jsonBytesArray - The serialized JSONObject.
+	 * @return - Deserialized JSONObject.
 	 */
-	private void setup (final byte[] bytesArray) {
-		mapper = new ObjectMapper(new BsonFactory());
-		bais   = new ByteArrayInputStream(bytesArray);
+	@Override
+	public JSONObject deserializeString(final byte[] jsonBytesArray) {
+		return deserializeString(ByteBuffer.wrap(jsonBytesArray), 0, jsonBytesArray.length);
 	}
 	
 	/**
-	 * Deserializes a byte array into an ArrayList of Strings.
+	 * Deserializes a range of a buffer into an ArrayList of Strings, reading it in place.
 	 *
-	 * @param arrayListBytesArray The serialized ArrayList.
-	 * @return - Deserialized ArrayList.
+	 * @param buffer The buffer holding the serialized ArrayList.
+	 * @param offset The index of the first byte of the serialized ArrayList.
+	 * @param length The length of the serialized ArrayList in bytes.
+	 * @return The deserialized ArrayList.
 	 */
 	@SuppressWarnings( "unchecked" )
-	public ArrayList<String> deserializeArrayList (final byte[] arrayListBytesArray) {
+	@Override
+	public ArrayList<String> deserializeArrayList (final ByteBuffer buffer, final int offset, final int length) {
 		ArrayList<String> listData = new ArrayList<>();
 
+		InputStream bais = new ByteBufferInputStream(buffer, offset, length);
+
 		try {
-			setup(arrayListBytesArray);
-			listData = mapper.readValue(bais, ArrayList.class);
+			listData = JacksonMappers.BSON_ARRAY_LIST_READER.readValue(bais);
 		}
 		catch (Exception exception) {
 			exception.printStackTrace();
 		}
 		
 		return listData;
-	} 
-	
+	}
+
 	/**
-	 * Deserializes a byte array into a HashMap with String keys and Object values.
-	 * 
-	 * @param hashMapBytesArray - The serialized HashMap.
-	 * @return - Deserialized HashMap.
+	 * Deserializes a range of a buffer into a HashMap with String keys and Object values, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized HashMap.
+	 * @param offset The index of the first byte of the serialized HashMap.
+	 * @param length The length of the serialized HashMap in bytes.
+	 * @return The deserialized HashMap.
 	 */
 	@SuppressWarnings( "unchecked" )
-	public HashMap<String, Object> deserializeHashMap (final byte[] hashMapBytesArray) {
+	@Override
+	public HashMap<String, Object> deserializeHashMap (final ByteBuffer buffer, final int offset, final int length) {
 		HashMap<String, Object> hashMapData = new HashMap<>();
 
+		InputStream bais = new ByteBufferInputStream(buffer, offset, length);
+
 		try {
-			setup(hashMapBytesArray);
-			hashMapData = mapper.readValue(bais, HashMap.class);
+			hashMapData = JacksonMappers.BSON_HASH_MAP_READER.readValue(bais);
 		}
 		catch (IOException exception) {
 			exception.printStackTrace();
@@ -83,19 +109,23 @@ public class BsonDeserializer {
 		
 		return hashMapData;
 	}
-	
+
 	/**
-	 * Deserializes a byte array into a JSONObject representing a String.
-	 * 
-	 * @param jsonBytesArray - The serialized JSONObject.
-	 * @return - Deserialized JSONObject.
+	 * Deserializes a range of a buffer into a JSONObject representing a String, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized JSONObject.
+	 * @param offset The index of the first byte of the serialized JSONObject.
+	 * @param length The length of the serialized JSONObject in bytes.
+	 * @return The deserialized JSONObject.
 	 */
-	public JSONObject deserializeString(final byte[] jsonBytesArray) {
+	@Override
+	public JSONObject deserializeString (final ByteBuffer buffer, final int offset, final int length) {
 		JSONObject jsonData = null;
 
+		InputStream bais = new ByteBufferInputStream(buffer, offset, length);
+
 		try {
-			setup(jsonBytesArray);
-			jsonData = mapper.readValue(bais, JSONObject.class);
+			jsonData = JacksonMappers.BSON_JSON_OBJECT_READER.readValue(bais);
 		}
 		catch (IOException exception) {
 			exception.printStackTrace();
@@ -103,7 +133,7 @@ public class BsonDeserializer {
 		
 		return jsonData;
 	}
-	
+
 	/**
 	 * Deserializes a byte array into a File object.
 	 * 
@@ -114,8 +144,7 @@ public class BsonDeserializer {
 		File stringData = null;
 
 		try {
-			setup(fileBytesArray);
-			stringData = mapper.readValue(bais, File.class);
+			stringData = JacksonMappers.BSON_FILE_READER.readValue(fileBytesArray);
 		}
 		catch (IOException exception) {
 			exception.printStackTrace();
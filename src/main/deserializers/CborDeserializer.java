@@ -4,7 +4,9 @@ import com.naphaso.cbor.CborParser;
 import com.naphaso.cbor.io.*;
 import com.naphaso.cbor.type.CborObject;
 
-import java.io.ByteArrayInputStream;
+import main.helpers.ByteBufferInputStream;
+
+import java.nio.ByteBuffer;
 
 /**
  * Class for deserializing binary data of various Java data types using CBOR.
@@ -16,19 +18,20 @@ import java.io.ByteArrayInputStream;
  * @version 1.0
  * @since 2016-08-04
  */
-public class CborDeserializer {
+public class CborDeserializer implements IDeserializer {
 	/**
 	 * Deserializes binary data into a CborObject object using CborParser serialization.
 	 *
-	 * @param bytesArray The byte array containing serialized data in CBOR format.
+	 * @param buffer The buffer holding serialized data in CBOR format.
+	 * @param offset The index of the first byte of the serialized data.
+	 * @param length The length of the serialized data in bytes.
 	 * @return The deserialized CBOR object.
 	 */
-	private CborObject deserialize (final byte[] bytesArray) {
+	private CborObject deserialize (final ByteBuffer buffer, final int offset, final int length) {
 		CborObject deserializedData = null;
+		Input input = new StreamInput(new ByteBufferInputStream(buffer, offset, length));
 
 		try {
-			ByteArrayInputStream bais = new ByteArrayInputStream(bytesArray);
-			Input input = new StreamInput(bais);
 			CborParser cborParser = new CborParser();
 			deserializedData = cborParser.parse(input);
 		}
@@ -45,8 +48,9 @@ public class CborDeserializer {
 	 * @param arrayListBytesArray The serialized ArrayList.
 	 * @return The deserialized CBOR object.
 	 */
+	@Override
 	public CborObject deserializeArrayList (final byte[] arrayListBytesArray) {
-		return deserialize(arrayListBytesArray);
+		return deserializeArrayList(ByteBuffer.wrap(arrayListBytesArray), 0, arrayListBytesArray.length);
 	}
 
 	/**
@@ -55,8 +59,9 @@ public class CborDeserializer {
 	 * @param hashMapBytesArray The serialized HashMap.
 	 * @return The deserialized CBOR object..
 	 */
+	@Override
 	public CborObject deserializeHashMap (final byte[] hashMapBytesArray) {
-		return deserialize(hashMapBytesArray);
+		return deserializeHashMap(ByteBuffer.wrap(hashMapBytesArray), 0, hashMapBytesArray.length);
 	}
 
 	/**
@@ -65,7 +70,47 @@ public class CborDeserializer {
 	 * @param stringBytesArray The serialized String.
 	 * @return The deserialized CBOR object.
 	 */
+	@Override
 	public CborObject deserializeString (final byte[] stringBytesArray) {
-		return deserialize(stringBytesArray);
+		return deserializeString(ByteBuffer.wrap(stringBytesArray), 0, stringBytesArray.length);
+	}
+
+	/**
+	 * Deserializes a range of a buffer holding an ArrayList into a CBOR object, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized ArrayList.
+	 * @param offset The index of the first byte of the serialized ArrayList.
+	 * @param length The length of the serialized ArrayList in bytes.
+	 * @return The deserialized CBOR object.
+	 */
+	@Override
+	public CborObject deserializeArrayList (final ByteBuffer buffer, final int offset, final int length) {
+		return deserialize(buffer, offset, length);
+	}
+
+	/**
+	 * Deserializes a range of a buffer holding a HashMap into a CBOR object, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized HashMap.
+	 * @param offset The index of the first byte of the serialized HashMap.
+	 * @param length The length of the serialized HashMap in bytes.
+	 * @return The deserialized CBOR object.
+	 */
+	@Override
+	public CborObject deserializeHashMap (final ByteBuffer buffer, final int offset, final int length) {
+		return deserialize(buffer, offset, length);
+	}
+
+	/**
+	 * Deserializes a range of a buffer holding a String into a CBOR object, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized String.
+	 * @param offset The index of the first byte of the serialized String.
+	 * @param length The length of the serialized String in bytes.
+	 * @return The deserialized CBOR object.
+	 */
+	@Override
+	public CborObject deserializeString (final ByteBuffer buffer, final int offset, final int length) {
+		return deserialize(buffer, offset, length);
 	}
 }
@@ -2,8 +2,10 @@ package main.deserializers;
 
 import com.caucho.hessian.io.Hessian2Input;
 
-import java.io.ByteArrayInputStream;
+import main.helpers.ByteBufferInputStream;
+
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -17,26 +19,26 @@ import java.util.HashMap;
  * @version 1.0
  * @since 2016-08-04
  */
-public class HessianDeserializer {
+public class HessianDeserializer implements IDeserializer {
 	/**
 	 Deserializes binary data into a Java object using Hessian serialization.
 	 *
-	 * @param bytesArray The byte array containing serialized data.
+	 * @param buffer The buffer holding the serialized data.
+	 * @param offset The index of the first byte of the serialized data.
+	 * @param length The length of the serialized data in bytes.
 	 * @return The deserialized object.
 	 */
-	private Object deserialize (final byte[] bytesArray) {
+	private Object deserialize (final ByteBuffer buffer, final int offset, final int length) {
 		Object deserializedData = null;
 
 		try {
-			ByteArrayInputStream bais = new ByteArrayInputStream(bytesArray);
-			Hessian2Input in = new Hessian2Input(bais);
+			Hessian2Input in = new Hessian2Input(new ByteBufferInputStream(buffer, offset, length));
 
 			in.startMessage();
 			deserializedData = in.readObject();
 			in.completeMessage();
 
 			in.close();
-			bais.close();
 		}
 		catch (IOException exception) {
 			exception.printStackTrace();
@@ -52,8 +54,9 @@ public class HessianDeserializer {
 	 * @return - Deserialized ArrayList.
 	 */
     @SuppressWarnings("unchecked")
+	@Override
 	public ArrayList<String> deserializeArrayList (final byte[] arrayListBytesArray) {
-    	Object arrayListData = deserialize(arrayListBytesArray);
+    	Object arrayListData = deserialize(ByteBuffer.wrap(arrayListBytesArray), 0, arrayListBytesArray.length);
     	
     	return (ArrayList<String>) arrayListData;
     }
@@ -65,8 +68,9 @@ public class HessianDeserializer {
 	 * @return - Deserialized HashMap.
 	 */
     @SuppressWarnings("unchecked")
+	@Override
 	public HashMap<String, Object> deserializeHashMap (final byte[] hashMapBytesArray) {
-    	Object hashMapData = deserialize(hashMapBytesArray);
+    	Object hashMapData = deserialize(ByteBuffer.wrap(hashMapBytesArray), 0, hashMapBytesArray.length);
 
     	return (HashMap<String, Object>) hashMapData;
     }
@@ -77,9 +81,51 @@ public class HessianDeserializer {
 	 * @param stringBytesArray - The serialized string.
 	 * @return - Deserialized String.
 	 */
+    @Override
     public String deserializeString (final byte[] stringBytesArray) {
-    	Object stringData = deserialize(stringBytesArray);
+    	Object stringData = deserialize(ByteBuffer.wrap(stringBytesArray), 0, stringBytesArray.length);
 
     	return (String) stringData;
     }
+
+	/**
+	 * Deserializes a range of a buffer into a Java ArrayList of Strings, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized ArrayList.
+	 * @param offset The index of the first byte of the serialized ArrayList.
+	 * @param length The length of the serialized ArrayList in bytes.
+	 * @return The deserialized ArrayList.
+	 */
+    @SuppressWarnings("unchecked")
+	@Override
+	public ArrayList<String> deserializeArrayList (final ByteBuffer buffer, final int offset, final int length) {
+    	return (ArrayList<String>) deserialize(buffer, offset, length);
+    }
+
+	/**
+	 * Deserializes a range of a buffer into a Java HashMap with String keys and Object values, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized HashMap.
+	 * @param offset The index of the first byte of the serialized HashMap.
+	 * @param length The length of the serialized HashMap in bytes.
+	 * @return The deserialized HashMap.
+	 */
+    @SuppressWarnings("unchecked")
+	@Override
+	public HashMap<String, Object> deserializeHashMap (final ByteBuffer buffer, final int offset, final int length) {
+    	return (HashMap<String, Object>) deserialize(buffer, offset, length);
+    }
+
+	/**
+	 * Deserializes a range of a buffer into a Java String, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized String.
+	 * @param offset The index of the first byte of the serialized String.
+	 * @param length The length of the serialized String in bytes.
+	 * @return The deserialized String.
+	 */
+    @Override
+    public String deserializeString (final ByteBuffer buffer, final int offset, final int length) {
+    	return (String) deserialize(buffer, offset, length);
+    }
 }
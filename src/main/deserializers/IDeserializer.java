@@ -0,0 +1,109 @@
+package main.deserializers;
+
+import main.helpers.ByteBufferInputStream;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This interface defines the operations every deserializer supports.
+ * <p>
+ * Implementing classes read back the byte arrays written by the matching {@link main.serializers.ISerializer}. The
+ * type of the decoded objects depends on the library behind the format, e.g. CBOR returns its own object model, so
+ * they are returned as Objects. Deserializers are created through a {@link main.codecs.ICodec} and are not safe to
+ * share between threads.
+ * <p>
+ * A message can also be read from a range of a ByteBuffer, such as a pooled direct buffer holding several
+ * messages. The range is given by absolute indexes, and the position and limit of the buffer are not changed. The
+ * built-in deserializers read the range in place; the defaults copy it into a byte array first.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public interface IDeserializer {
+	/**
+	 * Deserializes a byte array into a list of Strings.
+	 *
+	 * @param arrayListBytesArray The serialized ArrayList.
+	 * @return The deserialized list.
+	 */
+	public Object deserializeArrayList (byte[] arrayListBytesArray);
+
+	/**
+	 * Deserializes a byte array into a map with String keys.
+	 *
+	 * @param hashMapBytesArray The serialized HashMap.
+	 * @return The deserialized map.
+	 */
+	public Object deserializeHashMap (byte[] hashMapBytesArray);
+
+	/**
+	 * Deserializes a byte array into a String, or the closest type the format offers.
+	 *
+	 * @param stringBytesArray The serialized String.
+	 * @return The deserialized String.
+	 */
+	public Object deserializeString (byte[] stringBytesArray);
+
+	/**
+	 * Deserializes a range of a ByteBuffer into a list of Strings.
+	 *
+	 * @param buffer The buffer holding the serialized ArrayList.
+	 * @param offset The index of the first byte of the serialized ArrayList.
+	 * @param length The length of the serialized ArrayList in bytes.
+	 * @return The deserialized list.
+	 * @throws IndexOutOfBoundsException If the range is not inside the buffer.
+	 */
+	public default Object deserializeArrayList (ByteBuffer buffer, int offset, int length) {
+		return deserializeArrayList(toBytes(buffer, offset, length));
+	}
+
+	/**
+	 * Deserializes a range of a ByteBuffer into a map with String keys.
+	 *
+	 * @param buffer The buffer holding the serialized HashMap.
+	 * @param offset The index of the first byte of the serialized HashMap.
+	 * @param length The length of the serialized HashMap in bytes.
+	 * @return The deserialized map.
+	 * @throws IndexOutOfBoundsException If the range is not inside the buffer.
+	 */
+	public default Object deserializeHashMap (ByteBuffer buffer, int offset, int length) {
+		return deserializeHashMap(toBytes(buffer, offset, length));
+	}
+
+	/**
+	 * Deserializes a range of a ByteBuffer into a String, or the closest type the format offers.
+	 *
+	 * @param buffer The buffer holding the serialized String.
+	 * @param offset The index of the first byte of the serialized String.
+	 * @param length The length of the serialized String in bytes.
+	 * @return The deserialized String.
+	 * @throws IndexOutOfBoundsException If the range is not inside the buffer.
+	 */
+	public default Object deserializeString (ByteBuffer buffer, int offset, int length) {
+		return deserializeString(toBytes(buffer, offset, length));
+	}
+
+	/**
+	 * Copies a range of a ByteBuffer into a byte array. The array backing a heap buffer is returned as it is when
+	 * the range covers all of it.
+	 *
+	 * @param buffer The buffer.
+	 * @param offset The index of the first byte of the range.
+	 * @param length The number of bytes in the range.
+	 * @return The bytes of the range.
+	 * @throws IndexOutOfBoundsException If the range is not inside the buffer.
+	 */
+	public static byte[] toBytes (ByteBuffer buffer, int offset, int length) {
+		ByteBufferInputStream.checkRange(buffer, offset, length);
+
+		if (buffer.hasArray() && buffer.arrayOffset() == 0 && offset == 0 && length == buffer.array().length) {
+			return buffer.array();
+		}
+
+		byte[] bytes = new byte[length];
+		buffer.duplicate().position(offset).get(bytes);
+
+		return bytes;
+	}
+}
@@ -1,11 +1,13 @@
 package main.deserializers;
 
+import main.helpers.ByteBufferInputStream;
+
 import java.util.HashMap;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.io.ObjectInputStream;
-import java.io.ByteArrayInputStream;
 
 /**
  * Class for deserializing binary data of various Java data types using Java Objects.
@@ -18,19 +20,20 @@ import java.io.ByteArrayInputStream;
  * @version 1.0
  * @since 2016-08-04
  */
-public class JavaDeserializer {
+public class JavaDeserializer implements IDeserializer {
 	/**
 	 * Deserializes binary data into an object.
 	 *
-	 * @param bytesArray The byte array containing serialized data.
+	 * @param buffer The buffer holding the serialized data.
+	 * @param offset The index of the first byte of the serialized data.
+	 * @param length The length of the serialized data in bytes.
 	 * @return The deserialized object.
 	 */
-	private Object deserialize (final byte[] bytesArray) {
+	private Object deserialize (final ByteBuffer buffer, final int offset, final int length) {
 		Object deserializedData = null;
 
 		try {
-			ByteArrayInputStream bais = new ByteArrayInputStream(bytesArray);
-			ObjectInput in = new ObjectInputStream(bais);
+			ObjectInput in = new ObjectInputStream(new ByteBufferInputStream(buffer, offset, length));
 			deserializedData = in.readObject();
 		}
 		catch (IOException | ClassNotFoundException exception) {
@@ -47,8 +50,9 @@ public class JavaDeserializer {
 	 * @return - Deserialized ArrayList.
 	 */
 	@SuppressWarnings( "unchecked" )
+	@Override
 	public ArrayList<String> deserializeArrayList (final byte[] arrayListBytesArray) {
-		Object arraylistData = deserialize(arrayListBytesArray);
+		Object arraylistData = deserialize(ByteBuffer.wrap(arrayListBytesArray), 0, arrayListBytesArray.length);
 		
 		return (ArrayList<String>) arraylistData;
 	}
@@ -60,8 +64,9 @@ public class JavaDeserializer {
 	 * @return - Deserialized HashMap.
 	 */
 	@SuppressWarnings( "unchecked" )
+	@Override
 	public HashMap<String, Object> deserializeHashMap (final byte[] hashMapBytesArray) {
-		Object hashMapData = deserialize(hashMapBytesArray);
+		Object hashMapData = deserialize(ByteBuffer.wrap(hashMapBytesArray), 0, hashMapBytesArray.length);
 		
 		return (HashMap<String, Object>) hashMapData;
 	}
@@ -72,9 +77,51 @@ public class JavaDeserializer {
 	 * @param stringBytesArray - The serialized string.
 	 * @return - Deserialized String.
 	 */
+	@Override
 	public String deserializeString (final byte[] stringBytesArray) {
-		Object stringData = deserialize(stringBytesArray);
+		Object stringData = deserialize(ByteBuffer.wrap(stringBytesArray), 0, stringBytesArray.length);
 		
 		return (String) stringData;
 	}
+
+	/**
+	 * Deserializes a range of a buffer into a Java ArrayList of Strings, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized ArrayList.
+	 * @param offset The index of the first byte of the serialized ArrayList.
+	 * @param length The length of the serialized ArrayList in bytes.
+	 * @return The deserialized ArrayList.
+	 */
+	@SuppressWarnings( "unchecked" )
+	@Override
+	public ArrayList<String> deserializeArrayList (final ByteBuffer buffer, final int offset, final int length) {
+		return (ArrayList<String>) deserialize(buffer, offset, length);
+	}
+
+	/**
+	 * Deserializes a range of a buffer into a Java HashMap with String keys and Object values, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized HashMap.
+	 * @param offset The index of the first byte of the serialized HashMap.
+	 * @param length The length of the serialized HashMap in bytes.
+	 * @return The deserialized HashMap.
+	 */
+	@SuppressWarnings( "unchecked" )
+	@Override
+	public HashMap<String, Object> deserializeHashMap (final ByteBuffer buffer, final int offset, final int length) {
+		return (HashMap<String, Object>) deserialize(buffer, offset, length);
+	}
+
+	/**
+	 * Deserializes a range of a buffer into a Java String, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized String.
+	 * @param offset The index of the first byte of the serialized String.
+	 * @param length The length of the serialized String in bytes.
+	 * @return The deserialized String.
+	 */
+	@Override
+	public String deserializeString (final ByteBuffer buffer, final int offset, final int length) {
+		return (String) deserialize(buffer, offset, length);
+	}
 }
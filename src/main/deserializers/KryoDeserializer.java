@@ -1,24 +1,28 @@
 package main.deserializers;
 
-import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 
+import main.helpers.KryoPool;
+
 import java.io.File;
 import java.util.HashMap;
 import java.util.ArrayList;
-import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Class for deserializing binary data of various Java data types using Kryo.
  * <p>
  * The primary purpose of this class is to provide methods for deserializing binary data into Java objects such as
  * ArrayList, HashMap, String, and File, among others. This class utilizes the kryo library to achieve deserialization.
+ * <p>
+ * The Kryo instance and input of the calling thread are taken from {@link KryoPool}, which holds the same class
+ * registrations as the serializer.
  *
  * @author Martin Bullman
  * @version 1.0
  * @since 2016-08-04
  */
-public class KryoDeserializer {
+public class KryoDeserializer implements IDeserializer {
 	/**
 	 * Deserializes binary data into a Java object using Kryo serialization.
 	 *
@@ -26,14 +30,24 @@ public class KryoDeserializer {
 	 * @return The deserialized object.
 	 */
 	public Object deserialize (final byte[] bytesArray) {
+		return deserialize(ByteBuffer.wrap(bytesArray), 0, bytesArray.length);
+	}
+
+	/**
+	 * Deserializes a range of a buffer into a Java object using Kryo serialization. Heap buffers are read in place
+	 * and direct buffers through the stream input of the calling thread.
+	 *
+	 * @param buffer The buffer holding the serialized data.
+	 * @param offset The index of the first byte of the serialized data.
+	 * @param length The length of the serialized data in bytes.
+	 * @return The deserialized object.
+	 */
+	public Object deserialize (final ByteBuffer buffer, final int offset, final int length) {
 		Object deserializedData = null;
+		Input input = KryoPool.input(buffer, offset, length);
 
 		try {
-			ByteArrayInputStream bais = new ByteArrayInputStream(bytesArray);
-			Input input = new Input(bais);
-			Kryo kryo = new Kryo();
-
-			deserializedData = kryo.readClassAndObject(input);
+			deserializedData = KryoPool.kryo().readClassAndObject(input);
 		}
 		catch (Exception exception) {
 			exception.printStackTrace();
@@ -49,8 +63,9 @@ public class KryoDeserializer {
 	 * @return - Deserialized ArrayList.
 	 */
 	@SuppressWarnings("unchecked")
+	@Override
 	public ArrayList<String> deserializeArrayList (final byte[] arrayListBytesArray) {
-		Object arraylistData = deserialize(arrayListBytesArray);
+		Object arraylistData = deserialize(ByteBuffer.wrap(arrayListBytesArray), 0, arrayListBytesArray.length);
 
 		return (ArrayList<String>) arraylistData;
 	}
@@ -62,8 +77,9 @@ public class KryoDeserializer {
 	 * @return - Deserialized HashMap.
 	 */
 	@SuppressWarnings("unchecked")
+	@Override
 	public HashMap<String, Object> deserializeHashMap (final byte[] hashMapBytesArray) {
-		Object hashMapData = deserialize(hashMapBytesArray);
+		Object hashMapData = deserialize(ByteBuffer.wrap(hashMapBytesArray), 0, hashMapBytesArray.length);
 
 		return (HashMap<String, Object>) hashMapData;
 	}
@@ -74,12 +90,54 @@ public class KryoDeserializer {
 	 * @param stringBytesArray - The serialized string.
 	 * @return - Deserialized String.
 	 */
+	@Override
 	public String deserializeString (final byte[] stringBytesArray) {
-		Object stringData = deserialize(stringBytesArray);
+		Object stringData = deserialize(ByteBuffer.wrap(stringBytesArray), 0, stringBytesArray.length);
 
 		return (String) stringData;
 	}
 
+	/**
+	 * Deserializes a range of a buffer into a Java ArrayList of Strings, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized ArrayList.
+	 * @param offset The index of the first byte of the serialized ArrayList.
+	 * @param length The length of the serialized ArrayList in bytes.
+	 * @return The deserialized ArrayList.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public ArrayList<String> deserializeArrayList (final ByteBuffer buffer, final int offset, final int length) {
+		return (ArrayList<String>) deserialize(buffer, offset, length);
+	}
+
+	/**
+	 * Deserializes a range of a buffer into a Java HashMap with String keys and Object values, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized HashMap.
+	 * @param offset The index of the first byte of the serialized HashMap.
+	 * @param length The length of the serialized HashMap in bytes.
+	 * @return The deserialized HashMap.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public HashMap<String, Object> deserializeHashMap (final ByteBuffer buffer, final int offset, final int length) {
+		return (HashMap<String, Object>) deserialize(buffer, offset, length);
+	}
+
+	/**
+	 * Deserializes a range of a buffer into a Java String, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized String.
+	 * @param offset The index of the first byte of the serialized String.
+	 * @param length The length of the serialized String in bytes.
+	 * @return The deserialized String.
+	 */
+	@Override
+	public String deserializeString (final ByteBuffer buffer, final int offset, final int length) {
+		return (String) deserialize(buffer, offset, length);
+	}
+
 	/**
 	 * Deserializes binary data into a File.
 	 *
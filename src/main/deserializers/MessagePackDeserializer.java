@@ -7,10 +7,12 @@ import static org.msgpack.template.Templates.tList;
 import static org.msgpack.template.Templates.tMap;
 import static org.msgpack.template.Templates.TString;
 
+import main.helpers.ByteBufferInputStream;
+
 import java.io.File;
 import java.util.Map;
 import java.util.List;
-import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Class for deserializing binary data of various Java data types using MessagePack.
@@ -22,7 +24,12 @@ import java.io.ByteArrayInputStream;
  * @version 1.0
  * @since 2016-08-04
  */
-public class MessagePackDeserializer {
+public class MessagePackDeserializer implements IDeserializer {
+	/**
+	 * The MessagePack instance used to create unpackers.
+	 */
+	private static final MessagePack MSGPACK = new MessagePack();
+
 	/**
 	 * Unpacker used for deserialization.
 	 */
@@ -34,9 +41,23 @@ public class MessagePackDeserializer {
 	 * @param bytesArray Byte array containing serialized data.
 	 */
 	public void setup (final byte[] bytesArray) {
-		MessagePack msgpack = new MessagePack();
-		ByteArrayInputStream bais = new ByteArrayInputStream(bytesArray);
-        this.unpacker = msgpack.createUnpacker(bais);
+		setup(ByteBuffer.wrap(bytesArray), 0, bytesArray.length);
+	}
+
+	/**
+	 * Initializes an unpacker reading a range of a buffer in place.
+	 *
+	 * @param buffer Buffer containing serialized data.
+	 * @param offset The index of the first byte of the serialized data.
+	 * @param length The length of the serialized data in bytes.
+	 * @throws IndexOutOfBoundsException If the range is not inside the buffer.
+	 */
+	public void setup (final ByteBuffer buffer, final int offset, final int length) {
+		ByteBufferInputStream.checkRange(buffer, offset, length);
+
+		ByteBuffer range = buffer.duplicate();
+		range.limit(offset + length).position(offset);
+		this.unpacker = MSGPACK.createBufferUnpacker(range);
 	}
 
 	/**
@@ -45,10 +66,46 @@ public class MessagePackDeserializer {
 	 * @param arrayListBytesArray - The serialized ArrayList.
 	 * @return - Deserialized ArrayList.
 	 */
+	@Override
 	public List<String> deserializeArrayList(final byte[] arrayListBytesArray) {
+		return deserializeArrayList(ByteBuffer.wrap(arrayListBytesArray), 0, arrayListBytesArray.length);
+	}
+
+	/**
+	 * Deserializes binary data into a Java template HashMap with String keys and String values.
+	 *
+	 * @param hashMapBytesArray - The serialized HashMap.
+	 * @return - Deserialized HashMap.
+	 */
+	@Override
+	public Map<String, String> deserializeHashMap (final byte[] hashMapBytesArray) {
+		return deserializeHashMap(ByteBuffer.wrap(hashMapBytesArray), 0, hashMapBytesArray.length);
+	}
+
+	/**
+	 * Deserializes binary data into a Java String.
+	 *
+	 * @param stringBytesArray - The serialized string.
+	 * @return - Deserialized String.
+	 */
+	@Override
+	public String deserializeString (final byte[] stringBytesArray) {
+		return deserializeString(ByteBuffer.wrap(stringBytesArray), 0, stringBytesArray.length);
+	}
+
+	/**
+	 * Deserializes a range of a buffer into a Java template ArrayList of Strings, reading it in place.
+	 *
+	 * @param buffer The buffer holding the serialized ArrayList.
+	 * @param offset The index of the first byte of the serialized ArrayList.
+	 * @param length The length of the serialized ArrayList in bytes.
+	 * @return The deserialized ArrayList.
+	 */
+	@Override
+	public List<String> deserializeArrayList (final ByteBuffer buffer, final int offset, final int length) {
         Template<List<String>> listTmpl = tList(TString);
         List<String> listData = null;
-        setup(arrayListBytesArray);
+        setup(buffer, offset, length);
         
 		try {
 			listData = unpacker.read(listTmpl);
@@ -61,15 +118,18 @@ public class MessagePackDeserializer {
 	}
 
 	/**
-	 * Deserializes binary data into a Java template HashMap with String keys and String values.
+	 * Deserializes a range of a buffer into a Java template HashMap with String keys and String values, reading it in place.
 	 *
-	 * @param hashMapBytesArray - The serialized HashMap.
-	 * @return - Deserialized HashMap.
+	 * @param buffer The buffer holding the serialized HashMap.
+	 * @param offset The index of the first byte of the serialized HashMap.
+	 * @param length The length of the serialized HashMap in bytes.
+	 * @return The deserialized HashMap.
 	 */
-	public Map<String, String> deserializeHashMap (final byte[] hashMapBytesArray) {
+	@Override
+	public Map<String, String> deserializeHashMap (final ByteBuffer buffer, final int offset, final int length) {
 		Template<Map<String, String>> mapTmpl = tMap(TString, TString);
 		Map<String, String> hashMapData = null;
-		setup(hashMapBytesArray);
+		setup(buffer, offset, length);
 
 		try {
 	        hashMapData = unpacker.read(mapTmpl);
@@ -82,14 +142,17 @@ public class MessagePackDeserializer {
 	}
 
 	/**
-	 * Deserializes binary data into a Java String.
+	 * Deserializes a range of a buffer into a Java String, reading it in place.
 	 *
-	 * @param stringBytesArray - The serialized string.
-	 * @return - Deserialized String.
+	 * @param buffer The buffer holding the serialized String.
+	 * @param offset The index of the first byte of the serialized String.
+	 * @param length The length of the serialized String in bytes.
+	 * @return The deserialized String.
 	 */
-	public String deserializeString (final byte[] stringBytesArray) {
+	@Override
+	public String deserializeString (final ByteBuffer buffer, final int offset, final int length) {
 		String stringData = "";
-		setup(stringBytesArray);
+		setup(buffer, offset, length);
 		 
 		try {
 			stringData = unpacker.read(String.class);
@@ -1,8 +1,5 @@
 package main.formatters;
 
-import main.helpers.FileHelper;
-
-import java.io.File;
 import java.util.HashMap;
 import java.util.ArrayList;
 
@@ -16,11 +13,6 @@ import java.util.ArrayList;
  * @since 2016-08-04
  */
 public class ArrayListFormatter implements IArrayListFormatter {
-	/**
-	 * Comma Separated Value tab delimiter,
-	 */
-	private static final char CSV_DELIMITER = '\t';
-
 	/**
 	 * New line character.
 	 */
@@ -46,37 +38,30 @@ public class ArrayListFormatter implements IArrayListFormatter {
 	}
 
 	/**
-	 * Converts the data to JSON format by first converting it to XML format, saving it to a file, and then
-	 * using an XmlFormatter to generate the JSON representation.
+	 * Converts the data to JSON format through an in-memory {@link RecordSet}.
 	 *
 	 * @return A JSON representation of the data.
 	 */
 	public String convertToJson () {
-        String csvString = convertToXml();
-		String dataFilesPath = System.getProperty("user.dir") + "/datafiles/data.text";
-
-		FileHelper helper = new FileHelper();
-    	String filePath = helper.convertStringToFile(csvString, dataFilesPath);
-    	XmlFormatter csvFormatter = new XmlFormatter(new File(filePath));
-		
-		return csvFormatter.convertToJson();
+		return toRecordSet().toJson();
 	}
 
 	/**
-	 * Converts the data to XML format by first converting it to CSV format, saving it to a file, and then
-	 * using a CsvFormatter to generate the XML representation.
+	 * Converts the data to XML format through an in-memory {@link RecordSet}.
 	 *
 	 * @return A string representing the data in XML format.
 	 */
 	public String convertToXml () {
-		String csvString = convertToCsv(CSV_DELIMITER);
-		String dataFilesPath = System.getProperty("user.dir") + "/datafiles/data.text";
+		return toRecordSet().toXml();
+	}
 
-		FileHelper stringFile = new FileHelper();
-    	String filePath = stringFile.convertStringToFile( csvString, dataFilesPath);
-    	CsvFormatter csvFormatter = new CsvFormatter(new File(filePath));
-		
-		return csvFormatter.convertToXml();
+	/**
+	 * Reads the data into a RecordSet, using the first row as the column names.
+	 *
+	 * @return A RecordSet holding the data.
+	 */
+	public RecordSet toRecordSet () {
+		return RecordSet.fromArrayList(monitoringData);
 	}
 	
 	/**
@@ -1,14 +1,23 @@
 package main.formatters;
 
 import main.helpers.FileHelper;
+import main.helpers.JacksonMappers;
+import main.helpers.DelimitedLineReader;
 
 import java.io.File;
+import java.io.Writer;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.BufferedReader;
+import java.io.OutputStreamWriter;
 import java.io.FileNotFoundException;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import java.util.Map;
 import java.util.List;
 import java.util.HashMap;
@@ -31,10 +40,9 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Document;
 import org.w3c.dom.DOMException;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.MappingIterator;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 
 /**
  * Class which provides methods to format and manipulate CSV monitoring data.
@@ -60,6 +68,11 @@ public class CsvFormatter implements ICsvFormatter {
 	 * Comma Separated Value tab delimiter,
 	 */
 	private static final String CSV_DELIMITER = "\t";
+
+	/**
+	 * Factory for the generators used to stream JSON output.
+	 */
+	private static final JsonFactory JSON_FACTORY = JacksonMappers.JSON_FACTORY;
 	
 	/**
 	 * CSV file given as input.
@@ -95,29 +108,30 @@ public class CsvFormatter implements ICsvFormatter {
 	}
 
 	/**
-	 * Retrieves the number of columns in the input file by reading the first line and splitting it using the
-	 * specified delimiter.
+	 * Retrieves the number of columns in the input file by reading the first line and splitting it on runs of
+	 * white space.
+	 * <p>
+	 * Only the bytes of the first line of the memory mapped file are read, and no strings are created.
 	 *
 	 * @return The number of columns in the input file.
 	 */
 	public int getColumnLength () {
-        Scanner scanner;
+		ByteBuffer buffer = new FileHelper().mapFile(inputFile);
 
-		try {
-		    scanner = new Scanner( inputFile );
-        
-		    if (scanner.hasNextLine()) {
-			    String line = scanner.nextLine();
-			    String[] values = line.split(WHITE_SPACE_REGULAR_EXPRESSION);
-				numColumns = values.length;
-		    }
+		if (buffer != null) {
+			DelimitedLineReader reader = new DelimitedLineReader(buffer, DelimitedLineReader.WHITESPACE);
 
-		    scanner.close();
-		}
-		catch (FileNotFoundException exception) {
-			exception.printStackTrace();
+			if (reader.nextLine()) {
+				int count = 0;
+
+				while (reader.nextField()) {
+					count++;
+				}
+
+				numColumns = count;
+			}
 		}
-		
+
         return numColumns;
 	}
 
@@ -126,34 +140,36 @@ public class CsvFormatter implements ICsvFormatter {
 	 * <p>
 	 * Reads the input file, parses its content into a list of strings, and returns an ArrayList of strings.
 	 * Each element of the ArrayList represents a data value found in the file.
+	 * <p>
+	 * The memory mapped file is split on runs of white space byte by byte, without a regular expression. For typed
+	 * values rather than strings, resource metric files can be read with
+	 * {@link main.message_receiver.ResourceMetricCsvReader}.
 	 *
 	 * @return An ArrayList of strings containing the data from the input file.
 	 */
 	public ArrayList<String> convertToArrayList () {
 		ArrayList<String> dataList = new ArrayList<>();
-		
-		try {
-			Scanner scanner = new Scanner(inputFile);
-		 
-			while (scanner.hasNextLine()) {
-				String rowOfData   = scanner.nextLine();
-				String[] rowValues = rowOfData.split(WHITE_SPACE_REGULAR_EXPRESSION);
-				
-				for (int i = 0; i < rowValues.length; i++) {
-					dataList.add(rowValues[i].trim());
-					
-					if (i == rowValues.length -1) {
-						dataList.add(NEW_LINE_MARKER);
-					}
-				}
-			}
+		ByteBuffer buffer = new FileHelper().mapFile(inputFile);
 
-			scanner.close();
+		if (buffer == null) {
+			return dataList;
 		}
-		catch (FileNotFoundException exception) {
-			exception.printStackTrace( );
+
+		DelimitedLineReader reader = new DelimitedLineReader(buffer, DelimitedLineReader.WHITESPACE);
+
+		while (reader.nextLine()) {
+			boolean values = false;
+
+			while (reader.nextField()) {
+				dataList.add(reader.fieldString());
+				values = true;
+			}
+
+			if (values) {
+				dataList.add(NEW_LINE_MARKER);
+			}
 		}
-		
+
 		return dataList;
 	}
 
@@ -200,30 +216,86 @@ public class CsvFormatter implements ICsvFormatter {
 	 * @return A JSON string representing the data from the CSV file.
 	 */
 	public String convertToJson (char csvDelimiter) {
-		String jsonString = "";
-		
-        try {
-        	ObjectMapper mapper = new ObjectMapper();
-        	CsvMapper csvMapper = new CsvMapper();
-        	CsvSchema schema = CsvSchema.builder()
-					.setColumnSeparator(csvDelimiter)
-	                .disableEscapeChar()
-	                .disableQuoteChar()
-	                .setUseHeader(false)
-	                .setNullValue("")
-		    		.build()
-		    		.withHeader();
-
-	        MappingIterator<Map<?, ?>> mappingIterator = csvMapper.reader(Map.class).with(schema).readValues(inputFile);
-        	List<Map<?, ?>> data = mappingIterator.readAll();
-	        jsonString = "{\n\"root\" : " + mapper.writerWithDefaultPrettyPrinter().writeValueAsString(data) + "\n}";
-	        jsonString = jsonString.replace("\"\" : null", "").replace("\r", "");
-        }
-        catch (IOException exception) {
+		StringWriter jsonWriter = new StringWriter();
+		convertToJson(csvDelimiter, jsonWriter);
+
+		return jsonWriter.toString();
+	}
+
+	/**
+	 * Stream the contents of the CSV file as JSON to the given output stream.
+	 * <p>
+	 * The JSON is written as UTF-8 and has the same shape as {@link #convertToJson(char)}. The stream is flushed
+	 * but not closed.
+	 *
+	 * @param csvDelimiter The delimiter used in the CSV file.
+	 * @param outputStream The stream the JSON is written to.
+	 */
+	public void convertToJson (char csvDelimiter, OutputStream outputStream) {
+		convertToJson(csvDelimiter, new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Stream the contents of the CSV file as JSON to the given writer.
+	 * <p>
+	 * Rows are read one at a time through a {@link MappingIterator} and written straight to a {@link JsonGenerator},
+	 * so memory use stays constant regardless of the size of the input file. The output is a pretty printed
+	 * <code>{"root" : [ ... ]}</code> document. Columns without a header name and no value are skipped. The writer
+	 * is flushed but not closed.
+	 *
+	 * @param csvDelimiter The delimiter used in the CSV file.
+	 * @param writer The writer the JSON is written to.
+	 */
+	public void convertToJson (char csvDelimiter, Writer writer) {
+		try (MappingIterator<Map<String, String>> rows = JacksonMappers.csvRowReader(csvDelimiter).readValues(inputFile)) {
+			JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+			generator.useDefaultPrettyPrinter();
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+			generator.writeStartObject();
+			generator.writeArrayFieldStart("root");
+
+			while (rows.hasNextValue()) {
+				generator.writeStartObject();
+
+				for (Map.Entry<String, String> column : rows.nextValue().entrySet()) {
+					String name  = stripCarriageReturns(column.getKey());
+					String value = column.getValue();
+
+					if (name.isEmpty() && value == null) {
+						continue;
+					}
+
+					generator.writeFieldName(name);
+
+					if (value == null) {
+						generator.writeNull();
+					}
+					else {
+						generator.writeString(stripCarriageReturns(value));
+					}
+				}
+
+				generator.writeEndObject();
+			}
+
+			generator.writeEndArray();
+			generator.writeEndObject();
+			generator.close();
+		}
+		catch (IOException exception) {
 			exception.printStackTrace();
-        }
-        
-        return jsonString;
+		}
+	}
+
+	/**
+	 * Removes carriage return characters left over from Windows line endings.
+	 *
+	 * @param value The value to clean.
+	 * @return The value without carriage returns.
+	 */
+	private static String stripCarriageReturns (String value) {
+		return value.indexOf('\r') < 0 ? value : value.replace("\r", "");
 	}
 
 	/**
@@ -278,9 +350,8 @@ public class CsvFormatter implements ICsvFormatter {
 		jsonData += "]}";
 		
 		try {
-			ObjectMapper mapper = new ObjectMapper();
-			Object json = mapper.readValue(jsonData, Object.class);
-			jsonData = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(json);
+			Object json = JacksonMappers.JSON_VALUE_READER.readValue(jsonData);
+			jsonData = JacksonMappers.JSON_PRETTY_WRITER.writeValueAsString(json);
 		}
 		catch (IOException exception) {
 			exception.printStackTrace();
@@ -361,6 +432,24 @@ public class CsvFormatter implements ICsvFormatter {
 	    return xmlOutput.getWriter().toString();
 	}
 
+	/**
+	 * Reads the CSV data into a RecordSet, using the first line as the column names.
+	 *
+	 * @return A RecordSet holding the CSV data.
+	 */
+	public RecordSet toRecordSet () {
+		RecordSet recordSet = null;
+
+		try {
+			recordSet = inputFile == null ? RecordSet.fromCsv(new StringReader(inputString)) : RecordSet.fromCsv(inputFile);
+		}
+		catch (IOException exception) {
+			exception.printStackTrace();
+		}
+
+		return recordSet;
+	}
+
 	/**
 	 * Reads the contents of the input file and returns it as a string.
 	 *
@@ -1,10 +1,19 @@
 package main.formatters;
 
+import main.codecs.*;
 import main.helpers.FileHelper;
+import main.serializers.ISerializer;
+import main.deserializers.IDeserializer;
+import main.helpers.CodecCostModel;
+
+import com.naphaso.cbor.type.CborObject;
 
 import java.io.File;
+import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.Function;
 
 /**
  * The DataInterchangeFormatter class is responsible for handling and converting data between various formats,
@@ -12,8 +21,8 @@ import java.util.ArrayList;
  * <p>
  * This class provides constructors to initialize the formatter with different types of input data, such as a file,
  * an ArrayList, or a HashMap. It can automatically determine the data format based on the provided file extension
- * and choose the appropriate conversion method. The class also contains placeholders for methods to select the
- * most efficient serialization and deserialization methods based on data characteristics.
+ * and choose the appropriate conversion method. The class also selects the most efficient serialization and
+ * deserialization methods for the data by measuring every binary format against a shared, rolling cost model.
  * <p>
  * Supported input data formats include CSV (Comma-Separated Values), XML (Extensible Markup Language), and JSON
  * (JavaScript Object Notation).
@@ -43,6 +52,46 @@ import java.util.ArrayList;
 	 */
 	private static final String JSON_FILE_TYPE = "json";
 
+	/**
+	 * Identifier of the CBOR serializer.
+	 */
+	public static final int CBOR_SERIALIZER = CborCodec.ID;
+
+	/**
+	 * Identifier of the BSON serializer.
+	 */
+	public static final int BSON_SERIALIZER = BsonCodec.ID;
+
+	/**
+	 * Identifier of the Hessian serializer.
+	 */
+	public static final int HESSIAN_SERIALIZER = HessianCodec.ID;
+
+	/**
+	 * Identifier of the Java serializer.
+	 */
+	public static final int JAVA_SERIALIZER = JavaCodec.ID;
+
+	/**
+	 * Identifier of the Kryo serializer.
+	 */
+	public static final int KRYO_SERIALIZER = KryoCodec.ID;
+
+	/**
+	 * Identifier of the MessagePack serializer.
+	 */
+	public static final int MESSAGEPACK_SERIALIZER = MessagePackCodec.ID;
+
+	/**
+	 * Number of timed round trips per codec when a payload shape is measured.
+	 */
+	private static final int SAMPLE_TRIALS = 3;
+
+	/**
+	 * Cost model shared by all formatters unless another one is set.
+	 */
+	private static final CodecCostModel DEFAULT_COST_MODEL = new CodecCostModel();
+
 	/**
 	 * The name of the monitoring data file.
 	 */
@@ -68,6 +117,16 @@ import java.util.ArrayList;
 	 */
 	private HashMap<String, Object> hashMap =  null;
 
+	/**
+	 * The cost model used to pick serializers.
+	 */
+	private CodecCostModel costModel = DEFAULT_COST_MODEL;
+
+	/**
+	 * The serializer picked by the last call to pickEfficientSerializer, or -1 if none has been picked.
+	 */
+	private int pickedSerializer = -1;
+
 	/**
 	 * Constructs a DataInterchangeFormatter object with the provided file name.
 	 * <p>
@@ -136,29 +195,225 @@ import java.util.ArrayList;
 	}
 
 	/**
-	 * TODO: Implement a solution to select the most efficient serialization method for the data.
+	 * Selects the most efficient serialization method for the data.
 	 * <p>
-	 * This method should be responsible for evaluating the data and selecting the best serialization format
-	 * (e.g., CSV, XML, JSON) based on factors such as data complexity, size, and specific requirements.
+	 * The data is classified by its type (String for files, ArrayList or HashMap) and size. When the cost model has
+	 * no recent measurements for that shape, every binary format is timed serializing and deserializing the data and
+	 * its encoded size is recorded. The codec with the lowest cost under the model's weighting of CPU time against
+	 * bytes on the wire is returned.
+	 *
+	 * @return The identifier of the serializer to use, as accepted by the message sender.
+	 */
+	public int pickEfficientSerializer () {
+		String shape = shapeKey();
+
+		if (costModel.needsSampling(shape)) {
+			sampleSerializers(shape, payload());
+		}
+
+		pickedSerializer = costModel.cheapest(shape);
+
+		if (pickedSerializer < 0) {
+			pickedSerializer = MESSAGEPACK_SERIALIZER;
+		}
+
+		return pickedSerializer;
+	}
+
+	/**
+	 * Selects the deserialization method for the data.
 	 * <p>
-	 * You can add logic to analyze the data and decide which serialization format is the most suitable.
-	 * Once implemented, this method will automatically choose the best serialization method for the data.
+	 * Data must be deserialized with the format it was serialized with, so this returns the serializer picked for
+	 * the data, picking one first if needed.
+	 *
+	 * @return The identifier of the deserializer to use, as accepted by the message receiver.
+	 */
+	public int pickDeserializer () {
+		if (pickedSerializer < 0) {
+			return pickEfficientSerializer();
+		}
+
+		return pickedSerializer;
+	}
+
+	/**
+	 * Sets the cost model used to pick serializers.
+	 *
+	 * @param costModel The cost model.
+	 */
+	public void setCostModel (CodecCostModel costModel) {
+		this.costModel = costModel;
+	}
+
+	/**
+	 * Gets the cost model used to pick serializers.
+	 *
+	 * @return The cost model.
+	 */
+	public CodecCostModel getCostModel () {
+		return costModel;
+	}
+
+	/**
+	 * Builds the cost model key for the data held by this formatter.
+	 *
+	 * @return The payload shape key.
 	 */
-	public void pickEfficientSerializer () {
-		// TODO: Implement the logic to choose the most efficient serialization method.
+	private String shapeKey () {
+		if (arrayList != null) {
+			return CodecCostModel.shapeKey("ArrayList", arrayList.size());
+		}
+		else if (hashMap != null) {
+			return CodecCostModel.shapeKey("HashMap", hashMap.size());
+		}
+
+		return CodecCostModel.shapeKey("String", inputFile.length());
+	}
+
+	/**
+	 * Gets the data held by this formatter in the form it is serialized in.
+	 *
+	 * @return The ArrayList, the HashMap or the contents of the file as a String.
+	 */
+	private Object payload () {
+		if (arrayList != null) {
+			return arrayList;
+		}
+		else if (hashMap != null) {
+			return hashMap;
+		}
+
+		FileHelper helper = new FileHelper();
+		return helper.convertFileToString(inputFile);
 	}
 
 	/**
-	 * TODO: Implement a solution to select the appropriate deserialization method for the data.
+	 * Times every codec on the payload and records the results in the cost model.
 	 * <p>
-	 * This method should be responsible for evaluating the data and choosing the best deserialization format
-	 * (e.g., CSV, XML, JSON) based on factors such as the format of the data and specific requirements.
+	 * Each codec gets one warm up round trip followed by a number of timed ones. A codec which throws, produces no
+	 * bytes or does not read its own output back as the payload is recorded as failed for the shape. Linkage errors are treated the same
+	 * way, since some libraries cannot initialise on newer JVMs without extra module access.
+	 *
+	 * @param shape The payload shape key.
+	 * @param payload The payload to measure.
+	 */
+	private void sampleSerializers (String shape, Object payload) {
+		for (int codec = 0; codec < CodecCostModel.NUM_CODECS; codec++) {
+			if (costModel.hasFailed(shape, codec)) {
+				continue;
+			}
+
+			try {
+				measure(codec, payload);
+
+				for (int trial = 0; trial < SAMPLE_TRIALS; trial++) {
+					long[] result = measure(codec, payload);
+
+					if (result == null) {
+						costModel.recordFailure(shape, codec);
+						break;
+					}
+
+					costModel.record(shape, codec, result[0], result[1]);
+				}
+			}
+			catch (RuntimeException | LinkageError exception) {
+				costModel.recordFailure(shape, codec);
+			}
+		}
+
+		costModel.markSampled(shape);
+	}
+
+	/**
+	 * Serializes and deserializes the payload once with the given codec.
 	 * <p>
-	 * You can add logic to analyze the data and decide which deserialization format is the most suitable.
-	 * Once implemented, this method will automatically choose the best deserialization method for the data.
+	 * New serializer and deserializer instances are created before the clock starts, so construction cost is not
+	 * counted and no state is carried over between measurements.
+	 *
+	 * @param codec The codec identifier.
+	 * @param payload The payload to measure.
+	 * @return The elapsed time in nanoseconds and the encoded size in bytes, or null if the round trip failed or
+	 * did not give back the payload.
 	 */
-	public void pickDeserializer() {
-		// TODO: Implement the logic to choose the appropriate deserialization method.
+	private long[] measure (int codec, Object payload) {
+		Function<Object, byte[]> serializer = newSerializer(codec);
+		Function<byte[], Object> deserializer = newDeserializer(codec, payload);
+
+		long start = System.nanoTime();
+		byte[] bytes = serializer.apply(payload);
+
+		if (bytes == null || bytes.length == 0) {
+			return null;
+		}
+
+		Object decoded = deserializer.apply(bytes);
+		long elapsed = System.nanoTime() - start;
+
+		if (! matchesPayload(payload, decoded)) {
+			return null;
+		}
+
+		return new long[] { elapsed, bytes.length };
+	}
+
+	/**
+	 * Checks if a codec read back the payload it was given. A String must come back equal; an ArrayList or HashMap
+	 * must come back as a collection or map of the same size, since codecs do not all keep the element types.
+	 *
+	 * @param payload The payload which was serialized.
+	 * @param decoded The deserialized data, which CBOR wraps in its own types.
+	 * @return True if the decoded data matches the payload.
+	 */
+	private static boolean matchesPayload (Object payload, Object decoded) {
+		if (decoded instanceof CborObject) {
+			decoded = ((CborObject) decoded).toObject();
+		}
+
+		if (payload instanceof String) {
+			return payload.equals(decoded);
+		}
+		else if (payload instanceof ArrayList) {
+			int size = ((ArrayList<?>) payload).size();
+
+			return decoded instanceof Collection ? ((Collection<?>) decoded).size() == size
+					: decoded instanceof Object[] && ((Object[]) decoded).length == size;
+		}
+
+		return decoded instanceof Map && ((Map<?, ?>) decoded).size() == ((Map<?, ?>) payload).size();
+	}
+
+	/**
+	 * Creates a serializer function for the given codec which accepts a String, ArrayList or HashMap payload.
+	 *
+	 * @param codec The codec identifier.
+	 * @return A function serializing a payload into bytes.
+	 * @throws IllegalArgumentException If no codec has the identifier.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Function<Object, byte[]> newSerializer (int codec) {
+		ISerializer serializer = CodecRegistry.getDefault().require(codec).newSerializer();
+
+		return payload -> payload instanceof String ? serializer.serializeString((String) payload)
+				: payload instanceof ArrayList ? serializer.serializeArrayList((ArrayList<String>) payload)
+				: serializer.serializeHashMap((HashMap<String, Object>) payload);
+	}
+
+	/**
+	 * Creates a deserializer function for the given codec which reads back the same type as the payload.
+	 *
+	 * @param codec The codec identifier.
+	 * @param payload The payload which was serialized, used to choose between String, ArrayList and HashMap.
+	 * @return A function deserializing bytes into an object, returning null on failure.
+	 * @throws IllegalArgumentException If no codec has the identifier.
+	 */
+	public static Function<byte[], Object> newDeserializer (int codec, Object payload) {
+		IDeserializer deserializer = CodecRegistry.getDefault().require(codec).newDeserializer();
+		boolean isString = payload instanceof String;
+		boolean isList   = payload instanceof ArrayList;
+
+		return bytes -> isString ? deserializer.deserializeString(bytes)
+				: isList ? deserializer.deserializeArrayList(bytes) : deserializer.deserializeHashMap(bytes);
 	}
 
 	/**
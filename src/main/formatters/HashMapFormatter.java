@@ -1,8 +1,5 @@
 package main.formatters;
 
-import main.helpers.FileHelper;
-
-import java.io.File;
 import java.util.*;
 
 /**
@@ -56,39 +53,34 @@ public class HashMapFormatter implements IHashMapFormatter {
 	/**
 	 * Converts the data to JSON format.
 	 * <p>
-	 * Converts the current data into JSON format by first converting it to CSV format, saving it to a file,
-	 * and then using a CsvFormatter to generate the JSON representation.
+	 * Converts the current data into JSON format through an in-memory {@link RecordSet}, using row "0" as the
+	 * column names.
 	 *
 	 * @return A JSON representation of the data.
 	 */
 	public String convertToJson () {
-		String dataFilesPath = System.getProperty("user.dir") + "/datafiles/data.text";
-
-		String csvString = convertToCsv();
-		FileHelper stringFile = new FileHelper();
-    	String filePath = stringFile.convertStringToFile(csvString, dataFilesPath);
-		CsvFormatter formatter = new CsvFormatter(new File(filePath));
-		
-		return formatter.convertToJson(CSV_DELIMITER);
+		return toRecordSet().toJson();
 	}
 
 	/**
 	 * Converts the data to XML format.
 	 * <p>
-	 * Converts the current HashMap data into XML format by first converting it to CSV format, saving it to a file,
-	 * and then using a CsvFormatter to generate the XML representation.
+	 * Converts the current HashMap data into XML format through an in-memory {@link RecordSet}, using row "0" as
+	 * the column names.
 	 *
 	 * @return A string representing the data in XML format.
 	 */
 	public String convertToXml () {
-		String dataFilesPath = System.getProperty("user.dir") + "/datafiles/data.text";
+		return toRecordSet().toXml();
+	}
 
-		String csvString = convertToCsv();
-		FileHelper stringFile = new FileHelper();
-    	String filePath = stringFile.convertStringToFile( csvString, dataFilesPath);
-		CsvFormatter formatter = new CsvFormatter(new File( filePath));
-		
-		return formatter.convertToXml();
+	/**
+	 * Reads the data into a RecordSet, using row "0" as the column names.
+	 *
+	 * @return A RecordSet holding the data.
+	 */
+	public RecordSet toRecordSet () {
+		return RecordSet.fromHashMap(hashMapData);
 	}
 
 	/**
@@ -157,16 +149,29 @@ public class HashMapFormatter implements IHashMapFormatter {
 	 * separated by the specified CSV delimiter.
 	 */
 	public void printHashMap () {
+		System.out.print(toPrintString());
+	}
+
+	/**
+	 * Get the contents of the data stored in the HashMap as printed by {@link #printHashMap()}, one line per entry
+	 * with its values separated by the CSV delimiter.
+	 *
+	 * @return The printable contents of the HashMap.
+	 */
+	public String toPrintString () {
+		StringBuilder printData = new StringBuilder();
+
 		for (Map.Entry<String, Object> entry : hashMapData.entrySet()) {
-			String[] array = (String[]) entry.getValue();
-			StringBuilder printData = new StringBuilder();
+			printData.append("Key = ").append(entry.getKey()).append(", Value = ");
 
-            for (String string : array) {
-                printData.append(string).append(CSV_DELIMITER);
-            }
-			
-		    System.out.println("Key = " + entry.getKey() + ", Value = " + printData);
-	    }
+			for (String string : (String[]) entry.getValue()) {
+				printData.append(string).append(CSV_DELIMITER);
+			}
+
+			printData.append(System.lineSeparator());
+		}
+
+		return printData.toString();
 	}
 	
 	/**
@@ -0,0 +1,44 @@
+package main.formatters;
+
+import java.io.IOException;
+
+import java.util.Map;
+
+/**
+ * This interface defines the callbacks made by an {@link XmlRowReader} while it streams through an XML document.
+ * <p>
+ * Implementing classes receive the document one row at a time and write it to their own target, such as a JSON or
+ * CSV writer, a list or a map.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public interface IXmlRowHandler {
+	/**
+	 * Called once when the root element of the document is opened.
+	 *
+	 * @param rootName The name of the root element.
+	 * @throws IOException If the handler fails to write to its target.
+	 */
+	public void start (String rootName) throws IOException;
+
+	/**
+	 * Called once for every row element under the root.
+	 * <p>
+	 * The map of fields is reused by the reader for the next row, so implementations that keep the fields must copy
+	 * them.
+	 *
+	 * @param rowName The name of the row element.
+	 * @param fields The text of each field of the row, keyed by field name in document order.
+	 * @throws IOException If the handler fails to write to its target.
+	 */
+	public void row (String rowName, Map<String, String> fields) throws IOException;
+
+	/**
+	 * Called once when the root element of the document is closed.
+	 *
+	 * @throws IOException If the handler fails to write to its target.
+	 */
+	public void end () throws IOException;
+}
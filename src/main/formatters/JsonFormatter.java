@@ -1,6 +1,7 @@
 package main.formatters;
 
 import main.helpers.FileHelper;
+import main.helpers.JacksonMappers;
 
 import java.io.File;
 
@@ -13,7 +14,6 @@ import org.json.java.*;
 
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.databind.*;
-import com.fasterxml.jackson.core.type.TypeReference;
 
 /**
  * Class which provides methods to format and manipulate JSON monitoring data.
@@ -109,8 +109,8 @@ public class JsonFormatter implements IJsonFormatter {
 	 * Converts a JSON file into a HashMap of key-value pairs.
 	 * <p>
 	 * This method reads the content of a JSON file and converts it into a HashMap where keys are strings and
-	 * values can be of various types represented as Objects. The JSON file is parsed using the Jackson
-	 * ObjectMapper library. If successful, it returns the resulting HashMap.
+	 * values can be of various types represented as Objects. The JSON file is parsed with the shared Jackson
+	 * reader of {@link JacksonMappers}. If successful, it returns the resulting HashMap.
 	 *
 	 * @return A HashMap of key-value pairs extracted from the JSON file.
 	 */
@@ -118,11 +118,7 @@ public class JsonFormatter implements IJsonFormatter {
 		HashMap<String, Object> jsonHashMap = null;
 
 		try {
-			JsonFactory factory = new JsonFactory();
-	    	ObjectMapper mapper = new ObjectMapper(factory);
-
-			TypeReference <HashMap<String, Object>> typeRef = new TypeReference <HashMap<String, Object>>(){};
-			jsonHashMap = mapper.readValue(inputFile, typeRef);
+			jsonHashMap = JacksonMappers.JSON_HASH_MAP_READER.readValue(inputFile);
 		}
 		catch (IOException exception) {
 			exception.printStackTrace();
@@ -159,10 +155,9 @@ public class JsonFormatter implements IJsonFormatter {
 	public String convertToCsv () {
 		// Need to create a POJO class to handle data stored in JSON String. 
 		JsonNode rootJsonNode = null;
-		ObjectMapper mapper = new ObjectMapper();
 		
 		try {
-		    rootJsonNode = mapper.readTree(fileToString());
+		    rootJsonNode = JacksonMappers.JSON_TREE_READER.readTree(fileToString());
 		}
 		catch (IOException exception) {
 			exception.printStackTrace();
@@ -175,6 +170,24 @@ public class JsonFormatter implements IJsonFormatter {
 		return CDL.toString( new JSONArray(json.get(element).toString()));
 	}
 
+	/**
+	 * Reads the rows of the first array in the JSON data into a RecordSet.
+	 *
+	 * @return A RecordSet holding the JSON data.
+	 */
+	public RecordSet toRecordSet () {
+		RecordSet recordSet = null;
+
+		try {
+			recordSet = inputFile == null ? RecordSet.fromJson(inputString) : RecordSet.fromJson(inputFile);
+		}
+		catch (IOException exception) {
+			exception.printStackTrace();
+		}
+
+		return recordSet;
+	}
+
 	/**
 	 * Converts the contents of a file into a string representation.
 	 * <p>
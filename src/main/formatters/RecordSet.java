@@ -0,0 +1,611 @@
+package main.formatters;
+
+import main.helpers.JacksonMappers;
+
+import java.io.File;
+import java.io.Reader;
+import java.io.Writer;
+import java.io.FileReader;
+import java.io.InputStream;
+import java.io.FileInputStream;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.BufferedReader;
+
+import java.util.Map;
+import java.util.List;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Class which holds tabular monitoring data in memory as rows of named columns.
+ * <p>
+ * A RecordSet is the intermediate model shared by the formatters. Every formatter can read its data into a
+ * RecordSet and a RecordSet can be written in the representation of every formatter, so a conversion between two
+ * formats is one parse and one write without temporary files. The values are kept as strings, as they appear in
+ * the source data.
+ * <p>
+ * The layouts follow the formatters:
+ * <ul>
+ *     <li>ArrayList: the column names followed by the values of each row, every row ended by an "n" marker.</li>
+ *     <li>HashMap: the row number as a string mapped to an array of values, with the column names as row "0".</li>
+ *     <li>CSV: one line per row after a header line, with the values separated by a delimiter.</li>
+ *     <li>XML: <code>&lt;root&gt;&lt;row&gt;&lt;column&gt;value&lt;/column&gt;...&lt;/row&gt;&lt;/root&gt;</code>.</li>
+ *     <li>JSON: <code>{"root" : [ {"column" : "value", ...}, ... ]}</code>.</li>
+ * </ul>
+ * A RecordSet is not modified once it has been read, so it can be shared between threads.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class RecordSet {
+	/**
+	 * Marker which ends a row in the ArrayList layout.
+	 */
+	private static final String NEW_LINE_MARKER = "n";
+
+	/**
+	 * New line character.
+	 */
+	private static final String NEW_LINE_SEPARATOR = "\n";
+
+	/**
+	 * Character sequence which separates the values of a line of whitespace delimited CSV.
+	 */
+	private static final String WHITE_SPACE_REGULAR_EXPRESSION = "\\s+";
+
+	/**
+	 * Name of the root element in XML and the root field in JSON.
+	 */
+	private static final String ROOT_NAME = "root";
+
+	/**
+	 * Name of the row elements in XML.
+	 */
+	private static final String ROW_NAME = "row";
+
+	/**
+	 * Indentation of one level of XML.
+	 */
+	private static final String XML_INDENT = "    ";
+
+	/**
+	 * Factory for the parsers and generators used to read and write JSON.
+	 */
+	private static final JsonFactory JSON_FACTORY = JacksonMappers.JSON_FACTORY;
+
+	/**
+	 * Factory for the writers used to write XML.
+	 */
+	private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	/**
+	 * The names of the columns.
+	 */
+	private final String[] columns;
+
+	/**
+	 * The rows of values, in the order of the columns. Rows may be shorter than the columns.
+	 */
+	private final List<String[]> rows;
+
+	/**
+	 * Constructor which takes the column names and the rows of values.
+	 *
+	 * @param columns The names of the columns.
+	 * @param rows The rows of values, in the order of the columns.
+	 */
+	public RecordSet (String[] columns, List<String[]> rows) {
+		this.columns = columns;
+		this.rows = rows;
+	}
+
+	/**
+	 * Reads a RecordSet from the ArrayList layout used by {@link ArrayListFormatter}.
+	 *
+	 * @param monitoringData The column names and values, with every row ended by an "n" marker.
+	 * @return The RecordSet.
+	 */
+	public static RecordSet fromArrayList (List<String> monitoringData) {
+		List<String[]> lines = new ArrayList<>();
+		List<String> line = new ArrayList<>();
+
+		for (String value : monitoringData) {
+			if (! value.equals(NEW_LINE_MARKER)) {
+				line.add(value);
+			}
+			else {
+				lines.add(line.toArray(new String[0]));
+				line.clear();
+			}
+		}
+
+		if (! line.isEmpty()) {
+			lines.add(line.toArray(new String[0]));
+		}
+
+		return fromLines(lines);
+	}
+
+	/**
+	 * Reads a RecordSet from the HashMap layout used by {@link HashMapFormatter}, where row "0" holds the column
+	 * names.
+	 *
+	 * @param hashMapData The row numbers as strings, mapped to arrays of values.
+	 * @return The RecordSet.
+	 */
+	public static RecordSet fromHashMap (Map<String, Object> hashMapData) {
+		List<String[]> lines = new ArrayList<>(hashMapData.size());
+
+		for (int i = 0; i < hashMapData.size(); i++) {
+			String[] values = (String[]) hashMapData.get(Integer.toString(i));
+
+			if (values != null) {
+				lines.add(values);
+			}
+		}
+
+		return fromLines(lines);
+	}
+
+	/**
+	 * Reads a RecordSet from a whitespace delimited CSV file with a header line.
+	 *
+	 * @param inputFile The CSV file.
+	 * @return The RecordSet.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public static RecordSet fromCsv (File inputFile) throws IOException {
+		try (Reader reader = new FileReader(inputFile)) {
+			return fromCsv(reader);
+		}
+	}
+
+	/**
+	 * Reads a RecordSet from whitespace delimited CSV with a header line. The reader is not closed.
+	 *
+	 * @param reader The reader the CSV is read from.
+	 * @return The RecordSet.
+	 * @throws IOException If the reader fails.
+	 */
+	public static RecordSet fromCsv (Reader reader) throws IOException {
+		BufferedReader csvReader = new BufferedReader(reader);
+		List<String[]> lines = new ArrayList<>();
+		String line;
+
+		while ((line = csvReader.readLine()) != null) {
+			String trimmed = line.trim();
+
+			if (! trimmed.isEmpty()) {
+				lines.add(trimmed.split(WHITE_SPACE_REGULAR_EXPRESSION));
+			}
+		}
+
+		return fromLines(lines);
+	}
+
+	/**
+	 * Reads a RecordSet from an XML file of rows, streamed through an {@link XmlRowReader}.
+	 * <p>
+	 * The columns are the fields of the first row, followed by any field first seen in a later row.
+	 *
+	 * @param inputFile The XML file.
+	 * @return The RecordSet.
+	 * @throws IOException If the file cannot be read.
+	 * @throws XMLStreamException If the file is not well formed XML.
+	 */
+	public static RecordSet fromXml (File inputFile) throws IOException, XMLStreamException {
+		try (InputStream inputStream = new BufferedInputStream(new FileInputStream(inputFile))) {
+			return fromXml(inputStream);
+		}
+	}
+
+	/**
+	 * Reads a RecordSet from an XML document of rows, streamed through an {@link XmlRowReader}. The stream is not
+	 * closed.
+	 * <p>
+	 * The columns are the fields of the first row, followed by any field first seen in a later row.
+	 *
+	 * @param inputStream The stream the XML document is read from.
+	 * @return The RecordSet.
+	 * @throws IOException If the stream cannot be read.
+	 * @throws XMLStreamException If the document is not well formed XML.
+	 */
+	public static RecordSet fromXml (InputStream inputStream) throws IOException, XMLStreamException {
+		final Map<String, Integer> columnIndexes = new LinkedHashMap<>();
+		final List<String[]> rows = new ArrayList<>();
+
+		new XmlRowReader().read(inputStream, new IXmlRowHandler() {
+			@Override
+			public void start (String rootName) {
+
+			}
+
+			@Override
+			public void row (String rowName, Map<String, String> fields) {
+				rows.add(toRow(columnIndexes, fields));
+			}
+
+			@Override
+			public void end () {
+
+			}
+		});
+
+		return new RecordSet(columnIndexes.keySet().toArray(new String[0]), rows);
+	}
+
+	/**
+	 * Reads a RecordSet from a JSON file holding an array of objects, such as <code>{"root" : [ ... ]}</code>.
+	 *
+	 * @param inputFile The JSON file.
+	 * @return The RecordSet.
+	 * @throws IOException If the file cannot be read or is not valid JSON.
+	 */
+	public static RecordSet fromJson (File inputFile) throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(inputFile)) {
+			return fromJson(parser);
+		}
+	}
+
+	/**
+	 * Reads a RecordSet from a JSON string holding an array of objects, such as <code>{"root" : [ ... ]}</code>.
+	 *
+	 * @param json The JSON string.
+	 * @return The RecordSet.
+	 * @throws IOException If the string is not valid JSON.
+	 */
+	public static RecordSet fromJson (String json) throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+			return fromJson(parser);
+		}
+	}
+
+	/**
+	 * Reads a RecordSet from the first array found in a JSON document, with every object in the array as a row.
+	 * <p>
+	 * Scalar values are kept as their text and nested objects or arrays as their JSON. The columns are the fields
+	 * of the first object, followed by any field first seen in a later object.
+	 *
+	 * @param parser The parser the document is read from.
+	 * @return The RecordSet.
+	 * @throws IOException If the document is not valid JSON.
+	 */
+	private static RecordSet fromJson (JsonParser parser) throws IOException {
+		Map<String, Integer> columnIndexes = new LinkedHashMap<>();
+		Map<String, String> fields = new LinkedHashMap<>();
+		List<String[]> rows = new ArrayList<>();
+		JsonToken token;
+
+		while ((token = parser.nextToken()) != null && token != JsonToken.START_ARRAY) {
+			// Skip to the first array.
+		}
+
+		while (token != null && (token = parser.nextToken()) == JsonToken.START_OBJECT) {
+			fields.clear();
+
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+
+				if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+					fields.put(name, parser.readValueAsTree().toString());
+				}
+				else {
+					fields.put(name, value == JsonToken.VALUE_NULL ? null : parser.getText());
+				}
+			}
+
+			rows.add(toRow(columnIndexes, fields));
+		}
+
+		return new RecordSet(columnIndexes.keySet().toArray(new String[0]), rows);
+	}
+
+	/**
+	 * Builds a RecordSet from lines of values, where the first line holds the column names.
+	 *
+	 * @param lines The lines of values.
+	 * @return The RecordSet.
+	 */
+	private static RecordSet fromLines (List<String[]> lines) {
+		if (lines.isEmpty()) {
+			return new RecordSet(new String[0], new ArrayList<>());
+		}
+
+		List<String[]> rows = new ArrayList<>(lines.size() - 1);
+
+		for (int i = 1; i < lines.size(); i++) {
+			rows.add(clean(lines.get(i)));
+		}
+
+		return new RecordSet(clean(lines.get(0)), rows);
+	}
+
+	/**
+	 * Converts a row of named fields into an array in column order, adding columns not seen before.
+	 *
+	 * @param columnIndexes The index of every column seen so far, keyed by name.
+	 * @param fields The fields of the row.
+	 * @return The values of the row in column order.
+	 */
+	private static String[] toRow (Map<String, Integer> columnIndexes, Map<String, String> fields) {
+		for (String name : fields.keySet()) {
+			columnIndexes.putIfAbsent(name, columnIndexes.size());
+		}
+
+		String[] row = new String[columnIndexes.size()];
+
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+			row[columnIndexes.get(field.getKey())] = field.getValue();
+		}
+
+		return row;
+	}
+
+	/**
+	 * Trims the values of a line, removing padding and carriage returns left over from the source data.
+	 *
+	 * @param values The values of the line.
+	 * @return A trimmed copy of the values.
+	 */
+	private static String[] clean (String[] values) {
+		String[] cleaned = new String[values.length];
+
+		for (int i = 0; i < values.length; i++) {
+			cleaned[i] = values[i] == null ? null : values[i].trim();
+		}
+
+		return cleaned;
+	}
+
+	/**
+	 * Gets the names of the columns.
+	 *
+	 * @return The column names.
+	 */
+	public String[] getColumns () {
+		return columns.clone();
+	}
+
+	/**
+	 * Gets the number of rows, not counting the column names.
+	 *
+	 * @return The number of rows.
+	 */
+	public int getNumRows () {
+		return rows.size();
+	}
+
+	/**
+	 * Gets a value of the RecordSet.
+	 *
+	 * @param row The index of the row.
+	 * @param column The index of the column.
+	 * @return The value, or null if the row has no value for the column.
+	 */
+	public String getValue (int row, int column) {
+		String[] values = rows.get(row);
+		return column < values.length ? values[column] : null;
+	}
+
+	/**
+	 * Gets a RecordSet holding a range of the rows and the same columns. The rows are shared, not copied.
+	 *
+	 * @param fromRow The index of the first row, inclusive.
+	 * @param toRow The index of the last row, exclusive.
+	 * @return The RecordSet of the range.
+	 * @throws IndexOutOfBoundsException If the range is outside the rows.
+	 */
+	public RecordSet slice (int fromRow, int toRow) {
+		return new RecordSet(columns, rows.subList(fromRow, toRow));
+	}
+
+	/**
+	 * Writes the RecordSet in the ArrayList layout used by {@link ArrayListFormatter}.
+	 *
+	 * @return The column names and values, with every row ended by an "n" marker.
+	 */
+	public ArrayList<String> toArrayList () {
+		ArrayList<String> list = new ArrayList<>((rows.size() + 1) * (columns.length + 1));
+		addLine(list, columns);
+
+		for (String[] row : rows) {
+			addLine(list, row);
+		}
+
+		return list;
+	}
+
+	/**
+	 * Writes the RecordSet in the HashMap layout used by {@link HashMapFormatter}, with the column names as row "0".
+	 *
+	 * @return The row numbers as strings, mapped to arrays of values.
+	 */
+	public HashMap<String, Object> toHashMap () {
+		HashMap<String, Object> hashMap = new HashMap<>();
+		hashMap.put("0", columns.clone());
+
+		for (int i = 0; i < rows.size(); i++) {
+			hashMap.put(Integer.toString(i + 1), rows.get(i).clone());
+		}
+
+		return hashMap;
+	}
+
+	/**
+	 * Writes the RecordSet as CSV.
+	 *
+	 * @param delimiter The delimiter placed between values.
+	 * @return The CSV, with the column names on the first line.
+	 */
+	public String toCsv (char delimiter) {
+		StringBuilder csvString = new StringBuilder();
+		appendLine(csvString, columns, delimiter);
+
+		for (String[] row : rows) {
+			appendLine(csvString, row, delimiter);
+		}
+
+		return csvString.toString();
+	}
+
+	/**
+	 * Writes the RecordSet as pretty printed JSON.
+	 *
+	 * @return The JSON, in the layout <code>{"root" : [ {"column" : "value", ...}, ... ]}</code>.
+	 */
+	public String toJson () {
+		StringWriter writer = new StringWriter();
+
+		try {
+			writeJson(writer);
+		}
+		catch (IOException exception) {
+			exception.printStackTrace();
+		}
+
+		return writer.toString();
+	}
+
+	/**
+	 * Writes the RecordSet as pretty printed JSON to the given writer. The writer is flushed but not closed.
+	 *
+	 * @param writer The writer the JSON is written to.
+	 * @throws IOException If the writer fails.
+	 */
+	public void writeJson (Writer writer) throws IOException {
+		JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+		generator.useDefaultPrettyPrinter();
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+		generator.writeStartObject();
+		generator.writeArrayFieldStart(ROOT_NAME);
+
+		for (String[] row : rows) {
+			generator.writeStartObject();
+
+			for (int i = 0; i < columns.length; i++) {
+				generator.writeFieldName(columns[i]);
+
+				if (i < row.length && row[i] != null) {
+					generator.writeString(row[i]);
+				}
+				else {
+					generator.writeNull();
+				}
+			}
+
+			generator.writeEndObject();
+		}
+
+		generator.writeEndArray();
+		generator.writeEndObject();
+		generator.close();
+	}
+
+	/**
+	 * Writes the RecordSet as indented XML.
+	 *
+	 * @return The XML, in the layout <code>&lt;root&gt;&lt;row&gt;&lt;column&gt;value&lt;/column&gt;...
+	 * &lt;/row&gt;&lt;/root&gt;</code>.
+	 */
+	public String toXml () {
+		StringWriter writer = new StringWriter();
+
+		try {
+			writeXml(writer);
+		}
+		catch (IOException | XMLStreamException exception) {
+			exception.printStackTrace();
+		}
+
+		return writer.toString();
+	}
+
+	/**
+	 * Writes the RecordSet as indented XML to the given writer. Values a row does not have are left out. The
+	 * writer is flushed but not closed.
+	 *
+	 * @param writer The writer the XML is written to.
+	 * @throws IOException If the writer fails.
+	 * @throws XMLStreamException If the XML cannot be written.
+	 */
+	public void writeXml (Writer writer) throws IOException, XMLStreamException {
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>" + NEW_LINE_SEPARATOR);
+
+		XMLStreamWriter xmlWriter = XML_OUTPUT_FACTORY.createXMLStreamWriter(writer);
+		xmlWriter.writeStartElement(ROOT_NAME);
+
+		for (String[] row : rows) {
+			xmlWriter.writeCharacters(NEW_LINE_SEPARATOR + XML_INDENT);
+			xmlWriter.writeStartElement(ROW_NAME);
+
+			for (int i = 0; i < columns.length && i < row.length; i++) {
+				if (row[i] != null) {
+					xmlWriter.writeCharacters(NEW_LINE_SEPARATOR + XML_INDENT + XML_INDENT);
+					xmlWriter.writeStartElement(columns[i]);
+					xmlWriter.writeCharacters(row[i]);
+					xmlWriter.writeEndElement();
+				}
+			}
+
+			xmlWriter.writeCharacters(NEW_LINE_SEPARATOR + XML_INDENT);
+			xmlWriter.writeEndElement();
+		}
+
+		xmlWriter.writeCharacters(NEW_LINE_SEPARATOR);
+		xmlWriter.writeEndElement();
+		xmlWriter.writeCharacters(NEW_LINE_SEPARATOR);
+		xmlWriter.flush();
+		xmlWriter.close();
+		writer.flush();
+	}
+
+	/**
+	 * Adds one line of values to a list in the ArrayList layout, followed by the new line marker.
+	 *
+	 * @param list The list to add to.
+	 * @param values The values of the line.
+	 */
+	private static void addLine (List<String> list, String[] values) {
+		for (String value : values) {
+			list.add(value == null ? "" : value);
+		}
+
+		list.add(NEW_LINE_MARKER);
+	}
+
+	/**
+	 * Appends one line of CSV to a string.
+	 *
+	 * @param csvString The string to append to.
+	 * @param values The values of the line.
+	 * @param delimiter The delimiter placed between values.
+	 */
+	private static void appendLine (StringBuilder csvString, String[] values, char delimiter) {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				csvString.append(delimiter);
+			}
+
+			if (values[i] != null) {
+				csvString.append(values[i]);
+			}
+		}
+
+		csvString.append(NEW_LINE_SEPARATOR);
+	}
+}
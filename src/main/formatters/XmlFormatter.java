@@ -1,19 +1,26 @@
 package main.formatters;
 
 import main.helpers.FileHelper;
+import main.helpers.JacksonMappers;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.Writer;
 import java.io.StringWriter;
 
+import java.util.Map;
+import java.util.List;
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 
 import org.w3c.dom.*;
-import org.json.java.*;
 import org.xml.sax.SAXException;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -26,6 +33,8 @@ import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.transform.TransformerException;
 
+import javax.xml.stream.XMLStreamException;
+
 /**
  * Class which provides methods to format and manipulate XML monitoring data.
  * <p>
@@ -41,6 +50,11 @@ public class XmlFormatter implements IXmlFormatter {
 	 */
 	private final static int PRETTY_PRINT_INDENT_FACTOR = 4;
 
+	/**
+	 * Factory for the generators used to stream JSON output.
+	 */
+	private static final JsonFactory JSON_FACTORY = JacksonMappers.JSON_FACTORY;
+
 	/**
 	 * XML file given as input.
 	 */
@@ -121,84 +135,170 @@ public class XmlFormatter implements IXmlFormatter {
     }
 
 	/**
-	 * Converts JSON data into an ArrayList of strings.
+	 * Converts the XML rows into an ArrayList of strings.
 	 * <p>
-	 * This method takes the JSON data, converts it to a file, and then uses a JsonFormatter to parse the JSON
-	 * and generate an ArrayList of strings.
+	 * The XML file is streamed through an {@link XmlRowReader} and every row becomes one string of the form
+	 * <code>"row": {"field" : value, ...}</code>, with numeric fields written as JSON numbers.
 	 *
-	 * @return An ArrayList of strings containing the data from the JSON.
+	 * @return An ArrayList of strings containing one entry per row of the XML file.
 	 */
     public ArrayList<String> convertToArrayList () {
-		String dataFilesPath = System.getProperty("user.dir") + "/datafiles/data.text";
-		String jsonString = convertToJson();
-    	FileHelper stringFile = new FileHelper();
-    	String filePath = stringFile.convertStringToFile(jsonString, dataFilesPath);
-    	JsonFormatter jsonFormatter = new JsonFormatter(new File(filePath));
-    	
-    	return jsonFormatter.convertToArrayList();
+    	ListRowHandler handler = new ListRowHandler();
+    	readRows(handler);
+
+    	return handler.rows;
     }
 
 	/**
-	 * Converts JSON data into a HashMap representation.
+	 * Converts the XML rows into a HashMap representation.
 	 * <p>
-	 * This method takes the JSON data, converts it to a file, and then uses a JsonFormatter to parse the JSON
-	 * and generate a HashMap representation.
+	 * The XML file is streamed through an {@link XmlRowReader}. The HashMap holds the root element name, mapped to
+	 * the row element name, mapped to a list of the rows. Each row maps field names to their values, with numeric
+	 * fields converted to a Long or a Double.
 	 *
-	 * @return A HashMap where keys are strings and values are objects, representing the JSON data.
+	 * @return A HashMap where keys are strings and values are objects, representing the XML data.
 	 */
     public HashMap<String, Object> convertToHashMap () {
-		String dataFilesPath = System.getProperty("user.dir") + "/datafiles/data.text";
-		String jsonString = convertToJson();
-    	FileHelper stringFile = new FileHelper();
-    	String filePath = stringFile.convertStringToFile(jsonString, dataFilesPath);
-    	JsonFormatter jsonFormatter = new JsonFormatter(new File( filePath));
+    	MapRowHandler handler = new MapRowHandler();
+    	readRows(handler);
 
-    	return jsonFormatter.convertToHashMap();
+    	return handler.document;
     }
 
 	/**
 	 * Converts XML data to a JSON string with pretty formatting.
 	 * <p>
-	 * This method parses XML data from a file and converts it to a JSON string while
+	 * This method streams XML data from a file and converts it to a JSON string while
 	 * applying pretty formatting for improved readability.
 	 *
 	 * @return A JSON string with pretty formatting.
 	 */
 	public String convertToJson () {
-    	String jsonPrettyString = "";
-    	
-    	try {
-            JSONObject jsonObject = XML.toJSONObject(fileToString());
-            jsonPrettyString = jsonObject.toString(PRETTY_PRINT_INDENT_FACTOR);
-    	}
-    	catch (JSONException exception) {
-			exception.printStackTrace();
-    	}
-    	
-    	return jsonPrettyString;
+    	StringWriter writer = new StringWriter();
+    	convertToJson(writer);
+
+    	return writer.toString();
     }
 
 	/**
-	 * Converts JSON data to CSV format.
+	 * Stream the XML file as JSON to the given writer.
 	 * <p>
-	 * This method parses XML data from a file, converts it to JSON format and from there to CSV format.
+	 * Rows are read one at a time and written straight to a {@link JsonGenerator}, so memory use stays constant
+	 * regardless of the size of the input file. Rows named differently from the first row are held back and written
+	 * as one array per name after it, so each name appears once. The output is a pretty printed
+	 * <code>{"root" : {"row" : [ ... ]}}</code> document named after the root and row elements, with numeric fields
+	 * written as JSON numbers. The writer is flushed but not closed.
+	 *
+	 * @param writer The writer the JSON is written to.
+	 */
+	public void convertToJson (Writer writer) {
+		try {
+			JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+			generator.useDefaultPrettyPrinter();
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+			readRows(new JsonRowHandler(generator));
+			generator.close();
+		}
+		catch (IOException exception) {
+			exception.printStackTrace();
+		}
+	}
+
+	/**
+	 * Converts XML data to CSV format.
+	 * <p>
+	 * This method streams XML data from a file and converts every row to a line of CSV.
 	 * Returns the resulting CSV data as a string.
 	 *
 	 * @return A CSV string representing the XML data.
 	 */
     public String convertToCsv () {
-    	String jsonString = convertToJson();
-    	String[] newString = jsonString.split("\\{", 3);
-    	String newJsonString = "{" + newString[2].substring(0, newString[2].length() - 1);
-
-		String dataFilesPath = System.getProperty("user.dir") + "/datafiles/data.text";
-		FileHelper stringFile = new FileHelper();
-    	String filePath = stringFile.convertStringToFile(newJsonString, dataFilesPath);
-		JsonFormatter formatter = new JsonFormatter(new File(filePath));
-		
-		return formatter.convertToCsv();
+    	StringWriter writer = new StringWriter();
+    	convertToCsv(writer);
+
+    	return writer.toString();
     }
 
+	/**
+	 * Stream the XML file as CSV to the given writer.
+	 * <p>
+	 * The header line is taken from the fields of the first row, and the fields of every row are written in the
+	 * order of the header. Fields missing from a row are left empty and fields not in the header are dropped. Values
+	 * holding a comma, quote or line break are quoted. The writer is flushed but not closed.
+	 *
+	 * @param writer The writer the CSV is written to.
+	 */
+	public void convertToCsv (Writer writer) {
+		try {
+			readRows(new CsvRowHandler(writer));
+			writer.flush();
+		}
+		catch (IOException exception) {
+			exception.printStackTrace();
+		}
+	}
+
+	/**
+	 * Streams the rows of the XML file to the given handler.
+	 *
+	 * @param handler The handler which receives the rows.
+	 */
+	private void readRows (IXmlRowHandler handler) {
+		try {
+			new XmlRowReader().read(inputFile, handler);
+		}
+		catch (IOException | XMLStreamException exception) {
+			exception.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes the fields of a row as a JSON object, with numeric fields written as JSON numbers.
+	 *
+	 * @param generator The generator the row is written to.
+	 * @param fields The fields of the row.
+	 * @throws IOException If the generator fails to write.
+	 */
+	private static void writeRow (JsonGenerator generator, Map<String, String> fields) throws IOException {
+		generator.writeStartObject();
+
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+			Object value = XmlRowReader.toValue(field.getValue());
+			generator.writeFieldName(field.getKey());
+
+			if (value instanceof Long) {
+				generator.writeNumber((Long) value);
+			}
+			else if (value instanceof Double) {
+				generator.writeNumber((Double) value);
+			}
+			else {
+				generator.writeString(field.getValue());
+			}
+		}
+
+		generator.writeEndObject();
+	}
+
+	/**
+	 * Reads the rows of the XML file into a RecordSet.
+	 *
+	 * @return A RecordSet holding the XML data.
+	 */
+	public RecordSet toRecordSet () {
+		RecordSet recordSet = null;
+
+		try {
+			recordSet = RecordSet.fromXml(inputFile);
+		}
+		catch (IOException | XMLStreamException exception) {
+			exception.printStackTrace();
+		}
+
+		return recordSet;
+	}
+
 	/**
 	 * Reads the contents of an XML and returns it as a string.
 	 * <p>
@@ -242,4 +342,228 @@ public class XmlFormatter implements IXmlFormatter {
     	
     	return xmlOutput.getWriter().toString();
     }
+
+	/**
+	 * Row handler which writes the document to a JSON generator, grouping consecutive rows with the same element
+	 * name into one array.
+	 */
+	private static class JsonRowHandler implements IXmlRowHandler {
+		/**
+		 * The generator the document is written to.
+		 */
+		private final JsonGenerator generator;
+
+		/**
+		 * The element name of the first row, whose array is written as the rows are read, or null before the first
+		 * row.
+		 */
+		private String firstRowName = null;
+
+		/**
+		 * Copies of the rows named differently from the first row, by name in the order the names were first seen.
+		 */
+		private final Map<String, List<Map<String, String>>> heldRows = new LinkedHashMap<>();
+
+		/**
+		 * Constructor which takes the generator the document is written to.
+		 *
+		 * @param generator The JSON generator.
+		 */
+		private JsonRowHandler (JsonGenerator generator) {
+			this.generator = generator;
+		}
+
+		@Override
+		public void start (String rootName) throws IOException {
+			generator.writeStartObject();
+			generator.writeObjectFieldStart(rootName);
+		}
+
+		@Override
+		public void row (String rowName, Map<String, String> fields) throws IOException {
+			if (firstRowName == null) {
+				generator.writeArrayFieldStart(rowName);
+				firstRowName = rowName;
+			}
+
+			if (rowName.equals(firstRowName)) {
+				writeRow(generator, fields);
+			}
+			else {
+				heldRows.computeIfAbsent(rowName, name -> new ArrayList<>()).add(new LinkedHashMap<>(fields));
+			}
+		}
+
+		@Override
+		public void end () throws IOException {
+			if (firstRowName != null) {
+				generator.writeEndArray();
+			}
+
+			for (Map.Entry<String, List<Map<String, String>>> rows : heldRows.entrySet()) {
+				generator.writeArrayFieldStart(rows.getKey());
+
+				for (Map<String, String> fields : rows.getValue()) {
+					writeRow(generator, fields);
+				}
+
+				generator.writeEndArray();
+			}
+
+			generator.writeEndObject();
+			generator.writeEndObject();
+		}
+	}
+
+	/**
+	 * Row handler which writes the document as CSV, using the fields of the first row as the header.
+	 */
+	private static class CsvRowHandler implements IXmlRowHandler {
+		/**
+		 * The writer the CSV is written to.
+		 */
+		private final Writer writer;
+
+		/**
+		 * The column names, taken from the first row.
+		 */
+		private String[] header = null;
+
+		/**
+		 * Constructor which takes the writer the CSV is written to.
+		 *
+		 * @param writer The CSV writer.
+		 */
+		private CsvRowHandler (Writer writer) {
+			this.writer = writer;
+		}
+
+		@Override
+		public void start (String rootName) {
+
+		}
+
+		@Override
+		public void row (String rowName, Map<String, String> fields) throws IOException {
+			if (header == null) {
+				header = fields.keySet().toArray(new String[0]);
+				writeLine(header);
+			}
+
+			String[] values = new String[header.length];
+
+			for (int i = 0; i < header.length; i++) {
+				String value = fields.get(header[i]);
+				values[i] = value == null ? "" : value;
+			}
+
+			writeLine(values);
+		}
+
+		@Override
+		public void end () {
+
+		}
+
+		/**
+		 * Writes one line of CSV, quoting the values which need it.
+		 *
+		 * @param values The values of the line.
+		 * @throws IOException If the writer fails.
+		 */
+		private void writeLine (String[] values) throws IOException {
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+
+				String value = values[i];
+
+				if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+					writer.write('"');
+					writer.write(value.replace("\"", "\"\""));
+					writer.write('"');
+				}
+				else {
+					writer.write(value);
+				}
+			}
+
+			writer.write('\n');
+		}
+	}
+
+	/**
+	 * Row handler which collects every row as a <code>"row": {...}</code> string.
+	 */
+	private static class ListRowHandler implements IXmlRowHandler {
+		/**
+		 * The rows collected so far.
+		 */
+		private final ArrayList<String> rows = new ArrayList<>();
+
+		/**
+		 * Buffer the JSON of each row is written to.
+		 */
+		private final StringWriter buffer = new StringWriter();
+
+		@Override
+		public void start (String rootName) {
+
+		}
+
+		@Override
+		public void row (String rowName, Map<String, String> fields) throws IOException {
+			buffer.getBuffer().setLength(0);
+
+			JsonGenerator generator = JSON_FACTORY.createGenerator(buffer);
+			writeRow(generator, fields);
+			generator.close();
+
+			rows.add("\"" + rowName + "\": " + buffer);
+		}
+
+		@Override
+		public void end () {
+
+		}
+	}
+
+	/**
+	 * Row handler which builds a map of the document, holding the root element name mapped to the row element
+	 * names, mapped to lists of rows.
+	 */
+	private static class MapRowHandler implements IXmlRowHandler {
+		/**
+		 * The document built so far.
+		 */
+		private final HashMap<String, Object> document = new HashMap<>();
+
+		/**
+		 * The rows of the root element, keyed by row element name.
+		 */
+		private final LinkedHashMap<String, Object> root = new LinkedHashMap<>();
+
+		@Override
+		public void start (String rootName) {
+			document.put(rootName, root);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void row (String rowName, Map<String, String> fields) {
+			LinkedHashMap<String, Object> row = new LinkedHashMap<>();
+
+			for (Map.Entry<String, String> field : fields.entrySet()) {
+				row.put(field.getKey(), XmlRowReader.toValue(field.getValue()));
+			}
+
+			((List<Object>) root.computeIfAbsent(rowName, name -> new ArrayList<>())).add(row);
+		}
+
+		@Override
+		public void end () {
+
+		}
+	}
 }
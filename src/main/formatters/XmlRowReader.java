@@ -0,0 +1,190 @@
+package main.formatters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.FileInputStream;
+import java.io.BufferedInputStream;
+
+import java.util.Map;
+import java.util.LinkedHashMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamConstants;
+
+/**
+ * Class which streams tabular XML monitoring data to an {@link IXmlRowHandler} in a single pass.
+ * <p>
+ * The document is expected to have the shape <code>&lt;root&gt;&lt;row&gt;&lt;field&gt;value&lt;/field&gt;...
+ * &lt;/row&gt;...&lt;/root&gt;</code>, where the root, row and field elements may have any name. The document is
+ * read with a StAX parser and only the fields of the current row are held in memory, so memory use stays constant
+ * regardless of the size of the input file. Elements nested deeper than a field are flattened into the text of
+ * the field, and attributes are ignored.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class XmlRowReader {
+	/**
+	 * Depth of the root element.
+	 */
+	private static final int ROOT_DEPTH = 1;
+
+	/**
+	 * Depth of the row elements.
+	 */
+	private static final int ROW_DEPTH = 2;
+
+	/**
+	 * Depth of the field elements.
+	 */
+	private static final int FIELD_DEPTH = 3;
+
+	/**
+	 * Factory for the StAX parsers, with DTDs and external entities disabled.
+	 */
+	private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+
+	/**
+	 * Streams an XML file to the given handler.
+	 *
+	 * @param inputFile The XML file to read.
+	 * @param handler The handler which receives the rows.
+	 * @throws IOException If the file cannot be read or the handler fails.
+	 * @throws XMLStreamException If the file is not well formed XML.
+	 */
+	public void read (File inputFile, IXmlRowHandler handler) throws IOException, XMLStreamException {
+		try (InputStream inputStream = new BufferedInputStream(new FileInputStream(inputFile))) {
+			read(inputStream, handler);
+		}
+	}
+
+	/**
+	 * Streams an XML document to the given handler. The stream is not closed.
+	 *
+	 * @param inputStream The stream the XML document is read from.
+	 * @param handler The handler which receives the rows.
+	 * @throws IOException If the handler fails.
+	 * @throws XMLStreamException If the document is not well formed XML.
+	 */
+	public void read (InputStream inputStream, IXmlRowHandler handler) throws IOException, XMLStreamException {
+		XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(inputStream);
+		Map<String, String> fields = new LinkedHashMap<>();
+		StringBuilder text = new StringBuilder();
+		String rowName = null;
+		String fieldName = null;
+		int depth = 0;
+
+		try {
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT:
+						depth++;
+
+						if (depth == ROOT_DEPTH) {
+							handler.start(reader.getLocalName());
+						}
+						else if (depth == ROW_DEPTH) {
+							rowName = reader.getLocalName();
+							fields.clear();
+						}
+						else if (depth == FIELD_DEPTH) {
+							fieldName = reader.getLocalName();
+							text.setLength(0);
+						}
+						break;
+
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+						if (depth >= FIELD_DEPTH) {
+							text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+						}
+						break;
+
+					case XMLStreamConstants.END_ELEMENT:
+						if (depth == FIELD_DEPTH) {
+							fields.put(fieldName, text.toString().trim());
+						}
+						else if (depth == ROW_DEPTH) {
+							handler.row(rowName, fields);
+						}
+						else if (depth == ROOT_DEPTH) {
+							handler.end();
+						}
+
+						depth--;
+						break;
+
+					default:
+						break;
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Converts the text of a field to a number when it holds one.
+	 * <p>
+	 * Whole numbers become a Long and decimal numbers a Double. Anything else, including values such as "NaN" or
+	 * hexadecimal numbers, is returned unchanged.
+	 *
+	 * @param text The text of the field.
+	 * @return A Long, a Double or the original text.
+	 */
+	public static Object toValue (String text) {
+		if (! isNumeric(text)) {
+			return text;
+		}
+
+		try {
+			return Long.valueOf(text);
+		}
+		catch (NumberFormatException exception) {
+			// Not a whole number, try it as a decimal number.
+		}
+
+		try {
+			return Double.valueOf(text);
+		}
+		catch (NumberFormatException exception) {
+			return text;
+		}
+	}
+
+	/**
+	 * Checks if the text of a field looks like a decimal number, so it is only parsed when it is likely to succeed.
+	 *
+	 * @param text The text of the field.
+	 * @return True if the text starts with a digit or a minus sign and ends with a digit or a point.
+	 */
+	private static boolean isNumeric (String text) {
+		if (text.isEmpty()) {
+			return false;
+		}
+
+		char first = text.charAt(0);
+		char last = text.charAt(text.length() - 1);
+
+		return (first == '-' || Character.isDigit(first)) && (last == '.' || Character.isDigit(last));
+	}
+
+	/**
+	 * Creates the factory for the StAX parsers.
+	 *
+	 * @return The new factory.
+	 */
+	private static XMLInputFactory newInputFactory () {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+		return factory;
+	}
+}
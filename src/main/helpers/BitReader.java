@@ -0,0 +1,129 @@
+package main.helpers;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class which reads values of any bit length written by a {@link BitWriter}, most significant bit first.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class BitReader {
+	/**
+	 * The bytes to read.
+	 */
+	private final byte[] buffer;
+
+	/**
+	 * Position of the next bit to read, counted from the start of the buffer.
+	 */
+	private long bitPosition;
+
+	/**
+	 * Position after the last bit which may be read.
+	 */
+	private final long bitLimit;
+
+	/**
+	 * Constructor which takes the bytes to read and the byte to start at.
+	 *
+	 * @param buffer The bytes to read.
+	 * @param offset The index of the first byte to read.
+	 */
+	public BitReader (byte[] buffer, int offset) {
+		this.buffer = buffer;
+		this.bitPosition = (long) offset << 3;
+		this.bitLimit = (long) buffer.length << 3;
+	}
+
+	/**
+	 * Reads a single bit.
+	 *
+	 * @return True if the bit is a one.
+	 */
+	public boolean readBit () {
+		return readBits(1) != 0;
+	}
+
+	/**
+	 * Reads a value of the given number of bits, most significant bit first.
+	 *
+	 * @param count The number of bits to read, between 0 and 64.
+	 * @return The value read, in the lowest bits.
+	 * @throws IllegalStateException If fewer bits remain.
+	 */
+	public long readBits (int count) {
+		if (bitPosition + count > bitLimit) {
+			throw new IllegalStateException("Read past the end of the bit stream");
+		}
+
+		long value = 0;
+
+		while (count > 0) {
+			int index = (int) (bitPosition >>> 3);
+			int available = 8 - (int) (bitPosition & 7);
+			int take = Math.min(available, count);
+			int bits = (buffer[index] >>> (available - take)) & ((1 << take) - 1);
+
+			value = (value << take) | bits;
+			bitPosition += take;
+			count -= take;
+		}
+
+		return value;
+	}
+
+	/**
+	 * Reads an unsigned variable length integer written by {@link BitWriter#writeVarLong(long)}.
+	 *
+	 * @return The value read.
+	 * @throws IllegalStateException If the integer is longer than 64 bits.
+	 */
+	public long readVarLong () {
+		long value = 0;
+
+		for (int shift = 0; shift < 64; shift += 7) {
+			long next = readBits(8);
+			value |= (next & 0x7F) << shift;
+
+			if ((next & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IllegalStateException("Malformed variable length integer");
+	}
+
+	/**
+	 * Reads a signed variable length integer written by {@link BitWriter#writeSignedVarLong(long)}.
+	 *
+	 * @return The value read.
+	 */
+	public long readSignedVarLong () {
+		long zigZag = readVarLong();
+		return (zigZag >>> 1) ^ -(zigZag & 1);
+	}
+
+	/**
+	 * Reads a string written by {@link BitWriter#writeText(String)}.
+	 *
+	 * @return The string read.
+	 * @throws IllegalStateException If the length exceeds the remaining bits.
+	 */
+	public String readText () {
+		long length = readVarLong();
+
+		if (length > (bitLimit - bitPosition) >>> 3) {
+			throw new IllegalStateException("String length " + length + " exceeds the bit stream");
+		}
+
+		byte[] utf8 = new byte[(int) length];
+
+		for (int i = 0; i < utf8.length; i++) {
+			utf8[i] = (byte) readBits(8);
+		}
+
+		return new String(utf8, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,146 @@
+package main.helpers;
+
+import java.util.Arrays;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class which writes values of any bit length to a growing byte array, most significant bit first.
+ * <p>
+ * Used by encoders which pack values tighter than whole bytes, such as the delta encoding of monitoring intervals.
+ * The bits can be read back with a {@link BitReader}.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class BitWriter {
+	/**
+	 * Initial size of the buffer in bytes.
+	 */
+	private static final int INITIAL_SIZE = 256;
+
+	/**
+	 * The bytes written so far. Unused bits are zero.
+	 */
+	private byte[] buffer;
+
+	/**
+	 * The number of bits written so far.
+	 */
+	private long bitLength = 0;
+
+	/**
+	 * Default constructor for the BitWriter class.
+	 */
+	public BitWriter () {
+		this(INITIAL_SIZE);
+	}
+
+	/**
+	 * Constructor which takes the expected size of the output.
+	 *
+	 * @param initialSize The initial size of the buffer in bytes.
+	 */
+	public BitWriter (int initialSize) {
+		buffer = new byte[Math.max(1, initialSize)];
+	}
+
+	/**
+	 * Writes a single bit.
+	 *
+	 * @param bit True to write a one, false to write a zero.
+	 */
+	public void writeBit (boolean bit) {
+		writeBits(bit ? 1 : 0, 1);
+	}
+
+	/**
+	 * Writes the lowest bits of a value, most significant bit first.
+	 *
+	 * @param value The value to write.
+	 * @param count The number of bits to write, between 0 and 64.
+	 */
+	public void writeBits (long value, int count) {
+		ensureCapacity(count);
+
+		while (count > 0) {
+			int index = (int) (bitLength >>> 3);
+			int free = 8 - (int) (bitLength & 7);
+			int take = Math.min(free, count);
+			int bits = (int) (value >>> (count - take)) & ((1 << take) - 1);
+
+			buffer[index] |= (byte) (bits << (free - take));
+			bitLength += take;
+			count -= take;
+		}
+	}
+
+	/**
+	 * Writes an unsigned variable length integer, seven bits per group with a continuation bit before each group.
+	 *
+	 * @param value The value to write.
+	 */
+	public void writeVarLong (long value) {
+		while ((value & ~0x7FL) != 0) {
+			writeBits(0x80 | (value & 0x7F), 8);
+			value >>>= 7;
+		}
+
+		writeBits(value, 8);
+	}
+
+	/**
+	 * Writes a signed variable length integer, zig-zag encoded so small negative values stay small.
+	 *
+	 * @param value The value to write.
+	 */
+	public void writeSignedVarLong (long value) {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * Writes a string as its UTF-8 length followed by its UTF-8 bytes. A null string is written as empty.
+	 *
+	 * @param text The string to write.
+	 */
+	public void writeText (String text) {
+		byte[] utf8 = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(utf8.length);
+
+		for (byte character : utf8) {
+			writeBits(character, 8);
+		}
+	}
+
+	/**
+	 * Gets the number of bits written so far.
+	 *
+	 * @return The number of bits.
+	 */
+	public long getBitLength () {
+		return bitLength;
+	}
+
+	/**
+	 * Copies the bits written so far, padded with zeros to a whole number of bytes.
+	 *
+	 * @return The bytes written.
+	 */
+	public byte[] toBytes () {
+		return Arrays.copyOf(buffer, (int) ((bitLength + 7) >>> 3));
+	}
+
+	/**
+	 * Grows the buffer so it can hold the given number of additional bits.
+	 *
+	 * @param bits The number of bits about to be written.
+	 */
+	private void ensureCapacity (int bits) {
+		long needed = (bitLength + bits + 7) >>> 3;
+
+		if (needed > buffer.length) {
+			buffer = Arrays.copyOf(buffer, (int) Math.max(needed, buffer.length * 2L));
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package main.helpers;
+
+/**
+ * Class which hands out reusable, per-thread output buffers for serialization.
+ * <p>
+ * Every thread gets one buffer which is emptied rather than reallocated on every call, so a serializer shared by
+ * several threads keeps no per-call state of its own and the bytes of one message can never leak into another.
+ * A buffer must be finished with before the same thread asks for it again; serializers take it, write one payload
+ * and copy the result out.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class BufferPool {
+	/**
+	 * Initial size of the per-thread buffer in bytes.
+	 */
+	private static final int INITIAL_BUFFER_SIZE = 4096;
+
+	/**
+	 * Largest buffer kept between calls. Bigger buffers are dropped after use so one large payload does not pin
+	 * memory on the thread forever.
+	 */
+	private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * The buffer of each thread.
+	 */
+	private static final ThreadLocal<ReusableOutputStream> OUTPUT = ThreadLocal.withInitial(BufferPool::newOutput);
+
+	/**
+	 * Gets the buffer of the calling thread, emptied and ready to be written to.
+	 *
+	 * @return An empty buffer owned by the calling thread.
+	 */
+	public static ReusableOutputStream output () {
+		ReusableOutputStream output = OUTPUT.get();
+		output.reset();
+
+		return output;
+	}
+
+	/**
+	 * Copies the bytes written to the buffer of the calling thread and releases the buffer if it grew too large.
+	 *
+	 * @param output The buffer returned by {@link #output()}.
+	 * @return The bytes written to the buffer.
+	 */
+	public static byte[] toBytes (ReusableOutputStream output) {
+		byte[] bytes = output.toByteArray();
+		release(output);
+
+		return bytes;
+	}
+
+	/**
+	 * Releases the buffer of the calling thread if it grew too large, without copying its contents.
+	 *
+	 * @param output The buffer returned by {@link #output()}.
+	 */
+	public static void release (ReusableOutputStream output) {
+		if (output.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+			OUTPUT.set(newOutput());
+		}
+	}
+
+	/**
+	 * Creates an empty buffer.
+	 *
+	 * @return The new buffer.
+	 */
+	private static ReusableOutputStream newOutput () {
+		return new ReusableOutputStream(INITIAL_BUFFER_SIZE);
+	}
+}
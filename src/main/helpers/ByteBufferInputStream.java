@@ -0,0 +1,109 @@
+package main.helpers;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Class which reads a range of a ByteBuffer as an input stream, without copying it.
+ * <p>
+ * The stream reads a duplicate of the buffer, so the position and limit of the buffer itself are never changed.
+ * Direct and memory mapped buffers are read in place, which lets deserializers that read streams decode a message
+ * straight from a pooled buffer. Like every input stream it is not meant to be shared between threads.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class ByteBufferInputStream extends InputStream {
+	/**
+	 * The range of the buffer which is left to read.
+	 */
+	private final ByteBuffer remaining;
+
+	/**
+	 * Constructor which takes the buffer and the range of it to read.
+	 *
+	 * @param buffer The buffer to read.
+	 * @param offset The index of the first byte to read.
+	 * @param length The number of bytes to read.
+	 * @throws IndexOutOfBoundsException If the range is not inside the buffer.
+	 */
+	public ByteBufferInputStream (ByteBuffer buffer, int offset, int length) {
+		checkRange(buffer, offset, length);
+
+		remaining = buffer.duplicate();
+		remaining.limit(offset + length).position(offset);
+	}
+
+	/**
+	 * Reads the next byte.
+	 *
+	 * @return The byte as a value between 0 and 255, or -1 at the end of the range.
+	 */
+	@Override
+	public int read () {
+		return remaining.hasRemaining() ? remaining.get() & 0xFF : -1;
+	}
+
+	/**
+	 * Reads up to len bytes into an array.
+	 *
+	 * @param bytes The array the bytes are read into.
+	 * @param off The index in the array of the first byte read.
+	 * @param len The largest number of bytes to read.
+	 * @return The number of bytes read, or -1 at the end of the range.
+	 */
+	@Override
+	public int read (byte[] bytes, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+
+		if (! remaining.hasRemaining()) {
+			return -1;
+		}
+
+		int count = Math.min(len, remaining.remaining());
+		remaining.get(bytes, off, count);
+
+		return count;
+	}
+
+	/**
+	 * Skips over up to n bytes.
+	 *
+	 * @param n The largest number of bytes to skip.
+	 * @return The number of bytes skipped.
+	 */
+	@Override
+	public long skip (long n) {
+		int count = (int) Math.max(0, Math.min(n, remaining.remaining()));
+		remaining.position(remaining.position() + count);
+
+		return count;
+	}
+
+	/**
+	 * Gets the number of bytes left in the range.
+	 *
+	 * @return The number of bytes left.
+	 */
+	@Override
+	public int available () {
+		return remaining.remaining();
+	}
+
+	/**
+	 * Checks that a range lies inside a buffer.
+	 *
+	 * @param buffer The buffer.
+	 * @param offset The index of the first byte of the range.
+	 * @param length The number of bytes in the range.
+	 * @throws IndexOutOfBoundsException If the range is not inside the buffer.
+	 */
+	public static void checkRange (ByteBuffer buffer, int offset, int length) {
+		if (offset < 0 || length < 0 || offset > buffer.limit() - length) {
+			throw new IndexOutOfBoundsException("Range " + offset + "+" + length + " is outside the " + buffer.limit() + " bytes of the buffer");
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package main.helpers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Class which writes an output stream into a ByteBuffer, without copying through a byte array.
+ * <p>
+ * Bytes are written at the position of the buffer, which moves forward as they are written. The buffer does not
+ * grow: a write which does not fit fails with an IOException and writes nothing. Like every output stream it is
+ * not meant to be shared between threads.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class ByteBufferOutputStream extends OutputStream {
+	/**
+	 * The buffer written to.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Constructor which takes the buffer written to.
+	 *
+	 * @param buffer The buffer written to, from its position up to its limit.
+	 */
+	public ByteBufferOutputStream (ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Writes a byte.
+	 *
+	 * @param b The byte, in the low eight bits.
+	 * @throws IOException If the buffer is full.
+	 */
+	@Override
+	public void write (int b) throws IOException {
+		ensureRemaining(1);
+		buffer.put((byte) b);
+	}
+
+	/**
+	 * Writes len bytes of an array.
+	 *
+	 * @param bytes The array holding the bytes.
+	 * @param off The index in the array of the first byte.
+	 * @param len The number of bytes to write.
+	 * @throws IOException If the bytes do not fit in the buffer.
+	 */
+	@Override
+	public void write (byte[] bytes, int off, int len) throws IOException {
+		ensureRemaining(len);
+		buffer.put(bytes, off, len);
+	}
+
+	/**
+	 * Checks that the buffer has room for more bytes.
+	 *
+	 * @param length The number of bytes to be written.
+	 * @throws IOException If the buffer has less room.
+	 */
+	private void ensureRemaining (int length) throws IOException {
+		if (buffer.remaining() < length) {
+			throw new IOException("Buffer full, " + length + " bytes do not fit in the " + buffer.remaining() + " left");
+		}
+	}
+}
@@ -0,0 +1,305 @@
+package main.helpers;
+
+import java.util.Map;
+import java.util.HashMap;
+
+/**
+ * Class which keeps a rolling cost model of the binary serialization formats for each shape of payload.
+ * <p>
+ * Every measurement records how long a codec took to serialize and deserialize a payload and how many bytes it
+ * produced. Measurements are smoothed with an exponentially weighted moving average so the model follows changes
+ * in the data over time. The cheapest codec for a payload shape is chosen using a configurable weighting between
+ * CPU time and bytes on the wire.
+ * <p>
+ * Codecs are identified by the same integers used by the message sender and receiver (0 for CBOR, 1 for BSON,
+ * 2 for Hessian, 3 for Java, 4 for Kryo and 5 for MessagePack).
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class CodecCostModel {
+	/**
+	 * The number of codecs tracked by the model.
+	 */
+	public static final int NUM_CODECS = 6;
+
+	/**
+	 * Weight given to the newest measurement in the moving averages.
+	 */
+	private static final double DEFAULT_SMOOTHING = 0.3;
+
+	/**
+	 * Default weight given to CPU time, the remainder is given to the encoded size.
+	 */
+	private static final double DEFAULT_CPU_WEIGHT = 0.5;
+
+	/**
+	 * Number of picks after which a payload shape is measured again.
+	 */
+	private static final int DEFAULT_RESAMPLE_INTERVAL = 50;
+
+	/**
+	 * Weight given to the newest measurement in the moving averages.
+	 */
+	private final double smoothing;
+
+	/**
+	 * Number of picks after which a payload shape is measured again.
+	 */
+	private final int resampleInterval;
+
+	/**
+	 * Weight given to CPU time when comparing codecs, between 0 and 1.
+	 */
+	private double cpuWeight = DEFAULT_CPU_WEIGHT;
+
+	/**
+	 * The cost entries, keyed by payload shape.
+	 */
+	private final Map<String, CostEntry> entries = new HashMap<>();
+
+	/**
+	 * Default constructor for the CodecCostModel class.
+	 */
+	public CodecCostModel () {
+		this(DEFAULT_SMOOTHING, DEFAULT_RESAMPLE_INTERVAL);
+	}
+
+	/**
+	 * Constructor which takes the smoothing factor and the resample interval.
+	 *
+	 * @param smoothing Weight given to the newest measurement, between 0 (exclusive) and 1 (inclusive).
+	 * @param resampleInterval Number of picks after which a payload shape is measured again.
+	 */
+	public CodecCostModel (double smoothing, int resampleInterval) {
+		if (smoothing <= 0 || smoothing > 1) {
+			throw new IllegalArgumentException("Smoothing must be in the range (0, 1]: " + smoothing);
+		}
+
+		this.smoothing = smoothing;
+		this.resampleInterval = Math.max(1, resampleInterval);
+	}
+
+	/**
+	 * Builds the key for a payload shape from its type and its size.
+	 * <p>
+	 * Sizes are grouped into buckets that grow by a factor of four, so small and medium datasets of the same type
+	 * are tracked separately.
+	 *
+	 * @param payloadType The type of the payload, e.g. String, ArrayList or HashMap.
+	 * @param size The size of the payload, in characters or elements.
+	 * @return The key for the payload shape.
+	 */
+	public static String shapeKey (String payloadType, long size) {
+		int bucket = (64 - Long.numberOfLeadingZeros(Math.max(0, size))) / 2;
+		return payloadType + ":" + bucket;
+	}
+
+	/**
+	 * Sets the weight given to CPU time when comparing codecs. The remaining weight is given to the encoded size.
+	 *
+	 * @param cpuWeight The weight of CPU time, between 0 and 1.
+	 */
+	public synchronized void setCpuWeight (double cpuWeight) {
+		if (cpuWeight < 0 || cpuWeight > 1) {
+			throw new IllegalArgumentException("CPU weight must be in the range [0, 1]: " + cpuWeight);
+		}
+
+		this.cpuWeight = cpuWeight;
+	}
+
+	/**
+	 * Gets the weight given to CPU time when comparing codecs.
+	 *
+	 * @return The weight of CPU time, between 0 and 1.
+	 */
+	public synchronized double getCpuWeight () {
+		return cpuWeight;
+	}
+
+	/**
+	 * Records a successful measurement for a codec.
+	 *
+	 * @param shape The payload shape key.
+	 * @param codec The codec identifier.
+	 * @param nanos Time taken to serialize and deserialize the payload, in nanoseconds.
+	 * @param bytes Size of the encoded payload in bytes.
+	 */
+	public synchronized void record (String shape, int codec, long nanos, long bytes) {
+		CostEntry entry = entry(shape);
+
+		if (entry.samples[codec] == 0) {
+			entry.nanos[codec] = nanos;
+			entry.bytes[codec] = bytes;
+		}
+		else {
+			entry.nanos[codec] += smoothing * (nanos - entry.nanos[codec]);
+			entry.bytes[codec] += smoothing * (bytes - entry.bytes[codec]);
+		}
+
+		entry.samples[codec]++;
+	}
+
+	/**
+	 * Records that a codec could not handle a payload shape. The codec will not be picked or measured again for it.
+	 *
+	 * @param shape The payload shape key.
+	 * @param codec The codec identifier.
+	 */
+	public synchronized void recordFailure (String shape, int codec) {
+		entry(shape).failed[codec] = true;
+	}
+
+	/**
+	 * Checks if a codec has failed for a payload shape.
+	 *
+	 * @param shape The payload shape key.
+	 * @param codec The codec identifier.
+	 * @return True if the codec has failed for the payload shape.
+	 */
+	public synchronized boolean hasFailed (String shape, int codec) {
+		return entry(shape).failed[codec];
+	}
+
+	/**
+	 * Checks if a payload shape should be measured before the next pick, either because some codecs have not been
+	 * measured yet or because the resample interval has passed.
+	 *
+	 * @param shape The payload shape key.
+	 * @return True if the payload shape should be measured.
+	 */
+	public synchronized boolean needsSampling (String shape) {
+		CostEntry entry = entry(shape);
+
+		for (int codec = 0; codec < NUM_CODECS; codec++) {
+			if (! entry.failed[codec] && entry.samples[codec] == 0) {
+				return true;
+			}
+		}
+
+		return entry.picksSinceSample >= resampleInterval;
+	}
+
+	/**
+	 * Picks the cheapest codec for a payload shape.
+	 * <p>
+	 * The time and size of every codec are divided by the best time and size for the shape, and the two ratios are
+	 * combined using the CPU weight. The codec with the lowest combined cost is returned.
+	 *
+	 * @param shape The payload shape key.
+	 * @return The identifier of the cheapest codec, or -1 if no codec has been measured for the shape.
+	 */
+	public synchronized int cheapest (String shape) {
+		CostEntry entry = entry(shape);
+		double minNanos = Double.MAX_VALUE;
+		double minBytes = Double.MAX_VALUE;
+
+		for (int codec = 0; codec < NUM_CODECS; codec++) {
+			if (entry.isUsable(codec)) {
+				minNanos = Math.min(minNanos, entry.nanos[codec]);
+				minBytes = Math.min(minBytes, entry.bytes[codec]);
+			}
+		}
+
+		int best = -1;
+		double bestCost = Double.MAX_VALUE;
+
+		for (int codec = 0; codec < NUM_CODECS; codec++) {
+			if (entry.isUsable(codec)) {
+				double cost = cpuWeight * entry.nanos[codec] / Math.max(1, minNanos)
+						+ (1 - cpuWeight) * entry.bytes[codec] / Math.max(1, minBytes);
+
+				if (cost < bestCost) {
+					bestCost = cost;
+					best = codec;
+				}
+			}
+		}
+
+		entry.picksSinceSample++;
+
+		return best;
+	}
+
+	/**
+	 * Marks a payload shape as freshly measured, restarting its resample interval.
+	 *
+	 * @param shape The payload shape key.
+	 */
+	public synchronized void markSampled (String shape) {
+		entry(shape).picksSinceSample = 0;
+	}
+
+	/**
+	 * Gets the average serialize and deserialize time of a codec for a payload shape.
+	 *
+	 * @param shape The payload shape key.
+	 * @param codec The codec identifier.
+	 * @return The average time in nanoseconds, or 0 if the codec has not been measured.
+	 */
+	public synchronized double getAverageNanos (String shape, int codec) {
+		return entry(shape).nanos[codec];
+	}
+
+	/**
+	 * Gets the average encoded size of a codec for a payload shape.
+	 *
+	 * @param shape The payload shape key.
+	 * @param codec The codec identifier.
+	 * @return The average size in bytes, or 0 if the codec has not been measured.
+	 */
+	public synchronized double getAverageBytes (String shape, int codec) {
+		return entry(shape).bytes[codec];
+	}
+
+	/**
+	 * Gets the cost entry for a payload shape, creating it if needed.
+	 *
+	 * @param shape The payload shape key.
+	 * @return The cost entry.
+	 */
+	private CostEntry entry (String shape) {
+		return entries.computeIfAbsent(shape, key -> new CostEntry());
+	}
+
+	/**
+	 * The measurements of every codec for one payload shape.
+	 */
+	private static class CostEntry {
+		/**
+		 * Average serialize and deserialize time per codec, in nanoseconds.
+		 */
+		private final double[] nanos = new double[NUM_CODECS];
+
+		/**
+		 * Average encoded size per codec, in bytes.
+		 */
+		private final double[] bytes = new double[NUM_CODECS];
+
+		/**
+		 * Number of measurements per codec.
+		 */
+		private final int[] samples = new int[NUM_CODECS];
+
+		/**
+		 * Codecs which failed to handle the payload shape.
+		 */
+		private final boolean[] failed = new boolean[NUM_CODECS];
+
+		/**
+		 * Number of picks since the shape was last measured.
+		 */
+		private int picksSinceSample = 0;
+
+		/**
+		 * Checks if a codec has been measured and has not failed.
+		 *
+		 * @param codec The codec identifier.
+		 * @return True if the codec can be picked.
+		 */
+		private boolean isUsable (int codec) {
+			return samples[codec] > 0 && ! failed[codec];
+		}
+	}
+}
@@ -0,0 +1,434 @@
+package main.helpers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class which reads delimited text, such as tab separated monitoring data, line by line and field by field straight
+ * from a ByteBuffer.
+ * <p>
+ * Fields are never split into strings: the reader only moves over the bytes of the buffer and remembers where the
+ * current field starts and ends, and numbers are parsed from those bytes directly. Strings are only created when
+ * asked for, so reading a file of numbers allocates nothing per line. Lines end with a line feed, a carriage return
+ * or both, and a delimiter at the end of a line does not start another field, just like {@link String#split}.
+ * <p>
+ * The reader works on a duplicate of the buffer, so the position of the buffer itself is never changed. Like every
+ * reader it is not meant to be shared between threads.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class DelimitedLineReader {
+	/**
+	 * Delimiter which splits fields on runs of spaces and tabs, like the regular expression {@code \s+}.
+	 */
+	public static final int WHITESPACE = -1;
+
+	/**
+	 * Largest mantissa which a double holds exactly.
+	 */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	/**
+	 * Powers of ten which a double holds exactly.
+	 */
+	private static final double[] EXACT_POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/**
+	 * The bytes read.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * The delimiter byte, or {@link #WHITESPACE}.
+	 */
+	private final int delimiter;
+
+	/**
+	 * Index of the first byte of the next line.
+	 */
+	private int next;
+
+	/**
+	 * Index of the first byte of the current line.
+	 */
+	private int lineStart;
+
+	/**
+	 * Index just past the last byte of the current line, without its line ending.
+	 */
+	private int lineEnd;
+
+	/**
+	 * Index of the byte after the current field, where the next field is looked for.
+	 */
+	private int cursor;
+
+	/**
+	 * Index of the first byte of the current field.
+	 */
+	private int fieldStart;
+
+	/**
+	 * Index just past the last byte of the current field.
+	 */
+	private int fieldEnd;
+
+	/**
+	 * Whether the current line has no more fields.
+	 */
+	private boolean lineDone = true;
+
+	/**
+	 * Constructor which takes the bytes to read and the delimiter between fields.
+	 *
+	 * @param buffer The bytes to read, from the position up to the limit.
+	 * @param delimiter The delimiter, which must be an ASCII character, or {@link #WHITESPACE}.
+	 */
+	public DelimitedLineReader (ByteBuffer buffer, int delimiter) {
+		if (delimiter != WHITESPACE && (delimiter < 0 || delimiter > 127 || delimiter == '\r' || delimiter == '\n')) {
+			throw new IllegalArgumentException("Delimiter must be an ASCII character other than a line ending: " + delimiter);
+		}
+
+		this.buffer = buffer.duplicate();
+		this.delimiter = delimiter;
+		this.next = this.buffer.position();
+	}
+
+	/**
+	 * Moves to the next line.
+	 *
+	 * @return True if there was another line, false at the end of the buffer.
+	 */
+	public boolean nextLine () {
+		int limit = buffer.limit();
+
+		if (next >= limit) {
+			lineDone = true;
+			return false;
+		}
+
+		int index = next;
+		while (index < limit) {
+			byte b = buffer.get(index);
+
+			if (b == '\n' || b == '\r') {
+				break;
+			}
+
+			index++;
+		}
+
+		lineStart = next;
+		cursor = next;
+		lineEnd = index;
+		lineDone = false;
+
+		if (index < limit && buffer.get(index) == '\r') {
+			index++;
+		}
+
+		if (index < limit && buffer.get(index) == '\n') {
+			index++;
+		}
+
+		next = index;
+
+		return true;
+	}
+
+	/**
+	 * Moves to the next field of the current line.
+	 *
+	 * @return True if the line had another field, false at the end of the line.
+	 */
+	public boolean nextField () {
+		if (lineDone) {
+			return false;
+		}
+
+		if (cursor >= lineEnd) {
+			lineDone = true;
+
+			// An empty line holds one empty field
+			if (lineStart == lineEnd) {
+				fieldStart = lineEnd;
+				fieldEnd = lineEnd;
+				return true;
+			}
+
+			return false;
+		}
+
+		int index = cursor;
+		while (index < lineEnd && ! isDelimiter(buffer.get(index))) {
+			index++;
+		}
+
+		fieldStart = cursor;
+		fieldEnd = index;
+
+		if (fieldStart == fieldEnd && onlyDelimitersFrom(index)) {
+			// Empty fields at the end of a line are dropped
+			lineDone = true;
+			return false;
+		}
+
+		if (index < lineEnd) {
+			index++;
+
+			if (delimiter == WHITESPACE) {
+				while (index < lineEnd && isDelimiter(buffer.get(index))) {
+					index++;
+				}
+			}
+		}
+
+		cursor = index;
+
+		return true;
+	}
+
+	/**
+	 * Gets the number of bytes in the current line, without its line ending.
+	 *
+	 * @return The length of the line.
+	 */
+	public int lineLength () {
+		return lineEnd - lineStart;
+	}
+
+	/**
+	 * Skips the rest of the current line.
+	 */
+	public void skipLine () {
+		lineDone = true;
+	}
+
+	/**
+	 * Gets the number of bytes in the current field.
+	 *
+	 * @return The length of the field.
+	 */
+	public int fieldLength () {
+		return fieldEnd - fieldStart;
+	}
+
+	/**
+	 * Gets a byte of the current field.
+	 *
+	 * @param index The index of the byte within the field.
+	 * @return The byte.
+	 */
+	public byte fieldByte (int index) {
+		return buffer.get(fieldStart + index);
+	}
+
+	/**
+	 * Checks if the current field holds the same characters as a string, without creating a string.
+	 *
+	 * @param value The ASCII string to compare with.
+	 * @return True if the field matches the string.
+	 */
+	public boolean fieldEquals (String value) {
+		int length = fieldLength();
+
+		if (value == null || value.length() != length) {
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+			if (buffer.get(fieldStart + i) != value.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Decodes the current field as a UTF-8 string.
+	 *
+	 * @return The field as a string.
+	 */
+	public String fieldString () {
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + fieldStart, fieldLength(), StandardCharsets.UTF_8);
+		}
+
+		byte[] bytes = new byte[fieldLength()];
+		buffer.get(fieldStart, bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses the current field as a decimal whole number.
+	 *
+	 * @return The number.
+	 * @throws NumberFormatException If the field is not a whole number or does not fit in a long.
+	 */
+	public long parseLong () {
+		int index = fieldStart;
+		boolean negative = false;
+
+		if (index < fieldEnd && (buffer.get(index) == '-' || buffer.get(index) == '+')) {
+			negative = buffer.get(index) == '-';
+			index++;
+		}
+
+		if (index == fieldEnd || fieldEnd - index > 18) {
+			// Empty, or too long to add up without overflowing
+			return Long.parseLong(fieldString());
+		}
+
+		long value = 0;
+		for (; index < fieldEnd; index++) {
+			int digit = buffer.get(index) - '0';
+
+			if (digit < 0 || digit > 9) {
+				throw new NumberFormatException("For input string: \"" + fieldString() + "\"");
+			}
+
+			value = value * 10 + digit;
+		}
+
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses the current field as a decimal number, with an optional fraction and exponent.
+	 * <p>
+	 * Numbers whose digits and exponent a double holds exactly, which covers every value of the monitoring data,
+	 * are worked out from the bytes directly and give the same result as {@link Double#parseDouble}. Anything else
+	 * is handed to {@link Double#parseDouble}.
+	 *
+	 * @return The number.
+	 * @throws NumberFormatException If the field is not a number.
+	 */
+	public double parseDouble () {
+		int index = fieldStart;
+		boolean negative = false;
+
+		if (index < fieldEnd && (buffer.get(index) == '-' || buffer.get(index) == '+')) {
+			negative = buffer.get(index) == '-';
+			index++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean fraction = false;
+		boolean any = false;
+
+		for (; index < fieldEnd; index++) {
+			byte b = buffer.get(index);
+
+			if (b >= '0' && b <= '9') {
+				any = true;
+
+				if (mantissa == 0 && b == '0') {
+					if (fraction) {
+						scale--;
+					}
+					continue;
+				}
+
+				if (++digits > 18) {
+					return Double.parseDouble(fieldString());
+				}
+
+				mantissa = mantissa * 10 + (b - '0');
+
+				if (fraction) {
+					scale--;
+				}
+			}
+			else if (b == '.' && ! fraction) {
+				fraction = true;
+			}
+			else {
+				break;
+			}
+		}
+
+		if (! any) {
+			return Double.parseDouble(fieldString());
+		}
+
+		if (index < fieldEnd) {
+			byte b = buffer.get(index);
+
+			if ((b != 'e' && b != 'E') || ++index == fieldEnd) {
+				return Double.parseDouble(fieldString());
+			}
+
+			boolean negativeExponent = false;
+
+			if (buffer.get(index) == '-' || buffer.get(index) == '+') {
+				negativeExponent = buffer.get(index) == '-';
+				index++;
+			}
+
+			if (index == fieldEnd || fieldEnd - index > 3) {
+				return Double.parseDouble(fieldString());
+			}
+
+			int exponent = 0;
+			for (; index < fieldEnd; index++) {
+				int digit = buffer.get(index) - '0';
+
+				if (digit < 0 || digit > 9) {
+					return Double.parseDouble(fieldString());
+				}
+
+				exponent = exponent * 10 + digit;
+			}
+
+			scale += negativeExponent ? -exponent : exponent;
+		}
+
+		if (mantissa == 0) {
+			return negative ? -0.0 : 0.0;
+		}
+
+		if (mantissa >= MAX_EXACT_MANTISSA || scale < -22 || scale > 22) {
+			return Double.parseDouble(fieldString());
+		}
+
+		// Both operands are exact, so the single rounding of the operation gives the correctly rounded result
+		double value = scale < 0 ? mantissa / EXACT_POWERS_OF_TEN[-scale] : mantissa * EXACT_POWERS_OF_TEN[scale];
+
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Checks if the rest of the current line only holds delimiters.
+	 *
+	 * @param index The index to check from.
+	 * @return True if every byte from the index to the end of the line is a delimiter.
+	 */
+	private boolean onlyDelimitersFrom (int index) {
+		for (; index < lineEnd; index++) {
+			if (! isDelimiter(buffer.get(index))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks if a byte separates fields.
+	 *
+	 * @param b The byte.
+	 * @return True if the byte is the delimiter.
+	 */
+	private boolean isDelimiter (byte b) {
+		return delimiter == WHITESPACE ? b == ' ' || b == '\t' || b == '\f' || b == 0x0B : b == delimiter;
+	}
+}
@@ -1,44 +1,138 @@
 package main.helpers;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class which contains methods to perform operations on files.
+ * <p>
+ * Input files can be memory mapped and read as {@link ByteBuffer} or {@link CharSequence} views without copying
+ * them into the Java heap. Mappings are cached per path and reused until the modification time or the length of the
+ * file changes, so data files which are read every monitoring interval are only mapped again after they are
+ * rewritten.
  *
  * @author Martin Bullman
  * @version 1.0
  * @since 2016-08-04
  */
 public class FileHelper {
+	/**
+	 * The cached file mappings, keyed by absolute path.
+	 */
+	private static final ConcurrentHashMap<String, MappedFile> MAPPINGS = new ConcurrentHashMap<>();
+
 	/**
 	 * Converts a given File object into a string representation by reading the file's contents.
+	 * <p>
+	 * The file is read from its cached memory mapping and decoded as UTF-8 in one step.
 	 *
 	 * @param file The input file to be converted.
-	 * @return A string containing the contents of the file.
+	 * @return A string containing the contents of the file, or an empty string if it could not be read.
 	 */
 	public String convertFileToString (final File file) {
-		StringBuilder fileData = null;
+		ByteBuffer buffer = mapFile(file);
 
-		try {
-			fileData = new StringBuilder(1000);
-	        BufferedReader reader = new BufferedReader(new FileReader(file));
-		 
-			char[] charBuffer = new char[1024];
-			int numRead = 0;
-			
-			while ((numRead = reader.read(charBuffer)) != -1 ) {
-			    String readData = String.valueOf(charBuffer, 0, numRead);
-				fileData.append(readData);
-				charBuffer = new char[1024];
+		if (buffer == null) {
+			return "";
+		}
+
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Memory maps a file and returns a read-only view of its bytes.
+	 * <p>
+	 * Every call returns a new view with its own position, so views can be read independently by several threads.
+	 *
+	 * @param file The file to map.
+	 * @return A read-only buffer holding the contents of the file, or null if the file could not be mapped.
+	 */
+	public ByteBuffer mapFile (final File file) {
+		MappedFile mapped = mapping(file);
+
+		return mapped == null ? null : mapped.buffer.duplicate();
+	}
+
+	/**
+	 * Memory maps a file and returns its contents as characters.
+	 * <p>
+	 * Files which only contain ASCII characters are read straight from the mapping without being copied. Other files
+	 * are decoded as UTF-8.
+	 *
+	 * @param file The file to map.
+	 * @return The contents of the file, or an empty sequence if the file could not be mapped.
+	 */
+	public CharSequence mapFileAsChars (final File file) {
+		MappedFile mapped = mapping(file);
+
+		if (mapped == null) {
+			return "";
+		}
+
+		if (mapped.ascii) {
+			return new AsciiCharSequence(mapped.buffer, 0, mapped.buffer.limit());
+		}
+
+		return StandardCharsets.UTF_8.decode(mapped.buffer.duplicate());
+	}
+
+	/**
+	 * Gets the cached mapping of a file, mapping it again if it changed since it was mapped.
+	 *
+	 * @param file The file to map.
+	 * @return The mapping of the file, or null if the file could not be mapped.
+	 */
+	private static MappedFile mapping (final File file) {
+		String path = file.getAbsolutePath();
+		long lastModified = file.lastModified();
+		long length = file.length();
+		MappedFile cached = MAPPINGS.get(path);
+
+		if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+			return cached;
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File is too large to be mapped: " + path);
 			}
-		 
-			reader.close();
+
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).asReadOnlyBuffer();
+			MappedFile mapped = new MappedFile(lastModified, length, buffer, isAscii(buffer));
+			MAPPINGS.put(path, mapped);
+
+			return mapped;
 		}
 		catch (IOException ex) {
 			ex.printStackTrace();
 		}
-		
-		return fileData.toString();
+
+		return null;
+	}
+
+	/**
+	 * Checks if a buffer only contains ASCII characters.
+	 *
+	 * @param buffer The buffer to check.
+	 * @return True if every byte of the buffer is below 128.
+	 */
+	private static boolean isAscii (final ByteBuffer buffer) {
+		for (int i = 0; i < buffer.limit(); i++) {
+			if (buffer.get(i) < 0) {
+				return false;
+			}
+		}
+
+		return true;
 	}
 
 	/**
@@ -143,4 +237,110 @@ public class FileHelper {
 
 		return null;
 	}
+
+	/**
+	 * A memory mapped file along with the modification time and length it was mapped at.
+	 */
+	private static class MappedFile {
+		/**
+		 * Modification time of the file when it was mapped.
+		 */
+		private final long lastModified;
+
+		/**
+		 * Length of the file when it was mapped.
+		 */
+		private final long length;
+
+		/**
+		 * Read-only buffer over the mapping.
+		 */
+		private final ByteBuffer buffer;
+
+		/**
+		 * True if the file only contains ASCII characters.
+		 */
+		private final boolean ascii;
+
+		/**
+		 * Constructor which takes the details of the mapping.
+		 *
+		 * @param lastModified Modification time of the file when it was mapped.
+		 * @param length Length of the file when it was mapped.
+		 * @param buffer Read-only buffer over the mapping.
+		 * @param ascii True if the file only contains ASCII characters.
+		 */
+		private MappedFile (long lastModified, long length, ByteBuffer buffer, boolean ascii) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.buffer = buffer;
+			this.ascii = ascii;
+		}
+	}
+
+	/**
+	 * Character view over ASCII bytes, reading each character straight from the buffer.
+	 */
+	private static class AsciiCharSequence implements CharSequence {
+		/**
+		 * The buffer holding the characters.
+		 */
+		private final ByteBuffer buffer;
+
+		/**
+		 * Index of the first character in the buffer.
+		 */
+		private final int offset;
+
+		/**
+		 * Number of characters.
+		 */
+		private final int length;
+
+		/**
+		 * Constructor which takes the buffer and the range of the characters.
+		 *
+		 * @param buffer The buffer holding the characters.
+		 * @param offset Index of the first character in the buffer.
+		 * @param length Number of characters.
+		 */
+		private AsciiCharSequence (ByteBuffer buffer, int offset, int length) {
+			this.buffer = buffer;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length () {
+			return length;
+		}
+
+		@Override
+		public char charAt (int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("Index " + index + " out of range for length " + length);
+			}
+
+			return (char) buffer.get(offset + index);
+		}
+
+		@Override
+		public CharSequence subSequence (int start, int end) {
+			if (start < 0 || end > length || start > end) {
+				throw new IndexOutOfBoundsException("Range " + start + " to " + end + " out of range for length " + length);
+			}
+
+			return new AsciiCharSequence(buffer, offset + start, end - start);
+		}
+
+		@Override
+		public String toString () {
+			byte[] bytes = new byte[length];
+			ByteBuffer view = buffer.duplicate();
+			view.position(offset);
+			view.get(bytes);
+
+			return new String(bytes, StandardCharsets.US_ASCII);
+		}
+	}
 }
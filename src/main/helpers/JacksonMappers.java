@@ -0,0 +1,153 @@
+package main.helpers;
+
+import de.undercouch.bson4jackson.BsonFactory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import org.json.java.JSONObject;
+
+import java.io.File;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class which holds the Jackson factories, mappers, readers and writers shared by the formatters and codecs.
+ * <p>
+ * Creating an ObjectMapper is expensive, and a new mapper throws away the serializers and deserializers Jackson
+ * has built and cached for every type it has seen. The mappers here are created and configured once; the readers
+ * and writers for the types sent across the message bus are built from them up front, so looking them up costs
+ * nothing per call. Mappers, readers and writers are safe to share between threads once configured, and must not
+ * be reconfigured by their users.
+ * <p>
+ * None of them close the streams they are given, so callers can keep writing to or reading from their own
+ * streams. Files and strings, which Jackson opens itself, are still closed.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class JacksonMappers {
+	/**
+	 * Factory for JSON parsers and generators.
+	 */
+	public static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	/**
+	 * Mapper for JSON.
+	 */
+	public static final ObjectMapper JSON = configure(new ObjectMapper(JSON_FACTORY));
+
+	/**
+	 * Reader for a JSON object into a HashMap.
+	 */
+	public static final ObjectReader JSON_HASH_MAP_READER = JSON.readerFor(new TypeReference<HashMap<String, Object>>() { });
+
+	/**
+	 * Reader for any JSON value into a tree.
+	 */
+	public static final ObjectReader JSON_TREE_READER = JSON.reader();
+
+	/**
+	 * Reader for any JSON value into plain Java maps, lists and values.
+	 */
+	public static final ObjectReader JSON_VALUE_READER = JSON.readerFor(Object.class);
+
+	/**
+	 * Writer for JSON with the default pretty printer.
+	 */
+	public static final ObjectWriter JSON_PRETTY_WRITER = JSON.writerWithDefaultPrettyPrinter();
+
+	/**
+	 * Mapper for BSON.
+	 */
+	public static final ObjectMapper BSON = configure(new ObjectMapper(new BsonFactory()));
+
+	/**
+	 * Writer for any value as BSON.
+	 */
+	public static final ObjectWriter BSON_WRITER = BSON.writer();
+
+	/**
+	 * Reader for a BSON document into an ArrayList.
+	 */
+	public static final ObjectReader BSON_ARRAY_LIST_READER = BSON.readerFor(ArrayList.class);
+
+	/**
+	 * Reader for a BSON document into a HashMap.
+	 */
+	public static final ObjectReader BSON_HASH_MAP_READER = BSON.readerFor(HashMap.class);
+
+	/**
+	 * Reader for a BSON document into a JSONObject.
+	 */
+	public static final ObjectReader BSON_JSON_OBJECT_READER = BSON.readerFor(JSONObject.class);
+
+	/**
+	 * Reader for a BSON document into a File.
+	 */
+	public static final ObjectReader BSON_FILE_READER = BSON.readerFor(File.class);
+
+	/**
+	 * Mapper for CSV.
+	 */
+	public static final CsvMapper CSV = configure(new CsvMapper());
+
+	/**
+	 * Readers for the rows of a headed, unquoted CSV file into maps, keyed by column delimiter.
+	 */
+	private static final Map<Character, ObjectReader> CSV_ROW_READERS = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the reader for the rows of a CSV file into maps from column name to value. The first line holds the
+	 * column names; values are neither quoted nor escaped, and empty values are read as empty strings.
+	 *
+	 * @param delimiter The column delimiter.
+	 * @return The reader, built on first use and shared afterwards.
+	 */
+	public static ObjectReader csvRowReader (char delimiter) {
+		return CSV_ROW_READERS.computeIfAbsent(delimiter, JacksonMappers::newCsvRowReader);
+	}
+
+	/**
+	 * Creates the reader for the rows of a CSV file with the given delimiter.
+	 *
+	 * @param delimiter The column delimiter.
+	 * @return The new reader.
+	 */
+	private static ObjectReader newCsvRowReader (char delimiter) {
+		CsvSchema schema = CsvSchema.builder()
+				.setColumnSeparator(delimiter)
+				.disableEscapeChar()
+				.disableQuoteChar()
+				.setUseHeader(false)
+				.setNullValue("")
+				.build()
+				.withHeader();
+
+		return CSV.readerFor(Map.class).with(schema);
+	}
+
+	/**
+	 * Applies the settings shared by every mapper.
+	 *
+	 * @param mapper The mapper to configure.
+	 * @param <T> The type of the mapper.
+	 * @return The mapper.
+	 */
+	private static <T extends ObjectMapper> T configure (T mapper) {
+		mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+		mapper.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+
+		return mapper;
+	}
+}
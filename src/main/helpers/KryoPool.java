@@ -0,0 +1,218 @@
+package main.helpers;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import main.message_receiver.LowLevelResourceMetrics;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Class which hands out reusable, per-thread Kryo instances and buffers.
+ * <p>
+ * Creating a Kryo instance is expensive and an instance must not be shared between threads, so every thread gets
+ * its own, created once and configured the same way. The classes sent across the message bus are registered with
+ * fixed identifiers, so Kryo writes a small integer instead of the full class name. The sender and the receiver
+ * must use the same registrations, which is why both the serializer and deserializer get their instances here.
+ * <p>
+ * Each thread also keeps one output buffer and one input, which are reset rather than reallocated on every call.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class KryoPool {
+	/**
+	 * Initial size of the per-thread output buffer in bytes.
+	 */
+	private static final int INITIAL_BUFFER_SIZE = 4096;
+
+	/**
+	 * Largest output buffer kept between calls. Bigger buffers are dropped after use so one large payload does
+	 * not pin memory on the thread forever.
+	 */
+	private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * First registration identifier used for application classes, above the ones Kryo reserves for primitives.
+	 */
+	private static final int FIRST_REGISTRATION_ID = 20;
+
+	/**
+	 * The Kryo instance of each thread.
+	 */
+	private static final ThreadLocal<Kryo> KRYO = ThreadLocal.withInitial(KryoPool::newKryo);
+
+	/**
+	 * The output buffer of each thread.
+	 */
+	private static final ThreadLocal<Output> OUTPUT = ThreadLocal.withInitial(KryoPool::newOutput);
+
+	/**
+	 * The input of each thread.
+	 */
+	private static final ThreadLocal<Input> INPUT = ThreadLocal.withInitial(Input::new);
+
+	/**
+	 * The input of each thread used to read direct buffers, which has a buffer of its own to read into.
+	 */
+	private static final ThreadLocal<Input> STREAM_INPUT = ThreadLocal.withInitial(() -> new Input(INITIAL_BUFFER_SIZE));
+
+	/**
+	 * Gets the Kryo instance of the calling thread.
+	 *
+	 * @return A configured Kryo instance owned by the calling thread.
+	 */
+	public static Kryo kryo () {
+		return KRYO.get();
+	}
+
+	/**
+	 * Gets the output buffer of the calling thread, emptied and ready to be written to.
+	 *
+	 * @return An empty output owned by the calling thread.
+	 */
+	public static Output output () {
+		Output output = OUTPUT.get();
+		output.clear();
+
+		return output;
+	}
+
+	/**
+	 * Gets the output buffer of the calling thread, emptied and set to write through to the given stream. The
+	 * caller must flush the output when done and detach it with {@link #detach(Output)}.
+	 *
+	 * @param out The stream the output writes to.
+	 * @return An empty output owned by the calling thread.
+	 */
+	public static Output output (OutputStream out) {
+		Output output = OUTPUT.get();
+		output.setOutputStream(out);
+
+		return output;
+	}
+
+	/**
+	 * Detaches the output of the calling thread from the stream given to {@link #output(OutputStream)}, so it does
+	 * not keep the stream alive, and releases the buffer if it grew too large.
+	 *
+	 * @param output The output returned by {@link #output(OutputStream)}.
+	 */
+	public static void detach (Output output) {
+		output.setOutputStream(null);
+
+		if (output.getBuffer().length > MAX_RETAINED_BUFFER_SIZE) {
+			OUTPUT.set(newOutput());
+		}
+	}
+
+	/**
+	 * Copies the bytes written to the output of the calling thread and releases the buffer if it grew too large.
+	 *
+	 * @param output The output returned by {@link #output()}.
+	 * @return The bytes written to the output.
+	 */
+	public static byte[] toBytes (Output output) {
+		byte[] bytes = output.toBytes();
+
+		if (output.getBuffer().length > MAX_RETAINED_BUFFER_SIZE) {
+			OUTPUT.set(newOutput());
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Gets the input of the calling thread, set to read the given bytes.
+	 *
+	 * @param bytesArray The bytes to read.
+	 * @return An input owned by the calling thread.
+	 */
+	public static Input input (final byte[] bytesArray) {
+		Input input = INPUT.get();
+		input.setBuffer(bytesArray);
+
+		return input;
+	}
+
+	/**
+	 * Gets an input of the calling thread, set to read a range of a buffer. The array behind a heap buffer is read
+	 * in place; a direct buffer is read through a stream into the input's own buffer.
+	 *
+	 * @param buffer The buffer to read.
+	 * @param offset The index of the first byte to read.
+	 * @param length The number of bytes to read.
+	 * @return An input owned by the calling thread.
+	 * @throws IndexOutOfBoundsException If the range is not inside the buffer.
+	 */
+	public static Input input (final ByteBuffer buffer, final int offset, final int length) {
+		ByteBufferInputStream.checkRange(buffer, offset, length);
+
+		if (buffer.hasArray()) {
+			Input input = INPUT.get();
+			input.setBuffer(buffer.array(), buffer.arrayOffset() + offset, length);
+
+			return input;
+		}
+
+		Input input = STREAM_INPUT.get();
+		input.setInputStream(new ByteBufferInputStream(buffer, offset, length));
+
+		return input;
+	}
+
+	/**
+	 * Creates and configures a Kryo instance with the classes sent across the message bus.
+	 *
+	 * @return The new Kryo instance.
+	 */
+	private static Kryo newKryo () {
+		Kryo kryo = new Kryo();
+		int id = FIRST_REGISTRATION_ID;
+
+		// Payloads are trees of strings, so reference tracking only costs time.
+		kryo.setReferences(false);
+		kryo.setRegistrationRequired(false);
+
+		kryo.register(ArrayList.class, id++);
+		kryo.register(HashMap.class, id++);
+		kryo.register(LinkedHashMap.class, id++);
+		kryo.register(String[].class, id++);
+		kryo.register(LowLevelResourceMetrics.class, id++);
+		kryo.register(File.class, new FileSerializer(), id);
+
+		return kryo;
+	}
+
+	/**
+	 * Creates an output buffer which grows without limit.
+	 *
+	 * @return The new output.
+	 */
+	private static Output newOutput () {
+		return new Output(INITIAL_BUFFER_SIZE, -1);
+	}
+
+	/**
+	 * Kryo serializer which writes a File as its path, since File has no constructor Kryo can call.
+	 */
+	private static class FileSerializer extends Serializer<File> {
+		@Override
+		public void write (Kryo kryo, Output output, File file) {
+			output.writeString(file.getPath());
+		}
+
+		@Override
+		public File read (Kryo kryo, Input input, Class<File> type) {
+			return new File(input.readString());
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package main.helpers;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Class which is a byte array output stream that can be emptied and written again without giving up its buffer.
+ * <p>
+ * Unlike {@link ByteArrayOutputStream} it gives access to the size of its buffer, so {@link BufferPool} can drop
+ * buffers which grew too large. Like every byte array output stream it is not meant to be shared between threads.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class ReusableOutputStream extends ByteArrayOutputStream {
+	/**
+	 * Constructor which takes the initial size of the buffer.
+	 *
+	 * @param size The initial size of the buffer in bytes.
+	 */
+	public ReusableOutputStream (int size) {
+		super(size);
+	}
+
+	/**
+	 * Gets the size of the buffer, which is at least the number of bytes written.
+	 *
+	 * @return The size of the buffer in bytes.
+	 */
+	public int capacity () {
+		return buf.length;
+	}
+}
@@ -0,0 +1,452 @@
+package main.logging;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.function.Supplier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.text.SimpleDateFormat;
+
+/**
+ * Class which writes log events to the console on a background thread, so logging never waits for console output.
+ * <p>
+ * Logging an event only checks its level and puts it on a bounded queue. Formatting the message, turning payloads
+ * into text and writing to the console all happen on the writer thread. When the queue is full the event is
+ * dropped rather than blocking the caller, and the number of dropped events is reported once there is room again,
+ * so the throughput of the sender and receiver stays flat whatever is logged.
+ * <p>
+ * Events of every logger share one queue and writer thread and are written in the order they were logged. WARN and
+ * ERROR events go to standard error, the rest to standard output. The settings are global and read from the sender
+ * or receiver configuration by {@link #configure(Properties)}:
+ * <ul>
+ *     <li>logLevel: the lowest level written, INFO by default.</li>
+ *     <li>logSampleEvery: only 1 in this many calls to {@link #sample()} returns true, for events logged once per
+ *     message. 1 by default, which keeps every event.</li>
+ *     <li>logPayloads: true to write the contents of messages, false by default. Payload dumps are also sampled.</li>
+ * </ul>
+ * Payloads are turned into text on the writer thread, so they must not be changed after they are logged.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class AsyncLogger {
+	/**
+	 * Number of events which may wait for the writer thread.
+	 */
+	private static final int QUEUE_SIZE = 8192;
+
+	/**
+	 * The events waiting for the writer thread.
+	 */
+	private static final BlockingQueue<LogEvent> QUEUE = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+	/**
+	 * The loggers created so far, keyed by name.
+	 */
+	private static final Map<String, AsyncLogger> LOGGERS = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of events dropped because the queue was full, not yet reported.
+	 */
+	private static final AtomicLong DROPPED = new AtomicLong();
+
+	/**
+	 * Number of events put on the queue so far.
+	 */
+	private static final AtomicLong ENQUEUED = new AtomicLong();
+
+	/**
+	 * Number of events written so far. Only written by the writer thread, while holding the lock on the queue.
+	 */
+	private static long written = 0;
+
+	/**
+	 * Lowest level written.
+	 */
+	private static volatile LogLevel level = LogLevel.INFO;
+
+	/**
+	 * Only 1 in this many calls to {@link #sample()} returns true.
+	 */
+	private static volatile int sampleEvery = 1;
+
+	/**
+	 * True if payload dumps are written.
+	 */
+	private static volatile boolean payloads = false;
+
+	/**
+	 * The name of the logger, written with every event.
+	 */
+	private final String name;
+
+	/**
+	 * Number of calls to {@link #sample()} on this logger.
+	 */
+	private final AtomicLong sampleCounter = new AtomicLong();
+
+	static {
+		Thread writer = new Thread(AsyncLogger::writeEvents, "async-log-writer");
+		writer.setDaemon(true);
+		writer.start();
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(1000)));
+	}
+
+	/**
+	 * Constructor which takes the name of the logger.
+	 *
+	 * @param name The name of the logger.
+	 */
+	private AsyncLogger (String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Gets the logger with the given name, creating it on first use.
+	 *
+	 * @param name The name of the logger, usually the class it logs for.
+	 * @return The logger.
+	 */
+	public static AsyncLogger get (String name) {
+		return LOGGERS.computeIfAbsent(name, AsyncLogger::new);
+	}
+
+	/**
+	 * Gets the logger for a class, named after the class.
+	 *
+	 * @param type The class the logger logs for.
+	 * @return The logger.
+	 */
+	public static AsyncLogger get (Class<?> type) {
+		return get(type.getSimpleName());
+	}
+
+	/**
+	 * Reads the logLevel, logSampleEvery and logPayloads settings. Settings which are missing keep their value.
+	 *
+	 * @param config The sender or receiver configuration.
+	 */
+	public static void configure (Properties config) {
+		setLevel(LogLevel.thisLevel(config.getProperty("logLevel", level.name()), level));
+		setSampleEvery(Integer.parseInt(config.getProperty("logSampleEvery", String.valueOf(sampleEvery)).trim()));
+		setPayloads(Boolean.parseBoolean(config.getProperty("logPayloads", String.valueOf(payloads)).trim()));
+	}
+
+	/**
+	 * Sets the lowest level written by every logger.
+	 *
+	 * @param newLevel The lowest level written.
+	 */
+	public static void setLevel (LogLevel newLevel) {
+		level = newLevel;
+	}
+
+	/**
+	 * Sets how many calls to {@link #sample()} are made for each one which returns true.
+	 *
+	 * @param every The sampling interval, 1 keeps every event.
+	 * @throws IllegalArgumentException If the interval is less than 1.
+	 */
+	public static void setSampleEvery (int every) {
+		if (every < 1) {
+			throw new IllegalArgumentException("Sampling interval must be at least 1: " + every);
+		}
+
+		sampleEvery = every;
+	}
+
+	/**
+	 * Turns payload dumps on or off.
+	 *
+	 * @param enabled True to write the contents of messages.
+	 */
+	public static void setPayloads (boolean enabled) {
+		payloads = enabled;
+	}
+
+	/**
+	 * Waits until every event logged so far has been written, or the timeout passes. The writer thread takes
+	 * events off the queue before it writes them, so this waits for the count of written events rather than for an
+	 * empty queue.
+	 *
+	 * @param timeoutMillis The longest time to wait, in milliseconds.
+	 * @return True if every event was written in time.
+	 */
+	public static boolean flush (long timeoutMillis) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		long target = ENQUEUED.get();
+
+		synchronized (QUEUE) {
+			try {
+				while (written < target) {
+					long remaining = deadline - System.nanoTime();
+
+					if (remaining <= 0) {
+						return false;
+					}
+
+					TimeUnit.NANOSECONDS.timedWait(QUEUE, remaining);
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the number of events dropped because the queue was full and not reported yet.
+	 *
+	 * @return The number of dropped events.
+	 */
+	public static long getDroppedCount () {
+		return DROPPED.get();
+	}
+
+	/**
+	 * Checks if events of a level are written.
+	 *
+	 * @param eventLevel The level of the event.
+	 * @return True if the level is at or above the lowest level written.
+	 */
+	public boolean isEnabled (LogLevel eventLevel) {
+		return eventLevel != LogLevel.OFF && eventLevel.compareTo(level) >= 0;
+	}
+
+	/**
+	 * Decides if an event logged once per message is kept, keeping 1 in logSampleEvery calls on this logger.
+	 *
+	 * @return True if the event should be logged.
+	 */
+	public boolean sample () {
+		int every = sampleEvery;
+
+		return every == 1 || sampleCounter.getAndIncrement() % every == 0;
+	}
+
+	/**
+	 * Logs an event. The message is formatted with {@link String#format(String, Object...)} on the writer thread.
+	 *
+	 * @param eventLevel The level of the event.
+	 * @param format The message, or its format if there are arguments.
+	 * @param args The arguments of the format.
+	 */
+	public void log (LogLevel eventLevel, String format, Object... args) {
+		if (isEnabled(eventLevel)) {
+			enqueue(new LogEvent(eventLevel, name, format, args, null));
+		}
+	}
+
+	/**
+	 * Logs a DEBUG event.
+	 *
+	 * @param format The message, or its format if there are arguments.
+	 * @param args The arguments of the format.
+	 */
+	public void debug (String format, Object... args) {
+		log(LogLevel.DEBUG, format, args);
+	}
+
+	/**
+	 * Logs an INFO event.
+	 *
+	 * @param format The message, or its format if there are arguments.
+	 * @param args The arguments of the format.
+	 */
+	public void info (String format, Object... args) {
+		log(LogLevel.INFO, format, args);
+	}
+
+	/**
+	 * Logs a WARN event.
+	 *
+	 * @param format The message, or its format if there are arguments.
+	 * @param args The arguments of the format.
+	 */
+	public void warn (String format, Object... args) {
+		log(LogLevel.WARN, format, args);
+	}
+
+	/**
+	 * Logs an ERROR event with the stack trace of an exception.
+	 *
+	 * @param message The message.
+	 * @param exception The exception, written with its stack trace.
+	 */
+	public void error (String message, Throwable exception) {
+		if (isEnabled(LogLevel.ERROR)) {
+			enqueue(new LogEvent(LogLevel.ERROR, name, message, new Object[0], exception));
+		}
+	}
+
+	/**
+	 * Logs the contents of a message at INFO level, if payload dumps are on and the call is sampled. The supplier is
+	 * called on the writer thread, so the cost of turning the payload into text is kept off the caller.
+	 *
+	 * @param label A short description of the payload, e.g. its kind.
+	 * @param payload Supplies the payload; arrays are written with their contents.
+	 */
+	public void payload (String label, Supplier<?> payload) {
+		if (payloads && isEnabled(LogLevel.INFO) && sample()) {
+			enqueue(new LogEvent(LogLevel.INFO, name, label + ": %s", new Object[] {payload}, null));
+		}
+	}
+
+	/**
+	 * Puts an event on the queue, dropping it if the queue is full.
+	 *
+	 * @param event The event.
+	 */
+	private static void enqueue (LogEvent event) {
+		if (QUEUE.offer(event)) {
+			ENQUEUED.incrementAndGet();
+		}
+		else {
+			DROPPED.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Runs on the writer thread, writing events in batches until the process exits.
+	 */
+	private static void writeEvents () {
+		SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+		List<LogEvent> batch = new ArrayList<>();
+
+		while (true) {
+			try {
+				batch.add(QUEUE.take());
+				QUEUE.drainTo(batch);
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+
+			for (LogEvent event : batch) {
+				write(event, timeFormat);
+			}
+
+			int count = batch.size();
+			batch.clear();
+			long dropped = DROPPED.getAndSet(0);
+
+			if (dropped > 0) {
+				System.err.println(timeFormat.format(System.currentTimeMillis()) + " [WARN] AsyncLogger: dropped " + dropped + " log events, the console could not keep up");
+			}
+
+			System.out.flush();
+
+			synchronized (QUEUE) {
+				written += count;
+				QUEUE.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Formats and writes one event. A failure to format is written in place of the message, so one bad event
+	 * cannot stop the writer thread.
+	 *
+	 * @param event The event.
+	 * @param timeFormat The format of the event time.
+	 */
+	private static void write (LogEvent event, SimpleDateFormat timeFormat) {
+		PrintStream out = event.level.compareTo(LogLevel.WARN) >= 0 ? System.err : System.out;
+		String message;
+
+		try {
+			message = event.args.length == 0 ? event.format : String.format(event.format, render(event.args));
+		}
+		catch (RuntimeException exception) {
+			message = event.format + " (could not format: " + exception + ")";
+		}
+
+		out.println(timeFormat.format(event.time) + " [" + event.level + "] " + event.logger + ": " + message);
+
+		if (event.exception != null) {
+			event.exception.printStackTrace(out);
+		}
+	}
+
+	/**
+	 * Turns the arguments of an event into values for the format, calling suppliers and writing arrays with their
+	 * contents.
+	 *
+	 * @param args The arguments of the event.
+	 * @return The arguments to format.
+	 */
+	private static Object[] render (Object[] args) {
+		Object[] rendered = new Object[args.length];
+
+		for (int i = 0; i < args.length; i++) {
+			Object arg = args[i] instanceof Supplier ? ((Supplier<?>) args[i]).get() : args[i];
+			rendered[i] = arg instanceof Object[] ? Arrays.deepToString((Object[]) arg) : arg;
+		}
+
+		return rendered;
+	}
+
+	/**
+	 * A log event waiting for the writer thread.
+	 */
+	private static class LogEvent {
+		/**
+		 * The time the event was logged, in milliseconds since the epoch.
+		 */
+		final long time = System.currentTimeMillis();
+
+		/**
+		 * The level of the event.
+		 */
+		final LogLevel level;
+
+		/**
+		 * The name of the logger.
+		 */
+		final String logger;
+
+		/**
+		 * The message, or its format if there are arguments.
+		 */
+		final String format;
+
+		/**
+		 * The arguments of the format.
+		 */
+		final Object[] args;
+
+		/**
+		 * The exception logged with the event, or null.
+		 */
+		final Throwable exception;
+
+		/**
+		 * Constructor which takes every field of the event.
+		 *
+		 * @param level The level of the event.
+		 * @param logger The name of the logger.
+		 * @param format The message, or its format if there are arguments.
+		 * @param args The arguments of the format.
+		 * @param exception The exception logged with the event, or null.
+		 */
+		LogEvent (LogLevel level, String logger, String format, Object[] args, Throwable exception) {
+			this.level = level;
+			this.logger = logger;
+			this.format = format;
+			this.args = args;
+			this.exception = exception;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package main.logging;
+
+/**
+ * An enumerator listing the levels of log events, from the most detailed to the most severe.
+ * <p>
+ * A logger set to a level writes events of that level and above; {@link #OFF} writes nothing.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public enum LogLevel {
+	TRACE, DEBUG, INFO, WARN, ERROR, OFF;
+
+	/**
+	 * Get the LogLevel value based on a string representation, ignoring case.
+	 *
+	 * @param str The string representation of the level.
+	 * @param fallback The level returned if the string is not a level.
+	 * @return The corresponding LogLevel value, or the fallback if not found.
+	 */
+	public static LogLevel thisLevel (String str, LogLevel fallback) {
+		try {
+			return valueOf(str.trim().toUpperCase());
+		}
+		catch (Exception ex) {
+			return fallback;
+		}
+	}
+}
@@ -0,0 +1,362 @@
+package main.message_receiver;
+
+import main.helpers.BitReader;
+import main.helpers.BitWriter;
+
+/**
+ * Class which holds the last values sent for one host by a {@link MetricDeltaEncoder}, or received by a
+ * {@link MetricDeltaDecoder}, and encodes the next values as changes against them.
+ * <p>
+ * Both sides keep one instance per host and update it the same way, so the encoder and decoder stay in step as
+ * long as no message is lost. Numeric values are encoded in the style of the Gorilla time series database:
+ * <ul>
+ *     <li>An unchanged value is a single zero bit.</li>
+ *     <li>A whole number following a whole number is written as the change of its delta from the previous delta
+ *     (delta of delta), using a short prefix for small changes.</li>
+ *     <li>Any other value is written as the XOR of its bits with the previous value, keeping only the meaningful
+ *     bits and reusing the previous window of meaningful bits when it fits.</li>
+ * </ul>
+ * Text values are a single zero bit when unchanged and the new text otherwise.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+class DeltaHostState {
+	/**
+	 * Number of metric names, and so of value slots per host.
+	 */
+	private static final int NUM_METRICS = MetricNames.values().length;
+
+	/**
+	 * Largest magnitude of a whole number encoded as a delta, above which doubles lose whole number precision.
+	 */
+	private static final double MAX_WHOLE = 9007199254740992.0;
+
+	/**
+	 * Bits of the bucket written for a delta of delta, from the smallest bucket to the largest.
+	 */
+	private static final int[] DOD_BUCKET_BITS = {7, 9, 12};
+
+	/**
+	 * The IP address or name of the host.
+	 */
+	final String host;
+
+	/**
+	 * Bit mask of the metrics last sent for the host, indexed by ordinal.
+	 */
+	long mask = 0;
+
+	/**
+	 * The last numeric values, indexed by ordinal.
+	 */
+	private final double[] values = new double[NUM_METRICS];
+
+	/**
+	 * The last deltas of whole numbers, indexed by ordinal.
+	 */
+	private final long[] deltas = new long[NUM_METRICS];
+
+	/**
+	 * Leading zeros of the last XOR window, indexed by ordinal, or -1 if there is no window.
+	 */
+	private final int[] leading = new int[NUM_METRICS];
+
+	/**
+	 * Trailing zeros of the last XOR window, indexed by ordinal.
+	 */
+	private final int[] trailing = new int[NUM_METRICS];
+
+	/**
+	 * The last text values, indexed by ordinal.
+	 */
+	private final String[] texts = new String[NUM_METRICS];
+
+	/**
+	 * Constructor which takes the IP address or name of the host.
+	 *
+	 * @param host The IP address or name of the host.
+	 */
+	DeltaHostState (String host) {
+		this.host = host;
+	}
+
+	/**
+	 * Checks if a metric was sent in the previous message.
+	 *
+	 * @param ordinal The ordinal of the metric.
+	 * @return True if the metric has a previous value.
+	 */
+	boolean has (int ordinal) {
+		return (mask & (1L << ordinal)) != 0;
+	}
+
+	/**
+	 * Gets the last numeric value of a metric.
+	 *
+	 * @param ordinal The ordinal of the metric.
+	 * @return The last value.
+	 */
+	double value (int ordinal) {
+		return values[ordinal];
+	}
+
+	/**
+	 * Gets the last text value of a metric.
+	 *
+	 * @param ordinal The ordinal of the metric.
+	 * @return The last value.
+	 */
+	String text (int ordinal) {
+		return texts[ordinal];
+	}
+
+	/**
+	 * Writes a numeric value for a metric without a previous value, as a whole number or as raw bits.
+	 *
+	 * @param writer The writer to write to.
+	 * @param ordinal The ordinal of the metric.
+	 * @param value The value to write.
+	 */
+	void writeNew (BitWriter writer, int ordinal, double value) {
+		if (isWhole(value)) {
+			writer.writeBit(false);
+			writer.writeSignedVarLong((long) value);
+		}
+		else {
+			writer.writeBit(true);
+			writer.writeBits(Double.doubleToRawLongBits(value), 64);
+		}
+
+		reset(ordinal, value);
+	}
+
+	/**
+	 * Reads a numeric value for a metric without a previous value.
+	 *
+	 * @param reader The reader to read from.
+	 * @param ordinal The ordinal of the metric.
+	 * @return The value read.
+	 */
+	double readNew (BitReader reader, int ordinal) {
+		double value = reader.readBit() ? Double.longBitsToDouble(reader.readBits(64)) : reader.readSignedVarLong();
+		reset(ordinal, value);
+
+		return value;
+	}
+
+	/**
+	 * Writes a numeric value as a change against the previous value of the metric.
+	 *
+	 * @param writer The writer to write to.
+	 * @param ordinal The ordinal of the metric.
+	 * @param value The value to write.
+	 */
+	void writeChange (BitWriter writer, int ordinal, double value) {
+		double previous = values[ordinal];
+		long xor = Double.doubleToRawLongBits(value) ^ Double.doubleToRawLongBits(previous);
+
+		if (xor == 0) {
+			writer.writeBit(false);
+			deltas[ordinal] = 0;
+			return;
+		}
+
+		writer.writeBit(true);
+
+		if (isWhole(previous) && isWhole(value)) {
+			long delta = (long) value - (long) previous;
+			writer.writeBit(false);
+			writeDeltaOfDelta(writer, delta - deltas[ordinal]);
+			deltas[ordinal] = delta;
+		}
+		else {
+			writer.writeBit(true);
+			int lead = Math.min(Long.numberOfLeadingZeros(xor), 31);
+			int trail = Long.numberOfTrailingZeros(xor);
+
+			if (leading[ordinal] >= 0 && lead >= leading[ordinal] && trail >= trailing[ordinal]) {
+				writer.writeBit(false);
+				writer.writeBits(xor >>> trailing[ordinal], 64 - leading[ordinal] - trailing[ordinal]);
+			}
+			else {
+				int significant = 64 - lead - trail;
+				writer.writeBit(true);
+				writer.writeBits(lead, 5);
+				writer.writeBits(significant - 1, 6);
+				writer.writeBits(xor >>> trail, significant);
+				leading[ordinal] = lead;
+				trailing[ordinal] = trail;
+			}
+
+			deltas[ordinal] = 0;
+		}
+
+		values[ordinal] = value;
+	}
+
+	/**
+	 * Reads a numeric value written as a change against the previous value of the metric.
+	 *
+	 * @param reader The reader to read from.
+	 * @param ordinal The ordinal of the metric.
+	 * @return The value read.
+	 */
+	double readChange (BitReader reader, int ordinal) {
+		if (! reader.readBit()) {
+			deltas[ordinal] = 0;
+			return values[ordinal];
+		}
+
+		if (! reader.readBit()) {
+			long delta = deltas[ordinal] + readDeltaOfDelta(reader);
+			values[ordinal] = (long) values[ordinal] + delta;
+			deltas[ordinal] = delta;
+		}
+		else {
+			long xor;
+
+			if (! reader.readBit()) {
+				xor = reader.readBits(64 - leading[ordinal] - trailing[ordinal]) << trailing[ordinal];
+			}
+			else {
+				int lead = (int) reader.readBits(5);
+				int significant = (int) reader.readBits(6) + 1;
+				int trail = 64 - lead - significant;
+				xor = reader.readBits(significant) << trail;
+				leading[ordinal] = lead;
+				trailing[ordinal] = trail;
+			}
+
+			values[ordinal] = Double.longBitsToDouble(Double.doubleToRawLongBits(values[ordinal]) ^ xor);
+			deltas[ordinal] = 0;
+		}
+
+		return values[ordinal];
+	}
+
+	/**
+	 * Writes a text value for a metric without a previous value.
+	 *
+	 * @param writer The writer to write to.
+	 * @param ordinal The ordinal of the metric.
+	 * @param text The value to write.
+	 */
+	void writeNewText (BitWriter writer, int ordinal, String text) {
+		writer.writeText(text);
+		texts[ordinal] = text == null ? "" : text;
+	}
+
+	/**
+	 * Reads a text value for a metric without a previous value.
+	 *
+	 * @param reader The reader to read from.
+	 * @param ordinal The ordinal of the metric.
+	 * @return The value read.
+	 */
+	String readNewText (BitReader reader, int ordinal) {
+		texts[ordinal] = reader.readText();
+		return texts[ordinal];
+	}
+
+	/**
+	 * Writes a text value as unchanged, or as the new text.
+	 *
+	 * @param writer The writer to write to.
+	 * @param ordinal The ordinal of the metric.
+	 * @param text The value to write.
+	 */
+	void writeTextChange (BitWriter writer, int ordinal, String text) {
+		String previous = texts[ordinal];
+		boolean changed = ! previous.equals(text == null ? "" : text);
+
+		writer.writeBit(changed);
+
+		if (changed) {
+			writeNewText(writer, ordinal, text);
+		}
+	}
+
+	/**
+	 * Reads a text value written as unchanged, or as the new text.
+	 *
+	 * @param reader The reader to read from.
+	 * @param ordinal The ordinal of the metric.
+	 * @return The value read.
+	 */
+	String readTextChange (BitReader reader, int ordinal) {
+		return reader.readBit() ? readNewText(reader, ordinal) : texts[ordinal];
+	}
+
+	/**
+	 * Sets the previous value of a metric and clears its delta and XOR window.
+	 *
+	 * @param ordinal The ordinal of the metric.
+	 * @param value The value.
+	 */
+	private void reset (int ordinal, double value) {
+		values[ordinal] = value;
+		deltas[ordinal] = 0;
+		leading[ordinal] = -1;
+		trailing[ordinal] = 0;
+	}
+
+	/**
+	 * Writes a delta of delta with a prefix of one bits selecting the size of the value: a zero bit for no change,
+	 * then buckets of 7, 9 and 12 bits, then a variable length integer for anything larger.
+	 *
+	 * @param writer The writer to write to.
+	 * @param deltaOfDelta The value to write.
+	 */
+	private static void writeDeltaOfDelta (BitWriter writer, long deltaOfDelta) {
+		if (deltaOfDelta == 0) {
+			writer.writeBit(false);
+			return;
+		}
+
+		for (int bits : DOD_BUCKET_BITS) {
+			writer.writeBit(true);
+			long offset = (1L << (bits - 1)) - 1;
+
+			if (deltaOfDelta >= -offset && deltaOfDelta <= offset + 1) {
+				writer.writeBit(false);
+				writer.writeBits(deltaOfDelta + offset, bits);
+				return;
+			}
+		}
+
+		writer.writeBit(true);
+		writer.writeSignedVarLong(deltaOfDelta);
+	}
+
+	/**
+	 * Reads a delta of delta written by {@link #writeDeltaOfDelta(BitWriter, long)}.
+	 *
+	 * @param reader The reader to read from.
+	 * @return The value read.
+	 */
+	private static long readDeltaOfDelta (BitReader reader) {
+		if (! reader.readBit()) {
+			return 0;
+		}
+
+		for (int bits : DOD_BUCKET_BITS) {
+			if (! reader.readBit()) {
+				return reader.readBits(bits) - ((1L << (bits - 1)) - 1);
+			}
+		}
+
+		return reader.readSignedVarLong();
+	}
+
+	/**
+	 * Checks if a value is a whole number which a long holds exactly, excluding negative zero.
+	 *
+	 * @param value The value to check.
+	 * @return True if the value can be encoded as a whole number.
+	 */
+	private static boolean isWhole (double value) {
+		return Math.abs(value) < MAX_WHOLE && value == (long) value && Double.doubleToRawLongBits(value) != Long.MIN_VALUE;
+	}
+}
@@ -0,0 +1,64 @@
+package main.message_receiver;
+
+import main.codecs.CodecRegistry;
+import main.deserializers.IDeserializer;
+
+import java.util.Map;
+import java.util.HashMap;
+
+/**
+ * Class which holds one instance of every deserializer supported by the message receiver.
+ * <p>
+ * The deserializers are not safe to share between threads, so each worker of the message receiver takes a set of
+ * its own while it decodes a delivery and hands it back afterwards. A deserializer is created from the
+ * {@link CodecRegistry} the first time a message of its codec is decoded.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class DeserializerSet {
+	/**
+	 * The codecs the deserializers are created from.
+	 */
+	private final CodecRegistry codecs;
+
+	/**
+	 * The deserializer of every codec used so far, keyed by codec id.
+	 */
+	private final Map<Integer, IDeserializer> deserializers = new HashMap<>();
+
+	/**
+	 * Default constructor which creates deserializers from the default codec registry.
+	 */
+	public DeserializerSet () {
+		this(CodecRegistry.getDefault());
+	}
+
+	/**
+	 * Constructor which takes the codecs the deserializers are created from.
+	 *
+	 * @param codecs The codec registry.
+	 */
+	public DeserializerSet (CodecRegistry codecs) {
+		this.codecs = codecs;
+	}
+
+	/**
+	 * Gets the deserializer of a codec, creating it on first use.
+	 *
+	 * @param codec The id of the codec.
+	 * @return The deserializer of the codec.
+	 * @throws IllegalArgumentException If no codec has the id.
+	 */
+	public IDeserializer get (int codec) {
+		IDeserializer deserializer = deserializers.get(codec);
+
+		if (deserializer == null) {
+			deserializer = codecs.require(codec).newDeserializer();
+			deserializers.put(codec, deserializer);
+		}
+
+		return deserializer;
+	}
+}
@@ -0,0 +1,248 @@
+package main.message_receiver;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.Collections;
+
+/**
+ * Class which holds the metrics of one monitored host as typed values keyed by {@link MetricNames}.
+ * <p>
+ * Numeric metrics are kept as doubles and the operating system metrics as text, so they can be written to the
+ * binary message format and read back without converting them to and from strings. Custom metrics registered in
+ * {@link MetricRegistry#DEFAULT} are kept by id beside them; only the MessagePack message format carries them, as
+ * the binary format has a field for every metric of {@link MetricNames} and no more.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class HostMetrics {
+	/**
+	 * All metric names, indexed by ordinal.
+	 */
+	private static final MetricNames[] METRIC_NAMES = MetricNames.values();
+
+	/**
+	 * The IP address or name of the host.
+	 */
+	private final String host;
+
+	/**
+	 * Bit mask of the metrics which have a value, indexed by ordinal.
+	 */
+	private long present = 0;
+
+	/**
+	 * The values of the numeric metrics, indexed by ordinal.
+	 */
+	private final double[] values = new double[METRIC_NAMES.length];
+
+	/**
+	 * The values of the text metrics, indexed by ordinal.
+	 */
+	private final String[] texts = new String[METRIC_NAMES.length];
+
+	/**
+	 * The values of the custom metrics, keyed by their id in {@link MetricRegistry#DEFAULT}.
+	 */
+	private final TreeMap<Integer, Double> customValues = new TreeMap<>();
+
+	/**
+	 * Constructor which takes the IP address or name of the host.
+	 *
+	 * @param host The IP address or name of the host.
+	 */
+	public HostMetrics (String host) {
+		this.host = host;
+	}
+
+	/**
+	 * Builds the metrics of a host from metric names and values held as strings, as they are sent in the
+	 * MessagePack message format. Custom metrics registered in {@link MetricRegistry#DEFAULT} are kept by id.
+	 * Unknown metric names, which the registry counts, and numeric values which cannot be parsed are skipped.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param metrics The metric values keyed by metric name.
+	 * @return The metrics of the host.
+	 */
+	public static HostMetrics fromStrings (String host, Map<String, String> metrics) {
+		HostMetrics hostMetrics = new HostMetrics(host);
+
+		for (Map.Entry<String, String> metric : metrics.entrySet()) {
+			int id = MetricRegistry.DEFAULT.idOf(metric.getKey());
+			MetricNames name = MetricRegistry.DEFAULT.metricOf(id);
+			boolean custom = MetricRegistry.DEFAULT.isCustom(id);
+
+			if ((name == MetricNames.unknown && ! custom) || metric.getValue() == null) {
+				continue;
+			}
+
+			if (name.isText()) {
+				hostMetrics.setText(name, metric.getValue());
+			}
+			else {
+				try {
+					double value = Double.parseDouble(metric.getValue());
+
+					if (custom) {
+						hostMetrics.setCustom(id, value);
+					}
+					else {
+						hostMetrics.set(name, value);
+					}
+				}
+				catch (NumberFormatException exception) {
+					System.err.println("Skipping non numeric value of " + metric.getKey() + ": " + metric.getValue());
+				}
+			}
+		}
+
+		return hostMetrics;
+	}
+
+	/**
+	 * Gets the IP address or name of the host.
+	 *
+	 * @return The IP address or name of the host.
+	 */
+	public String getHost () {
+		return host;
+	}
+
+	/**
+	 * Sets the value of a numeric metric.
+	 *
+	 * @param name The metric name.
+	 * @param value The value of the metric.
+	 */
+	public void set (MetricNames name, double value) {
+		check(name, false);
+		values[name.ordinal()] = value;
+		present |= 1L << name.ordinal();
+	}
+
+	/**
+	 * Sets the value of a text metric.
+	 *
+	 * @param name The metric name.
+	 * @param value The value of the metric.
+	 */
+	public void setText (MetricNames name, String value) {
+		check(name, true);
+		texts[name.ordinal()] = value;
+		present |= 1L << name.ordinal();
+	}
+
+	/**
+	 * Sets the value of a custom metric.
+	 *
+	 * @param metricId The id of the metric in {@link MetricRegistry#DEFAULT}.
+	 * @param value The value of the metric.
+	 * @throws IllegalArgumentException If the id is not a registered custom metric.
+	 */
+	public void setCustom (int metricId, double value) {
+		if (! MetricRegistry.DEFAULT.isCustom(metricId)) {
+			throw new IllegalArgumentException("Metric id " + metricId + " is not a custom metric");
+		}
+
+		customValues.put(metricId, value);
+	}
+
+	/**
+	 * Gets the values of the custom metrics.
+	 *
+	 * @return A read only view of the values, keyed by their id in {@link MetricRegistry#DEFAULT} in id order.
+	 */
+	public Map<Integer, Double> getCustom () {
+		return Collections.unmodifiableMap(customValues);
+	}
+
+	/**
+	 * Checks if a metric has a value.
+	 *
+	 * @param name The metric name.
+	 * @return True if the metric has a value.
+	 */
+	public boolean has (MetricNames name) {
+		return (present & (1L << name.ordinal())) != 0;
+	}
+
+	/**
+	 * Gets the value of a numeric metric.
+	 *
+	 * @param name The metric name.
+	 * @return The value of the metric, or 0 if it has no value.
+	 */
+	public double get (MetricNames name) {
+		return values[name.ordinal()];
+	}
+
+	/**
+	 * Gets the value of a text metric.
+	 *
+	 * @param name The metric name.
+	 * @return The value of the metric, or null if it has no value.
+	 */
+	public String getText (MetricNames name) {
+		return texts[name.ordinal()];
+	}
+
+	/**
+	 * Gets the number of metrics of {@link MetricNames} which have a value, not counting custom metrics.
+	 *
+	 * @return The number of metrics.
+	 */
+	public int size () {
+		return Long.bitCount(present);
+	}
+
+	/**
+	 * Converts the metrics to metric names and values held as strings, as they are sent in the MessagePack message
+	 * format, custom metrics included. Whole numbers are written without a fraction.
+	 *
+	 * @return The metric values keyed by metric name.
+	 */
+	public HashMap<String, String> toStrings () {
+		HashMap<String, String> metrics = new HashMap<>();
+
+		for (MetricNames name : METRIC_NAMES) {
+			if (has(name)) {
+				metrics.put(name.name(), name.isText() ? getText(name) : format(get(name)));
+			}
+		}
+
+		for (Map.Entry<Integer, Double> custom : customValues.entrySet()) {
+			metrics.put(MetricRegistry.DEFAULT.nameOf(custom.getKey()), format(custom.getValue()));
+		}
+
+		return metrics;
+	}
+
+	/**
+	 * Formats a numeric value, without a fraction if it is a whole number.
+	 *
+	 * @param value The value to format.
+	 * @return The formatted value.
+	 */
+	private static String format (double value) {
+		long whole = (long) value;
+		return whole == value ? Long.toString(whole) : Double.toString(value);
+	}
+
+	/**
+	 * Checks that a metric can hold a value of the given kind.
+	 *
+	 * @param name The metric name.
+	 * @param text True if the value is text.
+	 */
+	private static void check (MetricNames name, boolean text) {
+		if (name == MetricNames.unknown) {
+			throw new IllegalArgumentException("Cannot set a value for an unknown metric");
+		}
+
+		if (name.isText() != text) {
+			throw new IllegalArgumentException("Metric " + name + (text ? " is not a text metric" : " is a text metric"));
+		}
+	}
+}
@@ -0,0 +1,258 @@
+package main.message_receiver;
+
+/**
+ * This interface defines read access to the low-level resource metrics of a virtual machine.
+ * <p>
+ * It is implemented by {@link LowLevelResourceMetrics}, which holds one sample in its own object, and by the row
+ * views of {@link MetricFrame}, which read a sample from columnar storage.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public interface IResourceMetrics {
+	/**
+	 * Gets the virtual machine IP address.
+	 *
+	 * @return The virtual machine IP.
+	 */
+	public long getVmIp ();
+
+	/**
+	 * Gets the value of the CPU idle metric.
+	 *
+	 * @return The CPU idle metric.
+	 */
+	public double getCpuIdle ();
+
+	/**
+	 * Gets the value of the CPU aidle metric.
+	 *
+	 * @return The CPU aidle metric.
+	 */
+	public double getCpuAIdle ();
+
+	/**
+	 * Gets the value of the CPU usage at user level.
+	 *
+	 * @return The CPU usage at user level.
+	 */
+	public double getCpuUserLevel ();
+
+	/**
+	 * Gets the value of the CPU usage at system level.
+	 *
+	 * @return The CPU usage at system level.
+	 */
+	public double getCpuSystemLevel ();
+
+	/**
+	 * Gets the value of the CPU steal metric.
+	 *
+	 * @return The CPU steal metric.
+	 */
+	public double getCpuSteal ();
+
+	/**
+	 * Gets the value of the last boot time.
+	 *
+	 * @return The last boot time.
+	 */
+	public long getBootTime ();
+
+	/**
+	 * Gets the value of the number of CPUs.
+	 *
+	 * @return The number of CPUs.
+	 */
+	public long getNumCpu ();
+
+	/**
+	 * Gets the value of incoming packets per second.
+	 *
+	 * @return Incoming packets per second.
+	 */
+	public double getInPackets ();
+
+	/**
+	 * Gets the value of outgoing packets per second.
+	 *
+	 * @return Outgoing packets per second.
+	 */
+	public double getOutPackets ();
+
+	/**
+	 * Gets the value of the current system clock.
+	 *
+	 * @return The current system clock.
+	 */
+	public long getSystemClock ();
+
+	/**
+	 * Gets the value of outgoing bytes per second.
+	 *
+	 * @return Outgoing bytes per second.
+	 */
+	public double getOutBytes ();
+
+	/**
+	 * Gets the value of incoming bytes per second.
+	 *
+	 * @return Incoming bytes per second.
+	 */
+	public double getInBytes ();
+
+	/**
+	 * Gets the value of available free disk space.
+	 *
+	 * @return Available free disk space.
+	 */
+	public double getFreeDisk ();
+
+	/**
+	 * Gets the value of CPU speed.
+	 *
+	 * @return CPU speed.
+	 */
+	public double getCpuSpeed ();
+
+	/**
+	 * Gets the value of total available memory.
+	 *
+	 * @return Total available memory.
+	 */
+	public double getTotalMemory ();
+
+	/**
+	 * Gets the value of free available memory.
+	 *
+	 * @return Free available memory.
+	 */
+	public double getFreeMemory ();
+
+	/**
+	 * Gets the value of total disk size.
+	 *
+	 * @return Total disk size.
+	 */
+	public double getTotalDiskSize ();
+
+	/**
+	 * Gets the value of maximum used disk partition.
+	 *
+	 * @return Maximum used disk partition.
+	 */
+	public double getMaxUsedPartition ();
+
+	/**
+	 * Gets the value of network maximum transfer unit.
+	 *
+	 * @return Network maximum transfer unit.
+	 */
+	public long getMaxTransferUnit ();
+
+	/**
+	 * Gets the operating system name.
+	 *
+	 * @return Operating system name.
+	 */
+	public String getOsName ();
+
+	/**
+	 * Gets the operating system release version.
+	 *
+	 * @return Operating system release version.
+	 */
+	public String getOsRelease ();
+
+	/**
+	 * Gets the machine type.
+	 *
+	 * @return Machine type.
+	 */
+	public String getMachineType ();
+
+	/**
+	 * Gets the value of the percentage of CPU idle time with outstanding I/O requests.
+	 *
+	 * @return The percentage of CPU idle time with outstanding I/O requests.
+	 */
+	public double getCpuWio ();
+
+	/**
+	 * Gets the value of the percentage of CPU utilization while executing with nice priority.
+	 *
+	 * @return The percentage of CPU utilization while executing with nice priority.
+	 */
+	public double getCpuNice ();
+
+	/**
+	 * Gets the value of the total amount of shared memory.
+	 *
+	 * @return The total amount of shared memory.
+	 */
+	public double getSharedMemory ();
+
+	/**
+	 * Gets the value of the amount of cached memory.
+	 *
+	 * @return The amount of cached memory.
+	 */
+	public double getCachedMemory ();
+
+	/**
+	 * Gets the value of the amount of memory buffer.
+	 *
+	 * @return The amount of memory buffer.
+	 */
+	public double getMemoryBuffer ();
+
+	/**
+	 * Gets the value of total amount of swap space.
+	 *
+	 * @return Total amount of swap space.
+	 */
+	public double getTotalSwapSpace ();
+
+	/**
+	 * Gets the value of the amount of free swap space.
+	 *
+	 * @return The amount of free swap space.
+	 */
+	public double getFreeSwapSpace ();
+
+	/**
+	 * Gets the value of the total number of processes.
+	 *
+	 * @return The total number of processes.
+	 */
+	public long getTotalProcess ();
+
+	/**
+	 * Gets the value of the number of running processes.
+	 *
+	 * @return The number of running processes.
+	 */
+	public long getTotalRunProcess ();
+
+	/**
+	 * Gets the value of the one-minute load average.
+	 *
+	 * @return The one-minute load average.
+	 */
+	public double getOneMinuteLoad ();
+
+	/**
+	 * Gets the value of the five-minute load average.
+	 *
+	 * @return The five-minute load average.
+	 */
+	public double getFiveMinutesLoad ();
+
+	/**
+	 * Gets the value of the fifteen-minute load average.
+	 *
+	 * @return The fifteen-minute load average.
+	 */
+	public double getFifteenMinutesLoad ();
+}
@@ -0,0 +1,44 @@
+package main.message_receiver;
+
+import main.formatters.RecordSet;
+
+/**
+ * This interface defines the callbacks made by a {@link TransferReassembler} while it puts a dataset sent in parts
+ * back together.
+ * <p>
+ * Rows are handed over as soon as every part before them has been decoded, so a large dataset can be processed
+ * before its last part arrives. The calls for one transfer are made one at a time and in row order, though not
+ * always from the same thread; calls for different transfers may be made at the same time. The calls are made while
+ * the transfer is locked, so implementations should hand slow work on rather than block.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public interface ITransferHandler {
+	/**
+	 * Called for every part of a transfer, in part order.
+	 *
+	 * @param transferId The id of the transfer.
+	 * @param firstRow The index of the first row of the part in the whole dataset.
+	 * @param rows The rows of the part.
+	 */
+	public void rows (String transferId, int firstRow, RecordSet rows);
+
+	/**
+	 * Called once after the rows of the last part of a transfer.
+	 *
+	 * @param transferId The id of the transfer.
+	 * @param rowCount The number of rows in the whole dataset.
+	 */
+	public void end (String transferId, int rowCount);
+
+	/**
+	 * Called once if a transfer is dropped because no part of it arrived for too long. Rows already handed over are
+	 * not taken back.
+	 *
+	 * @param transferId The id of the transfer.
+	 * @param partsReceived The number of parts which arrived.
+	 */
+	public void expired (String transferId, int partsReceived);
+}
@@ -7,14 +7,21 @@ import org.msgpack.unpacker.Unpacker;
 import org.msgpack.annotation.Message;
 
 import java.io.IOException;
+import java.io.DataOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.charset.StandardCharsets;
+
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 
 import java.util.Map;
+import java.util.List;
 import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 
 import static org.msgpack.template.Templates.TString;
@@ -28,6 +35,19 @@ import static org.msgpack.template.Templates.tMap;
  * This class defines the structure of the message format, including the cloud name, machine details,
  * timestamp, and monitoring rate. It also encapsulates the logic for converting these messages to byte
  * arrays and vice versa.
+ * <p>
+ * Besides the MessagePack layout, where every metric name and value is a string, messages can be written in a
+ * compact binary layout by {@link #serializeBinaryMessage()}. Binary messages start with the byte 0xC1, which
+ * MessagePack never uses, followed by a version byte, the cloud name, timestamp and rate, and the hosts. A host is
+ * written as a packed IPv4 address (or its name if it is not one) followed by its metrics. Each metric is a tag
+ * byte holding the {@link MetricNames} ordinal and the kind of value, followed by the value: whole numbers and
+ * numbers with two decimal places as variable length integers, other numbers as doubles and text as UTF-8. Readers skip metrics with ordinals they do
+ * not know, so metrics can be added without changing the version. {@link #deserializeMessage(byte[])} accepts both
+ * layouts.
+ * <p>
+ * Consecutive messages can also be written as changes against the previous message with
+ * {@link #serializeDeltaMessage(MetricDeltaEncoder)}, and read with
+ * {@link #deserializeMessage(byte[], MetricDeltaDecoder)}.
  *
  * @author Vincent C. Emeakaroha
  * @author Martin Bullman
@@ -36,6 +56,56 @@ import static org.msgpack.template.Templates.tMap;
  */
 @Message
 public class LowLevelMsgFormat {
+	/**
+	 * First byte of a binary message. The byte is never used by MessagePack.
+	 */
+	public static final int BINARY_MAGIC = 0xC1;
+
+	/**
+	 * Version of the binary layout written by this class. Readers reject newer versions.
+	 */
+	public static final int BINARY_VERSION = 1;
+
+	/**
+	 * Version byte of the delta messages written by a {@link MetricDeltaEncoder}.
+	 */
+	public static final int DELTA_VERSION = 2;
+
+	/**
+	 * Kind of a metric value written as a variable length integer.
+	 */
+	private static final int KIND_LONG = 0;
+
+	/**
+	 * Kind of a metric value written as a double.
+	 */
+	private static final int KIND_DOUBLE = 1;
+
+	/**
+	 * Kind of a metric value written as text.
+	 */
+	private static final int KIND_TEXT = 2;
+
+	/**
+	 * Kind of a metric value with at most two decimal places, written as a variable length count of hundredths.
+	 */
+	private static final int KIND_HUNDREDTHS = 3;
+
+	/**
+	 * Kind of a host written as a packed IPv4 address.
+	 */
+	private static final int HOST_IPV4 = 0;
+
+	/**
+	 * Kind of a host written as its name.
+	 */
+	private static final int HOST_NAME = 1;
+
+	/**
+	 * All metric names, indexed by ordinal.
+	 */
+	private static final MetricNames[] METRIC_NAMES = MetricNames.values();
+
 	/**
 	 * Template for serializing and de-serializing map objects.
 	 */
@@ -111,10 +181,21 @@ public class LowLevelMsgFormat {
 	 */
 	String dRate;
 
+	/**
+	 * Typed metrics of the monitored machines, written by {@link #serializeBinaryMessage()}.
+	 */
+	List<HostMetrics> hosts;
+
+	/**
+	 * The de-serialized typed metrics of the monitored machines.
+	 */
+	List<HostMetrics> dHosts;
+
 	// Constructor
 	public LowLevelMsgFormat () {
 		bytes = null;
 		machineDetails = new LinkedHashMap<String, HashMap<String, String>>();
+		hosts = new ArrayList<HostMetrics>();
 		name = "";
 		rate = "";
 		msgpack = new MessagePack();
@@ -129,6 +210,7 @@ public class LowLevelMsgFormat {
 	 */
 	public byte[] serializeMessage () {
 		try {
+			out.reset();
 			packer.write(name);
 			packer.write(machineDetails);
 			packer.write(timestamp);
@@ -144,7 +226,109 @@ public class LowLevelMsgFormat {
 	}
 
 	/**
-	 * A method to de-serialize the received message byte array.
+	 * A method to serialize the message body in the binary layout and produce a byte array.
+	 * <p>
+	 * The hosts added with {@link #addHost(HostMetrics)} are written. If none were added, the string metrics of
+	 * the machine details are converted and written instead.
+	 *
+	 * @return The byte array representing the serialized message.
+	 */
+	public byte[] serializeBinaryMessage () {
+		List<HostMetrics> written = hostsToWrite();
+
+		try {
+			ByteArrayOutputStream binaryOut = new ByteArrayOutputStream(64 + written.size() * 256);
+			DataOutputStream data = new DataOutputStream(binaryOut);
+
+			data.writeByte(BINARY_MAGIC);
+			data.writeByte(BINARY_VERSION);
+			writeText(data, name);
+			writeText(data, timestamp);
+			writeText(data, rate);
+			writeVarLong(data, written.size());
+
+			for (HostMetrics host : written) {
+				writeHost(data, host);
+			}
+
+			data.flush();
+			bytes = binaryOut.toByteArray();
+		}
+		catch (IOException e) {
+			System.err.println("Failure while encoding binary message");
+			e.printStackTrace();
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * A method to serialize the message body as changes against the previous message written by the encoder.
+	 * <p>
+	 * The hosts are chosen the same way as by {@link #serializeBinaryMessage()}.
+	 *
+	 * @param encoder The encoder holding the previous message of the stream.
+	 * @return The byte array representing the serialized message.
+	 */
+	public byte[] serializeDeltaMessage (MetricDeltaEncoder encoder) {
+		bytes = encoder.encode(name, timestamp, rate, hostsToWrite());
+		return bytes;
+	}
+
+	/**
+	 * Gets the hosts written by the binary layouts: the hosts added with {@link #addHost(HostMetrics)}, or the
+	 * machine details converted to typed metrics if none were added.
+	 *
+	 * @return The typed metrics of every host.
+	 */
+	private List<HostMetrics> hostsToWrite () {
+		if (! hosts.isEmpty()) {
+			return hosts;
+		}
+
+		List<HostMetrics> converted = new ArrayList<HostMetrics>(machineDetails.size());
+
+		for (Map.Entry<String, HashMap<String, String>> host : machineDetails.entrySet()) {
+			converted.add(HostMetrics.fromStrings(host.getKey(), host.getValue()));
+		}
+
+		return converted;
+	}
+
+	/**
+	 * A method to de-serialize a received message byte array which may be a delta message.
+	 * <p>
+	 * Delta messages are decoded by the decoder, any other message by {@link #deserializeMessage(byte[])}. A delta
+	 * message which cannot be decoded because a previous message was lost leaves no hosts.
+	 *
+	 * @param msg The received message byte array.
+	 * @param decoder The decoder holding the previous message of the stream.
+	 */
+	public void deserializeMessage (byte[] msg, MetricDeltaDecoder decoder) {
+		if (! MetricDeltaDecoder.isDeltaMessage(msg)) {
+			deserializeMessage(msg);
+			return;
+		}
+
+		dMachine = null;
+		dHosts = new ArrayList<HostMetrics>();
+
+		if (decoder.decode(msg)) {
+			dName = decoder.getName();
+			dTime = decoder.getTimestamp();
+			dRate = decoder.getRate();
+			dHosts = decoder.getHosts();
+		}
+		else {
+			dName = "";
+			dTime = "";
+			dRate = "";
+			System.err.println("Skipping delta message until the next keyframe");
+		}
+	}
+
+	/**
+	 * A method to de-serialize the received message byte array, in either the binary or the MessagePack layout.
 	 *
 	 * @param msg The received message byte array.
 	 */
@@ -152,6 +336,14 @@ public class LowLevelMsgFormat {
 		dName = "";
 		dTime = "";
 		dRate = "";
+		dMachine = null;
+		dHosts = null;
+
+		if (isBinaryMessage(msg)) {
+			deserializeBinaryMessage(msg);
+			return;
+		}
+
 		dMachine = new HashMap<String, Map<String, String>>();
 
 		try {
@@ -169,6 +361,294 @@ public class LowLevelMsgFormat {
 		}
 	}
 
+	/**
+	 * Checks if a message byte array is in the binary layout.
+	 *
+	 * @param msg The message byte array.
+	 * @return True if the message starts with the binary magic byte.
+	 */
+	public static boolean isBinaryMessage (byte[] msg) {
+		return msg != null && msg.length > 0 && (msg[0] & 0xFF) == BINARY_MAGIC;
+	}
+
+	/**
+	 * De-serializes a message byte array in the binary layout.
+	 *
+	 * @param msg The received message byte array.
+	 */
+	private void deserializeBinaryMessage (byte[] msg) {
+		dHosts = new ArrayList<HostMetrics>();
+
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(msg);
+			buffer.get();
+			int version = buffer.get() & 0xFF;
+
+			if (version == DELTA_VERSION) {
+				throw new IOException("Delta messages must be read with a MetricDeltaDecoder");
+			}
+
+			if (version > BINARY_VERSION) {
+				throw new IOException("Unsupported binary message version " + version);
+			}
+
+			dName = readText(buffer);
+			dTime = readText(buffer);
+			dRate = readText(buffer);
+
+			long numHosts = readVarLong(buffer);
+
+			for (long i = 0; i < numHosts; i++) {
+				dHosts.add(readHost(buffer));
+			}
+		}
+		catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+			System.err.println("Failure while decoding binary message");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes a host and its metrics in the binary layout.
+	 *
+	 * @param data The stream to write to.
+	 * @param host The host to write.
+	 * @throws IOException If the stream fails.
+	 */
+	private static void writeHost (DataOutputStream data, HostMetrics host) throws IOException {
+		long address = packIpv4(host.getHost());
+
+		if (address >= 0) {
+			data.writeByte(HOST_IPV4);
+			data.writeInt((int) address);
+		}
+		else {
+			data.writeByte(HOST_NAME);
+			writeText(data, host.getHost());
+		}
+
+		writeVarLong(data, host.size());
+
+		for (MetricNames metric : METRIC_NAMES) {
+			if (! host.has(metric)) {
+				continue;
+			}
+
+			int tag = metric.ordinal() << 2;
+
+			if (metric.isText()) {
+				data.writeByte(tag | KIND_TEXT);
+				writeText(data, host.getText(metric));
+			}
+			else {
+				double value = host.get(metric);
+				long whole = (long) value;
+				long hundredths = Math.round(value * 100);
+
+				if (whole == value) {
+					data.writeByte(tag | KIND_LONG);
+					writeVarLong(data, (whole << 1) ^ (whole >> 63));
+				}
+				else if (hundredths / 100.0 == value) {
+					data.writeByte(tag | KIND_HUNDREDTHS);
+					writeVarLong(data, (hundredths << 1) ^ (hundredths >> 63));
+				}
+				else {
+					data.writeByte(tag | KIND_DOUBLE);
+					data.writeDouble(value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a host and its metrics in the binary layout. Metrics with ordinals this version does not know are
+	 * skipped.
+	 *
+	 * @param buffer The buffer to read from.
+	 * @return The host.
+	 * @throws IOException If the host is malformed.
+	 */
+	private static HostMetrics readHost (ByteBuffer buffer) throws IOException {
+		int hostKind = buffer.get() & 0xFF;
+		HostMetrics host;
+
+		if (hostKind == HOST_IPV4) {
+			host = new HostMetrics(unpackIpv4(buffer.getInt()));
+		}
+		else if (hostKind == HOST_NAME) {
+			host = new HostMetrics(readText(buffer));
+		}
+		else {
+			throw new IOException("Unknown host kind " + hostKind);
+		}
+
+		long numMetrics = readVarLong(buffer);
+
+		for (long i = 0; i < numMetrics; i++) {
+			int tag = buffer.get() & 0xFF;
+			int ordinal = tag >>> 2;
+			int kind = tag & 0x3;
+			MetricNames metric = ordinal < METRIC_NAMES.length - 1 ? METRIC_NAMES[ordinal] : null;
+
+			switch (kind) {
+				case KIND_LONG:
+					long zigZag = readVarLong(buffer);
+					long whole = (zigZag >>> 1) ^ -(zigZag & 1);
+
+					if (metric != null && ! metric.isText()) {
+						host.set(metric, whole);
+					}
+					break;
+
+				case KIND_HUNDREDTHS:
+					long zigZagHundredths = readVarLong(buffer);
+					long hundredths = (zigZagHundredths >>> 1) ^ -(zigZagHundredths & 1);
+
+					if (metric != null && ! metric.isText()) {
+						host.set(metric, hundredths / 100.0);
+					}
+					break;
+
+				case KIND_DOUBLE:
+					double value = buffer.getDouble();
+
+					if (metric != null && ! metric.isText()) {
+						host.set(metric, value);
+					}
+					break;
+
+				case KIND_TEXT:
+					String text = readText(buffer);
+
+					if (metric != null && metric.isText()) {
+						host.setText(metric, text);
+					}
+					break;
+			}
+		}
+
+		return host;
+	}
+
+	/**
+	 * Packs a dotted IPv4 address into the low 32 bits of a long.
+	 *
+	 * @param host The host address.
+	 * @return The packed address, or -1 if the host is not a dotted IPv4 address.
+	 */
+	static long packIpv4 (String host) {
+		if (host == null) {
+			return -1;
+		}
+
+		long address = 0;
+		int octets = 0;
+		int octet = -1;
+
+		for (int i = 0; i <= host.length(); i++) {
+			char character = i < host.length() ? host.charAt(i) : '.';
+
+			if (character == '.') {
+				if (octet < 0 || octet > 255 || ++octets > 4) {
+					return -1;
+				}
+
+				address = (address << 8) | octet;
+				octet = -1;
+			}
+			else if (character >= '0' && character <= '9' && octet != 0 && octet < 1000) {
+				octet = (octet < 0 ? 0 : octet * 10) + (character - '0');
+			}
+			else {
+				return -1;
+			}
+		}
+
+		return octets == 4 ? address : -1;
+	}
+
+	/**
+	 * Unpacks an IPv4 address into its dotted form.
+	 *
+	 * @param address The packed address.
+	 * @return The dotted address.
+	 */
+	static String unpackIpv4 (int address) {
+		return (address >>> 24) + "." + ((address >>> 16) & 0xFF) + "." + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+	}
+
+	/**
+	 * Writes an unsigned variable length integer, seven bits per byte.
+	 *
+	 * @param data The stream to write to.
+	 * @param value The value to write.
+	 * @throws IOException If the stream fails.
+	 */
+	private static void writeVarLong (DataOutputStream data, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			data.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+
+		data.writeByte((int) value);
+	}
+
+	/**
+	 * Reads an unsigned variable length integer, seven bits per byte.
+	 *
+	 * @param buffer The buffer to read from.
+	 * @return The value read.
+	 * @throws IOException If the integer is longer than 64 bits.
+	 */
+	private static long readVarLong (ByteBuffer buffer) throws IOException {
+		long value = 0;
+
+		for (int shift = 0; shift < 64; shift += 7) {
+			int next = buffer.get() & 0xFF;
+			value |= (long) (next & 0x7F) << shift;
+
+			if ((next & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("Malformed variable length integer");
+	}
+
+	/**
+	 * Writes a string as its UTF-8 length followed by its UTF-8 bytes. A null string is written as empty.
+	 *
+	 * @param data The stream to write to.
+	 * @param text The string to write.
+	 * @throws IOException If the stream fails.
+	 */
+	private static void writeText (DataOutputStream data, String text) throws IOException {
+		byte[] utf8 = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(data, utf8.length);
+		data.write(utf8);
+	}
+
+	/**
+	 * Reads a string written by {@link #writeText(DataOutputStream, String)}.
+	 *
+	 * @param buffer The buffer to read from.
+	 * @return The string read.
+	 * @throws IOException If the length is malformed.
+	 */
+	private static String readText (ByteBuffer buffer) throws IOException {
+		long length = readVarLong(buffer);
+
+		if (length > buffer.remaining()) {
+			throw new IOException("String length " + length + " exceeds the message");
+		}
+
+		String text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), (int) length, StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + (int) length);
+
+		return text;
+	}
+
 	/**
 	 * Sets the cloud name for the message.
 	 *
@@ -187,6 +667,15 @@ public class LowLevelMsgFormat {
 		this.machineDetails = value;
 	}
 
+	/**
+	 * Adds the typed metrics of a host, written by {@link #serializeBinaryMessage()}.
+	 *
+	 * @param host The metrics of the host.
+	 */
+	public void addHost (HostMetrics host) {
+		hosts.add(host);
+	}
+
 	/**
 	 * Sets the timestamp for monitoring.
 	 *
@@ -221,9 +710,35 @@ public class LowLevelMsgFormat {
 	 * @return A map containing host and metric value pairs from the de-serialized message.
 	 */
 	public Map<String, Map<String, String>> getDeserializedMetrics() {
+		if (dMachine == null && dHosts != null) {
+			dMachine = new LinkedHashMap<String, Map<String, String>>();
+
+			for (HostMetrics host : dHosts) {
+				dMachine.put(host.getHost(), host.toStrings());
+			}
+		}
+
 		return dMachine;
 	}
 
+	/**
+	 * Gets the de-serialized typed metrics of the monitored machines. For MessagePack messages the string metrics
+	 * are converted on the first call.
+	 *
+	 * @return The typed metrics of every host from the de-serialized message.
+	 */
+	public List<HostMetrics> getDeserializedHosts () {
+		if (dHosts == null && dMachine != null) {
+			dHosts = new ArrayList<HostMetrics>(dMachine.size());
+
+			for (Map.Entry<String, Map<String, String>> host : dMachine.entrySet()) {
+				dHosts.add(HostMetrics.fromStrings(host.getKey(), host.getValue()));
+			}
+		}
+
+		return dHosts;
+	}
+
 	/**
 	 * Gets the de-serialized frequency of monitoring metrics.
 	 *
@@ -9,7 +9,7 @@ package main.message_receiver;
  * @version 1.0
  * @since 2016-08-04
  */
-public class LowLevelResourceMetrics {
+public class LowLevelResourceMetrics implements IResourceMetrics {
 	/**
 	 * The unique identifier for this metric (used by Hibernate).
 	 */
@@ -1,24 +1,57 @@
 package main.message_receiver;
 
-import com.naphaso.cbor.type.CborObject;
+import main.metrics.Measure;
+import main.metrics.MessageMetrics;
+import main.codecs.MessageEnvelope;
+import main.logging.LogLevel;
+import main.logging.AsyncLogger;
+import main.formatters.RecordSet;
+import main.compression.CompressorRegistry;
+
 import com.rabbitmq.client.*;
-import com.rabbitmq.client.QueueingConsumer.Delivery;
-import main.deserializers.*;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ArrayBlockingQueue;
 
 /**
  * A versatile utility class designed to receive and process messages from A RabbitMQ messaging bus.
  * <p>
  * It offers the capability to deserialize incoming messages into multiple data formats, making it
  * suitable for a wide range of applications.
+ * <p>
+ * Deliveries are pushed by the broker to a consumer which hands each one to a pool of workers, so a slow
+ * deserialization does not hold up the rest of the queue. Each delivery is decoded with the codec and payload kind
+ * named in its {@link MessageEnvelope}, so it does not matter in which order messages arrive or how many senders
+ * and consumers share the queue. The sequence numbers in the envelopes are followed per sender to count messages
+ * which went missing or arrived late. The workers are a fixed pool of platform threads, so deserializers which keep
+ * state per thread, such as Kryo, are set up once per worker rather than once per delivery.
+ * The number of unacknowledged deliveries is limited by the prefetch count, and each delivery is acknowledged once
+ * it has been decoded. Bodies which the sender compressed are decompressed with the algorithm and dictionary named in
+ * the envelope before they are decoded; dictionaries are added through {@link #getCompressors()}. Parts of a dataset
+ * sent in chunks are decoded in parallel on a fork/join pool and put back together by a {@link TransferReassembler},
+ * which hands their rows to an {@link ITransferHandler} in order as they become ready; each part is acknowledged
+ * once it has been decoded. Decoded messages are logged through an {@link AsyncLogger}, so the workers never wait
+ * for the console.
  *
  * @author Martin Bullman
  * @version 1.0
  * @since 2016-08-04
  */
 public class MessageReceiver {
+	/**
+	 * The logger of the receiver. Decoded messages are only logged when payload logging is turned on.
+	 */
+	private static final AsyncLogger log = AsyncLogger.get(MessageReceiver.class);
+
 	/**
 	 * The name of the message queue.
 	 */
@@ -30,79 +63,113 @@ public class MessageReceiver {
 	private static final String EXCHANGE_NAME = "jobs";
 
 	/**
-	 * Represents a CBOR object for JSON data.
+	 * Default number of deliveries decoded at the same time.
+	 */
+	public static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Default number of unacknowledged deliveries the broker sends before waiting for acknowledgements.
+	 */
+	public static final int DEFAULT_PREFETCH = 32;
+
+	/**
+	 * Number of unacknowledged deliveries the broker sends before waiting for acknowledgements.
 	 */
-	private CborObject jsonCborString = null;
+	private final int prefetch;
 
 	/**
-	 * Represents a CBOR object for CSV data.
+	 * The deserializer sets which are free to be used by a worker.
 	 */
-	private CborObject csvCborString = null;
+	private final BlockingQueue<DeserializerSet> deserializerSets;
 
 	/**
-	 * Represents a CBOR object for XML data.
+	 * The workers which decode the deliveries.
 	 */
-	private CborObject xmlCborString = null;
+	private final ExecutorService workerPool;
 
 	/**
-	 * Stores the serialized JSON data in byte format.
+	 * The highest sequence number received from every sender, keyed by sender id. Only used by the consumer.
 	 */
-	private byte[] jsonCborBytes = null;
+	private final Map<String, Long> highestSequences = new HashMap<>();
 
 	/**
-	 * Stores the serialized CSV data in byte format.
+	 * Number of messages skipped in the sequence of a sender, which were lost or have not arrived yet.
 	 */
-	private byte[] csvCborBytes = null;
+	private final AtomicLong missingCount = new AtomicLong();
 
 	/**
-	 * Stores the serialized XML data in byte format.
+	 * Number of messages which arrived after a message with a higher sequence number from the same sender.
 	 */
-	private byte[] xmlCborBytes = null;
+	private final AtomicLong lateCount = new AtomicLong();
 
 	/**
-	 * BsonDeserializer for deserializing BSON data.
+	 * Queue dwell time, deserialize time and payload size of the messages received, per codec.
 	 */
-	private final BsonDeserializer bson = new BsonDeserializer();
+	private final MessageMetrics metrics = new MessageMetrics("receiver");
 
 	/**
-	 * CborDeserializer for deserializing CBOR data.
+	 * The compressors compressed bodies are decompressed with.
 	 */
-	private final CborDeserializer cbor = new CborDeserializer();
+	private final CompressorRegistry compressors = new CompressorRegistry();
 
 	/**
-	 * HessianDeserializer for deserializing Hessian data.
+	 * The pool the parts of datasets sent in chunks are decoded on.
 	 */
-	private final HessianDeserializer hessian = new HessianDeserializer();
+	private final ForkJoinPool partPool;
 
 	/**
-	 * JavaDeserializer for deserializing Java serialized data.
+	 * The handler the rows of datasets sent in chunks are handed to, which logs them unless another is set.
 	 */
-	private final JavaDeserializer java = new JavaDeserializer();
+	private volatile ITransferHandler transferHandler = new LoggingTransferHandler();
 
 	/**
-	 * KryoDeserializer for deserializing Kryo-serialized data.
+	 * Puts datasets sent in chunks back together.
 	 */
-	private final KryoDeserializer kryo = new KryoDeserializer();
+	private final TransferReassembler reassembler;
 
 	/**
-	 * MessagePackDeserializer for deserializing MessagePack data.
+	 * The tag of the consumer, or null until {@link #start()} registers it.
 	 */
-	private final MessagePackDeserializer msgPack = new MessagePackDeserializer();
+	private volatile String consumerTag = null;
 
 	// Class instances
 	ConnectionFactory factory;
 	Connection connect;
 	Channel chan;
-	QueueingConsumer consumer;
 
 	/**
-	 * Class constructor to set up the message receiver.
+	 * Class constructor to set up the message receiver with the default number of workers and prefetch count.
 	 *
 	 * @param host The message broker host.
 	 * @param user The username for connecting to the broker.
 	 * @param pass The password for connecting to the broker.
 	 */
 	public MessageReceiver (String host, String user, String pass) {
+		this(host, user, pass, DEFAULT_WORKERS, DEFAULT_PREFETCH);
+	}
+
+	/**
+	 * Class constructor to set up the message receiver.
+	 *
+	 * @param host The message broker host.
+	 * @param user The username for connecting to the broker.
+	 * @param pass The password for connecting to the broker.
+	 * @param workers The number of deliveries decoded at the same time.
+	 * @param prefetch The number of unacknowledged deliveries the broker sends before waiting for acknowledgements.
+	 */
+	public MessageReceiver (String host, String user, String pass, int workers, int prefetch) {
+		workers = Math.max(1, workers);
+
+		this.prefetch = Math.max(1, prefetch);
+		this.deserializerSets = new ArrayBlockingQueue<>(workers);
+		this.workerPool = newWorkerPool(workers);
+		this.partPool = new ForkJoinPool(workers);
+		this.reassembler = new TransferReassembler(partPool, new TransferHandlerProxy(), TransferReassembler.DEFAULT_TIMEOUT_MILLIS);
+
+		for (int i = 0; i < workers; i++) {
+			deserializerSets.add(new DeserializerSet());
+		}
+
 		setUp(host, user, pass);
 	}
 
@@ -136,226 +203,391 @@ public class MessageReceiver {
 			chan.exchangeDeclare(EXCHANGE_NAME, "direct", true);
 			chan.queueDeclare(QUEUE_NAME, false, false, false, null);
 			chan.queueBind(QUEUE_NAME, EXCHANGE_NAME, "monitor");
+			chan.basicQos(prefetch);
 		}
 		catch (IOException e) {
 			System.err.println("Failure while creating a new channel, declaring exchange, or binding queue for receiving");
 			e.printStackTrace();
 		}
+	}
 
+	/**
+	 * Starts consuming messages. Deliveries are decoded by the worker pool until the connections are closed.
+	 */
+	public void start () {
 		try {
-			consumer = new QueueingConsumer(chan);
-			chan.basicConsume(QUEUE_NAME, true, consumer);
+			consumerTag = chan.basicConsume(QUEUE_NAME, false, new DeliveryDispatcher(chan));
 		}
 		catch (IOException e) {
-			System.err.println("Failure while setting up the consumer queue");
+			System.err.println("Failure while setting up the consumer");
 			e.printStackTrace();
 		}
 	}
 
 	/**
-	 * Retrieve the next message from the message queue.
+	 * Decompresses and decodes a delivery on a worker, logs it and acknowledges it. Deliveries which cannot be
+	 * decoded, including those without an envelope, with an unknown codec, compressed with an algorithm or
+	 * dictionary the receiver does not have, or with a newer schema version, are rejected without being
+	 * requeued, so a bad message cannot loop forever. Parts of a dataset sent in chunks are passed on to the
+	 * reassembler and acknowledged once it has decoded them.
 	 *
-	 * @return A Delivery object representing the next message in the queue.
+	 * @param message The envelope of the delivery, or null if it has none.
+	 * @param deliveryTag The delivery tag used to acknowledge the delivery.
+	 * @param bytesArray The body of the delivery.
 	 */
-	public Delivery getBytes () {
-		QueueingConsumer.Delivery delivery = null;
+	private void process (MessageEnvelope message, long deliveryTag, byte[] bytesArray) {
+		DeserializerSet deserializers = null;
+		Object data = null;
+
+		if (message == null) {
+			log.warn("Rejecting message without a codec or payload kind header");
+			acknowledge(deliveryTag, false);
+			return;
+		}
+
+		if (! message.isSupported()) {
+			log.warn("Rejecting %s, newest supported schema is %d", message, MessageEnvelope.SCHEMA_VERSION);
+			acknowledge(deliveryTag, false);
+			return;
+		}
+
+		int deserializer = message.getCodec();
+		byte[] body;
 
 		try {
-			delivery = consumer.nextDelivery();
+			body = decompress(message, bytesArray);
 		}
-		catch (ShutdownSignalException | ConsumerCancelledException | InterruptedException e) {
-			System.err.println("Failure while consuming message");
-			e.printStackTrace();
+		catch (RuntimeException e) {
+			log.error("Failure while decompressing " + message, e);
+			acknowledge(deliveryTag, false);
+			return;
+		}
+
+		if (message.isPart()) {
+			processPart(message, deliveryTag, body, bytesArray.length);
+			return;
+		}
+
+		try {
+			deserializers = deserializerSets.take();
+			long start = System.nanoTime();
+
+			switch (message.getKind()) {
+				case JSON:
+					data = consumeJsonMsg(deserializer, body, deserializers);
+					break;
+				case CSV:
+					data = consumeCsvMsg(deserializer, body, deserializers);
+					break;
+				case XML:
+					data = consumeXmlMsg(deserializer, body, deserializers);
+					break;
+				case ARRAY_LIST:
+					data = consumeArrayListMsg(deserializer, body, deserializers);
+					break;
+				default:
+					data = consumeHashMapMsg(deserializer, body, deserializers);
+					break;
+			}
+
+			metrics.record(deserializer, Measure.DESERIALIZE_NANOS, System.nanoTime() - start);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (RuntimeException e) {
+			log.error("Failure while deserializing " + message, e);
+		}
+		finally {
+			if (deserializers != null) {
+				deserializerSets.add(deserializers);
+			}
 		}
 
-		return delivery;
+		if (data != null) {
+			metrics.record(deserializer, Measure.PAYLOAD_BYTES, bytesArray.length);
+			metrics.countMessage(deserializer);
+			logDelivery(message, data, bytesArray.length);
+		}
+
+		acknowledge(deliveryTag, data != null);
+	}
+
+	/**
+	 * Decompresses the body of a delivery if the sender compressed it.
+	 *
+	 * @param message The envelope of the delivery.
+	 * @param bytesArray The body of the delivery.
+	 * @return The decompressed body, or the body itself if it is not compressed.
+	 * @throws IllegalArgumentException If the body is corrupt or compressed with an algorithm or dictionary the
+	 * receiver does not have.
+	 */
+	private byte[] decompress (MessageEnvelope message, byte[] bytesArray) {
+		if (! message.isCompressed()) {
+			return bytesArray;
+		}
+
+		long start = System.nanoTime();
+		byte[] body = compressors.require(message.getCompression(), message.getDictionary()).decompress(bytesArray, message.getRawLength());
+		metrics.record(message.getCodec(), Measure.DECOMPRESS_NANOS, System.nanoTime() - start);
+
+		return body;
+	}
+
+	/**
+	 * Passes a part of a dataset sent in chunks to the reassembler, and acknowledges it once it has been decoded or
+	 * rejects it if it cannot be.
+	 *
+	 * @param message The envelope of the part.
+	 * @param deliveryTag The delivery tag used to acknowledge the part.
+	 * @param body The decompressed body of the part.
+	 * @param size The size of the part in bytes as it was delivered.
+	 */
+	private void processPart (MessageEnvelope message, long deliveryTag, byte[] body, int size) {
+		long start = System.nanoTime();
+
+		reassembler.add(message, body).whenComplete((accepted, failure) -> {
+			boolean decoded = failure == null && accepted;
+
+			if (failure != null) {
+				log.error("Failure while decoding " + message, failure);
+			}
+			else if (! accepted) {
+				log.warn("Rejecting %s, it does not fit its transfer or the transfer has expired", message);
+			}
+			else {
+				metrics.record(message.getCodec(), Measure.DESERIALIZE_NANOS, System.nanoTime() - start);
+				metrics.record(message.getCodec(), Measure.PAYLOAD_BYTES, size);
+				metrics.countMessage(message.getCodec());
+			}
+
+			acknowledge(deliveryTag, decoded);
+		});
+	}
+
+	/**
+	 * Follows the sequence number of a delivery, counting the messages skipped since the highest sequence number of
+	 * the same sender and messages which arrive after a higher one. Must only be called by the consumer, in the
+	 * order deliveries arrive.
+	 *
+	 * @param message The envelope of the delivery, or null if it has none.
+	 */
+	private void trackSequence (MessageEnvelope message) {
+		if (message == null || message.getSequence() < 0) {
+			return;
+		}
+
+		Long highest = highestSequences.get(message.getSender());
+		long sequence = message.getSequence();
+
+		if (highest != null && sequence <= highest) {
+			lateCount.incrementAndGet();
+			return;
+		}
+
+		if (highest != null && sequence > highest + 1) {
+			missingCount.addAndGet(sequence - highest - 1);
+			log.warn("Missing %d messages before %s", sequence - highest - 1, message);
+		}
+
+		highestSequences.put(message.getSender(), sequence);
+	}
+
+	/**
+	 * Gets the number of messages skipped in the sequence of a sender, which were lost or have not arrived yet.
+	 *
+	 * @return The number of missing messages.
+	 */
+	public long getMissingCount () {
+		return missingCount.get();
+	}
+
+	/**
+	 * Gets the number of messages which arrived after a message with a higher sequence number from the same sender.
+	 *
+	 * @return The number of late messages.
+	 */
+	public long getLateCount () {
+		return lateCount.get();
+	}
+
+	/**
+	 * Gets the compressors compressed bodies are decompressed with, to add the dictionaries of the senders.
+	 *
+	 * @return The compressor registry.
+	 */
+	public CompressorRegistry getCompressors () {
+		return compressors;
+	}
+
+	/**
+	 * Sets the handler the rows of datasets sent in chunks are handed to, in place of the one which logs them.
+	 *
+	 * @param handler The transfer handler.
+	 */
+	public void setTransferHandler (ITransferHandler handler) {
+		transferHandler = handler;
+	}
+
+	/**
+	 * Gets the reassembler which puts datasets sent in chunks back together.
+	 *
+	 * @return The transfer reassembler.
+	 */
+	public TransferReassembler getReassembler () {
+		return reassembler;
+	}
+
+	/**
+	 * Gets the metrics of the messages received.
+	 *
+	 * @return The receiver metrics.
+	 */
+	public MessageMetrics getMetrics () {
+		return metrics;
+	}
+
+	/**
+	 * Logs a sample of the decoded deliveries, and their contents when payload logging is turned on. Nothing is
+	 * written on the worker, which only queues the events.
+	 *
+	 * @param message The envelope of the delivery.
+	 * @param data The decoded message.
+	 * @param size The size of the message in bytes.
+	 */
+	private void logDelivery (MessageEnvelope message, Object data, int size) {
+		if (log.isEnabled(LogLevel.DEBUG) && log.sample()) {
+			log.debug("Received %s, %d bytes", message, size);
+		}
+
+		log.payload(message.getKind().getHeaderName(), () -> data);
+	}
+
+	/**
+	 * Acknowledges or rejects a delivery. The channel is shared by all workers, so access to it is serialized.
+	 *
+	 * @param deliveryTag The delivery tag of the delivery.
+	 * @param decoded True if the delivery was decoded and should be acknowledged.
+	 */
+	private void acknowledge (long deliveryTag, boolean decoded) {
+		try {
+			synchronized (chan) {
+				if (decoded) {
+					chan.basicAck(deliveryTag, false);
+				}
+				else {
+					chan.basicNack(deliveryTag, false, false);
+				}
+			}
+		}
+		catch (IOException | ShutdownSignalException e) {
+			System.err.println("Failure while acknowledging message");
+			e.printStackTrace();
+		}
 	}
 
 	/**
 	 * Consume and process a JSON message using the specified deserializer.
 	 *
-	 * @param deserializer An integer representing the deserializer choice.
-	 */
-	public void consumeJsonMsg (int deserializer) {
-		QueueingConsumer.Delivery delivery = getBytes();
-		byte[] bytesArray = delivery.getBody();
-		Object data = "";
-
-		switch (deserializer) {
-			case 0:
-				jsonCborBytes = bytesArray;
-				jsonCborString = cbor.deserializeString(jsonCborBytes);
-				System.out.println(cbor.deserializeString(bytesArray));
-				break;
-			case 1:
-				System.out.println(jsonCborString);
-				break;
-			case 2:
-				System.out.println(hessian.deserializeString(bytesArray));
-				break;
-			case 3:
-				System.out.println(java.deserializeString(bytesArray));
-				break;
-			case 4:
-				System.out.println(kryo.deserializeString(bytesArray));
-				break;
-			default:
-				System.out.println(msgPack.deserializeString(bytesArray));
-				break;
-		}
-
-		// Deserialize a String and print to the console.
-		System.out.println("Data Size: " + bytesArray.length);
+	 * @param deserializer The id of the codec which encoded the message.
+	 * @param bytesArray The body of the message.
+	 * @param deserializers The deserializers of the calling worker.
+	 * @return The decoded message, or null if it could not be decoded.
+	 * @throws IllegalArgumentException If no codec has the id.
+	 */
+	public Object consumeJsonMsg (int deserializer, byte[] bytesArray, DeserializerSet deserializers) {
+		return deserializers.get(deserializer).deserializeString(bytesArray);
 	}
 
 	/**
 	 * Consume and process a CSV message using the specified deserializer.
 	 *
-	 * @param deserializer An integer representing the deserializer choice.
-	 */
-	public void consumeCsvMsg (int deserializer) {
-		QueueingConsumer.Delivery delivery = getBytes();
-		byte[] bytesArray = delivery.getBody();
-		Object data = "";
-
-		switch (deserializer) {
-			case 0:
-				csvCborBytes = bytesArray;
-				csvCborString = cbor.deserializeString(csvCborBytes);
-				System.out.println(cbor.deserializeString(bytesArray));
-				break;
-			case 1:
-				System.out.println(csvCborString);
-				break;
-			case 2:
-				System.out.println(hessian.deserializeString(bytesArray));
-				break;
-			case 3:
-				System.out.println(java.deserializeString(bytesArray));
-				break;
-			case 4:
-				System.out.println(kryo.deserializeString(bytesArray));
-				break;
-			default:
-				System.out.println(msgPack.deserializeString(bytesArray));
-				break;
-		}
-
-		// Deserialize a String and print to the console.
-		System.out.println("Data Size: " + bytesArray.length);
+	 * @param deserializer The id of the codec which encoded the message.
+	 * @param bytesArray The body of the message.
+	 * @param deserializers The deserializers of the calling worker.
+	 * @return The decoded message, or null if it could not be decoded.
+	 * @throws IllegalArgumentException If no codec has the id.
+	 */
+	public Object consumeCsvMsg (int deserializer, byte[] bytesArray, DeserializerSet deserializers) {
+		return deserializers.get(deserializer).deserializeString(bytesArray);
 	}
 
 	/**
 	 * Consume and process an XML message using the specified deserializer.
 	 *
-	 * @param deserializer An integer representing the deserializer choice.
-	 */
-	public void consumeXmlMsg (int deserializer) {
-		QueueingConsumer.Delivery delivery = getBytes();
-		byte[] bytesArray = delivery.getBody();
-
-		switch (deserializer) {
-			case 0:
-				xmlCborBytes = bytesArray;
-				xmlCborString = cbor.deserializeString(xmlCborBytes);
-				System.out.println(cbor.deserializeString(bytesArray));
-				break;
-			case 1:
-				System.out.println(xmlCborString);
-				break;
-			case 2:
-				System.out.println(hessian.deserializeString(bytesArray));
-				break;
-			case 3:
-				System.out.println(java.deserializeString(bytesArray));
-				break;
-			case 4:
-				System.out.println(kryo.deserializeString(bytesArray));
-				break;
-			default:
-				System.out.println(msgPack.deserializeString(bytesArray));
-				break;
-		}
-
-		// Deserialize a String and print to the console.
-		System.out.println("Data Size: " + bytesArray.length);
+	 * @param deserializer The id of the codec which encoded the message.
+	 * @param bytesArray The body of the message.
+	 * @param deserializers The deserializers of the calling worker.
+	 * @return The decoded message, or null if it could not be decoded.
+	 * @throws IllegalArgumentException If no codec has the id.
+	 */
+	public Object consumeXmlMsg (int deserializer, byte[] bytesArray, DeserializerSet deserializers) {
+		return deserializers.get(deserializer).deserializeString(bytesArray);
 	}
 
 	/**
 	 * Consume and process an ArrayList message using the specified deserializer.
 	 *
-	 * @param deserializer An integer representing the deserializer choice.
-	 */
-	public void consumeArrayListMsg (int deserializer) {
-		QueueingConsumer.Delivery delivery = getBytes();
-		byte[] bytesArray = delivery.getBody();
-
-		switch (deserializer) {
-			case 0:
-				System.out.println(cbor.deserializeArrayList(bytesArray));
-				break;
-			case 1:
-				System.out.println(bson.deserializeArrayList(bytesArray));
-				break;
-			case 2:
-				System.out.println(hessian.deserializeArrayList(bytesArray));
-				break;
-			case 3:
-				System.out.println(java.deserializeArrayList(bytesArray));
-				break;
-			case 4:
-				System.out.println(kryo.deserializeArrayList(bytesArray));
-				break;
-			default:
-				System.out.println(msgPack.deserializeArrayList(bytesArray));
-				break;
-		}
-
-		System.out.println("Data Size: " + bytesArray.length);
+	 * @param deserializer The id of the codec which encoded the message.
+	 * @param bytesArray The body of the message.
+	 * @param deserializers The deserializers of the calling worker.
+	 * @return The decoded message, or null if it could not be decoded.
+	 * @throws IllegalArgumentException If no codec has the id.
+	 */
+	public Object consumeArrayListMsg (int deserializer, byte[] bytesArray, DeserializerSet deserializers) {
+		return deserializers.get(deserializer).deserializeArrayList(bytesArray);
 	}
 
 	/**
 	 * Consume and process a HashMap message using the specified deserializer.
 	 *
-	 * @param deserializer An integer representing the deserializer choice.
-	 */
-	public void consumeHashMapMsg (int deserializer) {
-		QueueingConsumer.Delivery delivery = getBytes();
-		byte[] bytesArray = delivery.getBody();
-
-		switch (deserializer) {
-			case 0:
-				System.out.println(bson.deserializeHashMap(bytesArray));
-				break;
-			case 1:
-				System.out.println(bson.deserializeHashMap(bytesArray));
-				break;
-			case 2:
-				System.out.println(hessian.deserializeHashMap(bytesArray));
-				break;
-			case 3:
-				System.out.println(java.deserializeHashMap(bytesArray));
-				break;
-			case 4:
-				System.out.println(kryo.deserializeHashMap(bytesArray));
-				break;
-			default:
-				System.out.println(msgPack.deserializeHashMap(bytesArray));
-				break;
-		}
-
-		System.out.println("Data Size: " + bytesArray.length);
+	 * @param deserializer The id of the codec which encoded the message.
+	 * @param bytesArray The body of the message.
+	 * @param deserializers The deserializers of the calling worker.
+	 * @return The decoded message, or null if it could not be decoded.
+	 * @throws IllegalArgumentException If no codec has the id.
+	 */
+	public Object consumeHashMapMsg (int deserializer, byte[] bytesArray, DeserializerSet deserializers) {
+		return deserializers.get(deserializer).deserializeHashMap(bytesArray);
 	}
 
 	/**
-	 * Close the open connections and channels.
+	 * Stop consuming, wait for the workers to finish and acknowledge the deliveries in progress, then close the open
+	 * connections and channels.
+	 * <p>
+	 * The workers hand parts to the part pool, so the worker pool is drained before the part pool is shut down.
 	 */
 	public void closeConnections () {
+		String tag = consumerTag;
+
+		if (tag != null) {
+			try {
+				synchronized (chan) {
+					chan.basicCancel(tag);
+				}
+			}
+			catch (IOException | ShutdownSignalException e) {
+				System.err.println("Failure while cancelling the consumer");
+				e.printStackTrace();
+			}
+		}
+
+		try {
+			workerPool.shutdown();
+			workerPool.awaitTermination(10, TimeUnit.SECONDS);
+
+			partPool.shutdown();
+			partPool.awaitTermination(10, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
 		try {
 			chan.close();
 			connect.close();
 		}
-		catch (IOException e) {
+		catch (IOException | ShutdownSignalException e) {
 			System.err.println("Failure while closing the connection or channel");
 			e.printStackTrace();
 		}
@@ -363,4 +595,99 @@ public class MessageReceiver {
 			e.printStackTrace();
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Creates the worker pool, a fixed pool of platform threads. Virtual threads are not used: a new one would run
+	 * every delivery, so the Kryo instance {@link main.helpers.KryoPool} keeps per thread would be built and
+	 * registered again for every message.
+	 *
+	 * @param workers The number of threads.
+	 * @return The worker pool.
+	 */
+	private static ExecutorService newWorkerPool (int workers) {
+		return Executors.newFixedThreadPool(workers);
+	}
+
+	/**
+	 * Transfer handler which passes every call on to the current handler of the receiver, so the handler can be set
+	 * after the reassembler has been created.
+	 */
+	private class TransferHandlerProxy implements ITransferHandler {
+		@Override
+		public void rows (String transferId, int firstRow, RecordSet rows) {
+			transferHandler.rows(transferId, firstRow, rows);
+		}
+
+		@Override
+		public void end (String transferId, int rowCount) {
+			transferHandler.end(transferId, rowCount);
+		}
+
+		@Override
+		public void expired (String transferId, int partsReceived) {
+			transferHandler.expired(transferId, partsReceived);
+		}
+	}
+
+	/**
+	 * Transfer handler which logs the rows of datasets sent in chunks, the way whole messages are logged.
+	 */
+	private static class LoggingTransferHandler implements ITransferHandler {
+		@Override
+		public void rows (String transferId, int firstRow, RecordSet rows) {
+			if (log.isEnabled(LogLevel.DEBUG) && log.sample()) {
+				log.debug("Received rows %d to %d of transfer %s", firstRow, firstRow + rows.getNumRows(), transferId);
+			}
+
+			log.payload("transfer " + transferId, () -> rows.toCsv('\t'));
+		}
+
+		@Override
+		public void end (String transferId, int rowCount) {
+			log.debug("Received all %d rows of transfer %s", rowCount, transferId);
+		}
+
+		@Override
+		public void expired (String transferId, int partsReceived) {
+			log.warn("Dropped transfer %s after %d parts, no part arrived in time", transferId, partsReceived);
+		}
+	}
+
+	/**
+	 * Consumer which is called by the client library for every delivery and passes it on to the worker pool.
+	 * <p>
+	 * The client library calls it for one delivery at a time and in the order they arrive, so it also follows the
+	 * sequence numbers of the senders.
+	 */
+	private class DeliveryDispatcher extends DefaultConsumer {
+		/**
+		 * Constructor which takes the channel the consumer is registered on.
+		 *
+		 * @param channel The channel the consumer is registered on.
+		 */
+		DeliveryDispatcher (Channel channel) {
+			super(channel);
+		}
+
+		@Override
+		public void handleDelivery (String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
+									byte[] body) {
+			long deliveryTag = envelope.getDeliveryTag();
+			MessageEnvelope message = MessageEnvelope.fromProperties(properties);
+
+			if (message != null && message.getSentAt() > 0) {
+				metrics.record(message.getCodec(), Measure.QUEUE_DWELL_MILLIS, System.currentTimeMillis() - message.getSentAt());
+			}
+
+			trackSequence(message);
+			workerPool.execute(() -> process(message, deliveryTag, body));
+		}
+
+		@Override
+		public void handleShutdownSignal (String consumerTag, ShutdownSignalException signal) {
+			if (! signal.isInitiatedByApplication()) {
+				System.err.println("Consumer shut down: " + signal.getMessage());
+			}
+		}
+	}
+}
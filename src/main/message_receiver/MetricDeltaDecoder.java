@@ -0,0 +1,209 @@
+package main.message_receiver;
+
+import main.helpers.BitReader;
+
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * Class which decodes the messages written by a {@link MetricDeltaEncoder}.
+ * <p>
+ * The decoder keeps the last values received for every host and applies the changes of each delta message to them.
+ * Delta messages can only be decoded in order, so after a lost or out of order message the decoder skips delta
+ * messages until the next keyframe. Unlike the binary layout, delta messages cannot skip unknown metrics, so the
+ * sender and receiver must share the same {@link MetricNames}. A decoder must only be used for one stream of
+ * messages.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class MetricDeltaDecoder {
+	/**
+	 * All metric names, indexed by ordinal.
+	 */
+	private static final MetricNames[] METRIC_NAMES = MetricNames.values();
+
+	/**
+	 * The state of every host received since the last keyframe, in the order they were first sent.
+	 */
+	private final List<DeltaHostState> states = new ArrayList<>();
+
+	/**
+	 * True if the state matches the encoder, i.e. a keyframe and every message after it were decoded.
+	 */
+	private boolean synced = false;
+
+	/**
+	 * Sequence number of the last decoded message.
+	 */
+	private long lastSequence = -1;
+
+	/**
+	 * The cloud name of the last decoded message.
+	 */
+	private String name = "";
+
+	/**
+	 * The timestamp of the last decoded message.
+	 */
+	private String timestamp = "";
+
+	/**
+	 * The rate of monitoring of the last decoded message.
+	 */
+	private String rate = "";
+
+	/**
+	 * The metrics of every host in the last decoded message.
+	 */
+	private List<HostMetrics> hosts = new ArrayList<>();
+
+	/**
+	 * Checks if a message byte array is a delta message.
+	 *
+	 * @param msg The message byte array.
+	 * @return True if the message starts with the binary magic byte and the delta version.
+	 */
+	public static boolean isDeltaMessage (byte[] msg) {
+		return LowLevelMsgFormat.isBinaryMessage(msg) && msg.length > 1 && msg[1] == LowLevelMsgFormat.DELTA_VERSION;
+	}
+
+	/**
+	 * Decodes a delta message or keyframe.
+	 *
+	 * @param msg The received message byte array.
+	 * @return True if the message was decoded, false if it was skipped because a previous message was lost or it
+	 * is malformed. In that case the decoder waits for the next keyframe.
+	 */
+	public synchronized boolean decode (byte[] msg) {
+		if (! isDeltaMessage(msg)) {
+			System.err.println("Not a delta message");
+			return false;
+		}
+
+		try {
+			BitReader reader = new BitReader(msg, 2);
+			boolean keyframe = reader.readBit();
+			long sequence = reader.readVarLong();
+
+			if (! keyframe && (! synced || sequence != lastSequence + 1)) {
+				synced = false;
+				return false;
+			}
+
+			if (keyframe) {
+				states.clear();
+			}
+
+			// The state is about to change, so it only matches the encoder again once the message is fully decoded.
+			synced = false;
+
+			String decodedName = reader.readText();
+			String decodedTimestamp = reader.readText();
+			String decodedRate = reader.readText();
+			long numHosts = reader.readVarLong();
+			List<HostMetrics> decodedHosts = new ArrayList<>();
+
+			for (long i = 0; i < numHosts; i++) {
+				decodedHosts.add(readHost(reader));
+			}
+
+			name = decodedName;
+			timestamp = decodedTimestamp;
+			rate = decodedRate;
+			hosts = decodedHosts;
+			lastSequence = sequence;
+			synced = true;
+		}
+		catch (IllegalStateException | IllegalArgumentException | IndexOutOfBoundsException exception) {
+			System.err.println("Failure while decoding delta message, waiting for the next keyframe");
+			exception.printStackTrace();
+		}
+
+		return synced;
+	}
+
+	/**
+	 * Reads one host and applies its changes to the state of the host.
+	 *
+	 * @param reader The reader to read from.
+	 * @return The metrics of the host.
+	 */
+	private HostMetrics readHost (BitReader reader) {
+		long index = reader.readVarLong();
+		DeltaHostState state;
+
+		if (index == states.size()) {
+			String host = reader.readBit() ? LowLevelMsgFormat.unpackIpv4((int) reader.readBits(32)) : reader.readText();
+			state = new DeltaHostState(host);
+			states.add(state);
+		}
+		else {
+			state = states.get((int) index);
+		}
+
+		long mask = reader.readBit() ? reader.readVarLong() : state.mask;
+
+		if ((mask >>> (METRIC_NAMES.length - 1)) != 0) {
+			throw new IllegalStateException("Delta message holds metrics unknown to this receiver");
+		}
+
+		HostMetrics host = new HostMetrics(state.host);
+
+		for (int ordinal = 0; ordinal < METRIC_NAMES.length - 1; ordinal++) {
+			if ((mask & (1L << ordinal)) == 0) {
+				continue;
+			}
+
+			MetricNames metric = METRIC_NAMES[ordinal];
+
+			if (metric.isText()) {
+				host.setText(metric, state.has(ordinal) ? state.readTextChange(reader, ordinal) : state.readNewText(reader, ordinal));
+			}
+			else {
+				host.set(metric, state.has(ordinal) ? state.readChange(reader, ordinal) : state.readNew(reader, ordinal));
+			}
+		}
+
+		state.mask = mask;
+
+		return host;
+	}
+
+	/**
+	 * Gets the cloud name of the last decoded message.
+	 *
+	 * @return The cloud name.
+	 */
+	public synchronized String getName () {
+		return name;
+	}
+
+	/**
+	 * Gets the timestamp of the last decoded message.
+	 *
+	 * @return The timestamp of the monitoring data.
+	 */
+	public synchronized String getTimestamp () {
+		return timestamp;
+	}
+
+	/**
+	 * Gets the rate of monitoring of the last decoded message.
+	 *
+	 * @return The rate of monitoring.
+	 */
+	public synchronized String getRate () {
+		return rate;
+	}
+
+	/**
+	 * Gets the metrics of every host in the last decoded message.
+	 *
+	 * @return The metrics of every host.
+	 */
+	public synchronized List<HostMetrics> getHosts () {
+		return hosts;
+	}
+}
@@ -0,0 +1,206 @@
+package main.message_receiver;
+
+import main.helpers.BitWriter;
+
+import java.util.Map;
+import java.util.List;
+import java.util.HashMap;
+import java.util.ArrayList;
+
+/**
+ * Class which encodes consecutive monitoring messages of one cloud as changes against the previous message.
+ * <p>
+ * Between two monitoring intervals most metrics of a host are unchanged and the rest drift slightly, so the encoder
+ * keeps the values last sent for every host and writes each message as a delta message: unchanged values take a
+ * single bit, whole numbers are written as a delta of delta and other numbers as the XOR with their previous value
+ * (see {@link DeltaHostState}). Every few messages a keyframe is written instead, which holds every value in full
+ * so a receiver which joined late or lost a message can start decoding again.
+ * <p>
+ * Delta messages use the binary layout magic byte of {@link LowLevelMsgFormat} followed by
+ * {@link LowLevelMsgFormat#DELTA_VERSION}, then a bit stream holding a keyframe flag, a sequence number, the cloud
+ * name, timestamp and rate, and the hosts. Each host is its index in the order hosts were first sent since the last
+ * keyframe, followed by its address for hosts not sent before, its set of metrics if it changed and its values.
+ * They are read back by a {@link MetricDeltaDecoder}. An encoder must only be used for one stream of messages.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class MetricDeltaEncoder {
+	/**
+	 * Default number of messages between keyframes, including the keyframe.
+	 */
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 30;
+
+	/**
+	 * All metric names, indexed by ordinal.
+	 */
+	private static final MetricNames[] METRIC_NAMES = MetricNames.values();
+
+	/**
+	 * Number of messages between keyframes, including the keyframe.
+	 */
+	private final int keyframeInterval;
+
+	/**
+	 * The state of every host sent since the last keyframe, in the order they were first sent.
+	 */
+	private final List<DeltaHostState> states = new ArrayList<>();
+
+	/**
+	 * The index of every host in the list of states, keyed by host.
+	 */
+	private final Map<String, Integer> hostIndexes = new HashMap<>();
+
+	/**
+	 * Sequence number of the next message.
+	 */
+	private long sequence = 0;
+
+	/**
+	 * Number of messages written since the last keyframe, including the keyframe.
+	 */
+	private int sinceKeyframe = 0;
+
+	/**
+	 * True if the next message must be a keyframe.
+	 */
+	private boolean keyframeRequested = true;
+
+	/**
+	 * Default constructor which writes a keyframe every {@link #DEFAULT_KEYFRAME_INTERVAL} messages.
+	 */
+	public MetricDeltaEncoder () {
+		this(DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * Constructor which takes the number of messages between keyframes.
+	 *
+	 * @param keyframeInterval The number of messages between keyframes, including the keyframe. 1 writes every
+	 *                         message as a keyframe.
+	 */
+	public MetricDeltaEncoder (int keyframeInterval) {
+		if (keyframeInterval < 1) {
+			throw new IllegalArgumentException("Keyframe interval must be at least 1: " + keyframeInterval);
+		}
+
+		this.keyframeInterval = keyframeInterval;
+	}
+
+	/**
+	 * Makes the next message a keyframe, for example when a new receiver has joined.
+	 */
+	public synchronized void requestKeyframe () {
+		keyframeRequested = true;
+	}
+
+	/**
+	 * Encodes one monitoring message as a keyframe or as changes against the previous message.
+	 *
+	 * @param name The cloud name.
+	 * @param timestamp The timestamp of the monitoring data.
+	 * @param rate The rate of monitoring.
+	 * @param hosts The metrics of every monitored host.
+	 * @return The encoded message.
+	 */
+	public synchronized byte[] encode (String name, String timestamp, String rate, List<HostMetrics> hosts) {
+		boolean keyframe = keyframeRequested || sinceKeyframe >= keyframeInterval;
+		BitWriter writer = new BitWriter(64 + hosts.size() * 64);
+
+		if (keyframe) {
+			states.clear();
+			hostIndexes.clear();
+			sinceKeyframe = 0;
+			keyframeRequested = false;
+		}
+
+		writer.writeBits(LowLevelMsgFormat.BINARY_MAGIC, 8);
+		writer.writeBits(LowLevelMsgFormat.DELTA_VERSION, 8);
+		writer.writeBit(keyframe);
+		writer.writeVarLong(sequence++);
+		writer.writeText(name);
+		writer.writeText(timestamp);
+		writer.writeText(rate);
+		writer.writeVarLong(hosts.size());
+
+		for (HostMetrics host : hosts) {
+			writeHost(writer, host);
+		}
+
+		sinceKeyframe++;
+
+		return writer.toBytes();
+	}
+
+	/**
+	 * Writes one host as its index, its address if it is new, its set of metrics if it changed and its values.
+	 *
+	 * @param writer The writer to write to.
+	 * @param host The metrics of the host.
+	 */
+	private void writeHost (BitWriter writer, HostMetrics host) {
+		Integer index = hostIndexes.get(host.getHost());
+		DeltaHostState state;
+
+		if (index == null) {
+			writer.writeVarLong(states.size());
+			long address = LowLevelMsgFormat.packIpv4(host.getHost());
+			writer.writeBit(address >= 0);
+
+			if (address >= 0) {
+				writer.writeBits(address, 32);
+			}
+			else {
+				writer.writeText(host.getHost());
+			}
+
+			state = new DeltaHostState(host.getHost());
+			hostIndexes.put(host.getHost(), states.size());
+			states.add(state);
+		}
+		else {
+			writer.writeVarLong(index);
+			state = states.get(index);
+		}
+
+		long mask = 0;
+
+		for (MetricNames metric : METRIC_NAMES) {
+			if (host.has(metric)) {
+				mask |= 1L << metric.ordinal();
+			}
+		}
+
+		writer.writeBit(mask != state.mask);
+
+		if (mask != state.mask) {
+			writer.writeVarLong(mask);
+		}
+
+		for (MetricNames metric : METRIC_NAMES) {
+			int ordinal = metric.ordinal();
+
+			if ((mask & (1L << ordinal)) == 0) {
+				continue;
+			}
+
+			if (metric.isText()) {
+				if (state.has(ordinal)) {
+					state.writeTextChange(writer, ordinal, host.getText(metric));
+				}
+				else {
+					state.writeNewText(writer, ordinal, host.getText(metric));
+				}
+			}
+			else if (state.has(ordinal)) {
+				state.writeChange(writer, ordinal, host.get(metric));
+			}
+			else {
+				state.writeNew(writer, ordinal, host.get(metric));
+			}
+		}
+
+		state.mask = mask;
+	}
+}
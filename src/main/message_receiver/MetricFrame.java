@@ -0,0 +1,698 @@
+package main.message_receiver;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+
+/**
+ * Class which stores low-level resource metric samples in columns of primitives instead of one object per sample.
+ * <p>
+ * Every numeric entry of {@link MetricNames} gets its own column, held as a double array, or as a long array for
+ * metrics which are whole numbers (IP address, boot time, CPU count, process counts and MTU). The operating system
+ * name, release and machine type are dictionary encoded: each distinct string is stored once and the columns hold
+ * its integer code. The system clock, which has no metric name, gets a long column of its own.
+ * <p>
+ * Columns are split into fixed-size chunks which are only ever appended to, so adding samples never copies the
+ * existing data. Samples are read back through row views which implement {@link IResourceMetrics}, and aggregates
+ * walk the columns directly. A frame which is refilled round after round is emptied with {@link #clear()}, which
+ * keeps the first chunk for reuse, so it stays the size of one round.
+ * <p>
+ * A frame is not thread safe; callers which append and read from several threads must synchronize on it.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class MetricFrame {
+	/**
+	 * Number of rows in every chunk.
+	 */
+	private static final int CHUNK_SIZE = 4096;
+
+	/**
+	 * Metrics which are stored as whole numbers.
+	 */
+	private static final MetricNames[] LONG_METRICS = {
+			MetricNames.vm_ip, MetricNames.boottime, MetricNames.cpu_num, MetricNames.proc_total, MetricNames.proc_run,
+			MetricNames.mtu
+	};
+
+	/**
+	 * Metrics which are stored as dictionary encoded strings.
+	 */
+	private static final MetricNames[] STRING_METRICS = {
+			MetricNames.os_name, MetricNames.os_release, MetricNames.machine_type
+	};
+
+	/**
+	 * Kind of column used by a metric which has no column.
+	 */
+	private static final int NO_COLUMN = 0;
+
+	/**
+	 * Kind of column used by metrics stored as doubles.
+	 */
+	private static final int DOUBLE_COLUMN = 1;
+
+	/**
+	 * Kind of column used by metrics stored as longs.
+	 */
+	private static final int LONG_COLUMN = 2;
+
+	/**
+	 * Kind of column used by metrics stored as dictionary encoded strings.
+	 */
+	private static final int STRING_COLUMN = 3;
+
+	/**
+	 * The kind of column of every metric, indexed by the ordinal of the metric name.
+	 */
+	private static final int[] COLUMN_KIND = new int[MetricNames.values().length];
+
+	/**
+	 * The index of every metric within the columns of its kind, indexed by the ordinal of the metric name.
+	 */
+	private static final int[] COLUMN_INDEX = new int[MetricNames.values().length];
+
+	/**
+	 * Number of double columns.
+	 */
+	private static final int NUM_DOUBLE_COLUMNS;
+
+	static {
+		for (int i = 0; i < LONG_METRICS.length; i++) {
+			COLUMN_KIND[LONG_METRICS[i].ordinal()] = LONG_COLUMN;
+			COLUMN_INDEX[LONG_METRICS[i].ordinal()] = i;
+		}
+
+		for (int i = 0; i < STRING_METRICS.length; i++) {
+			COLUMN_KIND[STRING_METRICS[i].ordinal()] = STRING_COLUMN;
+			COLUMN_INDEX[STRING_METRICS[i].ordinal()] = i;
+		}
+
+		int doubles = 0;
+
+		for (MetricNames name : MetricNames.values()) {
+			if (COLUMN_KIND[name.ordinal()] == NO_COLUMN && name != MetricNames.unknown) {
+				COLUMN_KIND[name.ordinal()] = DOUBLE_COLUMN;
+				COLUMN_INDEX[name.ordinal()] = doubles++;
+			}
+		}
+
+		NUM_DOUBLE_COLUMNS = doubles;
+	}
+
+	/**
+	 * The chunks of the frame, all full except the last one.
+	 */
+	private final List<Chunk> chunks = new ArrayList<>();
+
+	/**
+	 * The distinct strings of every string column, indexed by their code.
+	 */
+	private final List<List<String>> dictionaries = new ArrayList<>();
+
+	/**
+	 * The codes of the distinct strings of every string column.
+	 */
+	private final List<Map<String, Integer>> dictionaryCodes = new ArrayList<>();
+
+	/**
+	 * Number of rows in the frame.
+	 */
+	private int size = 0;
+
+	/**
+	 * Default constructor for the MetricFrame class.
+	 */
+	public MetricFrame () {
+		for (int i = 0; i < STRING_METRICS.length; i++) {
+			dictionaries.add(new ArrayList<>());
+			dictionaryCodes.add(new HashMap<>());
+		}
+	}
+
+	/**
+	 * Gets the number of rows in the frame.
+	 *
+	 * @return The number of rows.
+	 */
+	public int size () {
+		return size;
+	}
+
+	/**
+	 * Removes every row and every string of the dictionaries. The first chunk is zeroed and kept for the next rows,
+	 * the others are released. Row views must be moved to a new row before they are read again.
+	 */
+	public void clear () {
+		if (! chunks.isEmpty()) {
+			Chunk first = chunks.get(0);
+			int used = Math.min(size, CHUNK_SIZE);
+
+			for (double[] column : first.doubles) {
+				Arrays.fill(column, 0, used, 0);
+			}
+
+			for (long[] column : first.longs) {
+				Arrays.fill(column, 0, used, 0);
+			}
+
+			for (int[] column : first.strings) {
+				Arrays.fill(column, 0, used, 0);
+			}
+
+			Arrays.fill(first.systemClock, 0, used, 0);
+			chunks.subList(1, chunks.size()).clear();
+		}
+
+		for (int i = 0; i < STRING_METRICS.length; i++) {
+			dictionaries.get(i).clear();
+			dictionaryCodes.get(i).clear();
+		}
+
+		size = 0;
+	}
+
+	/**
+	 * Appends an empty row in which every number is 0 and every string is empty.
+	 *
+	 * @return The index of the new row.
+	 */
+	public int appendRow () {
+		if (size == chunks.size() * CHUNK_SIZE) {
+			chunks.add(new Chunk());
+		}
+
+		int row = size++;
+		setString(row, MetricNames.os_name, "");
+		setString(row, MetricNames.os_release, "");
+		setString(row, MetricNames.machine_type, "");
+
+		return row;
+	}
+
+	/**
+	 * Appends a sample as a new row.
+	 *
+	 * @param metrics The sample to append.
+	 * @return The index of the new row.
+	 */
+	public int append (IResourceMetrics metrics) {
+		int row = appendRow();
+		Chunk chunk = chunks.get(row / CHUNK_SIZE);
+		int offset = row % CHUNK_SIZE;
+
+		chunk.systemClock[offset] = metrics.getSystemClock();
+
+		setLong(chunk, offset, MetricNames.vm_ip, metrics.getVmIp());
+		setLong(chunk, offset, MetricNames.boottime, metrics.getBootTime());
+		setLong(chunk, offset, MetricNames.cpu_num, metrics.getNumCpu());
+		setLong(chunk, offset, MetricNames.proc_total, metrics.getTotalProcess());
+		setLong(chunk, offset, MetricNames.proc_run, metrics.getTotalRunProcess());
+		setLong(chunk, offset, MetricNames.mtu, metrics.getMaxTransferUnit());
+
+		setDouble(chunk, offset, MetricNames.cpu_idle, metrics.getCpuIdle());
+		setDouble(chunk, offset, MetricNames.cpu_aidle, metrics.getCpuAIdle());
+		setDouble(chunk, offset, MetricNames.cpu_user, metrics.getCpuUserLevel());
+		setDouble(chunk, offset, MetricNames.cpu_system, metrics.getCpuSystemLevel());
+		setDouble(chunk, offset, MetricNames.cpu_steal, metrics.getCpuSteal());
+		setDouble(chunk, offset, MetricNames.cpu_wio, metrics.getCpuWio());
+		setDouble(chunk, offset, MetricNames.cpu_nice, metrics.getCpuNice());
+		setDouble(chunk, offset, MetricNames.cpu_speed, metrics.getCpuSpeed());
+		setDouble(chunk, offset, MetricNames.pkts_in, metrics.getInPackets());
+		setDouble(chunk, offset, MetricNames.pkts_out, metrics.getOutPackets());
+		setDouble(chunk, offset, MetricNames.bytes_in, metrics.getInBytes());
+		setDouble(chunk, offset, MetricNames.bytes_out, metrics.getOutBytes());
+		setDouble(chunk, offset, MetricNames.disk_free, metrics.getFreeDisk());
+		setDouble(chunk, offset, MetricNames.disk_total, metrics.getTotalDiskSize());
+		setDouble(chunk, offset, MetricNames.part_max_used, metrics.getMaxUsedPartition());
+		setDouble(chunk, offset, MetricNames.mem_total, metrics.getTotalMemory());
+		setDouble(chunk, offset, MetricNames.mem_free, metrics.getFreeMemory());
+		setDouble(chunk, offset, MetricNames.mem_shared, metrics.getSharedMemory());
+		setDouble(chunk, offset, MetricNames.mem_cached, metrics.getCachedMemory());
+		setDouble(chunk, offset, MetricNames.mem_buffers, metrics.getMemoryBuffer());
+		setDouble(chunk, offset, MetricNames.swap_total, metrics.getTotalSwapSpace());
+		setDouble(chunk, offset, MetricNames.swap_free, metrics.getFreeSwapSpace());
+		setDouble(chunk, offset, MetricNames.load_one, metrics.getOneMinuteLoad());
+		setDouble(chunk, offset, MetricNames.load_five, metrics.getFiveMinutesLoad());
+		setDouble(chunk, offset, MetricNames.load_fifteen, metrics.getFifteenMinutesLoad());
+
+		setString(row, MetricNames.os_name, metrics.getOsName());
+		setString(row, MetricNames.os_release, metrics.getOsRelease());
+		setString(row, MetricNames.machine_type, metrics.getMachineType());
+
+		return row;
+	}
+
+	/**
+	 * Sets a numeric metric of a row. Values of metrics stored as whole numbers are truncated.
+	 *
+	 * @param row The index of the row.
+	 * @param name The metric name.
+	 * @param value The value to set.
+	 */
+	public void set (int row, MetricNames name, double value) {
+		Chunk chunk = chunk(row);
+
+		switch (COLUMN_KIND[name.ordinal()]) {
+			case DOUBLE_COLUMN:
+				setDouble(chunk, row % CHUNK_SIZE, name, value);
+				break;
+			case LONG_COLUMN:
+				setLong(chunk, row % CHUNK_SIZE, name, (long) value);
+				break;
+			default:
+				throw new IllegalArgumentException("Metric is not numeric: " + name);
+		}
+	}
+
+	/**
+	 * Sets a string metric of a row.
+	 *
+	 * @param row The index of the row.
+	 * @param name The metric name, one of os_name, os_release and machine_type.
+	 * @param value The value to set, null is stored as an empty string.
+	 */
+	public void setString (int row, MetricNames name, String value) {
+		if (COLUMN_KIND[name.ordinal()] != STRING_COLUMN) {
+			throw new IllegalArgumentException("Metric is not a string: " + name);
+		}
+
+		int column = COLUMN_INDEX[name.ordinal()];
+		String key = value == null ? "" : value;
+		Map<String, Integer> codes = dictionaryCodes.get(column);
+		Integer code = codes.get(key);
+
+		if (code == null) {
+			code = codes.size();
+			codes.put(key, code);
+			dictionaries.get(column).add(key);
+		}
+
+		chunk(row).strings[column][row % CHUNK_SIZE] = code;
+	}
+
+	/**
+	 * Sets the system clock of a row.
+	 *
+	 * @param row The index of the row.
+	 * @param value The system clock to set.
+	 */
+	public void setSystemClock (int row, long value) {
+		chunk(row).systemClock[row % CHUNK_SIZE] = value;
+	}
+
+	/**
+	 * Gets a numeric metric of a row.
+	 *
+	 * @param row The index of the row.
+	 * @param name The metric name.
+	 * @return The value of the metric.
+	 */
+	public double get (int row, MetricNames name) {
+		Chunk chunk = chunk(row);
+		int column = COLUMN_INDEX[name.ordinal()];
+
+		switch (COLUMN_KIND[name.ordinal()]) {
+			case DOUBLE_COLUMN:
+				return chunk.doubles[column][row % CHUNK_SIZE];
+			case LONG_COLUMN:
+				return chunk.longs[column][row % CHUNK_SIZE];
+			default:
+				throw new IllegalArgumentException("Metric is not numeric: " + name);
+		}
+	}
+
+	/**
+	 * Gets a metric stored as a whole number.
+	 *
+	 * @param row The index of the row.
+	 * @param name The metric name, one of vm_ip, boottime, cpu_num, proc_total, proc_run and mtu.
+	 * @return The value of the metric.
+	 */
+	public long getLong (int row, MetricNames name) {
+		if (COLUMN_KIND[name.ordinal()] != LONG_COLUMN) {
+			throw new IllegalArgumentException("Metric is not stored as a whole number: " + name);
+		}
+
+		return chunk(row).longs[COLUMN_INDEX[name.ordinal()]][row % CHUNK_SIZE];
+	}
+
+	/**
+	 * Gets a string metric of a row.
+	 *
+	 * @param row The index of the row.
+	 * @param name The metric name, one of os_name, os_release and machine_type.
+	 * @return The value of the metric.
+	 */
+	public String getString (int row, MetricNames name) {
+		if (COLUMN_KIND[name.ordinal()] != STRING_COLUMN) {
+			throw new IllegalArgumentException("Metric is not a string: " + name);
+		}
+
+		int column = COLUMN_INDEX[name.ordinal()];
+
+		return dictionaries.get(column).get(chunk(row).strings[column][row % CHUNK_SIZE]);
+	}
+
+	/**
+	 * Gets the system clock of a row.
+	 *
+	 * @param row The index of the row.
+	 * @return The system clock.
+	 */
+	public long getSystemClock (int row) {
+		return chunk(row).systemClock[row % CHUNK_SIZE];
+	}
+
+	/**
+	 * Gets a view of a row. The view reads from the frame, so it does not copy the sample.
+	 *
+	 * @param row The index of the row.
+	 * @return A view of the row.
+	 */
+	public RowView row (int row) {
+		return new RowView().moveTo(row);
+	}
+
+	/**
+	 * Adds up a numeric metric over every row.
+	 *
+	 * @param name The metric name.
+	 * @return The sum of the metric.
+	 */
+	public double sum (MetricNames name) {
+		int kind = COLUMN_KIND[name.ordinal()];
+		int column = COLUMN_INDEX[name.ordinal()];
+		double sum = 0;
+
+		if (kind != DOUBLE_COLUMN && kind != LONG_COLUMN) {
+			throw new IllegalArgumentException("Metric is not numeric: " + name);
+		}
+
+		for (int c = 0; c < chunks.size(); c++) {
+			int rows = Math.min(CHUNK_SIZE, size - c * CHUNK_SIZE);
+
+			if (kind == DOUBLE_COLUMN) {
+				double[] values = chunks.get(c).doubles[column];
+
+				for (int i = 0; i < rows; i++) {
+					sum += values[i];
+				}
+			}
+			else {
+				long[] values = chunks.get(c).longs[column];
+
+				for (int i = 0; i < rows; i++) {
+					sum += values[i];
+				}
+			}
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Computes the average of a numeric metric over every row.
+	 *
+	 * @param name The metric name.
+	 * @return The average of the metric, or 0 if the frame is empty.
+	 */
+	public double average (MetricNames name) {
+		return size == 0 ? 0 : sum(name) / size;
+	}
+
+	/**
+	 * Gets the chunk which holds a row.
+	 *
+	 * @param row The index of the row.
+	 * @return The chunk which holds the row.
+	 */
+	private Chunk chunk (int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row " + row + " out of range for frame of size " + size);
+		}
+
+		return chunks.get(row / CHUNK_SIZE);
+	}
+
+	/**
+	 * Sets a metric stored as a double in a chunk.
+	 *
+	 * @param chunk The chunk.
+	 * @param offset The offset of the row in the chunk.
+	 * @param name The metric name.
+	 * @param value The value to set.
+	 */
+	private static void setDouble (Chunk chunk, int offset, MetricNames name, double value) {
+		chunk.doubles[COLUMN_INDEX[name.ordinal()]][offset] = value;
+	}
+
+	/**
+	 * Sets a metric stored as a long in a chunk.
+	 *
+	 * @param chunk The chunk.
+	 * @param offset The offset of the row in the chunk.
+	 * @param name The metric name.
+	 * @param value The value to set.
+	 */
+	private static void setLong (Chunk chunk, int offset, MetricNames name, long value) {
+		chunk.longs[COLUMN_INDEX[name.ordinal()]][offset] = value;
+	}
+
+	/**
+	 * A fixed number of rows of every column.
+	 */
+	private static class Chunk {
+		/**
+		 * The double columns.
+		 */
+		private final double[][] doubles = new double[NUM_DOUBLE_COLUMNS][CHUNK_SIZE];
+
+		/**
+		 * The long columns.
+		 */
+		private final long[][] longs = new long[LONG_METRICS.length][CHUNK_SIZE];
+
+		/**
+		 * The codes of the dictionary encoded string columns.
+		 */
+		private final int[][] strings = new int[STRING_METRICS.length][CHUNK_SIZE];
+
+		/**
+		 * The system clock column.
+		 */
+		private final long[] systemClock = new long[CHUNK_SIZE];
+	}
+
+	/**
+	 * View of one row of the frame. A view can be moved from row to row, so a whole frame can be read through a
+	 * single object.
+	 */
+	public class RowView implements IResourceMetrics {
+		/**
+		 * The index of the row the view reads.
+		 */
+		private int row;
+
+		/**
+		 * Moves the view to another row.
+		 *
+		 * @param row The index of the row.
+		 * @return This view.
+		 */
+		public RowView moveTo (int row) {
+			chunk(row);
+			this.row = row;
+
+			return this;
+		}
+
+		/**
+		 * Gets the index of the row the view reads.
+		 *
+		 * @return The index of the row.
+		 */
+		public int getRow () {
+			return row;
+		}
+
+		@Override
+		public long getVmIp () {
+			return getLong(row, MetricNames.vm_ip);
+		}
+
+		@Override
+		public double getCpuIdle () {
+			return get(row, MetricNames.cpu_idle);
+		}
+
+		@Override
+		public double getCpuAIdle () {
+			return get(row, MetricNames.cpu_aidle);
+		}
+
+		@Override
+		public double getCpuUserLevel () {
+			return get(row, MetricNames.cpu_user);
+		}
+
+		@Override
+		public double getCpuSystemLevel () {
+			return get(row, MetricNames.cpu_system);
+		}
+
+		@Override
+		public double getCpuSteal () {
+			return get(row, MetricNames.cpu_steal);
+		}
+
+		@Override
+		public long getBootTime () {
+			return getLong(row, MetricNames.boottime);
+		}
+
+		@Override
+		public long getNumCpu () {
+			return getLong(row, MetricNames.cpu_num);
+		}
+
+		@Override
+		public double getInPackets () {
+			return get(row, MetricNames.pkts_in);
+		}
+
+		@Override
+		public double getOutPackets () {
+			return get(row, MetricNames.pkts_out);
+		}
+
+		@Override
+		public long getSystemClock () {
+			return MetricFrame.this.getSystemClock(row);
+		}
+
+		@Override
+		public double getOutBytes () {
+			return get(row, MetricNames.bytes_out);
+		}
+
+		@Override
+		public double getInBytes () {
+			return get(row, MetricNames.bytes_in);
+		}
+
+		@Override
+		public double getFreeDisk () {
+			return get(row, MetricNames.disk_free);
+		}
+
+		@Override
+		public double getCpuSpeed () {
+			return get(row, MetricNames.cpu_speed);
+		}
+
+		@Override
+		public double getTotalMemory () {
+			return get(row, MetricNames.mem_total);
+		}
+
+		@Override
+		public double getFreeMemory () {
+			return get(row, MetricNames.mem_free);
+		}
+
+		@Override
+		public double getTotalDiskSize () {
+			return get(row, MetricNames.disk_total);
+		}
+
+		@Override
+		public double getMaxUsedPartition () {
+			return get(row, MetricNames.part_max_used);
+		}
+
+		@Override
+		public long getMaxTransferUnit () {
+			return getLong(row, MetricNames.mtu);
+		}
+
+		@Override
+		public String getOsName () {
+			return getString(row, MetricNames.os_name);
+		}
+
+		@Override
+		public String getOsRelease () {
+			return getString(row, MetricNames.os_release);
+		}
+
+		@Override
+		public String getMachineType () {
+			return getString(row, MetricNames.machine_type);
+		}
+
+		@Override
+		public double getCpuWio () {
+			return get(row, MetricNames.cpu_wio);
+		}
+
+		@Override
+		public double getCpuNice () {
+			return get(row, MetricNames.cpu_nice);
+		}
+
+		@Override
+		public double getSharedMemory () {
+			return get(row, MetricNames.mem_shared);
+		}
+
+		@Override
+		public double getCachedMemory () {
+			return get(row, MetricNames.mem_cached);
+		}
+
+		@Override
+		public double getMemoryBuffer () {
+			return get(row, MetricNames.mem_buffers);
+		}
+
+		@Override
+		public double getTotalSwapSpace () {
+			return get(row, MetricNames.swap_total);
+		}
+
+		@Override
+		public double getFreeSwapSpace () {
+			return get(row, MetricNames.swap_free);
+		}
+
+		@Override
+		public long getTotalProcess () {
+			return getLong(row, MetricNames.proc_total);
+		}
+
+		@Override
+		public long getTotalRunProcess () {
+			return getLong(row, MetricNames.proc_run);
+		}
+
+		@Override
+		public double getOneMinuteLoad () {
+			return get(row, MetricNames.load_one);
+		}
+
+		@Override
+		public double getFiveMinutesLoad () {
+			return get(row, MetricNames.load_five);
+		}
+
+		@Override
+		public double getFifteenMinutesLoad () {
+			return get(row, MetricNames.load_fifteen);
+		}
+	}
+}
@@ -4,6 +4,9 @@ package main.message_receiver;
  * An enumerator listing important virtual machine metric values.
  * <p>
  * These values represent various metrics related to system performance and configuration.
+ * <p>
+ * The ordinals of the values are sent on the wire by {@link LowLevelMsgFormat#serializeBinaryMessage()}, so new
+ * metrics must only be added directly before {@link #unknown}, and at most 63 metrics can be defined.
  *
  * @author Martin Bullman
  * @version 1.0
@@ -39,16 +42,22 @@ public enum MetricNames {
 
 	/**
 	 * Get the MetricNames enumeration value based on a string representation.
+	 * <p>
+	 * The name is looked up in {@link MetricRegistry#DEFAULT}, ignoring case, without allocating or throwing.
 	 *
 	 * @param str The string representation of the metric name.
-	 * @return The corresponding MetricNames value, or 'unknown' if not found.
+	 * @return The corresponding MetricNames value, or 'unknown' if not found or if it is a custom metric.
 	 */
 	public static MetricNames thisName (String str) {
-		try {
-			return valueOf(str.toLowerCase());
-		}
-		catch (Exception ex) {
-			return unknown;
-		}
+		return MetricRegistry.DEFAULT.metricOf(MetricRegistry.DEFAULT.idOf(str));
+	}
+
+	/**
+	 * Checks if the metric holds text rather than a number.
+	 *
+	 * @return True for the operating system metrics.
+	 */
+	public boolean isText () {
+		return this == os_name || this == os_release || this == machine_type;
 	}
 }
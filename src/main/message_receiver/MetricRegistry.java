@@ -0,0 +1,373 @@
+package main.message_receiver;
+
+import java.nio.ByteBuffer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class gives every known metric name a dense id, and looks names up without allocating.
+ * <p>
+ * The names of {@link MetricNames} are registered first, so their ids are their ordinals. Custom metrics, such as
+ * the metrics of an application, can be registered at runtime and get the next free ids, so tables indexed by id
+ * stay dense. Names are matched ignoring case, straight from a string or from the bytes of a message, through an
+ * open addressing hash table which is kept at most half full. Looking up a name which is not registered returns
+ * {@link #UNKNOWN_ID} and counts it, instead of throwing.
+ * <p>
+ * Lookups never lock: registering a name builds a new table and publishes it, so lookups running at the same time
+ * see either the old or the new table.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class MetricRegistry {
+	/**
+	 * Id returned for names which are not registered.
+	 */
+	public static final int UNKNOWN_ID = -1;
+
+	/**
+	 * Ids of the metric names, in enum order, which {@link #metricOf(int)} maps back to.
+	 */
+	private static final MetricNames[] METRIC_NAMES = MetricNames.values();
+
+	/**
+	 * The registry shared by the receiver.
+	 */
+	public static final MetricRegistry DEFAULT = new MetricRegistry();
+
+	/**
+	 * The current table, replaced as a whole when a name is registered.
+	 */
+	private volatile Table table;
+
+	/**
+	 * Number of lookups of names which were not registered.
+	 */
+	private final AtomicLong unknownCount = new AtomicLong();
+
+	/**
+	 * Constructs a registry holding the names of {@link MetricNames}, other than {@link MetricNames#unknown}.
+	 */
+	public MetricRegistry () {
+		String[] names = new String[MetricNames.unknown.ordinal()];
+
+		for (int i = 0; i < names.length; i++) {
+			names[i] = METRIC_NAMES[i].name();
+		}
+
+		table = new Table(names, names.length);
+	}
+
+	/**
+	 * Gets the id of a metric name, ignoring case.
+	 *
+	 * @param name The metric name.
+	 * @return The id of the name, or {@link #UNKNOWN_ID} if it is not registered.
+	 */
+	public int idOf (CharSequence name) {
+		int id = table.find(name);
+
+		if (id == UNKNOWN_ID) {
+			unknownCount.incrementAndGet();
+		}
+
+		return id;
+	}
+
+	/**
+	 * Gets the id of a metric name held as ASCII bytes, ignoring case.
+	 *
+	 * @param buffer The buffer holding the name, which is not changed.
+	 * @param offset The index of the first byte of the name.
+	 * @param length The number of bytes in the name.
+	 * @return The id of the name, or {@link #UNKNOWN_ID} if it is not registered.
+	 */
+	public int idOf (ByteBuffer buffer, int offset, int length) {
+		int id = table.find(buffer, offset, length);
+
+		if (id == UNKNOWN_ID) {
+			unknownCount.incrementAndGet();
+		}
+
+		return id;
+	}
+
+	/**
+	 * Registers a custom metric name, or gets the id it already has.
+	 *
+	 * @param name The metric name, which is stored in lower case.
+	 * @return The id of the name.
+	 */
+	public synchronized int register (String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Metric name must not be empty");
+		}
+
+		Table current = table;
+		int id = current.find(name);
+
+		if (id != UNKNOWN_ID) {
+			return id;
+		}
+
+		String[] names = Arrays.copyOf(current.names, current.size + 1);
+		names[current.size] = name;
+		table = new Table(names, names.length);
+
+		return current.size;
+	}
+
+	/**
+	 * Gets the name of an id.
+	 *
+	 * @param id The id.
+	 * @return The metric name in lower case.
+	 * @throws IndexOutOfBoundsException If the id is not registered.
+	 */
+	public String nameOf (int id) {
+		Table current = table;
+
+		if (id < 0 || id >= current.size) {
+			throw new IndexOutOfBoundsException("Metric id " + id + " is not registered");
+		}
+
+		return current.names[id];
+	}
+
+	/**
+	 * Gets the metric of an id.
+	 *
+	 * @param id The id.
+	 * @return The metric, or {@link MetricNames#unknown} for custom metrics and ids which are not registered.
+	 */
+	public MetricNames metricOf (int id) {
+		return id >= 0 && id < MetricNames.unknown.ordinal() ? METRIC_NAMES[id] : MetricNames.unknown;
+	}
+
+	/**
+	 * Checks if an id belongs to a custom metric registered at runtime.
+	 *
+	 * @param id The id.
+	 * @return True if the id is registered and is not one of {@link MetricNames}.
+	 */
+	public boolean isCustom (int id) {
+		return id >= MetricNames.unknown.ordinal() && id < table.size;
+	}
+
+	/**
+	 * Gets the number of registered names, which is one more than the largest id.
+	 *
+	 * @return The number of registered names.
+	 */
+	public int size () {
+		return table.size;
+	}
+
+	/**
+	 * Gets the number of lookups of names which were not registered.
+	 *
+	 * @return The number of unknown names looked up.
+	 */
+	public long getUnknownCount () {
+		return unknownCount.get();
+	}
+
+	/**
+	 * Folds an ASCII upper case letter to lower case, leaving every other character as it is.
+	 *
+	 * @param c The character.
+	 * @return The character in lower case.
+	 */
+	private static int fold (int c) {
+		return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+	}
+
+	/**
+	 * Mixes one more folded character into an FNV-1a hash.
+	 *
+	 * @param hash The hash so far.
+	 * @param c The folded character.
+	 * @return The new hash.
+	 */
+	private static int mix (int hash, int c) {
+		return (hash ^ c) * 0x01000193;
+	}
+
+	/**
+	 * An immutable open addressing table from names to ids.
+	 */
+	private static class Table {
+		/**
+		 * Seed of the FNV-1a hash.
+		 */
+		private static final int SEED = 0x811C9DC5;
+
+		/**
+		 * The names in lower case, indexed by id.
+		 */
+		private final String[] names;
+
+		/**
+		 * The number of names.
+		 */
+		private final int size;
+
+		/**
+		 * The slots of the table, each holding an id plus one, or zero when empty.
+		 */
+		private final int[] slots;
+
+		/**
+		 * The mask which turns a hash into a slot index.
+		 */
+		private final int mask;
+
+		/**
+		 * Builds a table of names.
+		 *
+		 * @param names The names, indexed by id.
+		 * @param size The number of names.
+		 */
+		private Table (String[] names, int size) {
+			int capacity = Integer.highestOneBit(Math.max(size, 8) * 4 - 1);
+
+			this.names = new String[size];
+			this.size = size;
+			this.slots = new int[capacity];
+			this.mask = capacity - 1;
+
+			for (int id = 0; id < size; id++) {
+				String name = lowerCase(names[id]);
+				this.names[id] = name;
+
+				int slot = hash(name) & mask;
+				while (slots[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+
+				slots[slot] = id + 1;
+			}
+		}
+
+		/**
+		 * Finds the id of a name held as characters.
+		 *
+		 * @param name The name.
+		 * @return The id, or {@link #UNKNOWN_ID}.
+		 */
+		private int find (CharSequence name) {
+			if (name == null) {
+				return UNKNOWN_ID;
+			}
+
+			int slot = hash(name) & mask;
+
+			for (int entry = slots[slot]; entry != 0; entry = slots[slot = (slot + 1) & mask]) {
+				if (matches(names[entry - 1], name)) {
+					return entry - 1;
+				}
+			}
+
+			return UNKNOWN_ID;
+		}
+
+		/**
+		 * Finds the id of a name held as ASCII bytes.
+		 *
+		 * @param buffer The buffer holding the name.
+		 * @param offset The index of the first byte of the name.
+		 * @param length The number of bytes in the name.
+		 * @return The id, or {@link #UNKNOWN_ID}.
+		 */
+		private int find (ByteBuffer buffer, int offset, int length) {
+			int hash = SEED;
+			for (int i = 0; i < length; i++) {
+				hash = mix(hash, fold(buffer.get(offset + i) & 0xFF));
+			}
+
+			int slot = hash & mask;
+
+			for (int entry = slots[slot]; entry != 0; entry = slots[slot = (slot + 1) & mask]) {
+				String candidate = names[entry - 1];
+
+				if (candidate.length() == length && matches(candidate, buffer, offset)) {
+					return entry - 1;
+				}
+			}
+
+			return UNKNOWN_ID;
+		}
+
+		/**
+		 * Hashes a name, ignoring case.
+		 *
+		 * @param name The name.
+		 * @return The hash.
+		 */
+		private static int hash (CharSequence name) {
+			int hash = SEED;
+			for (int i = 0; i < name.length(); i++) {
+				hash = mix(hash, fold(name.charAt(i)));
+			}
+
+			return hash;
+		}
+
+		/**
+		 * Checks if a name matches a registered name, ignoring case.
+		 *
+		 * @param registered The registered name, in lower case.
+		 * @param name The name.
+		 * @return True if the names match.
+		 */
+		private static boolean matches (String registered, CharSequence name) {
+			if (registered.length() != name.length()) {
+				return false;
+			}
+
+			for (int i = 0; i < registered.length(); i++) {
+				if (registered.charAt(i) != fold(name.charAt(i))) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		/**
+		 * Checks if ASCII bytes match a registered name of the same length, ignoring case.
+		 *
+		 * @param registered The registered name, in lower case.
+		 * @param buffer The buffer holding the name.
+		 * @param offset The index of the first byte of the name.
+		 * @return True if the names match.
+		 */
+		private static boolean matches (String registered, ByteBuffer buffer, int offset) {
+			for (int i = 0; i < registered.length(); i++) {
+				if (registered.charAt(i) != fold(buffer.get(offset + i) & 0xFF)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		/**
+		 * Folds the ASCII upper case letters of a name to lower case.
+		 *
+		 * @param name The name.
+		 * @return The name in lower case.
+		 */
+		private static String lowerCase (String name) {
+			StringBuilder lower = new StringBuilder(name.length());
+
+			for (int i = 0; i < name.length(); i++) {
+				lower.append((char) fold(name.charAt(i)));
+			}
+
+			return lower.toString();
+		}
+	}
+}
@@ -0,0 +1,352 @@
+package main.message_receiver;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class which keeps incremental rollups of the numeric metrics of every host at every {@link RollupResolution}.
+ * <p>
+ * Every recorded value is added to the min, max, sum, count and last value of its bucket at each resolution as it
+ * arrives, in fixed-size rings of buckets per host. Dashboards then read the pre-aggregated buckets of a metric,
+ * which costs one step per bucket however many samples were recorded, instead of scanning raw samples. Memory per
+ * host is fixed: about 40 bytes per metric per bucket, for the 180 buckets of all resolutions.
+ * <p>
+ * Metrics are addressed by {@link MetricNames} or by their id in {@link MetricRegistry}. Custom metrics registered
+ * at runtime get rings of their own the first time a host records them, so hosts which never send them pay nothing.
+ * <p>
+ * The rollup is safe to share between threads. Hosts are held in a concurrent map and each host is guarded by its
+ * own lock, so threads recording different hosts do not wait for each other.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class MetricRollup {
+	/**
+	 * The resolutions every host is aggregated at.
+	 */
+	private static final RollupResolution[] RESOLUTIONS = RollupResolution.values();
+
+	/**
+	 * The rollups of every host, keyed by the IP address or name of the host.
+	 */
+	private final ConcurrentHashMap<String, HostRollup> hosts = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of values dropped at some resolution because they were older than its oldest bucket.
+	 */
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	/**
+	 * Gets the rollups of a host, creating them on first use.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @return The rollups of the host.
+	 */
+	public HostRollup host (String host) {
+		return hosts.computeIfAbsent(host, key -> new HostRollup(droppedCount));
+	}
+
+	/**
+	 * Adds a value of a host to its buckets at every resolution.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param timeMillis The time of the value in milliseconds since the epoch.
+	 * @param name The metric, which must be numeric.
+	 * @param value The value.
+	 */
+	public void record (String host, long timeMillis, MetricNames name, double value) {
+		host(host).record(timeMillis, name, value);
+	}
+
+	/**
+	 * Adds a value of a host to its buckets at every resolution.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param timeMillis The time of the value in milliseconds since the epoch.
+	 * @param metricId The id of the metric in the registry, which must be numeric or custom.
+	 * @param value The value.
+	 */
+	public void record (String host, long timeMillis, int metricId, double value) {
+		host(host).record(timeMillis, metricId, value);
+	}
+
+	/**
+	 * Gets the buckets of a metric of a host which start between two times, oldest first.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param name The metric, which must be numeric.
+	 * @param resolution The resolution of the buckets.
+	 * @param fromMillis The earliest time, in milliseconds since the epoch, whose bucket is included.
+	 * @param toMillis The latest time, in milliseconds since the epoch, whose bucket is included.
+	 * @return The buckets in which the metric was recorded, empty if the host is not known.
+	 */
+	public List<RollupBucket> buckets (String host, MetricNames name, RollupResolution resolution, long fromMillis, long toMillis) {
+		HostRollup rollup = hosts.get(host);
+
+		return rollup == null ? new ArrayList<>() : rollup.buckets(name, resolution, fromMillis, toMillis);
+	}
+
+	/**
+	 * Gets the buckets of a metric of a host which start between two times, oldest first.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param metricId The id of the metric in the registry, which must be numeric or custom.
+	 * @param resolution The resolution of the buckets.
+	 * @param fromMillis The earliest time, in milliseconds since the epoch, whose bucket is included.
+	 * @param toMillis The latest time, in milliseconds since the epoch, whose bucket is included.
+	 * @return The buckets in which the metric was recorded, empty if the host is not known.
+	 */
+	public List<RollupBucket> buckets (String host, int metricId, RollupResolution resolution, long fromMillis, long toMillis) {
+		HostRollup rollup = hosts.get(host);
+
+		return rollup == null ? new ArrayList<>() : rollup.buckets(metricId, resolution, fromMillis, toMillis);
+	}
+
+	/**
+	 * Combines the buckets of a metric of a host which start between two times into one.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param name The metric, which must be numeric.
+	 * @param resolution The resolution of the buckets combined.
+	 * @param fromMillis The earliest time, in milliseconds since the epoch, whose bucket is included.
+	 * @param toMillis The latest time, in milliseconds since the epoch, whose bucket is included.
+	 * @return The combined bucket, or null if the metric was not recorded in that time.
+	 */
+	public RollupBucket aggregate (String host, MetricNames name, RollupResolution resolution, long fromMillis, long toMillis) {
+		return combine(buckets(host, name, resolution, fromMillis, toMillis));
+	}
+
+	/**
+	 * Combines the buckets of a metric of a host which start between two times into one.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param metricId The id of the metric in the registry, which must be numeric or custom.
+	 * @param resolution The resolution of the buckets combined.
+	 * @param fromMillis The earliest time, in milliseconds since the epoch, whose bucket is included.
+	 * @param toMillis The latest time, in milliseconds since the epoch, whose bucket is included.
+	 * @return The combined bucket, or null if the metric was not recorded in that time.
+	 */
+	public RollupBucket aggregate (String host, int metricId, RollupResolution resolution, long fromMillis, long toMillis) {
+		return combine(buckets(host, metricId, resolution, fromMillis, toMillis));
+	}
+
+	/**
+	 * Gets the hosts which have rollups.
+	 *
+	 * @return A live view of the IP addresses or names of the hosts.
+	 */
+	public Set<String> getHosts () {
+		return hosts.keySet();
+	}
+
+	/**
+	 * Drops the rollups of a host, for example when the virtual machine is removed.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @return True if the host had rollups.
+	 */
+	public boolean remove (String host) {
+		return hosts.remove(host) != null;
+	}
+
+	/**
+	 * Gets the number of values dropped at some resolution because they were older than its oldest bucket.
+	 *
+	 * @return The number of dropped values.
+	 */
+	public long getDroppedCount () {
+		return droppedCount.get();
+	}
+
+	/**
+	 * Combines buckets into one.
+	 *
+	 * @param buckets The buckets to combine.
+	 * @return The combined bucket, or null if there are no buckets.
+	 */
+	private static RollupBucket combine (List<RollupBucket> buckets) {
+		RollupBucket combined = null;
+
+		for (RollupBucket bucket : buckets) {
+			combined = combined == null ? bucket : combined.merge(bucket);
+		}
+
+		return combined;
+	}
+
+	/**
+	 * Checks that a metric can be rolled up.
+	 *
+	 * @param name The metric.
+	 * @throws IllegalArgumentException If the metric is text or unknown.
+	 */
+	private static void checkNumeric (MetricNames name) {
+		if (name == MetricNames.unknown || name.isText()) {
+			throw new IllegalArgumentException("Only numeric metrics can be rolled up: " + name);
+		}
+	}
+
+	/**
+	 * Checks that a metric id can be rolled up. Ids past those of {@link MetricNames} are custom metrics, which
+	 * are always numeric.
+	 *
+	 * @param metricId The id of the metric in the registry.
+	 * @throws IllegalArgumentException If the id is negative or belongs to a text metric.
+	 */
+	private static void checkNumeric (int metricId) {
+		if (metricId < 0) {
+			throw new IllegalArgumentException("Only registered metrics can be rolled up: " + metricId);
+		}
+
+		if (metricId < RollupRing.NUM_METRICS) {
+			checkNumeric(MetricRegistry.DEFAULT.metricOf(metricId));
+		}
+	}
+
+	/**
+	 * Class which holds the rollups of one host at every resolution, guarded by its own lock.
+	 */
+	public static class HostRollup {
+		/**
+		 * The ring of every resolution, indexed by ordinal.
+		 */
+		private final RollupRing[] rings = new RollupRing[RESOLUTIONS.length];
+
+		/**
+		 * The rings of every custom metric the host has recorded, keyed by metric id, with one ring per resolution
+		 * indexed by ordinal.
+		 */
+		private final Map<Integer, RollupRing[]> customRings = new HashMap<>();
+
+		/**
+		 * The count of dropped values shared by every host of the rollup.
+		 */
+		private final AtomicLong droppedCount;
+
+		/**
+		 * Constructor which takes the shared count of dropped values.
+		 *
+		 * @param droppedCount The count of dropped values.
+		 */
+		private HostRollup (AtomicLong droppedCount) {
+			this.droppedCount = droppedCount;
+
+			for (RollupResolution resolution : RESOLUTIONS) {
+				rings[resolution.ordinal()] = new RollupRing(resolution);
+			}
+		}
+
+		/**
+		 * Adds a value to its buckets at every resolution.
+		 *
+		 * @param timeMillis The time of the value in milliseconds since the epoch.
+		 * @param name The metric, which must be numeric.
+		 * @param value The value.
+		 * @throws IllegalArgumentException If the metric is text or unknown.
+		 */
+		public synchronized void record (long timeMillis, MetricNames name, double value) {
+			checkNumeric(name);
+			record(timeMillis, rings, name.ordinal(), value);
+		}
+
+		/**
+		 * Adds a value to its buckets at every resolution.
+		 *
+		 * @param timeMillis The time of the value in milliseconds since the epoch.
+		 * @param metricId The id of the metric in the registry, which must be numeric or custom.
+		 * @param value The value.
+		 * @throws IllegalArgumentException If the id is negative or belongs to a text metric.
+		 */
+		public synchronized void record (long timeMillis, int metricId, double value) {
+			checkNumeric(metricId);
+
+			if (metricId < RollupRing.NUM_METRICS) {
+				record(timeMillis, rings, metricId, value);
+			}
+			else {
+				record(timeMillis, customRings.computeIfAbsent(metricId, id -> newCustomRings()), 0, value);
+			}
+		}
+
+		/**
+		 * Gets the buckets of a metric which start between two times, oldest first.
+		 *
+		 * @param name The metric, which must be numeric.
+		 * @param resolution The resolution of the buckets.
+		 * @param fromMillis The earliest time, in milliseconds since the epoch, whose bucket is included.
+		 * @param toMillis The latest time, in milliseconds since the epoch, whose bucket is included.
+		 * @return The buckets in which the metric was recorded.
+		 * @throws IllegalArgumentException If the metric is text or unknown.
+		 */
+		public synchronized List<RollupBucket> buckets (MetricNames name, RollupResolution resolution, long fromMillis, long toMillis) {
+			checkNumeric(name);
+
+			List<RollupBucket> buckets = new ArrayList<>();
+			rings[resolution.ordinal()].collect(name.ordinal(), fromMillis, toMillis, buckets);
+
+			return buckets;
+		}
+
+		/**
+		 * Gets the buckets of a metric which start between two times, oldest first.
+		 *
+		 * @param metricId The id of the metric in the registry, which must be numeric or custom.
+		 * @param resolution The resolution of the buckets.
+		 * @param fromMillis The earliest time, in milliseconds since the epoch, whose bucket is included.
+		 * @param toMillis The latest time, in milliseconds since the epoch, whose bucket is included.
+		 * @return The buckets in which the metric was recorded, empty for a custom metric the host never recorded.
+		 * @throws IllegalArgumentException If the id is negative or belongs to a text metric.
+		 */
+		public synchronized List<RollupBucket> buckets (int metricId, RollupResolution resolution, long fromMillis, long toMillis) {
+			checkNumeric(metricId);
+
+			List<RollupBucket> buckets = new ArrayList<>();
+
+			if (metricId < RollupRing.NUM_METRICS) {
+				rings[resolution.ordinal()].collect(metricId, fromMillis, toMillis, buckets);
+			}
+			else if (customRings.containsKey(metricId)) {
+				customRings.get(metricId)[resolution.ordinal()].collect(0, fromMillis, toMillis, buckets);
+			}
+
+			return buckets;
+		}
+
+		/**
+		 * Adds a value to the rings of every resolution, counting the values they drop.
+		 *
+		 * @param timeMillis The time of the value in milliseconds since the epoch.
+		 * @param target The rings of every resolution, indexed by ordinal.
+		 * @param slot The slot of the metric in the rings.
+		 * @param value The value.
+		 */
+		private void record (long timeMillis, RollupRing[] target, int slot, double value) {
+			for (RollupRing ring : target) {
+				if (! ring.record(timeMillis, slot, value)) {
+					droppedCount.incrementAndGet();
+				}
+			}
+		}
+
+		/**
+		 * Builds the rings of one custom metric, one per resolution with a single metric slot.
+		 *
+		 * @return The rings, indexed by resolution ordinal.
+		 */
+		private static RollupRing[] newCustomRings () {
+			RollupRing[] custom = new RollupRing[RESOLUTIONS.length];
+
+			for (RollupResolution resolution : RESOLUTIONS) {
+				custom[resolution.ordinal()] = new RollupRing(resolution, 1);
+			}
+
+			return custom;
+		}
+	}
+}
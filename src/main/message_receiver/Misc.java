@@ -1,6 +1,10 @@
 package main.message_receiver;
 
+import main.logging.AsyncLogger;
+
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
 
 /**
  * The "Misc" class is responsible for handling miscellaneous operations related to monitoring and extracting
@@ -9,20 +13,108 @@ import java.util.*;
  * instances of this class.
  * <p>
  * This class plays a crucial role in processing and managing performance data from multiple VMs,
- * making it a fundamental component of the monitoring system.
+ * making it a fundamental component of the monitoring system. Extracted metrics are appended to a columnar
+ * {@link MetricFrame} rather than kept as one object per virtual machine. The frame holds the rows of the latest
+ * extraction only: it is cleared when the next one starts, so a long-running receiver does not grow it without
+ * bound. Callers read the frame between extractions; history is kept by the rollups.
  *
  * @author Martin Bullman
  * @version 1.0
  * @since 2016-08-04
  */
 public class Misc {
+	/**
+	 * The logger of the typed extraction, which reports every machine extracted at debug level.
+	 */
+	private static final AsyncLogger log = AsyncLogger.get(Misc.class);
 
 	/**
-	 * Class constructor for the "Misc" class. It doesn't perform specific actions but allows
-	 * the creation of instances of this class.
+	 * Setters of the numeric metrics of the sample, indexed by metric ordinal.
+	 */
+	private static final ObjDoubleConsumer<LowLevelResourceMetrics>[] NUMERIC_SETTERS = numericSetters();
+
+	/**
+	 * Setters of the text metrics of the sample, indexed by metric ordinal.
+	 */
+	private static final BiConsumer<LowLevelResourceMetrics, String>[] TEXT_SETTERS = textSetters();
+
+	/**
+	 * The frame the extracted metrics are appended to.
+	 */
+	private final MetricFrame frame;
+
+	/**
+	 * The registry metric names are looked up in.
+	 */
+	private final MetricRegistry registry;
+
+	/**
+	 * The rollups the extracted numeric metrics are added to.
+	 */
+	private final MetricRollup rollup;
+
+	/**
+	 * Reusable sample the metrics of one virtual machine are parsed into before they are appended to the frame.
+	 */
+	private final LowLevelResourceMetrics metrics = new LowLevelResourceMetrics();
+
+	/**
+	 * Class constructor for the "Misc" class which appends extracted metrics to a new frame.
 	 */
 	public Misc() {
+		this(new MetricFrame());
+	}
 
+	/**
+	 * Class constructor for the "Misc" class which appends extracted metrics to the given frame.
+	 *
+	 * @param frame The frame the extracted metrics are appended to.
+	 */
+	public Misc(MetricFrame frame) {
+		this(frame, MetricRegistry.DEFAULT);
+	}
+
+	/**
+	 * Class constructor for the "Misc" class which appends extracted metrics to the given frame and looks metric
+	 * names up in the given registry.
+	 *
+	 * @param frame The frame the extracted metrics are appended to.
+	 * @param registry The registry metric names are looked up in.
+	 */
+	public Misc(MetricFrame frame, MetricRegistry registry) {
+		this(frame, registry, new MetricRollup());
+	}
+
+	/**
+	 * Class constructor for the "Misc" class which appends extracted metrics to the given frame, looks metric names
+	 * up in the given registry and adds the numeric metrics to the given rollups.
+	 *
+	 * @param frame The frame the extracted metrics are appended to.
+	 * @param registry The registry metric names are looked up in.
+	 * @param rollup The rollups the extracted numeric metrics are added to, at the time they are extracted.
+	 */
+	public Misc(MetricFrame frame, MetricRegistry registry, MetricRollup rollup) {
+		this.frame = frame;
+		this.registry = registry;
+		this.rollup = rollup;
+	}
+
+	/**
+	 * Gets the frame the extracted metrics are appended to.
+	 *
+	 * @return The metric frame.
+	 */
+	public MetricFrame getFrame() {
+		return frame;
+	}
+
+	/**
+	 * Gets the rollups the extracted numeric metrics are added to.
+	 *
+	 * @return The metric rollups.
+	 */
+	public MetricRollup getRollup() {
+		return rollup;
 	}
 
 	/**
@@ -60,24 +152,28 @@ public class Misc {
 	}
 
 	/**
-	 * Extracts metrics for each virtual machine and stores them in a "LowLevelResourceMetrics" object.
+	 * Extracts metrics for each virtual machine into the metric frame, one row per machine, replacing the rows of
+	 * the previous extraction. The numeric metrics, and the custom metrics registered in the registry, are also added
+	 * to the rollups of the machine.
 	 *
 	 * @param hostDetails A map containing monitored VMs and their metrics.
 	 */
 	public void extractVmMetrics (Map<String, Map<String, String>> hostDetails) {
-         LowLevelResourceMetrics metrics = new LowLevelResourceMetrics();
 		 Map<String, String> host = null;
 		 Set<String> key1 = null;
-		 Set<String> key2 = null;
 		 int count = 0;
 		 String strip;
 		 long ip = 0;
+		 long now = System.currentTimeMillis();
+
+		 frame.clear();
 
 		 // extract the IP address of the machine
 		 key1 = hostDetails.keySet();
 
 		 for(String inkey:key1){
 			 count++;
+			 metrics.init();
 
 			 try {
 		 	 	 strip = removeChar(inkey, '.'); // remove the points in the ip address.
@@ -90,109 +186,181 @@ public class Misc {
 
 			 // extract the metric-value buffer for each Vm identified by IP
 			 host = hostDetails.get(inkey);
-			 key2 = host.keySet();
-
-			 // extract the metric values of each identified VM and add them to the class object
-			 for(String inkey2 : key2) {
-				 switch (MetricNames.thisName(inkey2)) {
-					case cpu_idle:
-						metrics.setCpuIdle(Double.parseDouble(host.get(inkey2)));
-						break;
-					case cpu_aidle:
-						metrics.setCpuAIdle(Double.parseDouble(host.get(inkey2)));
-						break;
-					case cpu_steal:
-						metrics.setCpuSteal(Double.parseDouble(host.get(inkey2)));
-						break;
-					case cpu_user:
-						metrics.setCpuUserLevel(Double.parseDouble(host.get(inkey2)));
-						break;
-					case cpu_system:
-						metrics.setCpuSystemLevel(Double.parseDouble(host.get(inkey2)));
-						break;
-					case mem_free:
-						metrics.setFreeMemory(Double.parseDouble(host.get(inkey2)));
-						break;
-					case mem_total:
-						metrics.setTotalMemory(Double.parseDouble(host.get(inkey2)));
-						break;
-					case cpu_num:
-						metrics.setNumCpu(Double.parseDouble(host.get(inkey2)));
-						break;
-					case pkts_in:
-						metrics.setInPackets(Double.parseDouble(host.get(inkey2)));
-						break;
-					case boottime:
-						metrics.setBootTime(Double.parseDouble(host.get(inkey2)));
-						break;
-					case cpu_speed:
-						metrics.setCpuSpeed(Double.parseDouble(host.get(inkey2)));
-						break;
-					case pkts_out:
-						metrics.setOutPackets(Double.parseDouble(host.get(inkey2)));
-						break;
-					case disk_free:
-						metrics.setFreeDisk(Double.parseDouble(host.get(inkey2)));
-						break;
-					case part_max_used:
-						metrics.setMaxUsedPartition(Double.parseDouble(host.get(inkey2)));
-						break;
-					case bytes_in:
-						metrics.setInBytes(Double.parseDouble(host.get(inkey2)));
-						break;
-					case bytes_out:
-						metrics.setOutBytes(Double.parseDouble(host.get(inkey2)));
-						break;
-					case disk_total:
-						metrics.setTotalDiskSize(Double.parseDouble(host.get(inkey2)));
-						break;
-					case cpu_wio:
-						metrics.setCpuWio(Double.parseDouble(host.get(inkey2)));
-						break;
-					case cpu_nice:
-						metrics.setCpuNice(Double.parseDouble(host.get(inkey2)));
-						break;
-					case mem_shared:
-						metrics.setSharedMemory(Double.parseDouble(host.get(inkey2)));
-						break;
-					case mem_cached:
-						metrics.setCachedMemory(Double.parseDouble(host.get(inkey2)));
-						break;
-					case mem_buffers:
-						metrics.setMemoryBuffer(Double.parseDouble(host.get(inkey2)));
-						break;
-					case swap_total:
-						metrics.setTotalSwapSpace(Double.parseDouble(host.get(inkey2)));
-						break;
-					case swap_free:
-						metrics.setFreeSwapSpace(Double.parseDouble(host.get(inkey2)));
-						break;
-					case proc_total:
-						metrics.setTotalProcess(Double.parseDouble(host.get(inkey2)));
-						break;
-					case proc_run:
-						metrics.setTotalRunProcess(Double.parseDouble(host.get(inkey2)));
-						break;
-					case load_one:
-						metrics.setOneMinuteLoad(Double.parseDouble(host.get(inkey2)));
-						break;
-					case load_five:
-						metrics.setFiveMinutesLoad(Double.parseDouble(host.get(inkey2)));
-						break;
-					case load_fifteen:
-						metrics.setFifteenMinutesLoad(Double.parseDouble(host.get(inkey2)));
-						break;
-					default:
-						//System.err.println("Unknown metric name");
-						break;
+			 MetricRollup.HostRollup hostRollup = rollup.host(inkey);
+
+			 // extract the metric values of each identified VM and add them to the class object. Custom metrics have
+			 // no field in the sample, so they only go to the rollups. Unknown names are counted by the registry and skipped
+			 for(Map.Entry<String, String> metric : host.entrySet()) {
+				 int id = registry.idOf(metric.getKey());
+				 MetricNames name = registry.metricOf(id);
+
+				 if (name.isText()) {
+					 setText(name, metric.getValue());
+				 }
+				 else if (name != MetricNames.unknown) {
+					 double value = Double.parseDouble(metric.getValue());
+					 setMetric(name, value);
+					 hostRollup.record(now, name, value);
+				 }
+				 else if (registry.isCustom(id)) {
+					 try {
+						 hostRollup.record(now, id, Double.parseDouble(metric.getValue()));
+					 }
+					 catch (NumberFormatException | NullPointerException ne) {
+						 System.err.println("Skipping non numeric value of " + metric.getKey() + ": " + metric.getValue());
+					 }
 				 }
 			 }
 
+			 frame.append(metrics);
+
 			 System.out.println("Virtual machine " + count +" with IP address: " + inkey + " extracted");
 			 // Add here the Hibernate code to input each vm into your DB
 		 }
 	 }
 
+	/**
+	 * Extracts typed metrics for each virtual machine into the metric frame, one row per machine, replacing the rows
+	 * of the previous extraction. The numeric metrics, and the custom metrics registered in the registry, are also
+	 * added to the rollups of the machine.
+	 * <p>
+	 * The values are set directly, without parsing them from strings.
+	 *
+	 * @param hosts The typed metrics of the monitored VMs, as read from a binary message.
+	 */
+	public void extractVmMetrics (List<HostMetrics> hosts) {
+		int count = 0;
+		long now = System.currentTimeMillis();
+
+		frame.clear();
+
+		for (HostMetrics host : hosts) {
+			count++;
+			metrics.init();
+			MetricRollup.HostRollup hostRollup = rollup.host(host.getHost());
+
+			try {
+				metrics.setVmIp(Long.parseLong(removeChar(host.getHost(), '.').trim()));
+			}
+			catch (NumberFormatException ne) {
+				System.err.println("Converting string IP to double failed: " + ne.getMessage());
+			}
+
+			for (MetricNames name : MetricNames.values()) {
+				if (host.has(name)) {
+					if (name.isText()) {
+						setText(name, host.getText(name));
+					}
+					else {
+						setMetric(name, host.get(name));
+						hostRollup.record(now, name, host.get(name));
+					}
+				}
+			}
+
+			// custom metrics are held by their id in the default registry, so they are looked up again by name when
+			// this extraction uses another registry
+			for (Map.Entry<Integer, Double> custom : host.getCustom().entrySet()) {
+				int id = registry == MetricRegistry.DEFAULT ? custom.getKey() : registry.idOf(MetricRegistry.DEFAULT.nameOf(custom.getKey()));
+
+				if (registry.isCustom(id)) {
+					hostRollup.record(now, id, custom.getValue());
+				}
+			}
+
+			frame.append(metrics);
+
+			log.debug("Virtual machine %d with IP address: %s extracted", count, host.getHost());
+		}
+	}
+
+	/**
+	 * Sets a numeric metric on the reusable sample.
+	 *
+	 * @param name The metric name.
+	 * @param value The value of the metric.
+	 */
+	private void setMetric(MetricNames name, double value) {
+		ObjDoubleConsumer<LowLevelResourceMetrics> setter = NUMERIC_SETTERS[name.ordinal()];
+
+		if (setter != null) {
+			setter.accept(metrics, value);
+		}
+	}
+
+	/**
+	 * Sets a text metric on the reusable sample.
+	 *
+	 * @param name The metric name.
+	 * @param value The value of the metric.
+	 */
+	private void setText(MetricNames name, String value) {
+		BiConsumer<LowLevelResourceMetrics, String> setter = TEXT_SETTERS[name.ordinal()];
+
+		if (setter != null) {
+			setter.accept(metrics, value);
+		}
+	}
+
+	/**
+	 * Builds the table of the setters of the numeric metrics of the sample.
+	 *
+	 * @return The setters, indexed by metric ordinal, with null for metrics the sample does not hold.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static ObjDoubleConsumer<LowLevelResourceMetrics>[] numericSetters() {
+		ObjDoubleConsumer<LowLevelResourceMetrics>[] setters = new ObjDoubleConsumer[MetricNames.values().length];
+
+		setters[MetricNames.cpu_idle.ordinal()] = LowLevelResourceMetrics::setCpuIdle;
+		setters[MetricNames.cpu_aidle.ordinal()] = LowLevelResourceMetrics::setCpuAIdle;
+		setters[MetricNames.cpu_steal.ordinal()] = LowLevelResourceMetrics::setCpuSteal;
+		setters[MetricNames.cpu_user.ordinal()] = LowLevelResourceMetrics::setCpuUserLevel;
+		setters[MetricNames.cpu_system.ordinal()] = LowLevelResourceMetrics::setCpuSystemLevel;
+		setters[MetricNames.mem_free.ordinal()] = LowLevelResourceMetrics::setFreeMemory;
+		setters[MetricNames.mem_total.ordinal()] = LowLevelResourceMetrics::setTotalMemory;
+		setters[MetricNames.cpu_num.ordinal()] = LowLevelResourceMetrics::setNumCpu;
+		setters[MetricNames.pkts_in.ordinal()] = LowLevelResourceMetrics::setInPackets;
+		setters[MetricNames.boottime.ordinal()] = LowLevelResourceMetrics::setBootTime;
+		setters[MetricNames.cpu_speed.ordinal()] = LowLevelResourceMetrics::setCpuSpeed;
+		setters[MetricNames.pkts_out.ordinal()] = LowLevelResourceMetrics::setOutPackets;
+		setters[MetricNames.disk_free.ordinal()] = LowLevelResourceMetrics::setFreeDisk;
+		setters[MetricNames.part_max_used.ordinal()] = LowLevelResourceMetrics::setMaxUsedPartition;
+		setters[MetricNames.bytes_in.ordinal()] = LowLevelResourceMetrics::setInBytes;
+		setters[MetricNames.bytes_out.ordinal()] = LowLevelResourceMetrics::setOutBytes;
+		setters[MetricNames.disk_total.ordinal()] = LowLevelResourceMetrics::setTotalDiskSize;
+		setters[MetricNames.cpu_wio.ordinal()] = LowLevelResourceMetrics::setCpuWio;
+		setters[MetricNames.cpu_nice.ordinal()] = LowLevelResourceMetrics::setCpuNice;
+		setters[MetricNames.mem_shared.ordinal()] = LowLevelResourceMetrics::setSharedMemory;
+		setters[MetricNames.mem_cached.ordinal()] = LowLevelResourceMetrics::setCachedMemory;
+		setters[MetricNames.mem_buffers.ordinal()] = LowLevelResourceMetrics::setMemoryBuffer;
+		setters[MetricNames.swap_total.ordinal()] = LowLevelResourceMetrics::setTotalSwapSpace;
+		setters[MetricNames.swap_free.ordinal()] = LowLevelResourceMetrics::setFreeSwapSpace;
+		setters[MetricNames.proc_total.ordinal()] = LowLevelResourceMetrics::setTotalProcess;
+		setters[MetricNames.proc_run.ordinal()] = LowLevelResourceMetrics::setTotalRunProcess;
+		setters[MetricNames.load_one.ordinal()] = LowLevelResourceMetrics::setOneMinuteLoad;
+		setters[MetricNames.load_five.ordinal()] = LowLevelResourceMetrics::setFiveMinutesLoad;
+		setters[MetricNames.load_fifteen.ordinal()] = LowLevelResourceMetrics::setFifteenMinutesLoad;
+		setters[MetricNames.mtu.ordinal()] = LowLevelResourceMetrics::setMaxTransferUnit;
+
+		return setters;
+	}
+
+	/**
+	 * Builds the table of the setters of the text metrics of the sample.
+	 *
+	 * @return The setters, indexed by metric ordinal, with null for metrics which are not text.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static BiConsumer<LowLevelResourceMetrics, String>[] textSetters() {
+		BiConsumer<LowLevelResourceMetrics, String>[] setters = new BiConsumer[MetricNames.values().length];
+
+		setters[MetricNames.os_name.ordinal()] = LowLevelResourceMetrics::setOsName;
+		setters[MetricNames.os_release.ordinal()] = LowLevelResourceMetrics::setOsRelease;
+		setters[MetricNames.machine_type.ordinal()] = LowLevelResourceMetrics::setMachineType;
+
+		return setters;
+	}
+
 	/**
 	 * Removes specified characters from a given string.
 	 *
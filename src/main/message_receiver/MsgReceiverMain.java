@@ -1,5 +1,11 @@
 package main.message_receiver;
 
+import main.codecs.ICodec;
+import main.codecs.CodecRegistry;
+import main.logging.AsyncLogger;
+import main.compression.DictionaryTrainer;
+import main.compression.CompressionDictionary;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.FileInputStream;
@@ -10,7 +16,7 @@ import java.util.Properties;
  * This class serves as the main application for receiving and processing messages from various sources.
  * <p>
  * It configures the message receiver, handles message deserialization using multiple formats, and continuously
- * receives and processes messages. The application allows flexible deserialization of messages based on different
+ * receives and processes messages on the receiver's worker pool. The application allows flexible deserialization of messages based on different
  * serializers and provides real-time feedback on the deserialization format used.
  *
  * @author Martin Bullman
@@ -21,11 +27,14 @@ public class MsgReceiverMain {
 	/**
 	 * The main method of the application for receiving and processing messages. It configures the message receiver,
 	 * handles various deserialization formats, and continuously receives and processes messages.
+	 * <p>
+	 * The number of workers and the prefetch count are read from the receiverWorkers and receiverPrefetch settings,
+	 * the dictionary of compressed messages from the compressionDictionary setting, and the names of the custom
+	 * metrics, which are registered before any message is received, from the comma separated customMetrics setting.
 	 *
 	 * @param args Command-line arguments (not used).
 	 */
 	public static void main (String[] args) {
-		int counter = 0;
 		Properties prop = new Properties();
 		InputStream config = null;
 		MessageReceiver receiver = null;
@@ -33,57 +42,38 @@ public class MsgReceiverMain {
 		try {
 			config = new FileInputStream("config/broker.properties");
 			prop.load(config);
-			receiver = new MessageReceiver(prop.getProperty("hostIP"), prop.getProperty("rabbitUser"), prop.getProperty("rabbitPass"));
+
+			for (String name : prop.getProperty("customMetrics", "").split(",")) {
+				if (! name.trim().isEmpty()) {
+					MetricRegistry.DEFAULT.register(name.trim());
+				}
+			}
+
+			int workers = Integer.parseInt(prop.getProperty("receiverWorkers", String.valueOf(MessageReceiver.DEFAULT_WORKERS)));
+			int prefetch = Integer.parseInt(prop.getProperty("receiverPrefetch", String.valueOf(MessageReceiver.DEFAULT_PREFETCH)));
+
+			receiver = new MessageReceiver(prop.getProperty("hostIP"), prop.getProperty("rabbitUser"), prop.getProperty("rabbitPass"), workers, prefetch);
+			AsyncLogger.configure(prop);
+			receiver.getMetrics().startExports(prop);
+
+			CompressionDictionary dictionary = DictionaryTrainer.fromConfig(prop);
+
+			if (dictionary != null) {
+				receiver.getCompressors().addDictionary(dictionary);
+			}
 		}
 		catch (IOException e) {
 			System.err.println("Error while loading and processing configuration file: " + e.getMessage());
+			return;
 		}
 
 		System.out.println(" [*] Waiting for messages. To exit, press CTRL+C");
 		System.out.println();
 
-		int deserializer = 0;
-
-		while (true) {
-			chooseDeserializer(deserializer);
-
-			while (counter < 5) {
-				counter++;
-
-				switch (counter) {
-					case 1:
-						printHumanReadableFormat("Waiting for JSON data...");
-						receiver.consumeJsonMsg(deserializer);
-						break;
+		// Deliveries are decoded on the receiver's workers, the main thread only has to close the connections on exit.
+		Runtime.getRuntime().addShutdownHook(new Thread(receiver::closeConnections));
 
-					case 2:
-						printHumanReadableFormat("Waiting for CSV data...");
-						receiver.consumeCsvMsg(deserializer);
-						break;
-
-					case 3:
-						printHumanReadableFormat("Waiting for XML data...");
-						receiver.consumeXmlMsg(deserializer);
-						break;
-
-					case 4:
-						printHumanReadableFormat("Waiting for ArrayList data...");
-						receiver.consumeArrayListMsg(deserializer);
-						break;
-
-					default:
-						printHumanReadableFormat("Waiting for HashMap data...");
-						receiver.consumeHashMapMsg(deserializer);
-						break;
-				}
-			}
-			counter = 0;
-			deserializer++;
-
-			if (deserializer > 5) {
-				deserializer = 0;
-			}
-		}
+		receiver.start();
 	}
 
 	/**
@@ -108,9 +98,9 @@ public class MsgReceiverMain {
 	}
 
 	/**
-	 * Choose the deserializer based on the specified index and print the chosen deserializer format.
+	 * Print the deserializer format of the codec with the specified id.
 	 *
-	 * @param deserializer The index of the deserializer to choose.
+	 * @param deserializer The codec id.
 	 */
 	public static void chooseDeserializer (int deserializer) {
 		if (deserializer == 0) {
@@ -131,5 +121,12 @@ public class MsgReceiverMain {
 		else if (deserializer == 5) {
 			printSerializerUsed("          *** MESSAGEPACK DESERIALIZER ***     ");
 		}
+		else {
+			ICodec codec = CodecRegistry.getDefault().get(deserializer);
+
+			if (codec != null) {
+				printSerializerUsed("          *** " + codec.getName().toUpperCase() + " DESERIALIZER ***     ");
+			}
+		}
 	}
 }
@@ -0,0 +1,289 @@
+package main.message_receiver;
+
+import main.helpers.FileHelper;
+import main.helpers.DelimitedLineReader;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.BiConsumer;
+
+/**
+ * This class reads tab separated resource metric files, such as resource_metric.csv, into typed
+ * {@link LowLevelResourceMetrics} rows.
+ * <p>
+ * The first line names the columns (VMIP, CPUIDLE, ...). Each name is matched to the setter of its metric once,
+ * when the header is read; every following line is then read field by field straight from the memory mapped file,
+ * with numbers parsed from the bytes and handed to the setter of their column. No line is split into strings, and
+ * the text columns, which repeat the same few values, reuse the string of the row before whenever they can. Rows
+ * are read into one reusable sample, so a file of any length is read without allocating per row.
+ * <p>
+ * Columns the reader does not know are skipped, and so are blank lines. Rows with a value which is not a number are skipped and reported.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class ResourceMetricCsvReader {
+	/**
+	 * Tab delimiter between the columns.
+	 */
+	private static final char CSV_DELIMITER = '\t';
+
+	/**
+	 * Readers of the numeric columns, keyed by column name.
+	 */
+	private static final Map<String, IColumn> NUMERIC_COLUMNS = new HashMap<>();
+
+	/**
+	 * Setters of the text columns, keyed by column name.
+	 */
+	private static final Map<String, BiConsumer<LowLevelResourceMetrics, String>> TEXT_COLUMNS = new HashMap<>();
+
+	static {
+		NUMERIC_COLUMNS.put("VMIP", (line, metrics) -> metrics.setVmIp(line.parseLong()));
+		NUMERIC_COLUMNS.put("CPUIDLE", (line, metrics) -> metrics.setCpuIdle(line.parseDouble()));
+		NUMERIC_COLUMNS.put("CPUAIDLE", (line, metrics) -> metrics.setCpuAIdle(line.parseDouble()));
+		NUMERIC_COLUMNS.put("CPUUSERLEVEL", (line, metrics) -> metrics.setCpuUserLevel(line.parseDouble()));
+		NUMERIC_COLUMNS.put("CPUSYSTEMLEVEL", (line, metrics) -> metrics.setCpuSystemLevel(line.parseDouble()));
+		NUMERIC_COLUMNS.put("CPUSTEAL", (line, metrics) -> metrics.setCpuSteal(line.parseDouble()));
+		NUMERIC_COLUMNS.put("BOOTTIME", (line, metrics) -> metrics.setBootTime(line.parseDouble()));
+		NUMERIC_COLUMNS.put("NUMCPU", (line, metrics) -> metrics.setNumCpu(line.parseDouble()));
+		NUMERIC_COLUMNS.put("INPACKETS", (line, metrics) -> metrics.setInPackets(line.parseDouble()));
+		NUMERIC_COLUMNS.put("OUTPACKETS", (line, metrics) -> metrics.setOutPackets(line.parseDouble()));
+		NUMERIC_COLUMNS.put("SYSTEMCLOCK", (line, metrics) -> metrics.setSystemClock(line.parseDouble()));
+		NUMERIC_COLUMNS.put("OUTBYTES", (line, metrics) -> metrics.setOutBytes(line.parseDouble()));
+		NUMERIC_COLUMNS.put("INBYTES", (line, metrics) -> metrics.setInBytes(line.parseDouble()));
+		NUMERIC_COLUMNS.put("FREEDISK", (line, metrics) -> metrics.setFreeDisk(line.parseDouble()));
+		NUMERIC_COLUMNS.put("CPUSPEED", (line, metrics) -> metrics.setCpuSpeed(line.parseDouble()));
+		NUMERIC_COLUMNS.put("TOTALMEMORY", (line, metrics) -> metrics.setTotalMemory(line.parseDouble()));
+		NUMERIC_COLUMNS.put("FREEMEMORY", (line, metrics) -> metrics.setFreeMemory(line.parseDouble()));
+		NUMERIC_COLUMNS.put("TOTALDISKSIZE", (line, metrics) -> metrics.setTotalDiskSize(line.parseDouble()));
+		NUMERIC_COLUMNS.put("MAXUSEDPARTITION", (line, metrics) -> metrics.setMaxUsedPartition(line.parseDouble()));
+		NUMERIC_COLUMNS.put("MAXTRANSFERUNIT", (line, metrics) -> metrics.setMaxTransferUnit(line.parseDouble()));
+		NUMERIC_COLUMNS.put("CPUWIO", (line, metrics) -> metrics.setCpuWio(line.parseDouble()));
+		NUMERIC_COLUMNS.put("CPUNICE", (line, metrics) -> metrics.setCpuNice(line.parseDouble()));
+		NUMERIC_COLUMNS.put("SHAREDMEMORY", (line, metrics) -> metrics.setSharedMemory(line.parseDouble()));
+		NUMERIC_COLUMNS.put("CACHEDMEMORY", (line, metrics) -> metrics.setCachedMemory(line.parseDouble()));
+		NUMERIC_COLUMNS.put("MEMORYBUFFER", (line, metrics) -> metrics.setMemoryBuffer(line.parseDouble()));
+		NUMERIC_COLUMNS.put("TOTALSWAPSPACE", (line, metrics) -> metrics.setTotalSwapSpace(line.parseDouble()));
+		NUMERIC_COLUMNS.put("FREESWAPSPACE", (line, metrics) -> metrics.setFreeSwapSpace(line.parseDouble()));
+		NUMERIC_COLUMNS.put("TOTALNUMPROCESSES", (line, metrics) -> metrics.setTotalProcess(line.parseDouble()));
+		NUMERIC_COLUMNS.put("TOTALRUNPROCESSES", (line, metrics) -> metrics.setTotalRunProcess(line.parseDouble()));
+		NUMERIC_COLUMNS.put("ONEMINUTELOAD", (line, metrics) -> metrics.setOneMinuteLoad(line.parseDouble()));
+		NUMERIC_COLUMNS.put("FIVEMINUTESLOAD", (line, metrics) -> metrics.setFiveMinutesLoad(line.parseDouble()));
+		NUMERIC_COLUMNS.put("FIFTEENMINUTESLOAD", (line, metrics) -> metrics.setFifteenMinutesLoad(line.parseDouble()));
+
+		TEXT_COLUMNS.put("OSNAME", LowLevelResourceMetrics::setOsName);
+		TEXT_COLUMNS.put("OSRELEASE", LowLevelResourceMetrics::setOsRelease);
+		TEXT_COLUMNS.put("MACHINETYPE", LowLevelResourceMetrics::setMachineType);
+	}
+
+	/**
+	 * The bytes of the file.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Reusable sample each row is read into.
+	 */
+	private final LowLevelResourceMetrics metrics = new LowLevelResourceMetrics();
+
+	/**
+	 * Number of rows skipped by the last read because a value could not be parsed.
+	 */
+	private int skippedRows = 0;
+
+	/**
+	 * Number of columns of the header of the last read which the reader does not know.
+	 */
+	private int unknownColumns = 0;
+
+	/**
+	 * Constructor which takes a resource metric file.
+	 *
+	 * @param inputFile The file, which is memory mapped rather than read.
+	 */
+	public ResourceMetricCsvReader (File inputFile) {
+		ByteBuffer mapped = new FileHelper().mapFile(inputFile);
+
+		this.buffer = mapped == null ? ByteBuffer.allocate(0) : mapped;
+	}
+
+	/**
+	 * Constructor which takes the bytes of resource metric data.
+	 *
+	 * @param buffer The data, from the position up to the limit of the buffer, which is not changed.
+	 */
+	public ResourceMetricCsvReader (ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Reads every row and hands it to a consumer.
+	 * <p>
+	 * The consumer is given the same sample for every row, so it must copy out what it keeps before it returns.
+	 *
+	 * @param rows The consumer of the rows.
+	 * @return The number of rows read.
+	 */
+	public int read (Consumer<LowLevelResourceMetrics> rows) {
+		DelimitedLineReader line = new DelimitedLineReader(buffer, CSV_DELIMITER);
+		skippedRows = 0;
+		unknownColumns = 0;
+
+		if (! line.nextLine()) {
+			return 0;
+		}
+
+		IColumn[] columns = readHeader(line);
+		int lineNumber = 1;
+		int count = 0;
+
+		while (line.nextLine()) {
+			lineNumber++;
+
+			if (line.lineLength() == 0) {
+				continue;
+			}
+
+			metrics.init();
+
+			try {
+				for (int i = 0; line.nextField(); i++) {
+					if (i < columns.length && columns[i] != null) {
+						columns[i].read(line, metrics);
+					}
+				}
+			}
+			catch (NumberFormatException ex) {
+				System.err.println("Skipping line " + lineNumber + " of resource metrics: " + ex.getMessage());
+				line.skipLine();
+				skippedRows++;
+				continue;
+			}
+
+			rows.accept(metrics);
+			count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Reads every row and appends it to a metric frame.
+	 *
+	 * @param frame The frame the rows are appended to.
+	 * @return The number of rows read.
+	 */
+	public int readInto (MetricFrame frame) {
+		return read(frame::append);
+	}
+
+	/**
+	 * Gets the number of rows skipped by the last read because a value could not be parsed.
+	 *
+	 * @return The number of skipped rows.
+	 */
+	public int getSkippedRows () {
+		return skippedRows;
+	}
+
+	/**
+	 * Gets the number of columns of the header of the last read which the reader does not know.
+	 *
+	 * @return The number of unknown columns.
+	 */
+	public int getUnknownColumns () {
+		return unknownColumns;
+	}
+
+	/**
+	 * Matches each column of the header line to the reader of its metric.
+	 *
+	 * @param line The reader, on the header line.
+	 * @return The reader of each column, or null for columns which are skipped.
+	 */
+	private IColumn[] readHeader (DelimitedLineReader line) {
+		IColumn[] columns = new IColumn[64];
+		int count = 0;
+
+		while (line.nextField()) {
+			String name = line.fieldString().trim().toUpperCase();
+			IColumn column = NUMERIC_COLUMNS.get(name);
+
+			if (column == null && TEXT_COLUMNS.containsKey(name)) {
+				column = new TextColumn(TEXT_COLUMNS.get(name));
+			}
+
+			if (column == null) {
+				unknownColumns++;
+			}
+
+			if (count == columns.length) {
+				columns = Arrays.copyOf(columns, count * 2);
+			}
+
+			columns[count++] = column;
+		}
+
+		return Arrays.copyOf(columns, count);
+	}
+
+	/**
+	 * Interface of the reader of one column, which sets its metric from the current field of a line.
+	 */
+	private interface IColumn {
+		/**
+		 * Sets the metric of the column from the current field.
+		 *
+		 * @param line The reader, on the field of the column.
+		 * @param metrics The sample the row is read into.
+		 * @throws NumberFormatException If the field of a numeric column is not a number.
+		 */
+		public void read (DelimitedLineReader line, LowLevelResourceMetrics metrics);
+	}
+
+	/**
+	 * Reader of a text column, which reuses the string of the row before when the value has not changed.
+	 */
+	private static class TextColumn implements IColumn {
+		/**
+		 * The setter of the metric.
+		 */
+		private final BiConsumer<LowLevelResourceMetrics, String> setter;
+
+		/**
+		 * The value of the column in the row before.
+		 */
+		private String last = null;
+
+		/**
+		 * Constructor which takes the setter of the metric.
+		 *
+		 * @param setter The setter of the metric.
+		 */
+		private TextColumn (BiConsumer<LowLevelResourceMetrics, String> setter) {
+			this.setter = setter;
+		}
+
+		/**
+		 * Sets the metric of the column from the current field.
+		 *
+		 * @param line The reader, on the field of the column.
+		 * @param metrics The sample the row is read into.
+		 */
+		@Override
+		public void read (DelimitedLineReader line, LowLevelResourceMetrics metrics) {
+			if (! line.fieldEquals(last)) {
+				last = line.fieldString();
+			}
+
+			setter.accept(metrics, last);
+		}
+	}
+}
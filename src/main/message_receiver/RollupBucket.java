@@ -0,0 +1,162 @@
+package main.message_receiver;
+
+/**
+ * Class which holds the aggregate of one metric over one bucket of time, as read from a {@link MetricRollup}.
+ * <p>
+ * Buckets are values: they are copied out of the rollup, so they do not change when more samples are recorded.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class RollupBucket {
+	/**
+	 * Start of the bucket in milliseconds since the epoch.
+	 */
+	private final long start;
+
+	/**
+	 * Width of the bucket in milliseconds.
+	 */
+	private final long width;
+
+	/**
+	 * Smallest value recorded.
+	 */
+	private final double min;
+
+	/**
+	 * Largest value recorded.
+	 */
+	private final double max;
+
+	/**
+	 * Sum of the values recorded.
+	 */
+	private final double sum;
+
+	/**
+	 * Number of values recorded.
+	 */
+	private final long count;
+
+	/**
+	 * Last value recorded.
+	 */
+	private final double last;
+
+	/**
+	 * Constructor which takes the aggregates of the bucket.
+	 *
+	 * @param start Start of the bucket in milliseconds since the epoch.
+	 * @param width Width of the bucket in milliseconds.
+	 * @param min Smallest value recorded.
+	 * @param max Largest value recorded.
+	 * @param sum Sum of the values recorded.
+	 * @param count Number of values recorded.
+	 * @param last Last value recorded.
+	 */
+	public RollupBucket (long start, long width, double min, double max, double sum, long count, double last) {
+		this.start = start;
+		this.width = width;
+		this.min = min;
+		this.max = max;
+		this.sum = sum;
+		this.count = count;
+		this.last = last;
+	}
+
+	/**
+	 * Combines this bucket with the bucket which follows it into one bucket covering both.
+	 *
+	 * @param next The later bucket.
+	 * @return The combined bucket.
+	 */
+	public RollupBucket merge (RollupBucket next) {
+		return new RollupBucket(start, next.start + next.width - start, Math.min(min, next.min), Math.max(max, next.max),
+				sum + next.sum, count + next.count, next.last);
+	}
+
+	/**
+	 * Gets the start of the bucket.
+	 *
+	 * @return The start in milliseconds since the epoch.
+	 */
+	public long getStart () {
+		return start;
+	}
+
+	/**
+	 * Gets the width of the bucket.
+	 *
+	 * @return The width in milliseconds.
+	 */
+	public long getWidth () {
+		return width;
+	}
+
+	/**
+	 * Gets the smallest value recorded.
+	 *
+	 * @return The smallest value.
+	 */
+	public double getMin () {
+		return min;
+	}
+
+	/**
+	 * Gets the largest value recorded.
+	 *
+	 * @return The largest value.
+	 */
+	public double getMax () {
+		return max;
+	}
+
+	/**
+	 * Gets the sum of the values recorded.
+	 *
+	 * @return The sum.
+	 */
+	public double getSum () {
+		return sum;
+	}
+
+	/**
+	 * Gets the number of values recorded.
+	 *
+	 * @return The number of values.
+	 */
+	public long getCount () {
+		return count;
+	}
+
+	/**
+	 * Gets the last value recorded.
+	 *
+	 * @return The last value.
+	 */
+	public double getLast () {
+		return last;
+	}
+
+	/**
+	 * Gets the average of the values recorded.
+	 *
+	 * @return The average, or NaN if no value was recorded.
+	 */
+	public double getAverage () {
+		return count == 0 ? Double.NaN : sum / count;
+	}
+
+	/**
+	 * Describes the bucket.
+	 *
+	 * @return The start, count, min, max, average and last value of the bucket.
+	 */
+	@Override
+	public String toString () {
+		return "RollupBucket{start=" + start + ", count=" + count + ", min=" + min + ", max=" + max + ", avg="
+				+ getAverage() + ", last=" + last + "}";
+	}
+}
@@ -0,0 +1,67 @@
+package main.message_receiver;
+
+/**
+ * An enumerator listing the resolutions {@link MetricRollup} aggregates metrics at.
+ * <p>
+ * Every resolution splits time into buckets of a fixed width, aligned to the epoch, and keeps a fixed number of the
+ * most recent buckets: one minute buckets cover the last hour, five minute buckets the last six hours and one hour
+ * buckets the last two days.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public enum RollupResolution {
+	ONE_MINUTE(60 * 1000L, 60),
+	FIVE_MINUTES(5 * 60 * 1000L, 72),
+	ONE_HOUR(60 * 60 * 1000L, 48);
+
+	/**
+	 * Width of a bucket in milliseconds.
+	 */
+	private final long bucketMillis;
+
+	/**
+	 * Number of buckets kept.
+	 */
+	private final int bucketCount;
+
+	/**
+	 * Constructor which takes the width and number of the buckets.
+	 *
+	 * @param bucketMillis Width of a bucket in milliseconds.
+	 * @param bucketCount Number of buckets kept.
+	 */
+	RollupResolution (long bucketMillis, int bucketCount) {
+		this.bucketMillis = bucketMillis;
+		this.bucketCount = bucketCount;
+	}
+
+	/**
+	 * Gets the width of a bucket.
+	 *
+	 * @return The width of a bucket in milliseconds.
+	 */
+	public long getBucketMillis () {
+		return bucketMillis;
+	}
+
+	/**
+	 * Gets the number of buckets kept.
+	 *
+	 * @return The number of buckets.
+	 */
+	public int getBucketCount () {
+		return bucketCount;
+	}
+
+	/**
+	 * Gets the start of the bucket a time falls in.
+	 *
+	 * @param timeMillis The time in milliseconds since the epoch.
+	 * @return The start of the bucket in milliseconds since the epoch.
+	 */
+	public long bucketStart (long timeMillis) {
+		return Math.floorDiv(timeMillis, bucketMillis) * bucketMillis;
+	}
+}
@@ -0,0 +1,194 @@
+package main.message_receiver;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class which aggregates the metrics of one host at one {@link RollupResolution} in a fixed ring of buckets.
+ * <p>
+ * Each bucket holds the min, max, sum, count and last value of every numeric metric. The aggregates live in flat
+ * arrays of primitives, laid out metric by metric so the buckets of one metric are next to each other. When a
+ * sample falls in a newer bucket than the one held in its slot, the slot is emptied and reused, so the ring never
+ * grows and always holds the most recent buckets. Samples older than the oldest bucket are dropped.
+ * <p>
+ * A ring is not thread safe; {@link MetricRollup} guards each host with a lock.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+class RollupRing {
+	/**
+	 * Number of metric slots per bucket, one for every metric name other than {@link MetricNames#unknown}.
+	 */
+	static final int NUM_METRICS = MetricNames.unknown.ordinal();
+
+	/**
+	 * Marks a slot which holds no bucket.
+	 */
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	/**
+	 * The resolution of the ring.
+	 */
+	private final RollupResolution resolution;
+
+	/**
+	 * Number of metric slots per bucket.
+	 */
+	private final int metrics;
+
+	/**
+	 * Number of buckets in the ring.
+	 */
+	private final int buckets;
+
+	/**
+	 * Start of the bucket held in each slot, or {@link #EMPTY}.
+	 */
+	private final long[] starts;
+
+	/**
+	 * Start of the newest bucket, or {@link #EMPTY}.
+	 */
+	private long newest = EMPTY;
+
+	/**
+	 * Smallest values, indexed by metric and slot.
+	 */
+	private final double[] min;
+
+	/**
+	 * Largest values, indexed by metric and slot.
+	 */
+	private final double[] max;
+
+	/**
+	 * Sums of the values, indexed by metric and slot.
+	 */
+	private final double[] sum;
+
+	/**
+	 * Last values, indexed by metric and slot.
+	 */
+	private final double[] last;
+
+	/**
+	 * Numbers of values, indexed by metric and slot.
+	 */
+	private final long[] count;
+
+	/**
+	 * Constructor which takes the resolution of the ring, with a slot for every metric of {@link MetricNames}.
+	 *
+	 * @param resolution The width and number of the buckets.
+	 */
+	RollupRing (RollupResolution resolution) {
+		this(resolution, NUM_METRICS);
+	}
+
+	/**
+	 * Constructor which takes the resolution of the ring and the number of metric slots per bucket.
+	 *
+	 * @param resolution The width and number of the buckets.
+	 * @param metrics The number of metric slots per bucket.
+	 */
+	RollupRing (RollupResolution resolution, int metrics) {
+		this.resolution = resolution;
+		this.metrics = metrics;
+		this.buckets = resolution.getBucketCount();
+		this.starts = new long[buckets];
+		this.min = new double[metrics * buckets];
+		this.max = new double[metrics * buckets];
+		this.sum = new double[metrics * buckets];
+		this.last = new double[metrics * buckets];
+		this.count = new long[metrics * buckets];
+
+		Arrays.fill(starts, EMPTY);
+	}
+
+	/**
+	 * Adds a value to the bucket its time falls in.
+	 *
+	 * @param timeMillis The time of the value in milliseconds since the epoch.
+	 * @param metric The slot of the metric, which is its ordinal in a ring of every metric of MetricNames.
+	 * @param value The value.
+	 * @return False if the value was dropped because it is older than the oldest bucket of the ring.
+	 */
+	boolean record (long timeMillis, int metric, double value) {
+		long start = resolution.bucketStart(timeMillis);
+		int slot = slotOf(start);
+
+		if (starts[slot] != start) {
+			if (starts[slot] != EMPTY && starts[slot] > start) {
+				return false;
+			}
+
+			starts[slot] = start;
+			for (int m = 0; m < metrics; m++) {
+				count[m * buckets + slot] = 0;
+			}
+
+			if (newest == EMPTY || start > newest) {
+				newest = start;
+			}
+		}
+
+		int index = metric * buckets + slot;
+
+		if (count[index] == 0) {
+			min[index] = value;
+			max[index] = value;
+			sum[index] = value;
+		}
+		else {
+			min[index] = Math.min(min[index], value);
+			max[index] = Math.max(max[index], value);
+			sum[index] += value;
+		}
+
+		last[index] = value;
+		count[index]++;
+
+		return true;
+	}
+
+	/**
+	 * Copies the buckets of a metric which start between two times, oldest first. Buckets in which the metric was
+	 * not recorded are left out.
+	 *
+	 * @param metric The slot of the metric, which is its ordinal in a ring of every metric of MetricNames.
+	 * @param fromMillis The earliest time, in milliseconds since the epoch, whose bucket is included.
+	 * @param toMillis The latest time, in milliseconds since the epoch, whose bucket is included.
+	 * @param out The list the buckets are added to.
+	 */
+	void collect (int metric, long fromMillis, long toMillis, List<RollupBucket> out) {
+		if (newest == EMPTY) {
+			return;
+		}
+
+		long width = resolution.getBucketMillis();
+		long oldest = newest - (buckets - 1) * width;
+		long first = Math.max(resolution.bucketStart(fromMillis), oldest);
+		long end = Math.min(resolution.bucketStart(toMillis), newest);
+
+		for (long start = first; start <= end; start += width) {
+			int slot = slotOf(start);
+			int index = metric * buckets + slot;
+
+			if (starts[slot] == start && count[index] > 0) {
+				out.add(new RollupBucket(start, width, min[index], max[index], sum[index], count[index], last[index]));
+			}
+		}
+	}
+
+	/**
+	 * Gets the slot of the bucket starting at a time.
+	 *
+	 * @param start The start of the bucket.
+	 * @return The index of the slot.
+	 */
+	private int slotOf (long start) {
+		return (int) Math.floorMod(start / resolution.getBucketMillis(), (long) buckets);
+	}
+}
@@ -0,0 +1,355 @@
+package main.message_receiver;
+
+import main.codecs.PayloadKind;
+import main.codecs.MessageEnvelope;
+import main.formatters.RecordSet;
+
+import com.naphaso.cbor.type.CborObject;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Class which puts datasets sent in parts back together, decoding the parts in parallel on a fork/join pool.
+ * <p>
+ * Every part of a transfer is a complete CSV, XML or JSON document serialized with one of the codecs, so the parts
+ * are decoded as they arrive, in whatever order that is. Decoded parts are held until every part before them has
+ * been decoded and are then handed to an {@link ITransferHandler} in order, so the rows of a large dataset flow out
+ * while its later parts are still on the way and only the parts which arrived early are held in memory. Parts which
+ * are delivered twice are only handed over once. A transfer which gets no part for longer than the timeout, because
+ * the sender failed or a part was lost, is dropped the next time a part arrives or {@link #expire()} is called.
+ * <p>
+ * The deserializers are not safe to share between threads, so every thread of the pool keeps a
+ * {@link DeserializerSet} of its own. The reassembler is safe to use from several threads.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class TransferReassembler {
+	/**
+	 * Default time in milliseconds a transfer is kept without a new part arriving.
+	 */
+	public static final long DEFAULT_TIMEOUT_MILLIS = 60000;
+
+	/**
+	 * The pool the parts are decoded on.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * The handler the rows of the transfers are handed to.
+	 */
+	private final ITransferHandler handler;
+
+	/**
+	 * Time in milliseconds a transfer is kept without a new part arriving.
+	 */
+	private final long timeoutMillis;
+
+	/**
+	 * The deserializers of every thread of the pool.
+	 */
+	private final ThreadLocal<DeserializerSet> deserializerSets = ThreadLocal.withInitial(DeserializerSet::new);
+
+	/**
+	 * The transfers which have not been completed, keyed by transfer id.
+	 */
+	private final Map<String, Transfer> transfers = new ConcurrentHashMap<>();
+
+	/**
+	 * The time in milliseconds every transfer completed within the timeout was completed, keyed by transfer id, so
+	 * parts delivered again after the end of their transfer are not taken for a new one.
+	 */
+	private final Map<String, Long> completed = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of transfers dropped because no part of them arrived for too long.
+	 */
+	private final AtomicLong expiredCount = new AtomicLong();
+
+	/**
+	 * Constructor which takes the pool, the handler and the timeout.
+	 *
+	 * @param pool The pool the parts are decoded on.
+	 * @param handler The handler the rows of the transfers are handed to.
+	 * @param timeoutMillis The time in milliseconds a transfer is kept without a new part arriving.
+	 * @throws IllegalArgumentException If the timeout is not greater than zero.
+	 */
+	public TransferReassembler (ForkJoinPool pool, ITransferHandler handler, long timeoutMillis) {
+		if (timeoutMillis <= 0) {
+			throw new IllegalArgumentException("Transfer timeout must be greater than zero: " + timeoutMillis);
+		}
+
+		this.pool = pool;
+		this.handler = handler;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Adds a part of a transfer and starts decoding it on the pool. The state of a transfer is sized by its number
+	 * of parts, which the envelope limits to {@link MessageEnvelope#MAX_PARTS}.
+	 *
+	 * @param message The envelope of the part.
+	 * @param body The body of the part, already decompressed.
+	 * @return A future which completes with true once the part has been decoded and taken in, or if it had been
+	 * taken in before, and with false if the part does not fit its transfer or the transfer has expired. The future
+	 * completes exceptionally if the part cannot be decoded.
+	 */
+	public CompletableFuture<Boolean> add (MessageEnvelope message, byte[] body) {
+		if (! message.isPart() || ! isChunkable(message.getKind())) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		String transferId = message.getTransfer();
+		expire();
+
+		if (completed.containsKey(transferId)) {
+			return CompletableFuture.completedFuture(true);
+		}
+
+		Transfer transfer = transfers.computeIfAbsent(transferId, id -> new Transfer(id, message.getParts()));
+
+		if (transfer.parts != message.getParts()) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		if (transfer.isReceived(message.getPart())) {
+			return CompletableFuture.completedFuture(true);
+		}
+
+		return CompletableFuture.supplyAsync(() -> transfer.complete(message.getPart(), decode(message, body)), pool);
+	}
+
+	/**
+	 * Drops every transfer which got no part for longer than the timeout, and forgets transfers completed longer
+	 * than the timeout ago.
+	 */
+	public void expire () {
+		long now = System.currentTimeMillis();
+		Iterator<Transfer> open = transfers.values().iterator();
+
+		while (open.hasNext()) {
+			Transfer transfer = open.next();
+
+			if (now - transfer.lastPartMillis > timeoutMillis && transfer.expire()) {
+				open.remove();
+				expiredCount.incrementAndGet();
+			}
+		}
+
+		completed.values().removeIf(completedMillis -> now - completedMillis > timeoutMillis);
+	}
+
+	/**
+	 * Gets the number of transfers which have not been completed or dropped.
+	 *
+	 * @return The number of open transfers.
+	 */
+	public int getOpenTransfers () {
+		return transfers.size();
+	}
+
+	/**
+	 * Gets the number of transfers dropped because no part of them arrived for too long.
+	 *
+	 * @return The number of expired transfers.
+	 */
+	public long getExpiredCount () {
+		return expiredCount.get();
+	}
+
+	/**
+	 * Deserializes a part with the deserializers of the calling thread and reads its rows.
+	 *
+	 * @param message The envelope of the part.
+	 * @param body The body of the part.
+	 * @return The rows of the part.
+	 * @throws IllegalArgumentException If the part cannot be deserialized or is not a valid document of its kind.
+	 */
+	private RecordSet decode (MessageEnvelope message, byte[] body) {
+		String text = toText(deserializerSets.get().get(message.getCodec()).deserializeString(body));
+
+		if (text == null) {
+			throw new IllegalArgumentException("Could not deserialize the text of " + message);
+		}
+
+		try {
+			switch (message.getKind()) {
+				case CSV:
+					return RecordSet.fromCsv(new StringReader(text));
+				case XML:
+					return RecordSet.fromXml(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+				default:
+					return RecordSet.fromJson(text);
+			}
+		}
+		catch (IOException | XMLStreamException e) {
+			throw new IllegalArgumentException("Could not read the rows of " + message, e);
+		}
+	}
+
+	/**
+	 * Gets the text a deserializer decoded. Most deserializers decode a String; CBOR decodes a text object.
+	 *
+	 * @param data The decoded data.
+	 * @return The text, or null if the data is not text.
+	 */
+	private static String toText (Object data) {
+		if (data instanceof CborObject && ((CborObject) data).isString()) {
+			data = ((CborObject) data).toObject();
+		}
+
+		return data instanceof String ? (String) data : null;
+	}
+
+	/**
+	 * Checks if a payload kind can be sent in parts.
+	 *
+	 * @param kind The payload kind.
+	 * @return True for CSV, XML and JSON.
+	 */
+	private static boolean isChunkable (PayloadKind kind) {
+		return kind == PayloadKind.CSV || kind == PayloadKind.XML || kind == PayloadKind.JSON;
+	}
+
+	/**
+	 * Class which holds the state of one transfer. All access to the parts is synchronized on the transfer, which
+	 * also serializes the calls to the handler.
+	 */
+	private class Transfer {
+		/**
+		 * The id of the transfer.
+		 */
+		final String id;
+
+		/**
+		 * The number of parts of the transfer.
+		 */
+		final int parts;
+
+		/**
+		 * Which parts have been taken in.
+		 */
+		private final boolean[] received;
+
+		/**
+		 * The decoded parts which are waiting for an earlier part, null once handed over.
+		 */
+		private final RecordSet[] decoded;
+
+		/**
+		 * The index of the next part to hand over.
+		 */
+		private int next = 0;
+
+		/**
+		 * The number of parts taken in.
+		 */
+		private int receivedCount = 0;
+
+		/**
+		 * The number of rows handed over.
+		 */
+		private int rowCount = 0;
+
+		/**
+		 * True once the transfer has been dropped.
+		 */
+		private boolean expired = false;
+
+		/**
+		 * The time in milliseconds the transfer was started or last took in a part.
+		 */
+		volatile long lastPartMillis = System.currentTimeMillis();
+
+		/**
+		 * Constructor which takes the id and the number of parts.
+		 *
+		 * @param id The id of the transfer.
+		 * @param parts The number of parts.
+		 */
+		Transfer (String id, int parts) {
+			this.id = id;
+			this.parts = parts;
+			this.received = new boolean[parts];
+			this.decoded = new RecordSet[parts];
+		}
+
+		/**
+		 * Checks if a part has been taken in.
+		 *
+		 * @param part The index of the part.
+		 * @return True if it has.
+		 */
+		synchronized boolean isReceived (int part) {
+			return received[part];
+		}
+
+		/**
+		 * Takes in a decoded part, then hands over every part which no longer waits for an earlier one and ends
+		 * the transfer after the last.
+		 *
+		 * @param part The index of the part.
+		 * @param rows The rows of the part.
+		 * @return False if the transfer has expired, otherwise true.
+		 */
+		synchronized boolean complete (int part, RecordSet rows) {
+			if (expired) {
+				return false;
+			}
+
+			lastPartMillis = System.currentTimeMillis();
+
+			if (received[part]) {
+				return true;
+			}
+
+			received[part] = true;
+			decoded[part] = rows;
+			receivedCount++;
+
+			while (next < parts && decoded[next] != null) {
+				RecordSet ready = decoded[next];
+				decoded[next++] = null;
+
+				handler.rows(id, rowCount, ready);
+				rowCount += ready.getNumRows();
+			}
+
+			if (next == parts) {
+				completed.put(id, lastPartMillis);
+				transfers.remove(id);
+				handler.end(id, rowCount);
+			}
+
+			return true;
+		}
+
+		/**
+		 * Drops the transfer unless it has just been completed.
+		 *
+		 * @return True if the transfer was dropped.
+		 */
+		synchronized boolean expire () {
+			if (next == parts) {
+				return false;
+			}
+
+			expired = true;
+			handler.expired(id, receivedCount);
+
+			return true;
+		}
+	}
+}
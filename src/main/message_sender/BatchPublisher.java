@@ -0,0 +1,539 @@
+package main.message_sender;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.ConfirmListener;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Class which publishes messages in batches with pipelined publisher confirms.
+ * <p>
+ * Messages are collected until a batch is full and then published without waiting for the broker. The confirms
+ * arrive asynchronously on a {@link ConfirmListener}, so many messages are in flight at once instead of one round
+ * trip per message. The number of unconfirmed messages is limited by a window; when it is full, adding a message
+ * blocks until the broker confirms earlier ones, which pushes back on the producer. Messages rejected by the broker
+ * or which could not be published are published again with the next batch or on {@link #flush(long)}, ahead of the
+ * newer messages and in the order they were added. {@link #flush(long)} waits a little longer before every retry,
+ * and a message is given up after {@link #MAX_ATTEMPTS} attempts. Once the target is closed, nothing is published
+ * again: the unpublished and unconfirmed messages are dropped, their places in the window are freed so nothing
+ * blocks on confirms which will never come, and {@link #flush(long)} fails straight away.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class BatchPublisher implements ConfirmListener {
+	/**
+	 * Number of times a message is published before it is given up.
+	 */
+	public static final int MAX_ATTEMPTS = 3;
+
+	/**
+	 * Time waited before the first retry in {@link #flush(long)}, in milliseconds. Doubles with every retry.
+	 */
+	private static final long MIN_RETRY_DELAY_MILLIS = 50;
+
+	/**
+	 * Longest time waited before a retry in {@link #flush(long)}, in milliseconds.
+	 */
+	private static final long MAX_RETRY_DELAY_MILLIS = 1000;
+
+	/**
+	 * Longest time waited for a place in the window before checking again whether the target is closed, in
+	 * milliseconds.
+	 */
+	private static final long WINDOW_POLL_MILLIS = 100;
+
+	/**
+	 * Where the messages are published.
+	 */
+	private final IPublishTarget target;
+
+	/**
+	 * The name of the exchange the messages are published to.
+	 */
+	private final String exchange;
+
+	/**
+	 * The routing key of the messages.
+	 */
+	private final String routingKey;
+
+	/**
+	 * Number of messages collected before a batch is published.
+	 */
+	private final int batchSize;
+
+	/**
+	 * Permits for the messages which may be unconfirmed at the same time.
+	 */
+	private final Semaphore window;
+
+	/**
+	 * The messages collected for the next batch.
+	 */
+	private final List<Message> pending = new ArrayList<>();
+
+	/**
+	 * The published messages waiting for a confirm, keyed by sequence number.
+	 */
+	private final ConcurrentSkipListMap<Long, Message> outstanding = new ConcurrentSkipListMap<>();
+
+	/**
+	 * The messages rejected by the broker or which could not be published, waiting to be published again, keyed by
+	 * the order they were added in.
+	 */
+	private final ConcurrentSkipListMap<Long, Message> rejected = new ConcurrentSkipListMap<>();
+
+	/**
+	 * The number the next message added is given, which keeps retried messages in the order they were added.
+	 */
+	private long nextOrder = 0;
+
+	/**
+	 * True once the target has been found closed.
+	 */
+	private volatile boolean closed = false;
+
+	/**
+	 * Lock used to wait for confirms in {@link #flush(long)}.
+	 */
+	private final Object confirmLock = new Object();
+
+	/**
+	 * Number of messages acknowledged by the broker.
+	 */
+	private final AtomicLong confirmedCount = new AtomicLong();
+
+	/**
+	 * Number of times a message was rejected by the broker or could not be published.
+	 */
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	/**
+	 * Number of messages given up, after too many attempts or because the target was closed.
+	 */
+	private final AtomicLong failedCount = new AtomicLong();
+
+	/**
+	 * Constructor which turns on publisher confirms on the target.
+	 *
+	 * @param target Where the messages are published.
+	 * @param exchange The name of the exchange the messages are published to.
+	 * @param routingKey The routing key of the messages.
+	 * @param batchSize Number of messages collected before a batch is published.
+	 * @param windowSize Number of messages which may be unconfirmed at the same time.
+	 * @throws IOException If publisher confirms could not be turned on.
+	 */
+	public BatchPublisher (IPublishTarget target, String exchange, String routingKey, int batchSize, int windowSize)
+			throws IOException {
+		this.target = target;
+		this.exchange = exchange;
+		this.routingKey = routingKey;
+		this.batchSize = Math.max(1, batchSize);
+		this.window = new Semaphore(Math.max(1, windowSize));
+
+		target.enableConfirms(this);
+		target.addCloseListener(() -> giveUp(List.of()));
+	}
+
+	/**
+	 * Adds a message without properties to the current batch, publishing the batch if it is full. Blocks while the
+	 * window of unconfirmed messages is full.
+	 *
+	 * @param body The body of the message.
+	 */
+	public void add (byte[] body) {
+		add(null, body);
+	}
+
+	/**
+	 * Adds a message to the current batch, publishing the batch if it is full. Blocks while the window of
+	 * unconfirmed messages is full and the target is open.
+	 *
+	 * @param properties The properties and headers of the message, may be null.
+	 * @param body The body of the message.
+	 */
+	public synchronized void add (AMQP.BasicProperties properties, byte[] body) {
+		pending.add(new Message(nextOrder++, properties, body));
+
+		if (pending.size() >= batchSize) {
+			publishPending(false, 0);
+		}
+	}
+
+	/**
+	 * Publishes the current batch and any rejected messages, then waits until every message has been confirmed.
+	 * Rejected messages are published again after a delay which doubles with every retry.
+	 *
+	 * @param timeoutMillis The longest time to wait, in milliseconds.
+	 * @return True if every message was acknowledged, false if the timeout passed first, a message was given up or
+	 * the target is closed.
+	 */
+	public boolean flush (long timeoutMillis) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		long failedBefore = failedCount.get();
+		long retryDelayMillis = 0;
+
+		try {
+			while (true) {
+				if (retryDelayMillis > 0) {
+					long remaining = deadline - System.nanoTime();
+
+					if (remaining <= 0) {
+						return false;
+					}
+
+					TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(retryDelayMillis)));
+				}
+
+				synchronized (this) {
+					if (! publishPending(true, deadline)) {
+						return false;
+					}
+				}
+
+				synchronized (confirmLock) {
+					while (rejected.isEmpty()) {
+						if (closed) {
+							return false;
+						}
+
+						if (outstanding.isEmpty()) {
+							return failedCount.get() == failedBefore;
+						}
+
+						long remaining = deadline - System.nanoTime();
+
+						if (remaining <= 0) {
+							return false;
+						}
+
+						TimeUnit.NANOSECONDS.timedWait(confirmLock, remaining);
+					}
+				}
+
+				if (System.nanoTime() - deadline >= 0) {
+					return false;
+				}
+
+				retryDelayMillis = retryDelayMillis == 0 ? MIN_RETRY_DELAY_MILLIS : Math.min(retryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the number of published messages waiting for a confirm.
+	 *
+	 * @return The number of unconfirmed messages.
+	 */
+	public int getOutstanding () {
+		return outstanding.size();
+	}
+
+	/**
+	 * Gets the number of messages acknowledged by the broker.
+	 *
+	 * @return The number of acknowledged messages.
+	 */
+	public long getConfirmedCount () {
+		return confirmedCount.get();
+	}
+
+	/**
+	 * Gets the number of times a message was rejected by the broker or could not be published.
+	 *
+	 * @return The number of rejections.
+	 */
+	public long getRejectedCount () {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * Gets the number of messages given up, after {@link #MAX_ATTEMPTS} attempts or because the target was closed.
+	 *
+	 * @return The number of messages given up.
+	 */
+	public long getFailedCount () {
+		return failedCount.get();
+	}
+
+	/**
+	 * Called by the broker when messages are acknowledged. Frees their place in the window.
+	 *
+	 * @param deliveryTag The sequence number of the message.
+	 * @param multiple True if every message up to the sequence number is acknowledged.
+	 */
+	@Override
+	public void handleAck (long deliveryTag, boolean multiple) {
+		Collection<Message> confirmed = removeOutstanding(deliveryTag, multiple);
+		confirmedCount.addAndGet(confirmed.size());
+		window.release(confirmed.size());
+
+		signalConfirms();
+	}
+
+	/**
+	 * Called by the broker when messages are rejected. Frees their place in the window and keeps them to be
+	 * published again, unless they have been published {@link #MAX_ATTEMPTS} times.
+	 *
+	 * @param deliveryTag The sequence number of the message.
+	 * @param multiple True if every message up to the sequence number is rejected.
+	 */
+	@Override
+	public void handleNack (long deliveryTag, boolean multiple) {
+		Collection<Message> nacked = removeOutstanding(deliveryTag, multiple);
+
+		for (Message message : nacked) {
+			retry(message);
+		}
+
+		window.release(nacked.size());
+
+		signalConfirms();
+	}
+
+	/**
+	 * Publishes the rejected messages, oldest first, and then the current batch. While the window is full it waits
+	 * for a place, checking again every {@link #WINDOW_POLL_MILLIS} whether the target has been closed. If the target
+	 * turns out to be closed, every unpublished message is given up. If the deadline passes or the thread is
+	 * interrupted, the unpublished messages are kept, in order, for the next batch. Must be called while holding the
+	 * lock on this object.
+	 *
+	 * @param timed True if waiting for the window stops at the deadline.
+	 * @param deadline The {@link System#nanoTime()} at which waiting stops, ignored unless timed.
+	 * @return False if the target is closed, the deadline passed or the thread was interrupted before every message
+	 * was published, otherwise true.
+	 */
+	private boolean publishPending (boolean timed, long deadline) {
+		List<Message> batch = new ArrayList<>();
+		Map.Entry<Long, Message> retry;
+
+		while ((retry = rejected.pollFirstEntry()) != null) {
+			batch.add(retry.getValue());
+		}
+
+		batch.addAll(pending);
+		pending.clear();
+
+		int i = 0;
+
+		try {
+			for (; i < batch.size(); i++) {
+				while (true) {
+					if (closed || ! target.isOpen()) {
+						giveUp(batch.subList(i, batch.size()));
+						return false;
+					}
+
+					long waitNanos = TimeUnit.MILLISECONDS.toNanos(WINDOW_POLL_MILLIS);
+
+					if (timed) {
+						long remaining = deadline - System.nanoTime();
+
+						if (remaining <= 0) {
+							keep(batch.subList(i, batch.size()));
+							return false;
+						}
+
+						waitNanos = Math.min(waitNanos, remaining);
+					}
+
+					if (window.tryAcquire(waitNanos, TimeUnit.NANOSECONDS)) {
+						break;
+					}
+				}
+
+				publish(batch.get(i));
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			keep(batch.subList(i, batch.size()));
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Keeps messages which were not published, to be published again ahead of newer ones. They have not been
+	 * rejected, so they count neither as a rejection nor as an attempt.
+	 *
+	 * @param messages The unpublished messages.
+	 */
+	private void keep (List<Message> messages) {
+		for (Message message : messages) {
+			rejected.put(message.order, message);
+		}
+	}
+
+	/**
+	 * Publishes one message and records it as waiting for a confirm. The message is recorded before it is
+	 * published, so its confirm cannot arrive first. Must be called while holding the lock on this object, which
+	 * keeps the sequence number from changing before the message is published.
+	 *
+	 * @param message The message to publish.
+	 */
+	private void publish (Message message) {
+		long sequenceNumber = target.getNextPublishSeqNo();
+		outstanding.put(sequenceNumber, message);
+		message.attempts++;
+
+		try {
+			target.publish(exchange, routingKey, message.properties, message.body);
+		}
+		catch (IOException e) {
+			outstanding.remove(sequenceNumber);
+			window.release();
+
+			if (! target.isOpen()) {
+				giveUp(List.of(message));
+				return;
+			}
+
+			System.err.println("Failure while publishing message");
+			e.printStackTrace();
+
+			retry(message);
+		}
+	}
+
+	/**
+	 * Keeps a rejected message to be published again, or gives it up if it has been published
+	 * {@link #MAX_ATTEMPTS} times.
+	 *
+	 * @param message The rejected message.
+	 */
+	private void retry (Message message) {
+		rejectedCount.incrementAndGet();
+
+		if (message.attempts >= MAX_ATTEMPTS) {
+			System.err.println("Giving up on a message after " + message.attempts + " attempts");
+			failedCount.incrementAndGet();
+		}
+		else {
+			rejected.put(message.order, message);
+		}
+	}
+
+	/**
+	 * Gives up unpublished messages because the target is closed, along with every message waiting to be retried or
+	 * confirmed. The places in the window of the unconfirmed messages are freed, since their confirms will never
+	 * come. Also called by the target when it closes, from any thread.
+	 *
+	 * @param messages The messages which were not published.
+	 */
+	private void giveUp (List<Message> messages) {
+		if (! closed) {
+			closed = true;
+			System.err.println("The channel is closed, publishing stopped");
+		}
+
+		int unpublished = messages.size();
+		int unconfirmed = 0;
+
+		while (rejected.pollFirstEntry() != null) {
+			unpublished++;
+		}
+
+		while (outstanding.pollFirstEntry() != null) {
+			unconfirmed++;
+		}
+
+		window.release(unconfirmed);
+
+		if (unpublished + unconfirmed > 0) {
+			System.err.println("Dropping " + unpublished + " unpublished and " + unconfirmed + " unconfirmed messages");
+			failedCount.addAndGet(unpublished + unconfirmed);
+		}
+
+		signalConfirms();
+	}
+
+	/**
+	 * Removes confirmed messages from the outstanding messages.
+	 *
+	 * @param deliveryTag The sequence number of the message.
+	 * @param multiple True if every message up to the sequence number is confirmed.
+	 * @return The removed messages.
+	 */
+	private Collection<Message> removeOutstanding (long deliveryTag, boolean multiple) {
+		List<Message> messages = new ArrayList<>();
+
+		if (multiple) {
+			NavigableMap<Long, Message> confirmed = outstanding.headMap(deliveryTag, true);
+			messages.addAll(confirmed.values());
+			confirmed.clear();
+		}
+		else {
+			Message message = outstanding.remove(deliveryTag);
+
+			if (message != null) {
+				messages.add(message);
+			}
+		}
+
+		return messages;
+	}
+
+	/**
+	 * Wakes up threads waiting in {@link #flush(long)}.
+	 */
+	private void signalConfirms () {
+		synchronized (confirmLock) {
+			confirmLock.notifyAll();
+		}
+	}
+
+	/**
+	 * A message waiting to be published or confirmed.
+	 */
+	private static class Message {
+		/**
+		 * The number of the message in the order messages were added.
+		 */
+		final long order;
+
+		/**
+		 * The properties and headers of the message, may be null.
+		 */
+		final AMQP.BasicProperties properties;
+
+		/**
+		 * The body of the message.
+		 */
+		final byte[] body;
+
+		/**
+		 * Number of times the message has been published. Only written while holding the lock on the publisher.
+		 */
+		volatile int attempts = 0;
+
+		/**
+		 * Constructor which takes the order, properties and body of the message.
+		 *
+		 * @param order The number of the message in the order messages were added.
+		 * @param properties The properties and headers of the message, may be null.
+		 * @param body The body of the message.
+		 */
+		Message (long order, AMQP.BasicProperties properties, byte[] body) {
+			this.order = order;
+			this.properties = properties;
+			this.body = body;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package main.message_sender;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+
+import java.io.IOException;
+
+/**
+ * Class which publishes messages on a RabbitMQ channel with publisher confirms.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class ChannelPublishTarget implements IPublishTarget {
+	/**
+	 * The channel the messages are published on.
+	 */
+	private final Channel chan;
+
+	/**
+	 * Constructor which takes the channel the messages are published on.
+	 *
+	 * @param chan The channel the messages are published on.
+	 */
+	public ChannelPublishTarget (Channel chan) {
+		this.chan = chan;
+	}
+
+	/**
+	 * Puts the channel in confirm mode and registers the listener which receives the confirms.
+	 *
+	 * @param listener The listener called when messages are acknowledged or rejected by the broker.
+	 * @throws IOException If the channel could not be put in confirm mode.
+	 */
+	@Override
+	public void enableConfirms (ConfirmListener listener) throws IOException {
+		chan.addConfirmListener(listener);
+		chan.confirmSelect();
+	}
+
+	/**
+	 * Gets the sequence number the next message published on the channel will have.
+	 *
+	 * @return The sequence number of the next message.
+	 */
+	@Override
+	public long getNextPublishSeqNo () {
+		return chan.getNextPublishSeqNo();
+	}
+
+	/**
+	 * Publishes a message on the channel.
+	 *
+	 * @param exchange The name of the exchange.
+	 * @param routingKey The routing key of the message.
+	 * @param properties The properties and headers of the message, may be null.
+	 * @param body The body of the message.
+	 * @throws IOException If the message could not be published.
+	 */
+	@Override
+	public void publish (String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body)
+			throws IOException {
+		chan.basicPublish(exchange, routingKey, properties, body);
+	}
+
+	/**
+	 * Checks if the channel is open.
+	 *
+	 * @return True if the channel is open.
+	 */
+	@Override
+	public boolean isOpen () {
+		return chan.isOpen();
+	}
+
+	/**
+	 * Registers a callback which is run when the channel shuts down, whether it was closed or the connection was lost.
+	 *
+	 * @param listener The callback, run on a thread of the client library.
+	 */
+	@Override
+	public void addCloseListener (Runnable listener) {
+		chan.addShutdownListener(cause -> listener.run());
+	}
+}
@@ -0,0 +1,166 @@
+package main.message_sender;
+
+import main.codecs.PayloadKind;
+import main.codecs.MessageEnvelope;
+import main.formatters.RecordSet;
+import main.serializers.ISerializer;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongConsumer;
+
+/**
+ * Class which splits a dataset into chunks at row boundaries and encodes the chunks in parallel on a fork/join pool.
+ * <p>
+ * Every chunk is written as a complete document of the payload kind of the dataset, with the column names, so it
+ * can be decoded on its own in whatever order it arrives. A chunk is then serialized with the given serializer,
+ * which is safe to share between threads, see {@link ISerializer}. The encoded chunks are handed back as tasks in
+ * chunk order, so the caller can publish the first chunk as soon as it is done while the later ones are still
+ * being encoded. A dataset is never split into more than {@link MessageEnvelope#MAX_PARTS} chunks; the chunks of a
+ * larger dataset hold more rows instead.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class ChunkedEncoder {
+	/**
+	 * Default number of rows in a chunk.
+	 */
+	public static final int DEFAULT_ROWS_PER_CHUNK = 500;
+
+	/**
+	 * The pool the chunks are encoded on.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * The largest number of rows in a chunk.
+	 */
+	private final int rowsPerChunk;
+
+	/**
+	 * Constructor which encodes on the common fork/join pool with the default number of rows in a chunk.
+	 */
+	public ChunkedEncoder () {
+		this(ForkJoinPool.commonPool(), DEFAULT_ROWS_PER_CHUNK);
+	}
+
+	/**
+	 * Constructor which takes the pool and the number of rows in a chunk.
+	 *
+	 * @param pool The pool the chunks are encoded on.
+	 * @param rowsPerChunk The largest number of rows in a chunk.
+	 * @throws IllegalArgumentException If the number of rows is not greater than zero.
+	 */
+	public ChunkedEncoder (ForkJoinPool pool, int rowsPerChunk) {
+		if (rowsPerChunk <= 0) {
+			throw new IllegalArgumentException("Rows per chunk must be greater than zero: " + rowsPerChunk);
+		}
+
+		this.pool = pool;
+		this.rowsPerChunk = rowsPerChunk;
+	}
+
+	/**
+	 * Gets the largest number of rows in a chunk.
+	 *
+	 * @return The number of rows.
+	 */
+	public int getRowsPerChunk () {
+		return rowsPerChunk;
+	}
+
+	/**
+	 * Gets the number of chunks a dataset is split into. A dataset without rows is one chunk holding only the column
+	 * names.
+	 *
+	 * @param data The dataset.
+	 * @return The number of chunks, at most {@link MessageEnvelope#MAX_PARTS}.
+	 */
+	public int getChunkCount (RecordSet data) {
+		int rows = rowsPerChunk(data);
+
+		return Math.max(1, (data.getNumRows() + rows - 1) / rows);
+	}
+
+	/**
+	 * Splits a dataset into chunks and starts encoding every chunk on the pool.
+	 *
+	 * @param data The dataset.
+	 * @param kind The payload kind the chunks are written as, CSV, XML or JSON.
+	 * @param serializer The serializer the chunks are serialized with.
+	 * @param encodeNanos Called from the pool with the time in nanoseconds each chunk took to encode.
+	 * @return The tasks encoding the chunks, in chunk order. A task yields null if the serializer failed.
+	 * @throws IllegalArgumentException If the payload kind is not CSV, XML or JSON.
+	 */
+	public List<ForkJoinTask<byte[]>> encode (RecordSet data, PayloadKind kind, ISerializer serializer,
+											  LongConsumer encodeNanos) {
+		checkKind(kind);
+
+		int chunks = getChunkCount(data);
+		int rowsInChunk = rowsPerChunk(data);
+		List<ForkJoinTask<byte[]>> tasks = new ArrayList<>(chunks);
+
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			int from = chunk * rowsInChunk;
+			RecordSet rows = data.slice(from, Math.min(from + rowsInChunk, data.getNumRows()));
+
+			tasks.add(pool.submit(() -> {
+				long start = System.nanoTime();
+				byte[] encoded = serializer.serializeString(render(rows, kind));
+				encodeNanos.accept(System.nanoTime() - start);
+
+				return encoded;
+			}));
+		}
+
+		return tasks;
+	}
+
+	/**
+	 * Gets the number of rows in the chunks of a dataset, which is more than {@link #getRowsPerChunk()} only if the
+	 * dataset would otherwise need more than {@link MessageEnvelope#MAX_PARTS} chunks.
+	 *
+	 * @param data The dataset.
+	 * @return The number of rows in a chunk.
+	 */
+	private int rowsPerChunk (RecordSet data) {
+		return Math.max(rowsPerChunk, (data.getNumRows() + MessageEnvelope.MAX_PARTS - 1) / MessageEnvelope.MAX_PARTS);
+	}
+
+	/**
+	 * Writes a chunk as a document of a payload kind.
+	 *
+	 * @param rows The rows of the chunk.
+	 * @param kind The payload kind, CSV, XML or JSON.
+	 * @return The document.
+	 * @throws IllegalArgumentException If the payload kind is not CSV, XML or JSON.
+	 */
+	public static String render (RecordSet rows, PayloadKind kind) {
+		switch (kind) {
+			case CSV:
+				return rows.toCsv('\t');
+			case XML:
+				return rows.toXml();
+			case JSON:
+				return rows.toJson();
+			default:
+				throw new IllegalArgumentException("Only CSV, XML and JSON payloads can be sent in chunks: " + kind);
+		}
+	}
+
+	/**
+	 * Checks that a payload kind can be sent in chunks.
+	 *
+	 * @param kind The payload kind.
+	 * @throws IllegalArgumentException If the payload kind is not CSV, XML or JSON.
+	 */
+	static void checkKind (PayloadKind kind) {
+		if (kind != PayloadKind.CSV && kind != PayloadKind.XML && kind != PayloadKind.JSON) {
+			throw new IllegalArgumentException("Only CSV, XML and JSON payloads can be sent in chunks: " + kind);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package main.message_sender;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.ConfirmListener;
+
+import java.io.IOException;
+
+/**
+ * This interface defines the operations a message publisher needs from a message broker.
+ * <p>
+ * Implementing classes publish messages and report publisher confirms for them. Messages are numbered from 1 in the
+ * order they are published, and confirms refer to those numbers, following the AMQP publisher confirms extension.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public interface IPublishTarget {
+	/**
+	 * Turns on publisher confirms and registers the listener which receives them.
+	 *
+	 * @param listener The listener called when messages are acknowledged or rejected by the broker.
+	 * @throws IOException If confirms could not be turned on.
+	 */
+	public void enableConfirms (ConfirmListener listener) throws IOException;
+
+	/**
+	 * Gets the sequence number the next published message will have.
+	 *
+	 * @return The sequence number of the next message.
+	 */
+	public long getNextPublishSeqNo ();
+
+	/**
+	 * Publishes a message.
+	 *
+	 * @param exchange The name of the exchange.
+	 * @param routingKey The routing key of the message.
+	 * @param properties The properties and headers of the message, may be null.
+	 * @param body The body of the message.
+	 * @throws IOException If the message could not be published.
+	 */
+	public void publish (String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body) throws IOException;
+
+	/**
+	 * Checks if messages can still be published. Once closed, a target does not open again.
+	 *
+	 * @return True if the target is open.
+	 */
+	public boolean isOpen ();
+
+	/**
+	 * Registers a callback which is run once when the target closes, or straight away if it is already closed.
+	 *
+	 * @param listener The callback, which may be run on any thread.
+	 */
+	public void addCloseListener (Runnable listener);
+}
@@ -0,0 +1,224 @@
+package main.message_sender;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.ConfirmListener;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Class which stands in for a message broker inside the process, so publishing can be exercised without RabbitMQ.
+ * <p>
+ * Published messages are kept in memory and confirmed on a background thread after a configurable delay. Confirms
+ * are coalesced the way a broker does it, acknowledging every message up to a sequence number at once, and every
+ * n-th message can be rejected to exercise the retry path of a publisher.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class InMemoryPublishTarget implements IPublishTarget {
+	/**
+	 * Delay before a message is confirmed, in milliseconds.
+	 */
+	private final long confirmDelayMillis;
+
+	/**
+	 * Every message whose sequence number is a multiple of this value is rejected, 0 rejects none.
+	 */
+	private final int rejectEvery;
+
+	/**
+	 * The bodies of the published messages, in the order they were published.
+	 */
+	private final List<byte[]> messages = new ArrayList<>();
+
+	/**
+	 * The properties of the published messages, in the order they were published.
+	 */
+	private final List<AMQP.BasicProperties> properties = new ArrayList<>();
+
+	/**
+	 * The thread which sends the confirms.
+	 */
+	private final ScheduledExecutorService confirmer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "in-memory-confirms");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The callbacks run when the target is closed.
+	 */
+	private final List<Runnable> closeListeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * The listener which receives the confirms, or null if confirms are turned off.
+	 */
+	private volatile ConfirmListener listener = null;
+
+	/**
+	 * The sequence number of the last published message.
+	 */
+	private long lastPublished = 0;
+
+	/**
+	 * The sequence number of the last confirmed message. Only used by the confirm thread.
+	 */
+	private long lastConfirmed = 0;
+
+	/**
+	 * Default constructor which confirms every message straight away.
+	 */
+	public InMemoryPublishTarget () {
+		this(0, 0);
+	}
+
+	/**
+	 * Constructor which takes the confirm delay and the reject interval.
+	 *
+	 * @param confirmDelayMillis Delay before a message is confirmed, in milliseconds.
+	 * @param rejectEvery Every message whose sequence number is a multiple of this value is rejected, 0 rejects none.
+	 */
+	public InMemoryPublishTarget (long confirmDelayMillis, int rejectEvery) {
+		this.confirmDelayMillis = Math.max(0, confirmDelayMillis);
+		this.rejectEvery = Math.max(0, rejectEvery);
+	}
+
+	/**
+	 * Registers the listener which receives the confirms.
+	 *
+	 * @param listener The listener called when messages are acknowledged or rejected.
+	 */
+	@Override
+	public synchronized void enableConfirms (ConfirmListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Gets the sequence number the next published message will have.
+	 *
+	 * @return The sequence number of the next message.
+	 */
+	@Override
+	public synchronized long getNextPublishSeqNo () {
+		return lastPublished + 1;
+	}
+
+	/**
+	 * Stores a message and schedules its confirm.
+	 *
+	 * @param exchange The name of the exchange, ignored.
+	 * @param routingKey The routing key of the message, ignored.
+	 * @param properties The properties and headers of the message, may be null.
+	 * @param body The body of the message.
+	 * @throws IOException If the target has been closed.
+	 */
+	@Override
+	public synchronized void publish (String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body)
+			throws IOException {
+		if (! isOpen()) {
+			throw new IOException("The in-memory target is closed");
+		}
+
+		final long sequenceNumber = ++lastPublished;
+		messages.add(body);
+		this.properties.add(properties);
+
+		if (listener != null) {
+			confirmer.schedule(() -> confirmUpTo(sequenceNumber), confirmDelayMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Gets a copy of the bodies of the published messages, in the order they were published.
+	 *
+	 * @return The published messages.
+	 */
+	public synchronized List<byte[]> getMessages () {
+		return new ArrayList<>(messages);
+	}
+
+	/**
+	 * Gets a copy of the properties of the published messages, in the order they were published.
+	 *
+	 * @return The properties of the published messages, null for messages published without properties.
+	 */
+	public synchronized List<AMQP.BasicProperties> getProperties () {
+		return new ArrayList<>(properties);
+	}
+
+	/**
+	 * Checks if the target has not been closed.
+	 *
+	 * @return True if the target is open.
+	 */
+	@Override
+	public boolean isOpen () {
+		return ! confirmer.isShutdown();
+	}
+
+	/**
+	 * Registers a callback which is run when the target is closed, or straight away if it is already closed.
+	 *
+	 * @param listener The callback, run on the thread which closes the target.
+	 */
+	@Override
+	public void addCloseListener (Runnable listener) {
+		closeListeners.add(listener);
+
+		if (! isOpen() && closeListeners.remove(listener)) {
+			listener.run();
+		}
+	}
+
+	/**
+	 * Stops the confirm thread and closes the target, then runs the close listeners. Messages which have not been
+	 * confirmed yet are never confirmed.
+	 */
+	public void close () {
+		confirmer.shutdownNow();
+
+		for (Runnable listener : closeListeners) {
+			if (closeListeners.remove(listener)) {
+				listener.run();
+			}
+		}
+	}
+
+	/**
+	 * Confirms every message up to a sequence number which has not been confirmed yet. Acknowledgements are sent for
+	 * several messages at once, rejections are sent one message at a time. Runs on the confirm thread without
+	 * holding the lock on this object, as a broker would not block publishing while it confirms.
+	 *
+	 * @param sequenceNumber The sequence number to confirm up to.
+	 */
+	private void confirmUpTo (long sequenceNumber) {
+		try {
+			for (long tag = lastConfirmed + 1; tag <= sequenceNumber; tag++) {
+				if (rejectEvery > 0 && tag % rejectEvery == 0) {
+					if (tag - 1 > lastConfirmed) {
+						listener.handleAck(tag - 1, true);
+					}
+
+					listener.handleNack(tag, false);
+					lastConfirmed = tag;
+				}
+			}
+
+			if (sequenceNumber > lastConfirmed) {
+				listener.handleAck(sequenceNumber, true);
+				lastConfirmed = sequenceNumber;
+			}
+		}
+		catch (IOException e) {
+			System.err.println("Failure while confirming messages");
+			e.printStackTrace();
+		}
+	}
+}
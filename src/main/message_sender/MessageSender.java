@@ -1,31 +1,77 @@
 package main.message_sender;
 
 import main.formatters.*;
-import main.serializers.*;
+import main.codecs.BsonCodec;
+import main.codecs.CodecRegistry;
+import main.codecs.PayloadKind;
+import main.codecs.MessageEnvelope;
+import main.metrics.Measure;
 import main.helpers.FileHelper;
-
+import main.logging.LogLevel;
+import main.logging.AsyncLogger;
+import main.metrics.MessageMetrics;
+import main.serializers.ISerializer;
+import main.compression.ICompressor;
+import main.compression.CompressorRegistry;
+
+import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.stream.XMLStreamException;
 
 /**
  * The `MessageSender` class is responsible for sending data to an AMQP message broker, offering support for
  * various data formats and serialization methods to facilitate interoperability.
  * <p>
  * This class provides functionality to send messages in different formats, including JSON, CSV, XML,
- * ArrayList, and HashMap. It allows the selection of different serialization methods like CBOR, BSON, Hessian,
- * Java Serialization, Kryo, and MessagePack. The class establishes connections with the message broker,
- * initializes channels, and sends serialized data to the specified exchange.
+ * ArrayList, and HashMap. The serialization method is chosen by the id of a codec in the {@link CodecRegistry},
+ * such as CBOR, BSON, Hessian, Java Serialization, Kryo, and MessagePack. Every message carries a
+ * {@link MessageEnvelope} naming its codec and payload kind together with the id of this sender, a sequence number
+ * and the send time. The class establishes connections with the message broker, initializes channels, and sends
+ * serialized data to the specified exchange.
+ * <p>
+ * By default every message is published on its own. When batching is enabled, messages are handed to a
+ * {@link BatchPublisher} which publishes them in batches with pipelined publisher confirms; {@link #flush(long)}
+ * waits for the broker to confirm everything sent so far.
+ * <p>
+ * When compression is enabled, serialized messages of at least the compression threshold are compressed before they
+ * are published, and sent compressed if that made them smaller. The compression algorithm and dictionary are
+ * recorded in the envelope so the receiver can decompress them.
+ * <p>
+ * When chunking is enabled, JSON, CSV and XML files with more rows than fit in one chunk are split at row
+ * boundaries and sent as a transfer of several parts, encoded in parallel by a {@link ChunkedEncoder}. Every part
+ * is a complete document carrying the transfer id, its index and the number of parts in its envelope, so no
+ * message comes near the frame size limit of the broker and the receiver can decode the parts as they arrive.
+ * BSON files are always sent whole, as a BSON document cannot hold a bare string and the receiver would reject
+ * every part.
+ * <p>
+ * Nothing is written to the console while sending. Messages are logged through an {@link AsyncLogger}, and their
+ * contents only when payload logging is turned on.
  *
  * @author Martin Bullman
  * @version 1.0
  * @since 2016-08-04
  */
 public class MessageSender {
+	/**
+	 * The logger of the sender. Message contents are only logged when payload logging is turned on.
+	 */
+	private static final AsyncLogger log = AsyncLogger.get(MessageSender.class);
+
 	/**
 	 * A helper class for handling files and data formats.
 	 */
@@ -56,40 +102,61 @@ public class MessageSender {
 	 */
 	HashMapFormatter hashMap = null;
 
+	/**
+	 * The JSON data file.
+	 */
+	private final File jsonFile;
+
+	/**
+	 * The CSV data file.
+	 */
+	private final File csvFile;
+
+	/**
+	 * The XML data file.
+	 */
+	private final File xmlFile;
+
 	/**
 	 * The name of the AMQP exchange to be used for message exchange.
 	 */
 	private static final String EXCHANGE_NAME = "jobs";
 
 	/**
-	 * Serializer for BSON format.
+	 * The routing key of the published messages.
+	 */
+	private static final String ROUTING_KEY = "monitor";
+
+	/**
+	 * Longest time to wait for outstanding confirms when the connections are closed, in milliseconds.
 	 */
-	private final BsonSerializer bson = new BsonSerializer();
+	private static final long CLOSE_FLUSH_TIMEOUT = 10000;
 
 	/**
-	 * Serializer for CBOR format.
+	 * The codecs messages can be sent with.
 	 */
-	private final CborSerializer cbor = new CborSerializer();
+	private final CodecRegistry codecs = CodecRegistry.getDefault();
 
 	/**
-	 * Serializer for Hessian format.
+	 * The serializer of every codec used so far, keyed by codec id. Serializers are safe to share, so there is one
+	 * per codec whichever thread sends.
 	 */
-	private final HessianSerializer hessian = new HessianSerializer();
+	private final Map<Integer, ISerializer> serializers = new ConcurrentHashMap<>();
 
 	/**
-	 * Serializer for Java serialization format.
+	 * The id written into the envelope of every message from this sender.
 	 */
-	private final JavaSerializer java = new JavaSerializer();
+	private final String senderId = UUID.randomUUID().toString();
 
 	/**
-	 * Serializer for Kryo format.
+	 * Sequence number of the next message with an envelope.
 	 */
-	private final KryoSerializer kryo = new KryoSerializer();
+	private final AtomicLong nextSequence = new AtomicLong();
 
 	/**
-	 * Serializer for MessagePack format.
+	 * Serialize time, publish time and payload size of the messages sent, per codec.
 	 */
-	private final MessagePackSerializer msgPack = new MessagePackSerializer();
+	private MessageMetrics metrics = new MessageMetrics("sender");
 
 	/**
 	 * Factory for creating AMQP connections.
@@ -106,6 +173,26 @@ public class MessageSender {
 	 */
 	Channel chan;
 
+	/**
+	 * Publisher used when batching is enabled, otherwise null.
+	 */
+	private BatchPublisher batchPublisher = null;
+
+	/**
+	 * Compressor applied to serialized messages, or null if compression is not enabled.
+	 */
+	private ICompressor compressor = null;
+
+	/**
+	 * Size in bytes below which serialized messages are sent without being compressed.
+	 */
+	private int compressionThreshold = 0;
+
+	/**
+	 * Encoder of the files sent in chunks, or null if files are sent whole.
+	 */
+	private ChunkedEncoder chunkedEncoder = null;
+
 	/**
 	 * Constructs a new MessageSender with the specified parameters.
 	 *
@@ -116,13 +203,13 @@ public class MessageSender {
 	 */
 	public MessageSender (String host, String user, String pass, String fileSize) {
 		// Initialize file paths and formatters
-		String csvFile  = System.getProperty("user.dir") + "/datafiles/" + fileSize + "_metric_csv_data.csv";
-		String jsonFile = System.getProperty("user.dir") + "/datafiles/" + fileSize + "_json_data.json";
-		String xmlFile  = System.getProperty("user.dir") + "/datafiles/" + fileSize + "_xml_data.xml";
+		csvFile  = new File(System.getProperty("user.dir") + "/datafiles/" + fileSize + "_metric_csv_data.csv");
+		jsonFile = new File(System.getProperty("user.dir") + "/datafiles/" + fileSize + "_json_data.json");
+		xmlFile  = new File(System.getProperty("user.dir") + "/datafiles/" + fileSize + "_xml_data.xml");
 
-		json    = new JsonFormatter(new File(jsonFile));
-		xml     = new XmlFormatter(new File(xmlFile));
-		csv     = new CsvFormatter(new File(csvFile));
+		json    = new JsonFormatter(jsonFile);
+		xml     = new XmlFormatter(xmlFile);
+		csv     = new CsvFormatter(csvFile);
 		list    = new ArrayListFormatter(csv.convertToArrayList());
 		hashMap = new HashMapFormatter(csv.convertToHashMap());
 
@@ -165,202 +252,411 @@ public class MessageSender {
 	}
 
 	/**
-	 * Publishes a message to the AMQP exchange with the specified routing key.
+	 * Enables batched publishing with publisher confirms on the AMQP channel.
 	 *
-	 * @param msg The byte array representing the message to be sent.
+	 * @param batchSize Number of messages collected before a batch is published.
+	 * @param windowSize Number of messages which may be unconfirmed at the same time.
 	 */
-	public void sendMessage (byte[] msg) {
+	public void enableBatching (int batchSize, int windowSize) {
+		enableBatching(new ChannelPublishTarget(chan), batchSize, windowSize);
+	}
+
+	/**
+	 * Enables batched publishing with publisher confirms on the given target, e.g. an
+	 * {@link InMemoryPublishTarget} standing in for the broker.
+	 *
+	 * @param target Where the messages are published.
+	 * @param batchSize Number of messages collected before a batch is published.
+	 * @param windowSize Number of messages which may be unconfirmed at the same time.
+	 */
+	public void enableBatching (IPublishTarget target, int batchSize, int windowSize) {
 		try {
-			String routingKey = "monitor";
-			chan.basicPublish(EXCHANGE_NAME, routingKey, null, msg);
+			batchPublisher = new BatchPublisher(target, EXCHANGE_NAME, ROUTING_KEY, batchSize, windowSize);
 		}
 		catch (IOException e) {
-			System.err.println("Failure while publishing message");
+			System.err.println("Failure while enabling publisher confirms, messages will be published one at a time");
 			e.printStackTrace();
 		}
 	}
 
 	/**
-	 * Sends a JSON-formatted message using the specified serializer.
+	 * Enables compression of serialized messages before they are published.
 	 *
-	 * @param serializer An integer representing the serializer to use (0 for CBOR, 1 for BSON, 3 for Java, 4 for Kryo, or other for MessagePack).
-	 */
-	public void sendJson (int serializer) {
-		byte[] jsonBytesArray = switch (serializer) {
-            case 0 -> cbor.serializeString(json.fileToString());
-            case 1 -> bson.serializeString(json.fileToString());
-            case 3 -> java.serializeString(json.fileToString());
-            case 4 -> kryo.serializeString(json.fileToString());
-            default -> msgPack.serializeString(json.fileToString());
-        };
-
-        System.out.println(json.fileToString());
-		System.out.println("Data size: " + jsonBytesArray.length + " Bytes");
-
-		if (jsonBytesArray != null) {
-			// Send message body
-			sendMessage(jsonBytesArray);
+	 * @param compressor The compressor, or null to turn compression off.
+	 * @param threshold Size in bytes below which messages are sent without being compressed.
+	 * @throws IllegalArgumentException If the threshold is negative.
+	 */
+	public void setCompression (ICompressor compressor, int threshold) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("Compression threshold must not be negative: " + threshold);
 		}
+
+		this.compressor = compressor;
+		this.compressionThreshold = threshold;
+	}
+
+	/**
+	 * Enables sending JSON, CSV and XML files in chunks, encoded on the common fork/join pool.
+	 *
+	 * @param rowsPerChunk The largest number of rows in a chunk, or 0 to send files whole.
+	 * @throws IllegalArgumentException If the number of rows is negative.
+	 */
+	public void enableChunking (int rowsPerChunk) {
+		enableChunking(ForkJoinPool.commonPool(), rowsPerChunk);
 	}
 
 	/**
-	 * Sends a CSV-formatted message using the specified serializer.
+	 * Enables sending JSON, CSV and XML files in chunks.
 	 *
-	 * @param serializer An integer representing the serializer to use (0 for CBOR, 1 for BSON, 3 for Java, 4 for Kryo, or other for MessagePack).
-	 */
-	public void sendCsv (int serializer) {
-		byte[] csvBytesArray = null;
-
-		switch (serializer) {
-			case 0:
-				csvBytesArray = cbor.serializeString(csv.fileToString());
-				break;
-			case 1:
-				csvBytesArray = bson.serializeString(csv.fileToString());
-				break;
-			//case 2:
-				// TODO: Handle Hessian serialization
-				//break;
-			case 3:
-				csvBytesArray = java.serializeString(csv.fileToString());
-				break;
-			case 4:
-				csvBytesArray = kryo.serializeString(csv.fileToString());
-				break;
-			default:
-				csvBytesArray = msgPack.serializeString(csv.fileToString());
-				break;
+	 * @param pool The pool the chunks are encoded on.
+	 * @param rowsPerChunk The largest number of rows in a chunk, or 0 to send files whole.
+	 * @throws IllegalArgumentException If the number of rows is negative.
+	 */
+	public void enableChunking (ForkJoinPool pool, int rowsPerChunk) {
+		if (rowsPerChunk < 0) {
+			throw new IllegalArgumentException("Rows per chunk must not be negative: " + rowsPerChunk);
 		}
 
-		System.out.println(csv.fileToString());
-		System.out.println("Data size: " + csvBytesArray.length + " Bytes");
+		chunkedEncoder = rowsPerChunk == 0 ? null : new ChunkedEncoder(pool, rowsPerChunk);
+	}
+
+	/**
+	 * Gets the compressor applied to serialized messages.
+	 *
+	 * @return The compressor, or null if compression is not enabled.
+	 */
+	public ICompressor getCompressor () {
+		return compressor;
+	}
+
+	/**
+	 * Gets the publisher used when batching is enabled.
+	 *
+	 * @return The batch publisher, or null if batching is not enabled.
+	 */
+	public BatchPublisher getBatchPublisher () {
+		return batchPublisher;
+	}
+
+	/**
+	 * Publishes a message without headers to the AMQP exchange with the specified routing key.
+	 *
+	 * @param msg The byte array representing the message to be sent.
+	 */
+	public void sendMessage (byte[] msg) {
+		sendMessage(null, msg);
+	}
+
+	/**
+	 * Publishes a message to the AMQP exchange with the specified routing key. When batching is enabled the message
+	 * is added to the current batch, and this call blocks while too many messages are waiting for confirms.
+	 *
+	 * @param properties The properties and headers of the message, may be null.
+	 * @param msg The byte array representing the message to be sent.
+	 */
+	public void sendMessage (AMQP.BasicProperties properties, byte[] msg) {
+		if (batchPublisher != null) {
+			batchPublisher.add(properties, msg);
+			return;
+		}
 
-		if (csvBytesArray != null) {
-			// Send the message body
-			sendMessage(csvBytesArray);
+		try {
+			chan.basicPublish(EXCHANGE_NAME, ROUTING_KEY, properties, msg);
 		}
+		catch (IOException e) {
+			System.err.println("Failure while publishing message");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Publishes the current batch and waits until the broker has confirmed every message sent so far. Does nothing
+	 * when batching is not enabled.
+	 *
+	 * @param timeoutMillis The longest time to wait, in milliseconds.
+	 * @return True if every message was confirmed, false if the timeout passed first.
+	 */
+	public boolean flush (long timeoutMillis) {
+		return batchPublisher == null || batchPublisher.flush(timeoutMillis);
 	}
 
 	/**
-	 * Sends an XML-formatted message using the specified serializer.
+	 * Sends a JSON-formatted message using the specified codec.
 	 *
-	 * @param serializer An integer representing the serializer to use (0 for CBOR, 1 for BSON, 3 for Java, 4 for Kryo, or other for MessagePack).
-	 */
-	public void sendXml (int serializer) {
-		byte[] xmlBytesArray = null;
-
-		switch (serializer) {
-			case 0:
-				xmlBytesArray = cbor.serializeString(xml.fileToString());
-				break;
-			case 1:
-				xmlBytesArray = bson.serializeString(xml.fileToString());
-				break;
-			//case 2:
-				// TODO: Handle Hessian serialization
-				//break;
-			case 3:
-				xmlBytesArray = java.serializeString(xml.fileToString());
-				break;
-			case 4:
-				xmlBytesArray = kryo.serializeString(xml.fileToString());
-				break;
-			default:
-				xmlBytesArray = msgPack.serializeString(xml.fileToString());
-				break;
+	 * @param codec The id of the codec to use, see {@link CodecRegistry}.
+	 * @throws IllegalArgumentException If no codec has the id.
+	 */
+	public void sendJson (int codec) {
+		sendFile(codec, jsonFile, PayloadKind.JSON);
+	}
+
+	/**
+	 * Sends a CSV-formatted message using the specified codec.
+	 *
+	 * @param codec The id of the codec to use, see {@link CodecRegistry}.
+	 * @throws IllegalArgumentException If no codec has the id.
+	 */
+	public void sendCsv (int codec) {
+		sendFile(codec, csvFile, PayloadKind.CSV);
+	}
+
+	/**
+	 * Sends an XML-formatted message using the specified codec.
+	 *
+	 * @param codec The id of the codec to use, see {@link CodecRegistry}.
+	 * @throws IllegalArgumentException If no codec has the id.
+	 */
+	public void sendXml (int codec) {
+		sendFile(codec, xmlFile, PayloadKind.XML);
+	}
+
+	/**
+	 * Sends the contents of a data file using the specified codec.
+	 * <p>
+	 * The file is memory mapped once per change and shared by every send. Serializers which support it, such as CBOR
+	 * and MessagePack, serialize the mapped bytes directly; the others decode them into a String first. When
+	 * chunking is enabled and the file has more rows than fit in one chunk, it is sent in parts instead, unless the
+	 * codec is BSON, whose parts the receiver cannot read as text. Nothing is sent if the file cannot be mapped, for
+	 * example because it is missing.
+	 *
+	 * @param codec The id of the codec to use.
+	 * @param file The data file to send.
+	 * @param kind The payload kind written into the message envelope.
+	 */
+	private void sendFile (int codec, File file, PayloadKind kind) {
+		ChunkedEncoder encoder = chunkedEncoder;
+
+		if (encoder != null && codec != BsonCodec.ID) {
+			RecordSet data = readRows(file, kind);
+
+			if (data != null && encoder.getChunkCount(data) > 1) {
+				sendChunked(codec, data, kind, encoder);
+				return;
+			}
 		}
 
-		System.out.println(xml.fileToString());
-		System.out.println("Data size: " + xmlBytesArray.length + " Bytes");
+		ByteBuffer contents = helper.mapFile(file);
 
-		if (xmlBytesArray != null) {
-			// Send the message body
-			sendMessage(xmlBytesArray);
+		if (contents == null) {
+			log.warn("Skipping %s message, %s could not be read", kind.getHeaderName(), file);
+			return;
 		}
+
+		long start = System.nanoTime();
+		byte[] fileBytesArray = serializer(codec).serializeString(contents);
+		metrics.record(codec, Measure.SERIALIZE_NANOS, System.nanoTime() - start);
+
+		log.payload(kind.getHeaderName(), () -> helper.mapFileAsChars(file));
+
+		send(codec, kind, fileBytesArray);
 	}
+
 	/**
-	 * Sends a message containing an ArrayList using the specified serializer.
+	 * Sends a dataset as a transfer of parts, one per chunk. The chunks are encoded in parallel and each part is
+	 * published as soon as it and the parts before it are encoded, so publishing overlaps encoding. The serialize
+	 * time of every part is recorded, as for a whole message. If a chunk cannot be serialized the rest of the
+	 * transfer is not sent, and the receiver drops it once it times out.
 	 *
-	 * @param serializer An integer representing the serializer to use (0 for CBOR, 1 for BSON, 3 for Java, 4 for Kryo, or other for MessagePack).
-	 */
-	public void sendArrayList (int serializer) {
-		byte[] listBytesArray = null;
-
-		switch (serializer) {
-			case 0:
-				listBytesArray = cbor.serializeArrayList(list.getArrayList());
-				break;
-			case 1:
-				listBytesArray = bson.serializeArrayList(list.getArrayList());
-				break;
-			//case 2:
-				// TODO: Handle Hessian serialization
-				//break;
-			case 3:
-				listBytesArray = java.serializeArrayList(list.getArrayList());
-				break;
-			case 4:
-				listBytesArray = kryo.serializeArrayList(list.getArrayList());
-				break;
-			default:
-				listBytesArray = msgPack.serializeArrayList(list.getArrayList());
-				break;
+	 * @param codec The id of the codec to use.
+	 * @param data The rows of the dataset.
+	 * @param kind The payload kind of the dataset.
+	 * @param encoder The encoder which splits and encodes the dataset.
+	 */
+	private void sendChunked (int codec, RecordSet data, PayloadKind kind, ChunkedEncoder encoder) {
+		String transfer = UUID.randomUUID().toString();
+		List<ForkJoinTask<byte[]>> parts = encoder.encode(data, kind, serializer(codec),
+				nanos -> metrics.record(codec, Measure.SERIALIZE_NANOS, nanos));
+
+		for (int part = 0; part < parts.size(); part++) {
+			byte[] body = parts.get(part).join();
+
+			if (body == null) {
+				log.warn("Failure while serializing part %d of %d of transfer %s, the rest of it is not sent", part + 1, parts.size(), transfer);
+
+				for (ForkJoinTask<byte[]> rest : parts.subList(part + 1, parts.size())) {
+					rest.cancel(false);
+				}
+
+				return;
+			}
+
+			send(codec, newEnvelope(codec, kind).part(transfer, part, parts.size()), body);
 		}
+	}
 
-		System.out.println(list.getArrayList().toString());
-		System.out.println("Data size: " + listBytesArray.length + " Bytes");
+	/**
+	 * Reads the rows of a data file for one send. The rows are not kept afterwards, so a sender holds the rows of a
+	 * file only while its transfer is being sent, however many files it sends. They are read whole rather than split
+	 * while reading, as every part carries the number of parts in its envelope.
+	 *
+	 * @param file The data file.
+	 * @param kind The payload kind of the file.
+	 * @return The rows, or null if the file could not be read.
+	 */
+	private RecordSet readRows (File file, PayloadKind kind) {
+		try {
+			switch (kind) {
+				case CSV:
+					return RecordSet.fromCsv(file);
+				case XML:
+					return RecordSet.fromXml(file);
+				default:
+					return RecordSet.fromJson(file);
+			}
+		}
+		catch (IOException | XMLStreamException e) {
+			System.err.println("Failure while reading " + file + " to send it in chunks");
+			e.printStackTrace();
 
-		if (listBytesArray != null) {
-			// Send the message body
-			sendMessage(listBytesArray);
+			return null;
 		}
 	}
 
+	/**
+	 * Sends a message containing an ArrayList using the specified codec.
+	 *
+	 * @param codec The id of the codec to use, see {@link CodecRegistry}.
+	 * @throws IllegalArgumentException If no codec has the id.
+	 */
+	public void sendArrayList (int codec) {
+		long start = System.nanoTime();
+		byte[] listBytesArray = serializer(codec).serializeArrayList(list.getArrayList());
+		metrics.record(codec, Measure.SERIALIZE_NANOS, System.nanoTime() - start);
+
+		log.payload(PayloadKind.ARRAY_LIST.getHeaderName(), list::getArrayList);
+
+		send(codec, PayloadKind.ARRAY_LIST, listBytesArray);
+	}
 
 	/**
-	 * Sends a message containing a HashMap using the specified serializer.
+	 * Sends a message containing a HashMap using the specified codec.
 	 *
-	 * @param serializer An integer representing the serializer to use (0 for BSON, 1 for BSON, 3 for Java, 4 for Kryo, or other for MessagePack).
-	 */
-	public void sendHashMap (int serializer) {
-		byte[] mapBytesArray = null;
-
-		switch (serializer) {
-			case 0:
-				mapBytesArray = bson.serializeHashMap(hashMap.getHashMap());
-				break;
-			case 1:
-				mapBytesArray = bson.serializeHashMap(hashMap.getHashMap());
-				break;
-			//case 2:
-				// TODO: Handle Hessian serialization
-				//break;
-			case 3:
-				mapBytesArray = java.serializeHashMap(hashMap.getHashMap());
-				break;
-			case 4:
-				mapBytesArray = kryo.serializeHashMap(hashMap.getHashMap());
-				break;
-			default:
-				mapBytesArray = msgPack.serializeHashMap(hashMap.getHashMap());
-				break;
+	 * @param codec The id of the codec to use, see {@link CodecRegistry}.
+	 * @throws IllegalArgumentException If no codec has the id.
+	 */
+	public void sendHashMap (int codec) {
+		long start = System.nanoTime();
+		byte[] mapBytesArray = serializer(codec).serializeHashMap(hashMap.getHashMap());
+		metrics.record(codec, Measure.SERIALIZE_NANOS, System.nanoTime() - start);
+
+		log.payload(PayloadKind.HASH_MAP.getHeaderName(), hashMap::toPrintString);
+
+		send(codec, PayloadKind.HASH_MAP, mapBytesArray);
+	}
+
+	/**
+	 * Compresses a serialized message if compression is enabled, then logs its size and publishes it in an envelope,
+	 * recording its size and publish time. The size recorded is the size published, after compression. With
+	 * batching, the publish time is the time taken to add the message to the batch, including any wait for the
+	 * window of unconfirmed messages. Nothing is sent if the serializer failed.
+	 *
+	 * @param codec The id of the codec which serialized the message.
+	 * @param kind The payload kind.
+	 * @param msg The serialized message, may be null.
+	 */
+	private void send (int codec, PayloadKind kind, byte[] msg) {
+		if (msg == null) {
+			return;
 		}
 
-		hashMap.printHashMap();
-		System.out.println("Data size: " + mapBytesArray.length + " Bytes");
+		send(codec, newEnvelope(codec, kind), msg);
+	}
 
-		if (mapBytesArray != null) {
-			// Send the message body
-			sendMessage(mapBytesArray);
+	/**
+	 * Compresses a serialized message if compression is enabled, then logs its size and publishes it in the given
+	 * envelope, recording its size and publish time.
+	 *
+	 * @param codec The id of the codec which serialized the message.
+	 * @param envelope The envelope of the message.
+	 * @param msg The serialized message.
+	 */
+	private void send (int codec, MessageEnvelope envelope, byte[] msg) {
+		ICompressor compressor = this.compressor;
+
+		if (compressor != null && msg.length >= compressionThreshold) {
+			long start = System.nanoTime();
+			byte[] compressed = compressor.compress(msg);
+			metrics.record(codec, Measure.COMPRESS_NANOS, System.nanoTime() - start);
+
+			// Bodies which do not shrink are sent as they are, so the receiver does not pay to decompress them
+			if (compressed.length < msg.length) {
+				envelope = envelope.compressed(compressor.getId(), CompressorRegistry.dictionaryId(compressor.getDictionary()), msg.length);
+				msg = compressed;
+			}
 		}
+
+		if (log.isEnabled(LogLevel.DEBUG) && log.sample()) {
+			log.debug("Sending %s, %d bytes", envelope, msg.length);
+		}
+
+		// Send the message body
+		long start = System.nanoTime();
+		sendMessage(envelope.toProperties(), msg);
+		metrics.record(codec, Measure.PUBLISH_NANOS, System.nanoTime() - start);
+		metrics.record(codec, Measure.PAYLOAD_BYTES, msg.length);
+		metrics.countMessage(codec);
+	}
+
+	/**
+	 * Creates the envelope of the next message, taking the next sequence number.
+	 *
+	 * @param codec The id of the codec which serialized the message.
+	 * @param kind The payload kind.
+	 * @return The envelope, stamped with the current time.
+	 */
+	public MessageEnvelope newEnvelope (int codec, PayloadKind kind) {
+		return new MessageEnvelope(kind, codec, senderId, nextSequence.getAndIncrement());
+	}
+
+	/**
+	 * Gets the metrics of the messages sent.
+	 *
+	 * @return The sender metrics.
+	 */
+	public MessageMetrics getMetrics () {
+		return metrics;
+	}
+
+	/**
+	 * Sets the metrics the messages sent are recorded in, e.g. to share them between several senders.
+	 *
+	 * @param metrics The sender metrics.
+	 */
+	public void setMetrics (MessageMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Gets the id written into the envelope of every message from this sender.
+	 *
+	 * @return The sender id.
+	 */
+	public String getSenderId () {
+		return senderId;
+	}
+
+	/**
+	 * Gets the serializer of a codec, creating it on first use.
+	 *
+	 * @param codec The id of the codec.
+	 * @return The serializer of the codec.
+	 * @throws IllegalArgumentException If no codec has the id.
+	 */
+	private ISerializer serializer (int codec) {
+		return serializers.computeIfAbsent(codec, id -> codecs.require(id).newSerializer());
 	}
 
 	/**
 	 * Closes the open connection and channel associated with the message sender.
 	 * <p>
-	 * This method is responsible for releasing resources and closing connections properly.
+	 * This method is responsible for releasing resources and closing connections properly. Batched messages are
+	 * flushed first.
 	 **/
 	public void closeConnections () {
+		if (! flush(CLOSE_FLUSH_TIMEOUT)) {
+			System.err.println("Timed out waiting for publisher confirms, some messages may not have been delivered");
+		}
+
 		try {
 			chan.close();
 			connect.close();
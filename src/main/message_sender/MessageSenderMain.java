@@ -1,9 +1,18 @@
 package main.message_sender;
 
+import main.codecs.ICodec;
+import main.codecs.CodecRegistry;
+import main.logging.AsyncLogger;
+import main.metrics.MessageMetrics;
+import main.compression.CompressorRegistry;
+import main.compression.DictionaryTrainer;
+import main.compression.CompressionDictionary;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.FileInputStream;
 
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -16,6 +25,21 @@ import java.util.Properties;
  * @since 2016-08-04
  */
 public class MessageSenderMain {
+	/**
+	 * Longest time to wait for publisher confirms after each serializer round, in milliseconds.
+	 */
+	private static final long FLUSH_TIMEOUT = 10000;
+
+	/**
+	 * Metrics shared by every sender created, so the statistics cover the whole run.
+	 */
+	private static final MessageMetrics METRICS = new MessageMetrics("sender");
+
+	/**
+	 * The compression dictionary, loaded or trained once from the configuration, or null if none is configured.
+	 */
+	private static CompressionDictionary dictionary = null;
+
 	/**
 	 * The main method for the MessageSender application. It reads configuration properties, initializes
 	 * the MessageSender, and controls the process of monitoring and sending messages.
@@ -45,8 +69,15 @@ public class MessageSenderMain {
 			System.out.println("Connection Settings : " + prop.getProperty("rabbitHost") + "   " + prop.getProperty("rabbitUser") + "   " +  prop.getProperty("rabbitPass"));
 			System.out.println("sender here");
 
+			AsyncLogger.configure(prop);
+			METRICS.startExports(prop);
+
+			if (! "none".equalsIgnoreCase(prop.getProperty("compression", "none").trim())) {
+				dictionary = DictionaryTrainer.fromConfig(prop);
+			}
+
 			if (doSendMsg) {
-				sender = new MessageSender(prop.getProperty("rabbitHost"), prop.getProperty("rabbitUser"), prop.getProperty("rabbitPass"), "small");
+				sender = createSender(prop, "small");
 			}
 		}
 		catch (IOException f) {
@@ -63,13 +94,15 @@ public class MessageSenderMain {
 			}
 		}
 
-		// Start monitoring and processing
+		// Start monitoring and processing, cycling through every registered codec
 		try {
+			List<ICodec> codecs = CodecRegistry.getDefault().getCodecs();
 			int serializer = 0;
 			int fileSize = 0;
 
 			while (true) {
-				chooseSerializer(serializer);
+				int codec = codecs.get(serializer).getId();
+				chooseSerializer(codec);
 
 				while (counter < 5) {
 					counter++;
@@ -79,7 +112,7 @@ public class MessageSenderMain {
 							printHumanReadableFormat("Serializing JSON data... ");
 
 							if (doSendMsg) {
-								sender.sendJson(serializer);
+								sender.sendJson(codec);
 							}
 
 							break;
@@ -87,7 +120,7 @@ public class MessageSenderMain {
 							printHumanReadableFormat("Serializing CSV data... ");
 
 							if (doSendMsg) {
-								sender.sendCsv(serializer);
+								sender.sendCsv(codec);
 							}
 
 							break;
@@ -95,7 +128,7 @@ public class MessageSenderMain {
 							printHumanReadableFormat("Serializing XML data... ");
 
 							if (doSendMsg) {
-								sender.sendXml(serializer);
+								sender.sendXml(codec);
 							}
 
 							break;
@@ -103,7 +136,7 @@ public class MessageSenderMain {
 							printHumanReadableFormat("Serializing ArrayList data... ");
 
 							if (doSendMsg) {
-								sender.sendArrayList(serializer);
+								sender.sendArrayList(codec);
 							}
 
 							break;
@@ -111,7 +144,7 @@ public class MessageSenderMain {
 							printHumanReadableFormat("Serializing HashMap data... ");
 
 							if (doSendMsg) {
-								sender.sendHashMap(serializer);
+								sender.sendHashMap(codec);
 							}
 
 							break;
@@ -123,23 +156,21 @@ public class MessageSenderMain {
 				counter = 0;
 				serializer++;
 
-				if (serializer > 5) {
-					if (fileSize == 0) {
-						sender = new MessageSender(
-								prop.getProperty("rabbitHost"),
-								prop.getProperty("rabbitUser"),
-								prop.getProperty("rabbitPass"),
-								"medium");
+				if (doSendMsg && ! sender.flush(FLUSH_TIMEOUT)) {
+					System.err.println("Timed out waiting for publisher confirms");
+				}
+
+				if (serializer >= codecs.size()) {
+					if (doSendMsg) {
+						sender.closeConnections();
+					}
 
+					if (fileSize == 0) {
+						sender = createSender(prop, "medium");
 						fileSize = 1;
 					}
 					else {
-						sender = new MessageSender(
-								prop.getProperty("rabbitHost"),
-								prop.getProperty("rabbitUser"),
-								prop.getProperty("rabbitPass"),
-								"small");
-
+						sender = createSender(prop, "small");
 						fileSize = 0;
 					}
 					serializer = 0;
@@ -153,6 +184,38 @@ public class MessageSenderMain {
 		System.out.println("Successfully completed monitoring");
 	}
 
+	/**
+	 * Creates a message sender from the configuration, enabling batched publishing when publishBatchSize is greater
+	 * than zero, compression when compression names an algorithm, and sending data files in chunks of chunkRows rows
+	 * when chunkRows is greater than zero.
+	 *
+	 * @param prop The sender configuration.
+	 * @param fileSize The size identifier for data files.
+	 * @return The new message sender.
+	 */
+	private static MessageSender createSender (Properties prop, String fileSize) {
+		MessageSender sender = new MessageSender(
+				prop.getProperty("rabbitHost"),
+				prop.getProperty("rabbitUser"),
+				prop.getProperty("rabbitPass"),
+				fileSize);
+
+		sender.setMetrics(METRICS);
+
+		int batchSize = Integer.parseInt(prop.getProperty("publishBatchSize", "0"));
+
+		if (batchSize > 0) {
+			sender.enableBatching(batchSize, Integer.parseInt(prop.getProperty("confirmWindow", "64")));
+		}
+
+		sender.setCompression(CompressorRegistry.create(prop.getProperty("compression", "none"), dictionary),
+				Integer.parseInt(prop.getProperty("compressionThreshold", "0")));
+
+		sender.enableChunking(Integer.parseInt(prop.getProperty("chunkRows", "0")));
+
+		return sender;
+	}
+
 	/**
 	 * Prints a message to the console in a human-readable format.
 	 *
@@ -165,9 +228,9 @@ public class MessageSenderMain {
 	}
 
 	/**
-	 * Prints a serializer description based on the serializer index.
+	 * Prints a serializer description based on the codec id.
 	 *
-	 * @param serializer The serializer index.
+	 * @param serializer The codec id.
 	 */
 	public static void chooseSerializer (int serializer) {
 		if (serializer == 0) {
@@ -188,6 +251,13 @@ public class MessageSenderMain {
 		else if (serializer == 5) {
 			printSerializerUsed("         *** MESSAGEPACK SERIALIZER ***           ");
 		}
+		else {
+			ICodec codec = CodecRegistry.getDefault().get(serializer);
+
+			if (codec != null) {
+				printSerializerUsed("          *** " + codec.getName().toUpperCase() + " SERIALIZER ***     ");
+			}
+		}
 	}
 
 	/**
@@ -0,0 +1,180 @@
+package main.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class which records the distribution of non-negative values, such as latencies or message sizes, in fixed memory.
+ * <p>
+ * Values are counted in log-linear buckets in the style of HdrHistogram: values below 128 have a bucket each, and
+ * every higher power of two is split into 64 buckets, so any value is reported within 1.6% of what was recorded.
+ * Recording is a few arithmetic operations and one atomic increment, without locks or allocation, so it is safe to
+ * call from many threads on the hot path. Reads are not atomic snapshots: a value recorded while the histogram is
+ * read may be missing from some of the statistics.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class Histogram {
+	/**
+	 * Number of bits of a value kept in its bucket.
+	 */
+	private static final int SUB_BUCKET_BITS = 7;
+
+	/**
+	 * Number of values below which every value has a bucket of its own.
+	 */
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Number of buckets each higher power of two is split into.
+	 */
+	private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+
+	/**
+	 * Total number of buckets, enough for every non-negative long.
+	 */
+	private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+	/**
+	 * Number of values recorded in each bucket.
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	/**
+	 * Number of values recorded.
+	 */
+	private final AtomicLong totalCount = new AtomicLong();
+
+	/**
+	 * Sum of the values recorded.
+	 */
+	private final AtomicLong sum = new AtomicLong();
+
+	/**
+	 * Smallest value recorded.
+	 */
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+	/**
+	 * Largest value recorded.
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a value. Negative values are recorded as 0.
+	 *
+	 * @param value The value to record.
+	 */
+	public void record (long value) {
+		value = Math.max(0, value);
+
+		counts.incrementAndGet(bucketIndex(value));
+		totalCount.incrementAndGet();
+		sum.addAndGet(value);
+		min.accumulateAndGet(value, Math::min);
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	/**
+	 * Gets the number of values recorded.
+	 *
+	 * @return The number of values.
+	 */
+	public long getCount () {
+		return totalCount.get();
+	}
+
+	/**
+	 * Gets the smallest value recorded.
+	 *
+	 * @return The smallest value, or 0 if nothing was recorded.
+	 */
+	public long getMin () {
+		return getCount() == 0 ? 0 : min.get();
+	}
+
+	/**
+	 * Gets the largest value recorded.
+	 *
+	 * @return The largest value, or 0 if nothing was recorded.
+	 */
+	public long getMax () {
+		return max.get();
+	}
+
+	/**
+	 * Gets the mean of the values recorded.
+	 *
+	 * @return The mean, or 0 if nothing was recorded.
+	 */
+	public double getMean () {
+		long count = getCount();
+
+		return count == 0 ? 0 : (double) sum.get() / count;
+	}
+
+	/**
+	 * Gets the value below which the given percentage of the recorded values fall. The result is the highest value
+	 * of the bucket holding the percentile, capped at the largest value recorded.
+	 *
+	 * @param percentile The percentile, between 0 and 100.
+	 * @return The value at the percentile, or 0 if nothing was recorded.
+	 */
+	public long getValueAtPercentile (double percentile) {
+		long count = getCount();
+
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+		long seen = 0;
+
+		for (int index = 0; index < BUCKET_COUNT; index++) {
+			seen += counts.get(index);
+
+			if (seen >= rank) {
+				return Math.min(highestValueInBucket(index), getMax());
+			}
+		}
+
+		return getMax();
+	}
+
+	/**
+	 * Gets the bucket a value is counted in.
+	 *
+	 * @param value The value, not negative.
+	 * @return The index of the bucket.
+	 */
+	static int bucketIndex (long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+
+		return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (int) (value >>> shift) - SUB_BUCKET_HALF;
+	}
+
+	/**
+	 * Gets the highest value counted in a bucket.
+	 *
+	 * @param index The index of the bucket.
+	 * @return The highest value of the bucket.
+	 */
+	static long highestValueInBucket (int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+		long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+		long next = (subBucket + 1) << shift;
+
+		// The last bucket reaches the largest long, above which the next value overflows
+		return next <= 0 ? Long.MAX_VALUE : next - 1;
+	}
+}
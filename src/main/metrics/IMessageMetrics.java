@@ -0,0 +1,40 @@
+package main.metrics;
+
+import javax.management.MXBean;
+
+import java.util.Map;
+
+/**
+ * This interface defines the statistics {@link MessageMetrics} publishes over JMX.
+ * <p>
+ * The statistics can be read with any JMX client, such as JConsole or VisualVM, under the name
+ * main.metrics:type=MessageMetrics,name=&lt;side&gt;.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+@MXBean
+public interface IMessageMetrics {
+	/**
+	 * Gets the number of messages sent or received.
+	 *
+	 * @return The number of messages.
+	 */
+	public long getMessageCount ();
+
+	/**
+	 * Gets the average number of messages per second since the metrics were created.
+	 *
+	 * @return The message rate.
+	 */
+	public double getMessagesPerSecond ();
+
+	/**
+	 * Gets every statistic of every codec and measure, keyed by codec name, measure and statistic, e.g.
+	 * "CBOR.serialize_ns.p99".
+	 *
+	 * @return The statistics.
+	 */
+	public Map<String, Double> getStatistics ();
+}
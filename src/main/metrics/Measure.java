@@ -0,0 +1,42 @@
+package main.metrics;
+
+/**
+ * An enumerator listing the values recorded for every message by {@link MessageMetrics}.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public enum Measure {
+	// Sender Measures
+	SERIALIZE_NANOS("serialize_ns"), COMPRESS_NANOS("compress_ns"), PUBLISH_NANOS("publish_ns"),
+
+	// Receiver Measures
+	QUEUE_DWELL_MILLIS("queue_dwell_ms"), DECOMPRESS_NANOS("decompress_ns"), DESERIALIZE_NANOS("deserialize_ns"),
+
+	// Both Sides
+	PAYLOAD_BYTES("payload_bytes");
+
+	/**
+	 * The name of the measure in exported statistics, including its unit.
+	 */
+	private final String exportName;
+
+	/**
+	 * Constructor which takes the name of the measure in exported statistics.
+	 *
+	 * @param exportName The name used in exported statistics.
+	 */
+	Measure (String exportName) {
+		this.exportName = exportName;
+	}
+
+	/**
+	 * Gets the name of the measure in exported statistics, including its unit.
+	 *
+	 * @return The export name.
+	 */
+	public String getExportName () {
+		return exportName;
+	}
+}
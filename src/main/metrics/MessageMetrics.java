@@ -0,0 +1,408 @@
+package main.metrics;
+
+import main.codecs.ICodec;
+import main.codecs.CodecRegistry;
+
+import javax.management.ObjectName;
+import javax.management.JMException;
+
+import java.io.File;
+import java.io.Writer;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.BufferedWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Class which records latency, size and throughput statistics for the messages of one sender or receiver.
+ * <p>
+ * Every {@link Measure} is recorded per codec in a {@link Histogram}, so the codecs can be compared on the same
+ * traffic: the sender records serialize and publish times, the receiver records how long messages waited in the
+ * queue and deserialize times, and both record payload sizes. Queue dwell is measured against the send time in the
+ * message envelope, so it is only meaningful when the clocks of the sender and receiver hosts are synchronized.
+ * <p>
+ * The statistics can be published over JMX with {@link #registerMBean()} and appended to a CSV file at a fixed
+ * interval with {@link #startFileExport(File, long)}. Recording is safe from any number of threads.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class MessageMetrics implements IMessageMetrics {
+	/**
+	 * Header of the CSV export.
+	 */
+	private static final String CSV_HEADER = "time,side,codec,measure,count,min,mean,p50,p90,p99,p999,max,messages_per_second";
+
+	/**
+	 * Default interval between file exports in seconds.
+	 */
+	public static final long DEFAULT_EXPORT_INTERVAL = 10;
+
+	/**
+	 * The percentiles exported for every measure.
+	 */
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+	/**
+	 * The names of the exported percentiles.
+	 */
+	private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+	/**
+	 * The side the metrics belong to, e.g. sender or receiver.
+	 */
+	private final String side;
+
+	/**
+	 * The statistics of every codec used so far, keyed by codec id.
+	 */
+	private final Map<Integer, CodecStats> codecs = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of messages sent or received with any codec.
+	 */
+	private final AtomicLong messageCount = new AtomicLong();
+
+	/**
+	 * Time the metrics were created, from {@link System#nanoTime()}.
+	 */
+	private final long startNanos = System.nanoTime();
+
+	/**
+	 * Number of messages of every codec at the last file export, keyed by codec id.
+	 */
+	private final Map<Integer, Long> exportedCounts = new HashMap<>();
+
+	/**
+	 * Time of the last file export, from {@link System#nanoTime()}.
+	 */
+	private long lastExportNanos = startNanos;
+
+	/**
+	 * The thread which writes the file export, or null if it is not running.
+	 */
+	private ScheduledExecutorService exporter = null;
+
+	/**
+	 * Constructor which takes the side the metrics belong to.
+	 *
+	 * @param side The side the metrics belong to, e.g. sender or receiver.
+	 */
+	public MessageMetrics (String side) {
+		this.side = side;
+	}
+
+	/**
+	 * Records one value of a measure for a codec.
+	 *
+	 * @param codec The id of the codec.
+	 * @param measure The measure.
+	 * @param value The value, in the unit of the measure.
+	 */
+	public void record (int codec, Measure measure, long value) {
+		stats(codec).histograms[measure.ordinal()].record(value);
+	}
+
+	/**
+	 * Counts a message sent or received with a codec.
+	 *
+	 * @param codec The id of the codec.
+	 */
+	public void countMessage (int codec) {
+		stats(codec).messages.incrementAndGet();
+		messageCount.incrementAndGet();
+	}
+
+	/**
+	 * Gets the histogram of a measure for a codec.
+	 *
+	 * @param codec The id of the codec.
+	 * @param measure The measure.
+	 * @return The histogram, empty if nothing was recorded.
+	 */
+	public Histogram getHistogram (int codec, Measure measure) {
+		return stats(codec).histograms[measure.ordinal()];
+	}
+
+	/**
+	 * Gets the number of messages sent or received.
+	 *
+	 * @return The number of messages.
+	 */
+	@Override
+	public long getMessageCount () {
+		return messageCount.get();
+	}
+
+	/**
+	 * Gets the average number of messages per second since the metrics were created.
+	 *
+	 * @return The message rate.
+	 */
+	@Override
+	public double getMessagesPerSecond () {
+		return perSecond(messageCount.get(), System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Gets every statistic of every codec and measure, keyed by codec name, measure and statistic, e.g.
+	 * "CBOR.serialize_ns.p99". Measures without values are left out.
+	 *
+	 * @return The statistics, sorted by key.
+	 */
+	@Override
+	public Map<String, Double> getStatistics () {
+		Map<String, Double> statistics = new TreeMap<>();
+		long elapsed = System.nanoTime() - startNanos;
+
+		for (Map.Entry<Integer, CodecStats> entry : codecs.entrySet()) {
+			String codec = codecName(entry.getKey());
+			CodecStats stats = entry.getValue();
+
+			statistics.put(codec + ".messages", (double) stats.messages.get());
+			statistics.put(codec + ".messages_per_second", perSecond(stats.messages.get(), elapsed));
+
+			for (Measure measure : Measure.values()) {
+				Histogram histogram = stats.histograms[measure.ordinal()];
+
+				if (histogram.getCount() == 0) {
+					continue;
+				}
+
+				String prefix = codec + "." + measure.getExportName() + ".";
+				statistics.put(prefix + "count", (double) histogram.getCount());
+				statistics.put(prefix + "min", (double) histogram.getMin());
+				statistics.put(prefix + "mean", histogram.getMean());
+				statistics.put(prefix + "max", (double) histogram.getMax());
+
+				for (int i = 0; i < PERCENTILES.length; i++) {
+					statistics.put(prefix + PERCENTILE_NAMES[i], (double) histogram.getValueAtPercentile(PERCENTILES[i]));
+				}
+			}
+		}
+
+		return statistics;
+	}
+
+	/**
+	 * Starts the exports enabled in a configuration: metricsJmx=true publishes the statistics over JMX, and
+	 * metricsFile=&lt;path&gt; appends them to a CSV file every metricsInterval seconds.
+	 *
+	 * @param config The sender or receiver configuration.
+	 */
+	public void startExports (Properties config) {
+		if (Boolean.parseBoolean(config.getProperty("metricsJmx", "false"))) {
+			registerMBean();
+		}
+
+		String file = config.getProperty("metricsFile", "");
+
+		if (! file.isEmpty()) {
+			startFileExport(new File(file), Long.parseLong(config.getProperty("metricsInterval", String.valueOf(DEFAULT_EXPORT_INTERVAL))));
+		}
+	}
+
+	/**
+	 * Publishes the statistics over JMX on the platform MBean server. Failures are reported and otherwise ignored,
+	 * so a second sender in the same process does not stop the first from being monitored.
+	 */
+	public void registerMBean () {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName());
+		}
+		catch (JMException exception) {
+			System.err.println("Failure while registering the " + side + " metrics with JMX");
+			exception.printStackTrace();
+		}
+	}
+
+	/**
+	 * Removes the statistics from the platform MBean server, if they were published.
+	 */
+	public void unregisterMBean () {
+		try {
+			ObjectName name = objectName();
+
+			if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			}
+		}
+		catch (JMException exception) {
+			exception.printStackTrace();
+		}
+	}
+
+	/**
+	 * Gets the JMX name of the statistics.
+	 *
+	 * @return The object name, main.metrics:type=MessageMetrics,name=&lt;side&gt;.
+	 * @throws JMException If the side is not a valid JMX name.
+	 */
+	private ObjectName objectName () throws JMException {
+		return new ObjectName("main.metrics:type=MessageMetrics,name=" + side);
+	}
+
+	/**
+	 * Starts appending the statistics to a CSV file at a fixed interval, on a background thread. The header is
+	 * written first if the file is empty. Any export already running is stopped.
+	 *
+	 * @param file The file to append to.
+	 * @param periodSeconds The interval between exports, in seconds.
+	 * @throws IllegalArgumentException If the interval is not positive.
+	 */
+	public synchronized void startFileExport (File file, long periodSeconds) {
+		if (periodSeconds <= 0) {
+			throw new IllegalArgumentException("Export interval must be positive: " + periodSeconds);
+		}
+
+		stopFileExport();
+
+		exporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, side + "-metrics-export");
+			thread.setDaemon(true);
+			return thread;
+		});
+		exporter.scheduleAtFixedRate(() -> appendToFile(file), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops the file export started by {@link #startFileExport(File, long)}. Does nothing if it is not running.
+	 */
+	public synchronized void stopFileExport () {
+		if (exporter != null) {
+			exporter.shutdownNow();
+			exporter = null;
+		}
+	}
+
+	/**
+	 * Appends the statistics to a CSV file, writing the header first if the file is empty.
+	 *
+	 * @param file The file to append to.
+	 */
+	public void appendToFile (File file) {
+		boolean empty = file.length() == 0;
+
+		try (Writer out = new BufferedWriter(new FileWriter(file, true))) {
+			if (empty) {
+				out.write(CSV_HEADER);
+				out.write('\n');
+			}
+
+			writeCsv(out);
+		}
+		catch (IOException exception) {
+			System.err.println("Failure while writing the " + side + " metrics to " + file);
+			exception.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes one CSV row per codec and measure with values, without a header. The message rate of each row is
+	 * measured since the previous call.
+	 *
+	 * @param out The writer to write to.
+	 * @throws IOException If writing fails.
+	 */
+	public synchronized void writeCsv (Writer out) throws IOException {
+		long now = System.nanoTime();
+		long elapsed = now - lastExportNanos;
+		long time = System.currentTimeMillis();
+
+		for (Map.Entry<Integer, CodecStats> entry : new TreeMap<>(codecs).entrySet()) {
+			long messages = entry.getValue().messages.get();
+			Long previous = exportedCounts.put(entry.getKey(), messages);
+			double rate = perSecond(messages - (previous == null ? 0 : previous), elapsed);
+
+			for (Measure measure : Measure.values()) {
+				Histogram histogram = entry.getValue().histograms[measure.ordinal()];
+
+				if (histogram.getCount() == 0) {
+					continue;
+				}
+
+				StringBuilder row = new StringBuilder();
+				row.append(time).append(',').append(side).append(',').append(codecName(entry.getKey())).append(',')
+						.append(measure.getExportName()).append(',').append(histogram.getCount()).append(',')
+						.append(histogram.getMin()).append(',').append(String.format(Locale.ROOT, "%.1f", histogram.getMean()));
+
+				for (double percentile : PERCENTILES) {
+					row.append(',').append(histogram.getValueAtPercentile(percentile));
+				}
+
+				row.append(',').append(histogram.getMax()).append(',').append(String.format(Locale.ROOT, "%.2f", rate)).append('\n');
+				out.write(row.toString());
+			}
+		}
+
+		lastExportNanos = now;
+	}
+
+	/**
+	 * Gets the statistics of a codec, creating them on first use.
+	 *
+	 * @param codec The id of the codec.
+	 * @return The statistics of the codec.
+	 */
+	private CodecStats stats (int codec) {
+		return codecs.computeIfAbsent(codec, id -> new CodecStats());
+	}
+
+	/**
+	 * Gets the name of a codec for exported statistics.
+	 *
+	 * @param codec The id of the codec.
+	 * @return The name from the default codec registry, or codec-&lt;id&gt; if it is not registered.
+	 */
+	private static String codecName (int codec) {
+		ICodec found = CodecRegistry.getDefault().get(codec);
+
+		return found == null ? "codec-" + codec : found.getName();
+	}
+
+	/**
+	 * Converts a count over a period into a rate per second.
+	 *
+	 * @param count The count.
+	 * @param nanos The period in nanoseconds.
+	 * @return The rate per second, or 0 for an empty period.
+	 */
+	private static double perSecond (long count, long nanos) {
+		return nanos <= 0 ? 0 : count * 1e9 / nanos;
+	}
+
+	/**
+	 * The histograms and message count of one codec.
+	 */
+	private static class CodecStats {
+		/**
+		 * The histogram of every measure, indexed by ordinal.
+		 */
+		final Histogram[] histograms = new Histogram[Measure.values().length];
+
+		/**
+		 * Number of messages sent or received with the codec.
+		 */
+		final AtomicLong messages = new AtomicLong();
+
+		/**
+		 * Default constructor which creates an empty histogram for every measure.
+		 */
+		CodecStats () {
+			for (int i = 0; i < histograms.length; i++) {
+				histograms[i] = new Histogram();
+			}
+		}
+	}
+}
@@ -1,108 +1,90 @@
 package main.serializers;
 
-import de.undercouch.bson4jackson.BsonFactory;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import main.helpers.BufferPool;
+import main.helpers.JacksonMappers;
+import main.helpers.ReusableOutputStream;
 
 import java.io.File;
 import java.util.HashMap;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 
 /**
  * Class for serializing various Java data types such as ArrayList, HashMap, String and File into binary data using BSON.
  * <p>
  * The primary purpose of this class is to provide methods for serializing binary data into Java objects such as
  * ArrayList, HashMap, String, and File, among others. This class utilizes the BSON4Jackson library to achieve serialization.
+ * <p>
+ * Values are written with the shared BSON writer of {@link JacksonMappers}, so one instance can be shared by several
+ * threads and Jackson's serializer caches are kept between calls.
  *
  * @author Martin Bullman
  * @version 1.0
  * @since 2016-08-04
  */
-public class BsonSerializer {
-	/**
-	 * Object mapper used for deserialization.
-	 */
-	private ObjectMapper mapper = null;
-
-	/**
-	 * Stores the serialised data.
-	 */
-	private ByteArrayOutputStream baos = null;
-
+public class BsonSerializer implements ISerializer {
 	/**
 	 * Default constructor for the BsonSerializer class.
 	 */
 	public BsonSerializer () {
-		this.baos   = new ByteArrayOutputStream();
-		this.mapper = new ObjectMapper(new BsonFactory());
+
 	}
 
 	/**
-	 * Serializes an ArrayList of strings into a byte array.
+	 * Serializes an ArrayList of strings into an output stream.
 	 *
 	 * @param arrayList ArrayList to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-	public byte[] serializeArrayList (final ArrayList<String> arrayList) {
-	    try {
-			mapper.writeValue(baos, arrayList);
-		} 
-	    catch (IOException ex) {
-			ex.printStackTrace();
-		}
-	    
-	    return baos.toByteArray();
+	@Override
+	public void serializeArrayListTo (final ArrayList<String> arrayList, final OutputStream out) throws IOException {
+		JacksonMappers.BSON_WRITER.writeValue(out, arrayList);
 	}
 
 	/**
-	 * Serializes an HashMap of strings as keys and Objects as values into a byte array.
+	 * Serializes an HashMap of strings as keys and Objects as values into an output stream.
 	 *
 	 * @param hashMap HashMap to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-	public byte[] serializeHashMap (final HashMap<String, Object> hashMap) {
-		try {
-			mapper.writeValue(baos, hashMap);
-		}
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
-	    
-	    return baos.toByteArray();
+	@Override
+	public void serializeHashMapTo (final HashMap<String, Object> hashMap, final OutputStream out) throws IOException {
+		JacksonMappers.BSON_WRITER.writeValue(out, hashMap);
 	}
 
 	/**
-	 * Serializes a String into a byte array.
+	 * Serializes a String into an output stream.
 	 *
 	 * @param string String to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-	public byte[] serializeString (final String string) {
-		try {
-			mapper.writeValue(baos, string);
-		}
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
-	    
-	    return baos.toByteArray();
+	@Override
+	public void serializeStringTo (final String string, final OutputStream out) throws IOException {
+		JacksonMappers.BSON_WRITER.writeValue(out, string);
 	}
 
 	/**
 	 * Serializes a File into a byte array.
 	 *
 	 * @param file File to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @return A byte array containing the serialized data, or null if serialization failed.
 	 */
 	public byte[] serializeFile (final File file) {
+		ReusableOutputStream out = BufferPool.output();
+
 		try {
-			mapper.writeValue(baos, file);
+			JacksonMappers.BSON_WRITER.writeValue(out, file);
 		}
 		catch (Exception exception) {
 			exception.printStackTrace();
+			BufferPool.release(out);
+			return null;
 		}
-	    
-	    return baos.toByteArray();
+
+		return BufferPool.toBytes(out);
 	}
 }
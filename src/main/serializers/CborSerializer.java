@@ -7,98 +7,130 @@ import com.naphaso.cbor.serializers.*;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 
 /**
  * Class for serializing various Java data types such as ArrayList, HashMap, String and File into binary data using CBOR.
  * <p>
  * The primary purpose of this class is to provide methods for serializing binary data into Java objects such as
  * ArrayList, HashMap, String, and File, among others. This class utilizes the BSON4Jackson library to achieve serialization.
+ * <p>
+ * The class has no fields: each call wraps the stream it writes to in a writer of its own, so one instance can be
+ * shared by several threads.
  *
  * @author Martin Bullman
  * @version 1.0
  * @since 2016-08-04
  */
-public class CborSerializer {
-
-	/**
-	 * Stores the serialised data.
-	 */
-	private ByteArrayOutputStream baos = null;
-
-	/**
-	 * Stream output to work with ByteArrayOutputStream.
-	 */
-	private Output output = null;
-
-	/**
-	 *  CBOR writer to work with Output.
-	 */
-	private CborWriter writer = null;
-
+public class CborSerializer implements ISerializer {
 	/**
 	 * Default constructor for the CborSerializer class.
 	 */
 	public CborSerializer () {
-		baos   = new ByteArrayOutputStream();
-		output = new StreamOutput(baos);
-		writer = new CborWriter(output);
+
 	}
 
 	/**
-	 * Serializes an ArrayList of strings into a byte array.
+	 * Serializes an ArrayList of strings into an output stream.
 	 *
 	 * @param arrayList ArrayList to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-	public byte[] serializeArrayList (ArrayList<String> arrayList) {
+	@Override
+	public void serializeArrayListTo (ArrayList<String> arrayList, OutputStream out) throws IOException {
 		final Serializer<ArrayList<String>> serializer = SerializerFactory.getInstance().getSerializer(arrayList.getClass());
-	       
-	    try {
-	        serializer.write(arrayList).write(writer);
-	    }
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
 
-	    return baos.toByteArray();
+		serializer.write(arrayList).write(new TextWriter(out));
+		out.flush();
 	}
 
 	/**
-	 * Serializes an HashMap of strings as keys and Objects as values into a byte array.
+	 * Serializes an HashMap of strings as keys and Objects as values into an output stream.
 	 *
 	 * @param hashMap HashMap to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-	public byte[] serializeHashMap (HashMap<String, Object> hashMap) {
+	@Override
+	public void serializeHashMapTo (HashMap<String, Object> hashMap, OutputStream out) throws IOException {
 		final Serializer<Map<String, Object>> serializer = SerializerFactory.getInstance().getSerializer(hashMap.getClass());
-	       
-	    try {
-	        serializer.write(hashMap).write(writer);
-	    }
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
 
-    	return baos.toByteArray();
+		serializer.write(hashMap).write(new TextWriter(out));
+		out.flush();
 	}
 
 	/**
-	 * Serializes a String into a byte array.
+	 * Serializes a String into an output stream.
 	 *
 	 * @param string String to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-	public byte[] serializeString (String string) {
+	@Override
+	public void serializeStringTo (String string, OutputStream out) throws IOException {
 		final Serializer<String> serializer = SerializerFactory.getInstance().getSerializer(string.getClass());
-	       
-	    try {
-	        serializer.write(string).write(writer);
-	    }
-		catch (Exception exception) {
-			exception.printStackTrace();
+
+		serializer.write(string).write(new TextWriter(out));
+		out.flush();
+	}
+
+	/**
+	 * Serializes UTF-8 encoded text, such as a memory mapped data file, into an output stream.
+	 * <p>
+	 * The bytes are written as a CBOR text string straight from the buffer, without being decoded into a String
+	 * first. The result is the same as serializing the decoded String.
+	 *
+	 * @param utf8String Buffer holding the UTF-8 encoded text, read from its position to its limit. The position
+	 * is not changed.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be written.
+	 */
+	@Override
+	public void serializeStringTo (ByteBuffer utf8String, OutputStream out) throws IOException {
+		ByteBuffer text = utf8String.duplicate();
+
+		new TextWriter(out).writeTextHeader(text.remaining());
+
+		if (text.hasArray()) {
+			out.write(text.array(), text.arrayOffset() + text.position(), text.remaining());
+		}
+		else {
+			Channels.newChannel(out).write(text);
 		}
 
-    	return baos.toByteArray();
+		out.flush();
+	}
+
+	/**
+	 * CBOR writer which can write the header of a text string without its contents.
+	 */
+	private static class TextWriter extends CborWriter {
+		/**
+		 * CBOR major type of text strings.
+		 */
+		private static final int TEXT_STRING = 3;
+
+		/**
+		 * Constructor which takes the stream the writer writes to.
+		 *
+		 * @param out The stream the writer writes to.
+		 */
+		private TextWriter (OutputStream out) {
+			super(new StreamOutput(out));
+		}
+
+		/**
+		 * Writes the header of a text string of the given length in bytes.
+		 *
+		 * @param length The length of the text string in bytes.
+		 * @throws IOException If the header could not be written.
+		 */
+		private void writeTextHeader (long length) throws IOException {
+			writeTypeAndValue(TEXT_STRING, length);
+		}
 	}
 }
@@ -4,103 +4,91 @@ import com.caucho.hessian.io.Hessian2Output;
 
 import java.util.HashMap;
 import java.util.ArrayList;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Class for serializing various Java data types into binary data using Hessian.
  * <p>
  * The primary purpose of this class is to provide methods for serializing binary data into Java objects such as
  * ArrayList, HashMap, String, and File, among others. This class utilizes the BSON4Jackson library to achieve serialization.
+ * <p>
+ * A Hessian output keeps a buffer and the references written so far, so each thread reuses one of its own, reset
+ * before every message. One instance of the class can therefore be shared by several threads.
  *
  * @author Martin Bullman
  * @version 1.0
  * @since 2016-08-04
  */
-public class HessianSerializer {
+public class HessianSerializer implements ISerializer {
 	/**
-	 * Stores the serialised data.
+	 * The Hessian output of each thread.
 	 */
-	private ByteArrayOutputStream baos = null;
-
-	/**
-	 * Hessian output to work with ByteArrayOutputStream.
-	 */
-	private Hessian2Output out = null;
+	private static final ThreadLocal<Hessian2Output> OUTPUT = ThreadLocal.withInitial(Hessian2Output::new);
 
 	/**
 	 * Default constructor for the HessianSerializer class.
 	 */
 	public HessianSerializer () {
-		baos = new ByteArrayOutputStream();
-		out  = new Hessian2Output(baos);
+
 	}
 
 	/**
-	 * Serializes an ArrayList of strings into a byte array.
+	 * Serializes an ArrayList of strings into an output stream.
 	 *
 	 * @param arrayList ArrayList to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-    public byte[] serializeArrayList (final ArrayList<String> arrayList) {
-    	ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		Hessian2Output out = new Hessian2Output(baos);
-    	
-    	try {
-    		out.startMessage();
-    		out.writeObject(arrayList);
-    		out.completeMessage();
-    		out.close();
-    	}
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
-    	
-    	return baos.toByteArray();
-    }
+	@Override
+	public void serializeArrayListTo (final ArrayList<String> arrayList, final OutputStream out) throws IOException {
+		writeMessage(arrayList, out);
+	}
 
 	/**
-	 * Serializes an HashMap of strings as keys and Objects as values into a byte array.
+	 * Serializes an HashMap of strings as keys and Objects as values into an output stream.
 	 *
 	 * @param hashMap HashMap to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-    public byte[] serializeHashMap (final HashMap<String, Object> hashMap) {
-    	ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		Hessian2Output out = new Hessian2Output(baos);
-    	
-    	try {
-    		out.startMessage();
-    		out.writeObject(hashMap);
-    		out.completeMessage();
-    		out.close();
-    	}
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
-    	
-    	return baos.toByteArray();
-    }
+	@Override
+	public void serializeHashMapTo (final HashMap<String, Object> hashMap, final OutputStream out) throws IOException {
+		writeMessage(hashMap, out);
+	}
 
 	/**
-	 * Serializes a String into a byte array.
+	 * Serializes a String into an output stream.
 	 *
 	 * @param string String to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-    public byte[] serializeString (final String string) {
-    	ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		Hessian2Output out = new Hessian2Output(baos);
-    	
-    	try {
-    		out.startMessage();
-    		out.writeObject(string);
-    		out.completeMessage();
-    		out.close();
-    	}
-		catch (Exception exception) {
-			exception.printStackTrace();
+	@Override
+	public void serializeStringTo (final String string, final OutputStream out) throws IOException {
+		writeMessage(string, out);
+	}
+
+	/**
+	 * Writes an object as a Hessian message with the output of the calling thread. The output is detached from the
+	 * stream afterwards, so it does not keep the caller's stream alive.
+	 *
+	 * @param object Object to be serialized.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
+	 */
+	private static void writeMessage (final Object object, final OutputStream out) throws IOException {
+		Hessian2Output output = OUTPUT.get();
+		output.init(out);
+
+		try {
+			output.startMessage();
+			output.writeObject(object);
+			output.completeMessage();
+			output.flush();
 		}
-    	
-    	return baos.toByteArray();
-    }
+		finally {
+			output.init(null);
+		}
+	}
 }
@@ -0,0 +1,253 @@
+package main.serializers;
+
+import main.helpers.BufferPool;
+import main.helpers.ByteBufferOutputStream;
+import main.helpers.ReusableOutputStream;
+
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This interface defines the operations every serializer supports.
+ * <p>
+ * Implementing classes turn the payloads sent by the message sender, Strings holding the contents of a data file,
+ * ArrayLists and HashMaps, into bytes which the matching {@link main.deserializers.IDeserializer} reads back.
+ * Serializers are created through a {@link main.codecs.ICodec}.
+ * <p>
+ * Every payload can be written to a caller's OutputStream, and each serializer implements those methods. It can
+ * also be written straight into a caller's ByteBuffer, such as a pooled direct buffer, without a byte array in
+ * between. The methods returning a byte array write into the per-thread buffer of {@link BufferPool} and copy the
+ * result out.
+ * <p>
+ * Serializers must be safe to share between threads without locking: they keep no state between calls in their
+ * fields, and any scratch space they need belongs to the calling thread. The OutputStream passed in belongs to the
+ * caller; it is written to and flushed but never closed, and must not be shared with another thread during the call.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public interface ISerializer {
+	/**
+	 * Serializes an ArrayList of strings into an output stream.
+	 *
+	 * @param arrayList ArrayList to be serialized.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
+	 */
+	public void serializeArrayListTo (ArrayList<String> arrayList, OutputStream out) throws IOException;
+
+	/**
+	 * Serializes an HashMap of strings as keys and Objects as values into an output stream.
+	 *
+	 * @param hashMap HashMap to be serialized.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
+	 */
+	public void serializeHashMapTo (HashMap<String, Object> hashMap, OutputStream out) throws IOException;
+
+	/**
+	 * Serializes a String into an output stream.
+	 *
+	 * @param string String to be serialized.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
+	 */
+	public void serializeStringTo (String string, OutputStream out) throws IOException;
+
+	/**
+	 * Serializes UTF-8 encoded text, such as a memory mapped data file, into an output stream. The result is the
+	 * same as serializing the decoded String, which is what this default does; serializers which can copy the bytes
+	 * straight from the buffer override it.
+	 *
+	 * @param utf8String Buffer holding the UTF-8 encoded text, read from its position to its limit. The position
+	 * is not changed.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
+	 */
+	public default void serializeStringTo (ByteBuffer utf8String, OutputStream out) throws IOException {
+		serializeStringTo(StandardCharsets.UTF_8.decode(utf8String.duplicate()).toString(), out);
+	}
+
+	/**
+	 * Serializes an ArrayList of strings into a ByteBuffer, at its position, which is moved past the
+	 * serialized data. If the data does not fit the position is left where it was.
+	 *
+	 * @param arrayList ArrayList to be serialized.
+	 * @param out The buffer the serialized data is written to.
+	 * @return The number of bytes written.
+	 * @throws IOException If the data could not be serialized or does not fit in the buffer.
+	 */
+	public default int serializeArrayListTo (ArrayList<String> arrayList, ByteBuffer out) throws IOException {
+		int start = out.position();
+
+		try {
+			serializeArrayListTo(arrayList, new ByteBufferOutputStream(out));
+		}
+		catch (IOException | RuntimeException exception) {
+			out.position(start);
+			throw exception;
+		}
+
+		return out.position() - start;
+	}
+
+	/**
+	 * Serializes an HashMap of strings as keys and Objects as values into a ByteBuffer, at its position, which is
+	 * moved past the serialized data. If the data does not fit the position is left where it was.
+	 *
+	 * @param hashMap HashMap to be serialized.
+	 * @param out The buffer the serialized data is written to.
+	 * @return The number of bytes written.
+	 * @throws IOException If the data could not be serialized or does not fit in the buffer.
+	 */
+	public default int serializeHashMapTo (HashMap<String, Object> hashMap, ByteBuffer out) throws IOException {
+		int start = out.position();
+
+		try {
+			serializeHashMapTo(hashMap, new ByteBufferOutputStream(out));
+		}
+		catch (IOException | RuntimeException exception) {
+			out.position(start);
+			throw exception;
+		}
+
+		return out.position() - start;
+	}
+
+	/**
+	 * Serializes a String into a ByteBuffer, at its position, which is moved past the
+	 * serialized data. If the data does not fit the position is left where it was.
+	 *
+	 * @param string String to be serialized.
+	 * @param out The buffer the serialized data is written to.
+	 * @return The number of bytes written.
+	 * @throws IOException If the data could not be serialized or does not fit in the buffer.
+	 */
+	public default int serializeStringTo (String string, ByteBuffer out) throws IOException {
+		int start = out.position();
+
+		try {
+			serializeStringTo(string, new ByteBufferOutputStream(out));
+		}
+		catch (IOException | RuntimeException exception) {
+			out.position(start);
+			throw exception;
+		}
+
+		return out.position() - start;
+	}
+
+	/**
+	 * Serializes UTF-8 encoded text into a ByteBuffer, at its position, which is moved past the
+	 * serialized data. If the data does not fit the position is left where it was.
+	 *
+	 * @param utf8String Buffer holding the UTF-8 encoded text, read from its position to its limit. The position
+	 * is not changed.
+	 * @param out The buffer the serialized data is written to.
+	 * @return The number of bytes written.
+	 * @throws IOException If the data could not be serialized or does not fit in the buffer.
+	 */
+	public default int serializeStringTo (ByteBuffer utf8String, ByteBuffer out) throws IOException {
+		int start = out.position();
+
+		try {
+			serializeStringTo(utf8String, new ByteBufferOutputStream(out));
+		}
+		catch (IOException | RuntimeException exception) {
+			out.position(start);
+			throw exception;
+		}
+
+		return out.position() - start;
+	}
+
+	/**
+	 * Serializes an ArrayList of strings into a byte array.
+	 *
+	 * @param arrayList ArrayList to be serialized.
+	 * @return A byte array containing the serialized data, or null if serialization failed.
+	 */
+	public default byte[] serializeArrayList (ArrayList<String> arrayList) {
+		ReusableOutputStream out = BufferPool.output();
+
+		try {
+			serializeArrayListTo(arrayList, out);
+		}
+		catch (Exception exception) {
+			exception.printStackTrace();
+			BufferPool.release(out);
+			return null;
+		}
+
+		return BufferPool.toBytes(out);
+	}
+
+	/**
+	 * Serializes an HashMap of strings as keys and Objects as values into a byte array.
+	 *
+	 * @param hashMap HashMap to be serialized.
+	 * @return A byte array containing the serialized data, or null if serialization failed.
+	 */
+	public default byte[] serializeHashMap (HashMap<String, Object> hashMap) {
+		ReusableOutputStream out = BufferPool.output();
+
+		try {
+			serializeHashMapTo(hashMap, out);
+		}
+		catch (Exception exception) {
+			exception.printStackTrace();
+			BufferPool.release(out);
+			return null;
+		}
+
+		return BufferPool.toBytes(out);
+	}
+
+	/**
+	 * Serializes a String into a byte array.
+	 *
+	 * @param string String to be serialized.
+	 * @return A byte array containing the serialized data, or null if serialization failed.
+	 */
+	public default byte[] serializeString (String string) {
+		ReusableOutputStream out = BufferPool.output();
+
+		try {
+			serializeStringTo(string, out);
+		}
+		catch (Exception exception) {
+			exception.printStackTrace();
+			BufferPool.release(out);
+			return null;
+		}
+
+		return BufferPool.toBytes(out);
+	}
+
+	/**
+	 * Serializes UTF-8 encoded text, such as a memory mapped data file, into a byte array. The result is the same as
+	 * serializing the decoded String.
+	 *
+	 * @param utf8String Buffer holding the UTF-8 encoded text, read from its position to its limit.
+	 * @return A byte array containing the serialized data, or null if serialization failed.
+	 */
+	public default byte[] serializeString (ByteBuffer utf8String) {
+		ReusableOutputStream out = BufferPool.output();
+
+		try {
+			serializeStringTo(utf8String, out);
+		}
+		catch (Exception exception) {
+			exception.printStackTrace();
+			BufferPool.release(out);
+			return null;
+		}
+
+		return BufferPool.toBytes(out);
+	}
+}
@@ -2,8 +2,9 @@ package main.serializers;
 
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.ObjectOutputStream;
-import java.io.ByteArrayOutputStream;
 
 /**
  * Class for serializing various Java data types into binary data using Java Objects.
@@ -11,12 +12,15 @@ import java.io.ByteArrayOutputStream;
  * The primary purpose of this class is to provide methods for serializing binary data into Java objects such as
  * ArrayList, HashMap, String, and File, among others. This class utilizes the ObjectOutputStream library to achieve
  * serialization.
+ * <p>
+ * Every message starts with its own stream header, so each call creates its own ObjectOutputStream and one
+ * instance of the class can be shared by several threads.
  *
  * @author Martin Bullman
  * @version 1.0
  * @since 2016-08-04
  */
-public class JavaSerializer {
+public class JavaSerializer implements ISerializer {
 	/**
 	 * Default constructor for the JavaSerializer class.
 	 */
@@ -25,62 +29,52 @@ public class JavaSerializer {
 	}
 
 	/**
-	 * Serializes an ArrayList of strings into a byte array.
+	 * Serializes an ArrayList of strings into an output stream.
 	 *
 	 * @param arrayList ArrayList to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-	public byte[] serializeArrayList (final ArrayList<String> arrayList) {
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		
-		try {
-        	ObjectOutputStream out = new ObjectOutputStream(baos);
-			out.writeObject(arrayList);
-		}
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
-
-	    return baos.toByteArray();
+	@Override
+	public void serializeArrayListTo (final ArrayList<String> arrayList, final OutputStream out) throws IOException {
+		writeObject(arrayList, out);
 	}
 
 	/**
-	 * Serializes an HashMap of strings as keys and Objects as values into a byte array.
+	 * Serializes an HashMap of strings as keys and Objects as values into an output stream.
 	 *
 	 * @param hashMap HashMap to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-	public byte[] serializeHashMap (final HashMap<String, Object> hashMap) {
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		
-		try {
-        	ObjectOutputStream out = new ObjectOutputStream(baos);
-			out.writeObject(hashMap);
-		}
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
-
-	    return baos.toByteArray();
+	@Override
+	public void serializeHashMapTo (final HashMap<String, Object> hashMap, final OutputStream out) throws IOException {
+		writeObject(hashMap, out);
 	}
 
 	/**
-	 * Serializes a String into a byte array.
+	 * Serializes a String into an output stream.
 	 *
 	 * @param string String to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-	public byte[] serializeString (final String string) {
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		
-		try {
-        	ObjectOutputStream out = new ObjectOutputStream(baos);
-			out.writeObject(string);
-		}
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
+	@Override
+	public void serializeStringTo (final String string, final OutputStream out) throws IOException {
+		writeObject(string, out);
+	}
 
-	    return baos.toByteArray();
+	/**
+	 * Writes an object with a stream of its own. The object stream is flushed but not closed, which would close
+	 * the caller's stream.
+	 *
+	 * @param object Object to be serialized.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
+	 */
+	private static void writeObject (final Object object, final OutputStream out) throws IOException {
+		ObjectOutputStream objectOut = new ObjectOutputStream(out);
+		objectOut.writeObject(object);
+		objectOut.flush();
 	}
 }
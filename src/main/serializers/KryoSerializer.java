@@ -1,25 +1,34 @@
 package main.serializers;
 
-import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.KryoException;
+
+import main.helpers.KryoPool;
 
 import java.io.File;
-import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Class for serializing various Java data types into binary data using Kyro.
  * <p>
  * The primary purpose of this class is to provide methods for serializing binary data into Java objects such as
  * ArrayList, HashMap, String, and File, among others. This class utilizes the Kryo library to achieve serialization.
+ * <p>
+ * The Kryo instance and output buffer of the calling thread are taken from {@link KryoPool}, so no Kryo instance or
+ * stream is created per call and registered classes are written as small identifiers instead of class names. As
+ * every thread has its own, one instance of the class can be shared by several threads. The byte array methods
+ * copy straight out of the Kryo buffer rather than through {@link main.helpers.BufferPool}.
  *
  * @author Martin Bullman
  * @version 1.0
  * @since 2016-08-04
  */
-public class KryoSerializer {
+public class KryoSerializer implements ISerializer {
 	/**
 	 * Default constructor for the KryoSerializer class.
 	 */
@@ -27,27 +36,51 @@ public class KryoSerializer {
 
 	}
 
+	/**
+	 * Serializes an ArrayList of strings into an output stream.
+	 *
+	 * @param arrayList ArrayList to be serialized.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
+	 */
+	@Override
+	public void serializeArrayListTo (final ArrayList<String> arrayList, final OutputStream out) throws IOException {
+		serialize(arrayList, out);
+	}
+
+	/**
+	 * Serializes an HashMap of strings as keys and Objects as values into an output stream.
+	 *
+	 * @param hashMap HashMap to be serialized.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
+	 */
+	@Override
+	public void serializeHashMapTo (final HashMap<String, Object> hashMap, final OutputStream out) throws IOException {
+		serialize(hashMap, out);
+	}
+
+	/**
+	 * Serializes a String into an output stream.
+	 *
+	 * @param string String to be serialized.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
+	 */
+	@Override
+	public void serializeStringTo (final String string, final OutputStream out) throws IOException {
+		serialize(string, out);
+	}
+
 	/**
 	 * Serializes an ArrayList of strings into a byte array.
 	 *
 	 * @param arrayList ArrayList to be serialized.
 	 * @return A byte array containing the serialized data.
 	 */
+	@Override
 	public byte[] serializeArrayList (final ArrayList<String> arrayList) {
-		Kryo kryo = new Kryo();
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		Output output = new Output(baos);
-
-		try {
-			kryo.writeClassAndObject(output,  arrayList);
-			output.flush();
-			output.close();
-		}
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
-		
-        return baos.toByteArray();
+		return serialize(arrayList);
 	}
 
 	/**
@@ -56,22 +89,9 @@ public class KryoSerializer {
 	 * @param hashMap HashMap to be serialized.
 	 * @return A byte array containing the serialized data.
 	 */
+	@Override
 	public byte[] serializeHashMap (final HashMap<String, Object> hashMap) {
-		Kryo kryo = new Kryo();
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		Output output = new Output(baos);
-		Map<String, Object> object = new HashMap<String, Object>(hashMap);
-
-		try {
-			kryo.writeClassAndObject(output, object);
-			output.flush();
-			output.close();
-		}
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
-
-        return baos.toByteArray();
+		return serialize(hashMap);
 	}
 
 	/**
@@ -80,43 +100,73 @@ public class KryoSerializer {
 	 * @param string String to be serialized.
 	 * @return A byte array containing the serialized data.
 	 */
-    public byte[] serializeString (final String string) {
-    	Kryo kryo = new Kryo();
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		Output output = new Output(baos);
+	@Override
+	public byte[] serializeString (final String string) {
+		return serialize(string);
+	}
+
+	/**
+	 * Serializes UTF-8 encoded text, such as a memory mapped data file, into a byte array. Kryo writes Strings, so
+	 * the text is decoded first.
+	 *
+	 * @param utf8String Buffer holding the UTF-8 encoded text, read from its position to its limit.
+	 * @return A byte array containing the serialized data.
+	 */
+	@Override
+	public byte[] serializeString (final ByteBuffer utf8String) {
+		return serialize(StandardCharsets.UTF_8.decode(utf8String.duplicate()).toString());
+	}
+
+	/**
+	 * Serializes a File into a byte array.
+	 *
+	 * @param file File to be serialized.
+	 * @return A byte array containing the serialized data.
+	 */
+	public byte[] serializeFile (final File file) {
+		return serialize(file);
+	}
+
+	/**
+	 * Serializes an object with its class into a byte array, so it can be read back by
+	 * {@link main.deserializers.KryoDeserializer#deserialize(byte[])}.
+	 *
+	 * @param object Object to be serialized.
+	 * @return A byte array containing the serialized data, or an empty array if serialization failed.
+	 */
+	private byte[] serialize (final Object object) {
+		Output output = KryoPool.output();
 
 		try {
-			kryo.writeObject(output, string);
-			output.flush();
-			output.close();
+			KryoPool.kryo().writeClassAndObject(output, object);
 		}
 		catch (Exception exception) {
 			exception.printStackTrace();
+			output.clear();
 		}
-    	
-        return baos.toByteArray();
-    }
+
+		return KryoPool.toBytes(output);
+	}
 
 	/**
-	 * Serializes a File into a byte array.
+	 * Serializes an object with its class into an output stream, through the Kryo buffer of the calling thread.
 	 *
-	 * @param file File to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param object Object to be serialized.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-    public byte[] serializeFile (final File file) {
-		Kryo kryo = new Kryo();
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		Output output = new Output(baos);
+	private void serialize (final Object object, final OutputStream out) throws IOException {
+		Output output = KryoPool.output(out);
 
 		try {
-			kryo.writeObject(output, file);
+			KryoPool.kryo().writeClassAndObject(output, object);
 			output.flush();
-			output.close();
 		}
-		catch (Exception exception) {
-			exception.printStackTrace();
+		catch (KryoException exception) {
+			throw new IOException(exception);
 		}
-    	
-        return baos.toByteArray();
-    }
+		finally {
+			KryoPool.detach(output);
+		}
+	}
 }
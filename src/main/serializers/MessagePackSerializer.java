@@ -6,6 +6,9 @@ import org.msgpack.packer.Packer;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.io.OutputStream;
 import java.io.FileOutputStream;
 import java.io.ByteArrayOutputStream;
 
@@ -16,92 +19,86 @@ import main.helpers.MapConverter;
  * <p>
  * The primary purpose of this class is to provide methods for deserializing binary data into Java objects such as
  * ArrayList, HashMap, String, and File, among others. This class utilizes the kryo library to achieve deserialization.
+ * <p>
+ * One MessagePack instance, whose template registry is safe to share, is used by every call, and each call packs
+ * with a packer of its own, so one instance of the class can be shared by several threads.
  *
  * @author Martin Bullman
  * @version 1.0
  * @since 2016-08-04
  */
-public class MessagePackSerializer {
+public class MessagePackSerializer implements ISerializer {
+	/**
+	 * The MessagePack instance used to create packers.
+	 */
+	private static final MessagePack MSGPACK = new MessagePack();
+
 	/**
-	 * Serializes an ArrayList of strings into a byte array.
+	 * Serializes an ArrayList of strings into an output stream.
 	 *
 	 * @param arrayList ArrayList to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-	public byte[] serializeArrayList (final ArrayList<String> arrayList) {
-		byte[] bytes = null;
+	@Override
+	public void serializeArrayListTo (final ArrayList<String> arrayList, final OutputStream out) throws IOException {
+		Packer packer = MSGPACK.createPacker(out);
 
-		try {
-			MessagePack msgpack = new MessagePack();
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			Packer packer = msgpack.createPacker(baos);
-
-		    packer.write(arrayList);
-		    bytes = baos.toByteArray();
-			packer.flush();
-		    baos.flush();
-		}
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
-		
-		return bytes;
+		packer.write(arrayList);
+		packer.flush();
 	}
 
 	/**
-	 * Serializes an HashMap of strings as keys and Objects as values into a byte array.
+	 * Serializes an HashMap of strings as keys and Objects as values into an output stream.
 	 *
 	 * @param hashMap HashMap to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-	public byte[] serializeHashMap (final HashMap<String, Object> hashMap) {
-		byte[] bytes = null;
+	@Override
+	public void serializeHashMapTo (final HashMap<String, Object> hashMap, final OutputStream out) throws IOException {
+		Packer packer = MSGPACK.createPacker(out);
 
-		try {
-			MessagePack msgpack = new MessagePack();
-			ByteArrayOutputStream baos  = new ByteArrayOutputStream();
-			Packer packer = msgpack.createPacker(baos);
-
-			MapConverter converter = new MapConverter();
-			Map<String, String> newMap = converter.convertHashMapTypes(hashMap);
+		MapConverter converter = new MapConverter();
+		Map<String, String> newMap = converter.convertHashMapTypes(hashMap);
 
-			packer.write(newMap);
-			bytes = baos.toByteArray();
-			packer.flush();
-			baos.flush();
-		}
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
-		
-		return bytes;
+		packer.write(newMap);
+		packer.flush();
 	}
 
 	/**
-	 * Serializes a String into a byte array.
+	 * Serializes a String into an output stream.
 	 *
 	 * @param string String to be serialized.
-	 * @return A byte array containing the serialized data.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be serialized or written.
 	 */
-	public byte[] serializeString (final String string) {
-		byte[] bytes = null;
+	@Override
+	public void serializeStringTo (final String string, final OutputStream out) throws IOException {
+		Packer packer = MSGPACK.createPacker(out);
 
-		try {
-			MessagePack msgpack = new MessagePack();
-			ByteArrayOutputStream baos  = new ByteArrayOutputStream();
-			Packer packer = msgpack.createPacker(baos);
+		packer.write(string);
+		packer.flush();
+	}
 
-	        packer.write(string);
-	        bytes = baos.toByteArray();
-			packer.flush();
-			baos.flush();
-		}
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
-		
-		return bytes;
-    }
+	/**
+	 * Serializes UTF-8 encoded text, such as a memory mapped data file, into an output stream.
+	 * <p>
+	 * MessagePack stores strings as raw bytes, so the buffer is packed as it is, without being decoded into a
+	 * String first. The result is the same as serializing the decoded String.
+	 *
+	 * @param utf8String Buffer holding the UTF-8 encoded text, read from its position to its limit. The position
+	 * is not changed.
+	 * @param out The stream the serialized data is written to.
+	 * @throws IOException If the data could not be written.
+	 */
+	@Override
+	public void serializeStringTo (final ByteBuffer utf8String, final OutputStream out) throws IOException {
+		Packer packer = MSGPACK.createPacker(out);
+
+		packer.write(utf8String.duplicate());
+		packer.flush();
+	}
 
 	/**
 	 * Serializes a File into a byte array.
@@ -115,9 +112,8 @@ public class MessagePackSerializer {
 
 		try {
 			fileOut = new FileOutputStream(file);
-			MessagePack msgpack = new MessagePack();
 			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			Packer packer = msgpack.createPacker(baos);
+			Packer packer = MSGPACK.createPacker(baos);
 
 	        packer.write(fileOut);
 	        bytes = baos.toByteArray();
@@ -0,0 +1,48 @@
+package main.storage;
+
+import main.message_receiver.MetricNames;
+
+/**
+ * This interface gives {@link SegmentFormat} the rows of a segment to write, in the order they are written.
+ * <p>
+ * It is implemented over the rows buffered in memory and over the rows of the segments merged by compaction.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+interface IRowSource {
+	/**
+	 * Gets the time of a row.
+	 *
+	 * @param row The index of the row in the order written.
+	 * @return The time in milliseconds since the epoch.
+	 */
+	public long time (int row);
+
+	/**
+	 * Gets the system clock reported in a row.
+	 *
+	 * @param row The index of the row in the order written.
+	 * @return The system clock.
+	 */
+	public long systemClock (int row);
+
+	/**
+	 * Gets a numeric metric of a row.
+	 *
+	 * @param row The index of the row in the order written.
+	 * @param name The metric name.
+	 * @return The value of the metric.
+	 */
+	public double value (int row, MetricNames name);
+
+	/**
+	 * Gets a text metric of a row.
+	 *
+	 * @param row The index of the row in the order written.
+	 * @param name The metric name.
+	 * @return The value of the metric.
+	 */
+	public String text (int row, MetricNames name);
+}
@@ -0,0 +1,18 @@
+package main.storage;
+
+/**
+ * This interface receives the values of one metric read from a {@link SegmentStore}, one sample at a time.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public interface ISampleVisitor {
+	/**
+	 * Receives one sample.
+	 *
+	 * @param timeMillis The time of the sample in milliseconds since the epoch.
+	 * @param value The value of the metric.
+	 */
+	public void visit (long timeMillis, double value);
+}
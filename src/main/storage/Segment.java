@@ -0,0 +1,487 @@
+package main.storage;
+
+import main.message_receiver.MetricFrame;
+import main.message_receiver.MetricNames;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Class which reads an immutable segment file of a {@link SegmentStore} through a memory mapping.
+ * <p>
+ * Opening a segment reads only its footer: the time range, the host index and the text dictionaries. Column values
+ * are read straight from the mapping when a query asks for them, so a query which reads one metric of one host only
+ * touches the pages of that range of that column. A segment is safe to read from several threads.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class Segment {
+	/**
+	 * Marks a metric which the segment has no column for.
+	 */
+	private static final int NO_COLUMN = -1;
+
+	/**
+	 * The path of the segment file.
+	 */
+	private final Path path;
+
+	/**
+	 * The mapped file.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * The number of rows.
+	 */
+	private final int rowCount;
+
+	/**
+	 * The start of the time window of the segment.
+	 */
+	private final long windowStart;
+
+	/**
+	 * The earliest time of a row.
+	 */
+	private final long minTime;
+
+	/**
+	 * The latest time of a row.
+	 */
+	private final long maxTime;
+
+	/**
+	 * The position of the column of every numeric metric, indexed by ordinal, or {@link #NO_COLUMN}.
+	 */
+	private final int[] numericColumns = new int[MetricNames.values().length];
+
+	/**
+	 * The position of the column of every text metric, indexed by ordinal, or {@link #NO_COLUMN}.
+	 */
+	private final int[] textColumns = new int[MetricNames.values().length];
+
+	/**
+	 * The dictionary of every text metric, indexed by ordinal.
+	 */
+	private final String[][] dictionaries = new String[MetricNames.values().length][];
+
+	/**
+	 * The rows of every host, in the order they are stored.
+	 */
+	private final Map<String, HostRange> hosts = new LinkedHashMap<>();
+
+	/**
+	 * The sequence numbers of the segments this segment replaces.
+	 */
+	private final long[] replaced;
+
+	/**
+	 * Opens a segment file and reads its footer.
+	 *
+	 * @param path The path of the segment file.
+	 * @throws IOException If the file could not be mapped or is not a complete segment.
+	 */
+	public Segment (Path path) throws IOException {
+		this.path = path;
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Segment is too large to be mapped: " + path);
+			}
+
+			if (size < SegmentFormat.HEADER_SIZE + SegmentFormat.TRAILER_SIZE) {
+				throw new IOException("Segment is truncated: " + path);
+			}
+
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+
+		int limit = buffer.limit();
+
+		if (buffer.getInt(0) != SegmentFormat.MAGIC || buffer.getInt(limit - 4) != SegmentFormat.MAGIC) {
+			throw new IOException("Not a complete segment: " + path);
+		}
+
+		int version = buffer.getInt(4);
+
+		if (version != SegmentFormat.VERSION && version != SegmentFormat.VERSION_WITHOUT_REPLACED) {
+			throw new IOException("Unsupported segment version " + version + ": " + path);
+		}
+
+		Arrays.fill(numericColumns, NO_COLUMN);
+		Arrays.fill(textColumns, NO_COLUMN);
+
+		try {
+			ByteBuffer footer = buffer.duplicate();
+			footer.position((int) buffer.getLong(limit - SegmentFormat.TRAILER_SIZE));
+
+			rowCount = footer.getInt();
+			windowStart = footer.getLong();
+			minTime = footer.getLong();
+			maxTime = footer.getLong();
+
+			int column = SegmentFormat.HEADER_SIZE + 16 * rowCount;
+			int numericCount = footer.getInt();
+
+			for (int i = 0; i < numericCount; i++) {
+				setColumn(numericColumns, footer.getInt(), column);
+				column += 8 * rowCount;
+			}
+
+			int textCount = footer.getInt();
+
+			for (int i = 0; i < textCount; i++) {
+				int ordinal = footer.getInt();
+				String[] dictionary = new String[footer.getInt()];
+
+				for (int code = 0; code < dictionary.length; code++) {
+					dictionary[code] = getString(footer);
+				}
+
+				if (setColumn(textColumns, ordinal, column)) {
+					dictionaries[ordinal] = dictionary;
+				}
+
+				column += 4 * rowCount;
+			}
+
+			int hostCount = footer.getInt();
+
+			for (int i = 0; i < hostCount; i++) {
+				String host = getString(footer);
+				hosts.put(host, new HostRange(footer.getInt(), footer.getInt(), footer.getLong(), footer.getLong()));
+			}
+
+			int replacedCount = version == SegmentFormat.VERSION_WITHOUT_REPLACED ? 0 : footer.getInt();
+
+			if (replacedCount < 0 || replacedCount > footer.remaining() / 8) {
+				throw new IOException("Corrupt segment footer: " + path);
+			}
+
+			replaced = new long[replacedCount];
+
+			for (int i = 0; i < replaced.length; i++) {
+				replaced[i] = footer.getLong();
+			}
+		}
+		catch (RuntimeException ex) {
+			throw new IOException("Corrupt segment footer: " + path, ex);
+		}
+	}
+
+	/**
+	 * Gets the path of the segment file.
+	 *
+	 * @return The path.
+	 */
+	public Path getPath () {
+		return path;
+	}
+
+	/**
+	 * Gets the number of rows.
+	 *
+	 * @return The number of rows.
+	 */
+	public int getRowCount () {
+		return rowCount;
+	}
+
+	/**
+	 * Gets the start of the time window of the segment.
+	 *
+	 * @return The start in milliseconds since the epoch.
+	 */
+	public long getWindowStart () {
+		return windowStart;
+	}
+
+	/**
+	 * Gets the earliest time of a row.
+	 *
+	 * @return The time in milliseconds since the epoch.
+	 */
+	public long getMinTime () {
+		return minTime;
+	}
+
+	/**
+	 * Gets the latest time of a row.
+	 *
+	 * @return The time in milliseconds since the epoch.
+	 */
+	public long getMaxTime () {
+		return maxTime;
+	}
+
+	/**
+	 * Gets the hosts which have rows in the segment.
+	 *
+	 * @return The hosts, in the order their rows are stored.
+	 */
+	public List<String> getHosts () {
+		return new ArrayList<>(hosts.keySet());
+	}
+
+	/**
+	 * Gets the sequence numbers of the segments this segment replaces, which compaction merged into it.
+	 *
+	 * @return A copy of the sequence numbers, empty unless the segment was merged.
+	 */
+	public long[] getReplaced () {
+		return replaced.clone();
+	}
+
+	/**
+	 * Checks if the segment may hold rows of a host between two times, using only the footer.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param fromMillis The earliest time.
+	 * @param toMillis The latest time.
+	 * @return True if the host has rows in the segment and its time range overlaps the given one.
+	 */
+	public boolean covers (String host, long fromMillis, long toMillis) {
+		HostRange range = hosts.get(host);
+
+		return range != null && range.minTime <= toMillis && range.maxTime >= fromMillis;
+	}
+
+	/**
+	 * Appends the rows of a host between two times to a metric frame, in time order.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param fromMillis The earliest time included.
+	 * @param toMillis The latest time included.
+	 * @param out The frame the rows are appended to.
+	 * @return The number of rows appended.
+	 */
+	public int query (String host, long fromMillis, long toMillis, MetricFrame out) {
+		HostRange range = hosts.get(host);
+
+		if (range == null) {
+			return 0;
+		}
+
+		int end = range.first + range.count;
+		int count = 0;
+
+		for (int row = firstRowAtOrAfter(range, fromMillis); row < end && time(row) <= toMillis; row++) {
+			int target = out.appendRow();
+			out.setSystemClock(target, systemClock(row));
+
+			for (MetricNames name : SegmentFormat.NUMERIC_METRICS) {
+				out.set(target, name, value(row, name));
+			}
+
+			for (MetricNames name : SegmentFormat.TEXT_METRICS) {
+				out.setString(target, name, text(row, name));
+			}
+
+			count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Hands the values of one metric of a host between two times to a visitor, in time order, reading only the
+	 * time column and the column of the metric.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param fromMillis The earliest time included.
+	 * @param toMillis The latest time included.
+	 * @param name The metric, which must be numeric.
+	 * @param visitor The visitor of the values.
+	 * @return The number of values visited.
+	 */
+	public int scan (String host, long fromMillis, long toMillis, MetricNames name, ISampleVisitor visitor) {
+		HostRange range = hosts.get(host);
+
+		if (range == null) {
+			return 0;
+		}
+
+		int end = range.first + range.count;
+		int count = 0;
+
+		for (int row = firstRowAtOrAfter(range, fromMillis); row < end; row++) {
+			long time = time(row);
+
+			if (time > toMillis) {
+				break;
+			}
+
+			visitor.visit(time, value(row, name));
+			count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Gets the rows of a host.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @return The first row and row count of the host, or null if it has no rows.
+	 */
+	HostRange range (String host) {
+		return hosts.get(host);
+	}
+
+	/**
+	 * Gets the time of a row.
+	 *
+	 * @param row The index of the row.
+	 * @return The time in milliseconds since the epoch.
+	 */
+	long time (int row) {
+		return buffer.getLong(SegmentFormat.HEADER_SIZE + 8 * row);
+	}
+
+	/**
+	 * Gets the system clock of a row.
+	 *
+	 * @param row The index of the row.
+	 * @return The system clock.
+	 */
+	long systemClock (int row) {
+		return buffer.getLong(SegmentFormat.HEADER_SIZE + 8 * (rowCount + row));
+	}
+
+	/**
+	 * Gets a numeric metric of a row.
+	 *
+	 * @param row The index of the row.
+	 * @param name The metric name.
+	 * @return The value, or 0 if the segment has no column for the metric.
+	 */
+	double value (int row, MetricNames name) {
+		int column = numericColumns[name.ordinal()];
+
+		return column == NO_COLUMN ? 0 : buffer.getDouble(column + 8 * row);
+	}
+
+	/**
+	 * Gets a text metric of a row.
+	 *
+	 * @param row The index of the row.
+	 * @param name The metric name.
+	 * @return The value, or an empty string if the segment has no column for the metric.
+	 */
+	String text (int row, MetricNames name) {
+		int column = textColumns[name.ordinal()];
+
+		return column == NO_COLUMN ? "" : dictionaries[name.ordinal()][buffer.getInt(column + 4 * row)];
+	}
+
+	/**
+	 * Finds the first row of a host at or after a time, by binary search over its rows.
+	 *
+	 * @param range The rows of the host.
+	 * @param fromMillis The time.
+	 * @return The index of the row, or the end of the rows of the host.
+	 */
+	private int firstRowAtOrAfter (HostRange range, long fromMillis) {
+		int low = range.first;
+		int high = range.first + range.count;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (time(middle) < fromMillis) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Records the position of the column of a metric, skipping ordinals this version does not know.
+	 *
+	 * @param columns The positions of the columns, indexed by ordinal.
+	 * @param ordinal The ordinal of the metric.
+	 * @param position The position of the column.
+	 * @return True if the metric is known.
+	 */
+	private static boolean setColumn (int[] columns, int ordinal, int position) {
+		if (ordinal < 0 || ordinal >= columns.length) {
+			return false;
+		}
+
+		columns[ordinal] = position;
+
+		return true;
+	}
+
+	/**
+	 * Reads a string written as its length in bytes followed by its UTF-8 bytes.
+	 *
+	 * @param footer The buffer, at the length.
+	 * @return The string.
+	 */
+	private static String getString (ByteBuffer footer) {
+		byte[] bytes = new byte[footer.getInt()];
+		footer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Class which holds the rows and time range of one host.
+	 */
+	static class HostRange {
+		/**
+		 * The index of the first row of the host.
+		 */
+		final int first;
+
+		/**
+		 * The number of rows of the host.
+		 */
+		final int count;
+
+		/**
+		 * The earliest time of a row of the host.
+		 */
+		final long minTime;
+
+		/**
+		 * The latest time of a row of the host.
+		 */
+		final long maxTime;
+
+		/**
+		 * Constructor which takes the rows and time range of the host.
+		 *
+		 * @param first The index of the first row.
+		 * @param count The number of rows.
+		 * @param minTime The earliest time of a row.
+		 * @param maxTime The latest time of a row.
+		 */
+		HostRange (int first, int count, long minTime, long maxTime) {
+			this.first = first;
+			this.count = count;
+			this.minTime = minTime;
+			this.maxTime = maxTime;
+		}
+	}
+}
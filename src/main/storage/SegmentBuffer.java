@@ -0,0 +1,181 @@
+package main.storage;
+
+import main.message_receiver.MetricFrame;
+import main.message_receiver.MetricNames;
+import main.message_receiver.IResourceMetrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+
+/**
+ * Class which buffers the samples of one time window in memory until they are written as a segment.
+ * <p>
+ * Samples are appended to a columnar {@link MetricFrame} in the order they arrive, with their time and host kept in
+ * arrays beside it. When the buffer is written the rows are sorted by host and then by time without moving them:
+ * a counting sort groups the rows of every host, and the rows of each host are then sorted by a key which packs the
+ * time and the row index into one long. A buffer is not thread safe.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+class SegmentBuffer {
+	/**
+	 * The start of the time window.
+	 */
+	private final long windowStart;
+
+	/**
+	 * The metrics of the buffered samples.
+	 */
+	private final MetricFrame frame = new MetricFrame();
+
+	/**
+	 * The time of every sample.
+	 */
+	private long[] times = new long[1024];
+
+	/**
+	 * The host id of every sample.
+	 */
+	private int[] hostIds = new int[1024];
+
+	/**
+	 * The id of every host, in the order the hosts first appeared.
+	 */
+	private final Map<String, Integer> hostIndex = new HashMap<>();
+
+	/**
+	 * The hosts, indexed by id.
+	 */
+	private final List<String> hosts = new ArrayList<>();
+
+	/**
+	 * Constructor which takes the start of the time window.
+	 *
+	 * @param windowStart The start of the time window in milliseconds since the epoch.
+	 */
+	SegmentBuffer (long windowStart) {
+		this.windowStart = windowStart;
+	}
+
+	/**
+	 * Gets the start of the time window.
+	 *
+	 * @return The start in milliseconds since the epoch.
+	 */
+	long getWindowStart () {
+		return windowStart;
+	}
+
+	/**
+	 * Gets the number of buffered samples.
+	 *
+	 * @return The number of samples.
+	 */
+	int size () {
+		return frame.size();
+	}
+
+	/**
+	 * Buffers a sample.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param timeMillis The time of the sample, inside the window.
+	 * @param metrics The metrics of the sample.
+	 */
+	void append (String host, long timeMillis, IResourceMetrics metrics) {
+		int row = frame.append(metrics);
+
+		if (row == times.length) {
+			times = Arrays.copyOf(times, row * 2);
+			hostIds = Arrays.copyOf(hostIds, row * 2);
+		}
+
+		Integer id = hostIndex.get(host);
+
+		if (id == null) {
+			id = hosts.size();
+			hostIndex.put(host, id);
+			hosts.add(host);
+		}
+
+		times[row] = timeMillis;
+		hostIds[row] = id;
+	}
+
+	/**
+	 * Writes the buffered samples as a segment, sorted by host and then by time.
+	 *
+	 * @param path The path of the segment file.
+	 * @throws IOException If the file could not be written.
+	 */
+	void write (Path path) throws IOException {
+		int size = frame.size();
+		int hostCount = hosts.size();
+
+		// Number the hosts in name order, so segments list their hosts in a stable order
+		String[] names = hosts.toArray(new String[0]);
+		Arrays.sort(names);
+
+		int[] rank = new int[hostCount];
+		for (int i = 0; i < hostCount; i++) {
+			rank[hostIndex.get(names[i])] = i;
+		}
+
+		int[] hostRows = new int[hostCount];
+		for (int row = 0; row < size; row++) {
+			hostRows[rank[hostIds[row]]]++;
+		}
+
+		int[] starts = new int[hostCount];
+		for (int i = 1; i < hostCount; i++) {
+			starts[i] = starts[i - 1] + hostRows[i - 1];
+		}
+
+		// Group the rows of every host, keeping the time as the high half of the key for the sort that follows
+		long[] keys = new long[size];
+		int[] next = starts.clone();
+
+		for (int row = 0; row < size; row++) {
+			keys[next[rank[hostIds[row]]]++] = ((times[row] - windowStart) << 32) | row;
+		}
+
+		for (int i = 0; i < hostCount; i++) {
+			Arrays.sort(keys, starts[i], starts[i] + hostRows[i]);
+		}
+
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = (int) keys[i];
+		}
+
+		SegmentFormat.write(path, windowStart, names, hostRows, new long[0], new IRowSource() {
+			@Override
+			public long time (int row) {
+				return times[order[row]];
+			}
+
+			@Override
+			public long systemClock (int row) {
+				return frame.getSystemClock(order[row]);
+			}
+
+			@Override
+			public double value (int row, MetricNames name) {
+				return frame.get(order[row], name);
+			}
+
+			@Override
+			public String text (int row, MetricNames name) {
+				return frame.getString(order[row], name);
+			}
+		});
+	}
+}
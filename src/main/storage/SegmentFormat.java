@@ -0,0 +1,331 @@
+package main.storage;
+
+import main.message_receiver.MetricNames;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Map;
+import java.util.List;
+import java.util.HashMap;
+import java.util.ArrayList;
+
+/**
+ * Class which defines the layout of segment files and writes them.
+ * <p>
+ * A segment holds the samples of one time window, sorted by host and then by time, stored column by column:
+ * <ol>
+ *     <li>A header of the magic number and the format version.</li>
+ *     <li>The time column and the system clock column, as longs.</li>
+ *     <li>One column of doubles for every numeric metric, in {@link #NUMERIC_METRICS} order.</li>
+ *     <li>One column of dictionary codes, as ints, for every text metric, in {@link #TEXT_METRICS} order.</li>
+ *     <li>A footer of the row count, the window, the time range, the metric ordinals of the columns, the text
+ *     dictionaries, the host index, which gives the first row, row count and time range of every host, and the
+ *     sequence numbers of the segments a merged segment replaces.</li>
+ *     <li>A trailer of the position of the footer and the magic number again.</li>
+ * </ol>
+ * All numbers are big endian. Segments are written to a temporary file which is only renamed to its final name once
+ * it is complete and forced to disk, so a crash never leaves a partial segment behind.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+class SegmentFormat {
+	/**
+	 * Magic number at the start and end of every segment ("LRMS").
+	 */
+	static final int MAGIC = 0x4C524D53;
+
+	/**
+	 * Version of the format.
+	 */
+	static final int VERSION = 2;
+
+	/**
+	 * Version of the format before segments recorded the segments they replace.
+	 */
+	static final int VERSION_WITHOUT_REPLACED = 1;
+
+	/**
+	 * Size of the header in bytes.
+	 */
+	static final int HEADER_SIZE = 8;
+
+	/**
+	 * Size of the trailer in bytes.
+	 */
+	static final int TRAILER_SIZE = 12;
+
+	/**
+	 * Bytes of column data per row: two longs, a double per numeric metric and an int per text metric.
+	 */
+	static final int ROW_SIZE;
+
+	/**
+	 * Metrics stored as columns of doubles.
+	 */
+	static final MetricNames[] NUMERIC_METRICS;
+
+	/**
+	 * Metrics stored as columns of dictionary codes.
+	 */
+	static final MetricNames[] TEXT_METRICS;
+
+	/**
+	 * Size of the buffer the file is written through.
+	 */
+	private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+	static {
+		List<MetricNames> numeric = new ArrayList<>();
+		List<MetricNames> text = new ArrayList<>();
+
+		for (MetricNames name : MetricNames.values()) {
+			if (name.isText()) {
+				text.add(name);
+			}
+			else if (name != MetricNames.unknown) {
+				numeric.add(name);
+			}
+		}
+
+		NUMERIC_METRICS = numeric.toArray(new MetricNames[0]);
+		TEXT_METRICS = text.toArray(new MetricNames[0]);
+		ROW_SIZE = 16 + 8 * NUMERIC_METRICS.length + 4 * TEXT_METRICS.length;
+	}
+
+	/**
+	 * Writes a segment file.
+	 *
+	 * @param path The path of the file, which is replaced if it exists.
+	 * @param windowStart The start of the time window of the segment.
+	 * @param hosts The hosts, in the order their rows are written.
+	 * @param hostRows The number of rows of every host.
+	 * @param replaced The sequence numbers of the segments this segment replaces, empty unless it was merged.
+	 * @param rows The rows, sorted by host and then by time.
+	 * @throws IOException If the file could not be written.
+	 */
+	static void write (Path path, long windowStart, String[] hosts, int[] hostRows, long[] replaced, IRowSource rows)
+			throws IOException {
+		int rowCount = 0;
+		for (int count : hostRows) {
+			rowCount += count;
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			Output out = new Output(channel);
+
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+
+			long minTime = Long.MAX_VALUE;
+			long maxTime = Long.MIN_VALUE;
+
+			for (int row = 0; row < rowCount; row++) {
+				long time = rows.time(row);
+				minTime = Math.min(minTime, time);
+				maxTime = Math.max(maxTime, time);
+				out.putLong(time);
+			}
+
+			for (int row = 0; row < rowCount; row++) {
+				out.putLong(rows.systemClock(row));
+			}
+
+			for (MetricNames name : NUMERIC_METRICS) {
+				for (int row = 0; row < rowCount; row++) {
+					out.putDouble(rows.value(row, name));
+				}
+			}
+
+			List<List<String>> dictionaries = new ArrayList<>();
+
+			for (MetricNames name : TEXT_METRICS) {
+				List<String> dictionary = new ArrayList<>();
+				Map<String, Integer> codes = new HashMap<>();
+
+				for (int row = 0; row < rowCount; row++) {
+					String value = rows.text(row, name);
+					Integer code = codes.get(value == null ? "" : value);
+
+					if (code == null) {
+						code = dictionary.size();
+						codes.put(value == null ? "" : value, code);
+						dictionary.add(value == null ? "" : value);
+					}
+
+					out.putInt(code);
+				}
+
+				dictionaries.add(dictionary);
+			}
+
+			long footer = out.position();
+
+			out.putInt(rowCount);
+			out.putLong(windowStart);
+			out.putLong(minTime);
+			out.putLong(maxTime);
+
+			out.putInt(NUMERIC_METRICS.length);
+			for (MetricNames name : NUMERIC_METRICS) {
+				out.putInt(name.ordinal());
+			}
+
+			out.putInt(TEXT_METRICS.length);
+			for (int i = 0; i < TEXT_METRICS.length; i++) {
+				out.putInt(TEXT_METRICS[i].ordinal());
+				out.putInt(dictionaries.get(i).size());
+
+				for (String value : dictionaries.get(i)) {
+					out.putString(value);
+				}
+			}
+
+			out.putInt(hosts.length);
+			int first = 0;
+
+			for (int i = 0; i < hosts.length; i++) {
+				out.putString(hosts[i]);
+				out.putInt(first);
+				out.putInt(hostRows[i]);
+				out.putLong(hostRows[i] == 0 ? 0 : rows.time(first));
+				out.putLong(hostRows[i] == 0 ? 0 : rows.time(first + hostRows[i] - 1));
+				first += hostRows[i];
+			}
+
+			out.putInt(replaced.length);
+			for (long sequence : replaced) {
+				out.putLong(sequence);
+			}
+
+			out.putLong(footer);
+			out.putInt(MAGIC);
+			out.flush();
+
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Class which writes numbers and strings to a file channel through a reusable buffer.
+	 */
+	private static class Output {
+		/**
+		 * The channel written to.
+		 */
+		private final FileChannel channel;
+
+		/**
+		 * The buffer filled before it is written.
+		 */
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+		/**
+		 * Number of bytes written to the channel.
+		 */
+		private long written = 0;
+
+		/**
+		 * Constructor which takes the channel written to.
+		 *
+		 * @param channel The channel written to.
+		 */
+		private Output (FileChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * Gets the position of the next byte in the file.
+		 *
+		 * @return The position.
+		 */
+		private long position () {
+			return written + buffer.position();
+		}
+
+		/**
+		 * Writes an int.
+		 *
+		 * @param value The value.
+		 * @throws IOException If the file could not be written.
+		 */
+		private void putInt (int value) throws IOException {
+			ensureRemaining(4);
+			buffer.putInt(value);
+		}
+
+		/**
+		 * Writes a long.
+		 *
+		 * @param value The value.
+		 * @throws IOException If the file could not be written.
+		 */
+		private void putLong (long value) throws IOException {
+			ensureRemaining(8);
+			buffer.putLong(value);
+		}
+
+		/**
+		 * Writes a double.
+		 *
+		 * @param value The value.
+		 * @throws IOException If the file could not be written.
+		 */
+		private void putDouble (double value) throws IOException {
+			ensureRemaining(8);
+			buffer.putDouble(value);
+		}
+
+		/**
+		 * Writes a string as its length in bytes followed by its UTF-8 bytes.
+		 *
+		 * @param value The value.
+		 * @throws IOException If the file could not be written.
+		 */
+		private void putString (String value) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+			putInt(bytes.length);
+
+			for (int i = 0; i < bytes.length; i += WRITE_BUFFER_SIZE) {
+				int length = Math.min(WRITE_BUFFER_SIZE, bytes.length - i);
+				ensureRemaining(length);
+				buffer.put(bytes, i, length);
+			}
+		}
+
+		/**
+		 * Writes the buffer to the channel if it has less room than needed.
+		 *
+		 * @param length The number of bytes to be written.
+		 * @throws IOException If the file could not be written.
+		 */
+		private void ensureRemaining (int length) throws IOException {
+			if (buffer.remaining() < length) {
+				flush();
+			}
+		}
+
+		/**
+		 * Writes the buffer to the channel.
+		 *
+		 * @throws IOException If the file could not be written.
+		 */
+		private void flush () throws IOException {
+			buffer.flip();
+
+			while (buffer.hasRemaining()) {
+				written += channel.write(buffer);
+			}
+
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,682 @@
+package main.storage;
+
+import main.message_receiver.MetricFrame;
+import main.message_receiver.MetricNames;
+import main.message_receiver.IResourceMetrics;
+
+import java.io.File;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Files;
+import java.nio.file.DirectoryStream;
+import java.nio.file.StandardCopyOption;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Class which stores low-level resource metric samples on local disk in an append-only, log structured store.
+ * <p>
+ * Time is split into fixed windows. Samples are buffered in memory per window and written, when a buffer fills up
+ * or on {@link #flush()}, as an immutable segment file which holds the samples column by column, sorted by host and
+ * time, with the time range and the rows of every host in its footer (see {@link SegmentFormat}). Segments are
+ * memory mapped for reading, and a query only visits the segments whose footer says they hold the host and time
+ * asked for. Buffered samples become visible to queries once they are written.
+ * <p>
+ * A background thread compacts and expires segments. A window which has ended gets its segments merged into as few
+ * segments as possible, so a host's rows in that window can be read in one run. Segments whose newest sample is
+ * older than the retention period are deleted. Both steps write new files before removing old ones, and segments
+ * are written to temporary files which are only renamed once complete, so a crash never loses a written segment.
+ * A merged segment records the sequence numbers of the segments it replaces, so sources left behind by a crash
+ * during compaction are deleted rather than read twice when the store is opened, along with temporary files.
+ * <p>
+ * The store is safe to share between threads. Appending only takes a short lock to copy the sample into its buffer;
+ * segments are written outside of it.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class SegmentStore implements Closeable {
+	/**
+	 * Default width of a time window: one hour.
+	 */
+	public static final long DEFAULT_WINDOW_MILLIS = 60 * 60 * 1000L;
+
+	/**
+	 * Default retention period: seven days.
+	 */
+	public static final long DEFAULT_RETENTION_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+
+	/**
+	 * Default number of samples buffered per window before they are written as a segment.
+	 */
+	public static final int DEFAULT_BUFFER_ROWS = 64 * 1024;
+
+	/**
+	 * Widest time window. Compaction waits for a window to end, so this keeps a window's segments from going
+	 * unmerged for more than a day.
+	 */
+	private static final long MAX_WINDOW_MILLIS = 24 * 60 * 60 * 1000L;
+
+	/**
+	 * Largest number of rows compaction merges into one segment, which keeps segments well below the 2GB that can
+	 * be mapped at once.
+	 */
+	private static final int MAX_SEGMENT_ROWS = 4 * 1024 * 1024;
+
+	/**
+	 * Largest number of windows buffered at once. Appending to another window writes the oldest buffer first, so
+	 * back filling months of history does not keep every window in memory.
+	 */
+	private static final int MAX_OPEN_WINDOWS = 8;
+
+	/**
+	 * Interval between runs of compaction and retention.
+	 */
+	private static final long MAINTENANCE_INTERVAL_MILLIS = 60 * 1000L;
+
+	/**
+	 * Extension of segment files.
+	 */
+	private static final String SEGMENT_SUFFIX = ".seg";
+
+	/**
+	 * Extension of segment files which are still being written.
+	 */
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	/**
+	 * The directory holding the segment files.
+	 */
+	private final Path directory;
+
+	/**
+	 * Width of a time window in milliseconds.
+	 */
+	private final long windowMillis;
+
+	/**
+	 * Retention period in milliseconds, or zero to keep segments forever.
+	 */
+	private final long retentionMillis;
+
+	/**
+	 * Number of samples buffered per window before they are written.
+	 */
+	private final int bufferRows;
+
+	/**
+	 * The buffers of the windows being written to, keyed by window start.
+	 */
+	private final TreeMap<Long, SegmentBuffer> buffers = new TreeMap<>();
+
+	/**
+	 * The readable segments.
+	 */
+	private final CopyOnWriteArrayList<Segment> segments = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Sequence number of the next segment file.
+	 */
+	private final AtomicLong nextSequence = new AtomicLong();
+
+	/**
+	 * Lock which keeps compaction and retention from running at the same time.
+	 */
+	private final Object maintenanceLock = new Object();
+
+	/**
+	 * The thread which runs compaction and retention.
+	 */
+	private final ScheduledExecutorService maintenance;
+
+	/**
+	 * Whether the store was closed.
+	 */
+	private boolean closed = false;
+
+	/**
+	 * Constructor which opens a store with the default window, retention and buffer size.
+	 *
+	 * @param directory The directory holding the segment files, created if it does not exist.
+	 * @throws IOException If the directory could not be created or read.
+	 */
+	public SegmentStore (File directory) throws IOException {
+		this(directory, DEFAULT_WINDOW_MILLIS, DEFAULT_RETENTION_MILLIS, DEFAULT_BUFFER_ROWS);
+	}
+
+	/**
+	 * Constructor which opens a store, reading the segments already in its directory.
+	 *
+	 * @param directory The directory holding the segment files, created if it does not exist.
+	 * @param windowMillis Width of a time window in milliseconds, at most one day.
+	 * @param retentionMillis Retention period in milliseconds, or zero to keep segments forever.
+	 * @param bufferRows Number of samples buffered per window before they are written.
+	 * @throws IOException If the directory could not be created or read.
+	 */
+	public SegmentStore (File directory, long windowMillis, long retentionMillis, int bufferRows) throws IOException {
+		if (windowMillis <= 0 || windowMillis > MAX_WINDOW_MILLIS) {
+			throw new IllegalArgumentException("Window must be between 1 ms and one day: " + windowMillis);
+		}
+
+		if (retentionMillis < 0) {
+			throw new IllegalArgumentException("Retention must not be negative: " + retentionMillis);
+		}
+
+		if (bufferRows < 1) {
+			throw new IllegalArgumentException("Buffer must hold at least one row: " + bufferRows);
+		}
+
+		this.directory = directory.toPath();
+		this.windowMillis = windowMillis;
+		this.retentionMillis = retentionMillis;
+		this.bufferRows = bufferRows;
+
+		Files.createDirectories(this.directory);
+		load();
+
+		maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "segment-maintenance");
+			thread.setDaemon(true);
+			return thread;
+		});
+		maintenance.scheduleWithFixedDelay(this::maintain, MAINTENANCE_INTERVAL_MILLIS, MAINTENANCE_INTERVAL_MILLIS,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Appends a sample. The sample is copied, so the caller may reuse it.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param timeMillis The time of the sample in milliseconds since the epoch.
+	 * @param metrics The metrics of the sample.
+	 * @throws IOException If a full buffer could not be written.
+	 */
+	public void append (String host, long timeMillis, IResourceMetrics metrics) throws IOException {
+		List<SegmentBuffer> full = new ArrayList<>(0);
+
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("Segment store is closed");
+			}
+
+			long windowStart = Math.floorDiv(timeMillis, windowMillis) * windowMillis;
+			SegmentBuffer buffer = buffers.get(windowStart);
+
+			if (buffer == null) {
+				if (buffers.size() >= MAX_OPEN_WINDOWS) {
+					full.add(buffers.pollFirstEntry().getValue());
+				}
+
+				buffer = new SegmentBuffer(windowStart);
+				buffers.put(windowStart, buffer);
+			}
+
+			buffer.append(host, timeMillis, metrics);
+
+			if (buffer.size() >= bufferRows) {
+				full.add(buffers.remove(windowStart));
+			}
+		}
+
+		for (SegmentBuffer buffer : full) {
+			writeSegment(buffer);
+		}
+	}
+
+	/**
+	 * Writes every buffered sample as segments, making them visible to queries.
+	 *
+	 * @throws IOException If a segment could not be written.
+	 */
+	public void flush () throws IOException {
+		List<SegmentBuffer> pending;
+
+		synchronized (this) {
+			pending = new ArrayList<>(buffers.values());
+			buffers.clear();
+		}
+
+		for (SegmentBuffer buffer : pending) {
+			writeSegment(buffer);
+		}
+	}
+
+	/**
+	 * Appends the samples of a host between two times to a metric frame. Windows are read oldest first; within a
+	 * window the rows are in time order once it has been compacted.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param fromMillis The earliest time included.
+	 * @param toMillis The latest time included.
+	 * @param out The frame the samples are appended to.
+	 * @return The number of samples appended.
+	 */
+	public int query (String host, long fromMillis, long toMillis, MetricFrame out) {
+		int count = 0;
+
+		for (Segment segment : segmentsFor(host, fromMillis, toMillis)) {
+			count += segment.query(host, fromMillis, toMillis, out);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Hands the values of one metric of a host between two times to a visitor, reading only the time column and the
+	 * column of the metric. Windows are read oldest first, as in {@link #query}.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param fromMillis The earliest time included.
+	 * @param toMillis The latest time included.
+	 * @param name The metric, which must be numeric.
+	 * @param visitor The visitor of the values.
+	 * @return The number of values visited.
+	 */
+	public int scan (String host, long fromMillis, long toMillis, MetricNames name, ISampleVisitor visitor) {
+		if (name == MetricNames.unknown || name.isText()) {
+			throw new IllegalArgumentException("Only numeric metrics can be scanned: " + name);
+		}
+
+		int count = 0;
+
+		for (Segment segment : segmentsFor(host, fromMillis, toMillis)) {
+			count += segment.scan(host, fromMillis, toMillis, name, visitor);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Gets the readable segments.
+	 *
+	 * @return A copy of the list of segments.
+	 */
+	public List<Segment> getSegments () {
+		return new ArrayList<>(segments);
+	}
+
+	/**
+	 * Merges the segments of every window which has ended into as few segments as possible.
+	 *
+	 * @return The number of segments removed by merging.
+	 * @throws IOException If a merged segment could not be written.
+	 */
+	public int compact () throws IOException {
+		synchronized (maintenanceLock) {
+			long closedBefore = System.currentTimeMillis() - windowMillis;
+			Map<Long, List<Segment>> windows = new TreeMap<>();
+
+			for (Segment segment : segments) {
+				if (segment.getWindowStart() + windowMillis <= closedBefore) {
+					windows.computeIfAbsent(segment.getWindowStart(), key -> new ArrayList<>()).add(segment);
+				}
+			}
+
+			int removed = 0;
+
+			for (Map.Entry<Long, List<Segment>> window : windows.entrySet()) {
+				synchronized (this) {
+					if (buffers.containsKey(window.getKey())) {
+						continue;
+					}
+				}
+
+				List<Segment> run = new ArrayList<>();
+				int rows = 0;
+
+				for (Segment segment : window.getValue()) {
+					if (rows + segment.getRowCount() > MAX_SEGMENT_ROWS) {
+						removed += merge(window.getKey(), run);
+						run = new ArrayList<>();
+						rows = 0;
+					}
+
+					run.add(segment);
+					rows += segment.getRowCount();
+				}
+
+				removed += merge(window.getKey(), run);
+			}
+
+			return removed;
+		}
+	}
+
+	/**
+	 * Deletes the segments whose newest sample is older than the retention period.
+	 *
+	 * @return The number of segments deleted.
+	 */
+	public int applyRetention () {
+		if (retentionMillis == 0) {
+			return 0;
+		}
+
+		synchronized (maintenanceLock) {
+			long cutoff = System.currentTimeMillis() - retentionMillis;
+			List<Segment> expired = new ArrayList<>();
+
+			for (Segment segment : segments) {
+				if (segment.getMaxTime() < cutoff) {
+					expired.add(segment);
+				}
+			}
+
+			remove(expired);
+
+			return expired.size();
+		}
+	}
+
+	/**
+	 * Stops the background thread and writes every buffered sample.
+	 *
+	 * @throws IOException If a segment could not be written.
+	 */
+	@Override
+	public void close () throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+
+			closed = true;
+		}
+
+		maintenance.shutdown();
+
+		try {
+			maintenance.awaitTermination(1, TimeUnit.MINUTES);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+
+		flush();
+	}
+
+	/**
+	 * Runs compaction and retention, reporting rather than throwing errors so the background thread keeps running.
+	 */
+	private void maintain () {
+		try {
+			compact();
+			applyRetention();
+		}
+		catch (IOException | RuntimeException ex) {
+			System.err.println("Segment store maintenance failed: " + ex.getMessage());
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Gets the segments which may hold rows of a host between two times, oldest window first.
+	 *
+	 * @param host The IP address or name of the host.
+	 * @param fromMillis The earliest time.
+	 * @param toMillis The latest time.
+	 * @return The segments.
+	 */
+	private List<Segment> segmentsFor (String host, long fromMillis, long toMillis) {
+		List<Segment> matching = new ArrayList<>();
+
+		for (Segment segment : segments) {
+			if (segment.getMinTime() <= toMillis && segment.getMaxTime() >= fromMillis && segment.covers(host, fromMillis, toMillis)) {
+				matching.add(segment);
+			}
+		}
+
+		matching.sort(Comparator.comparingLong(Segment::getWindowStart));
+
+		return matching;
+	}
+
+	/**
+	 * Writes a buffer as a new segment and makes it readable.
+	 *
+	 * @param buffer The buffer.
+	 * @throws IOException If the segment could not be written.
+	 */
+	private void writeSegment (SegmentBuffer buffer) throws IOException {
+		Path target = segmentPath(buffer.getWindowStart());
+		Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+
+		buffer.write(temp);
+		segments.add(publish(temp, target));
+	}
+
+	/**
+	 * Merges segments of one window into a new segment and removes them.
+	 *
+	 * @param windowStart The start of the window.
+	 * @param run The segments, which together hold at most {@link #MAX_SEGMENT_ROWS} rows.
+	 * @return The number of segments removed, one less than merged, or zero if there was nothing to merge.
+	 * @throws IOException If the merged segment could not be written.
+	 */
+	private int merge (long windowStart, List<Segment> run) throws IOException {
+		if (run.size() < 2) {
+			return 0;
+		}
+
+		// Find the rows of every host in every segment, with the hosts in name order
+		TreeMap<String, List<Integer>> hostSegments = new TreeMap<>();
+
+		for (int i = 0; i < run.size(); i++) {
+			for (String host : run.get(i).getHosts()) {
+				hostSegments.computeIfAbsent(host, key -> new ArrayList<>()).add(i);
+			}
+		}
+
+		String[] hosts = hostSegments.keySet().toArray(new String[0]);
+		int[] hostRows = new int[hosts.length];
+		int total = 0;
+
+		for (Segment segment : run) {
+			total += segment.getRowCount();
+		}
+
+		// The merged order, as the segment index in the high half and the row in the low half of each entry
+		long[] order = new long[total];
+		int next = 0;
+
+		for (int h = 0; h < hosts.length; h++) {
+			List<Integer> sources = hostSegments.get(hosts[h]);
+			int[] cursors = new int[sources.size()];
+			int[] ends = new int[sources.size()];
+
+			for (int s = 0; s < sources.size(); s++) {
+				Segment.HostRange range = run.get(sources.get(s)).range(hosts[h]);
+				cursors[s] = range.first;
+				ends[s] = range.first + range.count;
+				hostRows[h] += range.count;
+			}
+
+			// Each segment holds the rows of the host in time order, so a k-way merge keeps them in order
+			for (int r = 0; r < hostRows[h]; r++) {
+				int best = -1;
+				long bestTime = Long.MAX_VALUE;
+
+				for (int s = 0; s < cursors.length; s++) {
+					if (cursors[s] < ends[s]) {
+						long time = run.get(sources.get(s)).time(cursors[s]);
+
+						if (best == -1 || time < bestTime) {
+							best = s;
+							bestTime = time;
+						}
+					}
+				}
+
+				order[next++] = ((long) sources.get(best) << 32) | cursors[best]++;
+			}
+		}
+
+		// Record the sources, and the segments they replaced in turn, so a crash before they are deleted is undone
+		// by load() whichever of them are still on disk
+		TreeSet<Long> replaced = new TreeSet<>();
+
+		for (Segment segment : run) {
+			replaced.add(sequenceOf(segment.getPath()));
+
+			for (long sequence : segment.getReplaced()) {
+				replaced.add(sequence);
+			}
+		}
+
+		long[] replacedSequences = replaced.stream().mapToLong(Long::longValue).toArray();
+		Segment[] sources = run.toArray(new Segment[0]);
+		Path target = segmentPath(windowStart);
+		Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+
+		SegmentFormat.write(temp, windowStart, hosts, hostRows, replacedSequences, new IRowSource() {
+			@Override
+			public long time (int row) {
+				return sources[(int) (order[row] >>> 32)].time((int) order[row]);
+			}
+
+			@Override
+			public long systemClock (int row) {
+				return sources[(int) (order[row] >>> 32)].systemClock((int) order[row]);
+			}
+
+			@Override
+			public double value (int row, MetricNames name) {
+				return sources[(int) (order[row] >>> 32)].value((int) order[row], name);
+			}
+
+			@Override
+			public String text (int row, MetricNames name) {
+				return sources[(int) (order[row] >>> 32)].text((int) order[row], name);
+			}
+		});
+
+		segments.add(publish(temp, target));
+		remove(run);
+
+		return run.size() - 1;
+	}
+
+	/**
+	 * Removes segments from the readable list and deletes their files. Readers still holding a removed segment can
+	 * keep reading its mapping.
+	 *
+	 * @param removed The segments to remove.
+	 */
+	private void remove (List<Segment> removed) {
+		segments.removeAll(removed);
+
+		for (Segment segment : removed) {
+			try {
+				Files.deleteIfExists(segment.getPath());
+			}
+			catch (IOException ex) {
+				System.err.println("Could not delete segment " + segment.getPath() + ": " + ex.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Renames a complete temporary segment file to its final name and opens it.
+	 *
+	 * @param temp The temporary file.
+	 * @param target The final path.
+	 * @return The opened segment.
+	 * @throws IOException If the file could not be renamed or opened.
+	 */
+	private Segment publish (Path temp, Path target) throws IOException {
+		Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+
+		return new Segment(target);
+	}
+
+	/**
+	 * Gets the path of a new segment file of a window.
+	 *
+	 * @param windowStart The start of the window.
+	 * @return The path, named after the window and the next sequence number.
+	 */
+	private Path segmentPath (long windowStart) {
+		return directory.resolve(String.format("segment-%d-%d%s", windowStart, nextSequence.getAndIncrement(), SEGMENT_SUFFIX));
+	}
+
+	/**
+	 * Gets the sequence number of a segment file from its name.
+	 *
+	 * @param file The path of the segment file.
+	 * @return The sequence number.
+	 * @throws NumberFormatException If the name does not end in a sequence number.
+	 */
+	private static long sequenceOf (Path file) {
+		String name = file.getFileName().toString();
+		String[] parts = name.substring(0, name.length() - SEGMENT_SUFFIX.length()).split("-");
+
+		return Long.parseLong(parts[parts.length - 1]);
+	}
+
+	/**
+	 * Opens the segments already in the directory, and deletes temporary files and segments which a merged segment
+	 * replaces, both left by a crash.
+	 *
+	 * @throws IOException If the directory could not be read.
+	 */
+	private void load () throws IOException {
+		long sequence = 0;
+		Map<Long, Segment> loaded = new HashMap<>();
+		Set<Long> replaced = new HashSet<>();
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+
+				if (name.endsWith(TEMP_SUFFIX)) {
+					Files.deleteIfExists(file);
+				}
+				else if (name.startsWith("segment-") && name.endsWith(SEGMENT_SUFFIX)) {
+					try {
+						long fileSequence = sequenceOf(file);
+						Segment segment = new Segment(file);
+
+						loaded.put(fileSequence, segment);
+						sequence = Math.max(sequence, fileSequence + 1);
+
+						for (long source : segment.getReplaced()) {
+							replaced.add(source);
+						}
+					}
+					catch (IOException | NumberFormatException ex) {
+						System.err.println("Skipping unreadable segment " + file + ": " + ex.getMessage());
+					}
+				}
+			}
+		}
+
+		List<Segment> merged = new ArrayList<>();
+
+		for (long source : replaced) {
+			Segment segment = loaded.remove(source);
+
+			if (segment != null) {
+				merged.add(segment);
+			}
+		}
+
+		remove(merged);
+		segments.addAll(loaded.values());
+		nextSequence.set(sequence);
+	}
+}
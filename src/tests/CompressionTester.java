@@ -0,0 +1,141 @@
+package tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+import main.compression.*;
+
+/**
+ * The `CompressionTester` class checks that every compressor gives back exactly the body it compressed. Each
+ * algorithm is run without a dictionary, with a dictionary trained from the small and medium data files, and with
+ * a dictionary whose Adler-32 checksum has its top bit set, which zlib reports as a negative int. The bodies are
+ * the sample data files, an empty body, a single byte and a body cut from the dictionary itself.
+ *
+ * @author Martin Bullman
+ * @version 1.0
+ * @since 2016-08-04
+ */
+public class CompressionTester {
+	/**
+	 * The names of the algorithms tested, as the sender configuration names them.
+	 */
+	private static final String[] ALGORITHMS = {"deflate", "lz4"};
+
+	/**
+	 * Size of the dictionary whose checksum has its top bit set.
+	 */
+	private static final int HIGH_ADLER_SIZE = 64;
+
+	/**
+	 * The main method of the `CompressionTester` class, which prints the result of every round trip and exits with
+	 * status 1 if any of them failed.
+	 *
+	 * @param args Command line arguments.
+	 * @throws IOException If a data file could not be read.
+	 */
+	public static void main (String[] args) throws IOException {
+		File dataDir = new File(System.getProperty("user.dir"), "datafiles");
+		File[] files = dataDir.listFiles(File::isFile);
+
+		if (files == null || files.length == 0) {
+			System.err.println("No data files found in " + dataDir);
+			System.exit(1);
+		}
+
+		Arrays.sort(files);
+
+		DictionaryTrainer trainer = new DictionaryTrainer();
+		trainer.addFile(new File(dataDir, "small_xml_data.xml"));
+		trainer.addFile(new File(dataDir, "medium_xml_data.xml"));
+		trainer.addFile(new File(dataDir, "small_json_data.json"));
+		trainer.addFile(new File(dataDir, "small_metric_csv_data.csv"));
+
+		CompressionDictionary[] dictionaries = {null, trainer.train(DictionaryTrainer.DEFAULT_SIZE), highAdlerDictionary()};
+		int failures = 0;
+		int runs = 0;
+
+		for (String algorithm : ALGORITHMS) {
+			for (CompressionDictionary dictionary : dictionaries) {
+				ICompressor compressor = CompressorRegistry.create(algorithm, dictionary);
+				String name = algorithm + (dictionary == null ? "" : " with dictionary " + Long.toHexString(dictionary.getId()));
+
+				for (File file : files) {
+					runs++;
+					failures += roundTrip(compressor, name, file.getName(), Files.readAllBytes(file.toPath())) ? 0 : 1;
+				}
+
+				runs += 2;
+				failures += roundTrip(compressor, name, "empty body", new byte[0]) ? 0 : 1;
+				failures += roundTrip(compressor, name, "single byte", new byte[] {42}) ? 0 : 1;
+
+				if (dictionary != null) {
+					byte[] bytes = dictionary.getBytes();
+
+					runs++;
+					failures += roundTrip(compressor, name, "dictionary body", Arrays.copyOfRange(bytes, bytes.length / 2, bytes.length)) ? 0 : 1;
+				}
+			}
+		}
+
+		System.out.println(runs - failures + " of " + runs + " round trips passed.");
+
+		if (failures > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Compresses a body, decompresses it again and compares it with the original.
+	 *
+	 * @param compressor The compressor to test.
+	 * @param name The name of the compressor, for the report.
+	 * @param label The name of the body, for the report.
+	 * @param body The body to compress.
+	 * @return True if the body came back unchanged.
+	 */
+	private static boolean roundTrip (ICompressor compressor, String name, String label, byte[] body) {
+		try {
+			byte[] compressed = compressor.compress(body);
+			byte[] restored = compressor.decompress(compressed, body.length);
+
+			if (! Arrays.equals(body, restored)) {
+				System.err.println("FAIL " + name + ", " + label + ": decompressed body differs from the original");
+				return false;
+			}
+
+			System.out.println("OK   " + name + ", " + label + ": " + body.length + " -> " + compressed.length + " bytes");
+			return true;
+		}
+		catch (RuntimeException exception) {
+			System.err.println("FAIL " + name + ", " + label + ": " + exception.getMessage());
+			exception.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Builds a dictionary whose Adler-32 checksum has its top bit set, from seeded random bytes so every run tests
+	 * the same dictionary.
+	 *
+	 * @return The dictionary.
+	 */
+	private static CompressionDictionary highAdlerDictionary () {
+		Random random = new Random(2016);
+		byte[] bytes = new byte[HIGH_ADLER_SIZE];
+		Adler32 adler = new Adler32();
+
+		do {
+			random.nextBytes(bytes);
+			adler.reset();
+			adler.update(bytes);
+		}
+		while ((adler.getValue() & 0x80000000L) == 0);
+
+		return new CompressionDictionary(bytes);
+	}
+}